@@ -0,0 +1,62 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.OverlapAddFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures low-pass filtering one second of 48 kHz audio by filter length: the FFT overlap-add filter against direct convolution. Besides
+ * the operations per second, each benchmark reports "msamples", the rate in millions of samples per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class AudioFilterBenchmark {
+
+	private static final int RATE = 48_000;
+
+	@Param({"31", "255", "1023"})
+	public int taps;
+
+	private float[] coefficients;
+	private float[] signal;
+	private float[] work;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Samples {
+
+		public double msamples;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		coefficients = OverlapAddFilter.windowedSinc(taps, RATE, 4000, false);
+		signal = new float[RATE];
+		for(int i = 0; i < signal.length; i++) signal[i] = (float) random.nextDouble(-1, 1);
+		work = new float[RATE];
+	}
+
+	@Benchmark
+	public float[] overlapAdd(Samples samples) {
+		System.arraycopy(signal, 0, work, 0, signal.length);
+		new OverlapAddFilter(coefficients, false).filter(work, 0, work.length);
+		samples.msamples += RATE / 1e6;
+		return work;
+	}
+
+	@Benchmark
+	public float[] direct(Samples samples) {
+		for(int n = 0; n < signal.length; n++) {
+			float sum = 0.0f;
+			for(int k = 0, end = Math.min(taps, n + 1); k < end; k++) sum += coefficients[k] * signal[n - k];
+			work[n] = sum;
+		}
+		samples.msamples += RATE / 1e6;
+		return work;
+	}
+}
@@ -0,0 +1,70 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.model.PayloadCodec;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.TaskResultStore;
+import garretreichenbach.taskprocessor.processor.BufferPool;
+import garretreichenbach.taskprocessor.processor.ImageProcessor;
+import garretreichenbach.taskprocessor.processor.Resampler;
+import garretreichenbach.taskprocessor.processor.ResamplingFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a whole image scaling task, from resampling to storing the result with LZ4 compression, with the output written to a
+ * freshly allocated array or to an array leased from {@link BufferPool#SHARED}. Run with -prof gc to compare the allocation rate and GC time.
+ * <br/>The pool saves the output allocation when the stored result is compressed (gradient); an incompressible output (photo) is copied
+ * out of the pool at its exact length, so both variants allocate the same.
+ * <br/>The pool statistics are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g", "-XX:+UseG1GC"})
+public class BufferPoolBenchmark {
+
+	@Param({"1920x1080", "4000x3000"})
+	public String size;
+
+	@Param({"gradient", "photo"})
+	public String corpus;
+
+	@Param({"false", "true"})
+	public boolean pooled;
+
+	private final ImageProcessor processor = new ImageProcessor();
+	private ByteBuffer image;
+	private int width;
+	private int height;
+	private TaskResultStore store;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		width = Integer.parseInt(size.substring(0, size.indexOf('x')));
+		height = Integer.parseInt(size.substring(size.indexOf('x') + 1));
+		image = ByteBuffer.wrap(ImageCorpus.generate(corpus, width, height));
+		store = new TaskResultStore(16, PayloadCodec.LZ4, TaskResultStore.DEFAULT_COMPRESSION_THRESHOLD);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BufferPool.Stats stats = BufferPool.SHARED.getStats();
+		System.out.printf("%n[%s/%s pooled=%s] %d leases, hit rate %.3f, %d MB recycled%n", corpus, size, pooled, stats.leases(), stats.hitRate(), stats.bytesRecycled() >> 20);
+	}
+
+	@Benchmark
+	public TaskResultStore scaleAndStore() {
+		Map<String, Object> outputs;
+		if(pooled) {
+			outputs = processor.scaleImage(image, width, height, 0.75, ResamplingFilter.NEAREST);
+		} else {
+			int newWidth = (int) (width * 0.75), newHeight = (int) (height * 0.75);
+			outputs = Map.of("scaled_image", Resampler.resample(image, width, height, newWidth, newHeight, ResamplingFilter.NEAREST), "width", newWidth, "height", newHeight);
+		}
+		store.storeResult(TaskResult.success("scaled", outputs));
+		return store;
+	}
+}
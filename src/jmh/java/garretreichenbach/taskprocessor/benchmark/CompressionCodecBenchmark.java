@@ -0,0 +1,46 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.CompressionCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures compression and decompression time of each {@link CompressionCodec} at its default level on a 1024x1024 RGB image.
+ * <br/>The compression ratio is printed once per trial. Use -p level=N to compare levels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompressionCodecBenchmark {
+
+	@Param({"GZIP", "DEFLATE", "BZIP2", "XZ", "LZ4", "SNAPPY"})
+	public CompressionCodec codec;
+
+	@Param({"gradient", "photo"})
+	public String corpus;
+
+	@Param("-1")
+	public int level;
+
+	private byte[] image;
+	private byte[] compressed;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		image = ImageCorpus.generate(corpus, 1024, 1024);
+		compressed = codec.compress(image, 0, image.length, level);
+		System.out.printf("%n[%s/%s/%d] %d -> %d bytes (%.1f%%)%n", codec, corpus, level, image.length, compressed.length, 100.0 * compressed.length / image.length);
+	}
+
+	@Benchmark
+	public byte[] compress() {
+		return codec.compress(image, 0, image.length, level);
+	}
+
+	@Benchmark
+	public byte[] decompress() throws IOException {
+		return codec.decompress(compressed, image.length);
+	}
+}
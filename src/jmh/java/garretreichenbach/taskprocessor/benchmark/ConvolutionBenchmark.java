@@ -0,0 +1,52 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.Convolution;
+import garretreichenbach.taskprocessor.processor.EdgeMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the convolution engine on a 12 MP photo by kernel radius. Gaussian blurs up to
+ * {@link Convolution#MAX_KERNEL_RADIUS} run as two kernel passes, wider ones as three box blurs, whose cost does not depend on the radius.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ConvolutionBenchmark {
+
+	private static final int WIDTH = 4000;
+	private static final int HEIGHT = 3000;
+
+	@Param({"1", "3", "12", "25", "50"})
+	public int radius;
+
+	private ByteBuffer image;
+	private byte[] target;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		image = ByteBuffer.wrap(ImageCorpus.generate("photo", WIDTH, HEIGHT));
+		target = new byte[WIDTH * HEIGHT * 3];
+	}
+
+	@Benchmark
+	public byte[] gaussianBlur() {
+		Convolution.gaussianBlur(image, WIDTH, HEIGHT, target, radius / 3.0, EdgeMode.MIRROR);
+		return target;
+	}
+
+	@Benchmark
+	public byte[] boxBlur() {
+		Convolution.boxBlur(image, WIDTH, HEIGHT, target, radius, EdgeMode.MIRROR);
+		return target;
+	}
+
+	@Benchmark
+	public byte[] sharpen() {
+		Convolution.sharpen(image, WIDTH, HEIGHT, target, radius / 3.0, 1.0, EdgeMode.MIRROR);
+		return target;
+	}
+}
@@ -0,0 +1,135 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.CsvKernels;
+import garretreichenbach.taskprocessor.processor.CsvParser;
+import garretreichenbach.taskprocessor.processor.CsvTable;
+import garretreichenbach.taskprocessor.processor.Normalization;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing a 64 MiB CSV file of ids, prices, quantities, names and dates: the scalar and SIMD structural scans alone, parsing
+ * with each of them from a heap buffer and with the SIMD scan from a memory-mapped file, the full cleaning pipeline (parse, dedupe and build the columns), and a String based baseline
+ * that splits lines and parses numbers with Double.parseDouble. Besides the operations per second, each benchmark reports "gigabytes",
+ * the rate in GB/s of text parsed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CsvParseBenchmark {
+
+	private static final int SIZE = 64 * 1024 * 1024;
+
+	private final CsvKernels scalarKernels = CsvKernels.forName("scalar");
+	private final CsvKernels vectorKernels = CsvKernels.forName("vector");
+	private final CsvParser scalar = new CsvParser(',', true, true, scalarKernels);
+	private final CsvParser vector = new CsvParser(',', true, true, vectorKernels);
+	private final int[] positions = new int[1024 * 1024];
+	private byte[] text;
+	private ByteBuffer heap;
+	private Path file;
+	private FileChannel channel;
+	private MappedByteBuffer mapped;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Bytes {
+
+		public double gigabytes;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		SplittableRandom random = new SplittableRandom(42);
+		StringBuilder csv = new StringBuilder(SIZE + 256).append("id,price,quantity,name,date\n");
+		for(int row = 0; csv.length() < SIZE; row++) {
+			csv.append(row).append(',').append(random.nextInt(100_000) / 100.0).append(',').append(random.nextInt(1000)).append(",item ").append(random.nextInt(10_000)).append(",2024-").append(random.nextInt(1, 13)).append('-').append(random.nextInt(1, 29)).append('\n');
+		}
+		text = csv.toString().getBytes(StandardCharsets.UTF_8);
+		heap = ByteBuffer.wrap(text);
+		file = Files.createTempFile("benchmark", ".csv");
+		Files.write(file, text);
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, text.length);
+		mapped.load();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		channel.close();
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public int scanScalar(Bytes bytes) {
+		return scan(scalarKernels, bytes);
+	}
+
+	@Benchmark
+	public int scanVector(Bytes bytes) {
+		return scan(vectorKernels, bytes);
+	}
+
+	private int scan(CsvKernels kernels, Bytes bytes) {
+		bytes.gigabytes += text.length / 1e9;
+		int count = 0;
+		for(int from = 0; from < text.length; from += positions.length) count += kernels.scan(text, from, Math.min(text.length, from + positions.length), (byte) ',', positions);
+		return count;
+	}
+
+	@Benchmark
+	public CsvTable parseScalar(Bytes bytes) {
+		bytes.gigabytes += text.length / 1e9;
+		return scalar.parse(heap);
+	}
+
+	@Benchmark
+	public CsvTable parseVector(Bytes bytes) {
+		bytes.gigabytes += text.length / 1e9;
+		return vector.parse(heap);
+	}
+
+	@Benchmark
+	public CsvTable parseMapped(Bytes bytes) {
+		bytes.gigabytes += text.length / 1e9;
+		return vector.parse(mapped);
+	}
+
+	@Benchmark
+	public Map<String, Object> clean(Bytes bytes) {
+		bytes.gigabytes += text.length / 1e9;
+		CsvTable table = vector.parse(mapped);
+		table.deduplicate();
+		return table.toColumns(Normalization.NONE);
+	}
+
+	@Benchmark
+	public List<Object[]> splitStrings(Bytes bytes) throws IOException {
+		bytes.gigabytes += text.length / 1e9;
+		List<Object[]> rows = new ArrayList<>();
+		try(BufferedReader reader = new BufferedReader(new StringReader(new String(text, StandardCharsets.UTF_8)))) {
+			reader.readLine();
+			for(String line; (line = reader.readLine()) != null; ) {
+				String[] fields = line.split(",");
+				rows.add(new Object[] {Double.parseDouble(fields[0]), Double.parseDouble(fields[1]), Double.parseDouble(fields[2]), fields[3].trim(), fields[4].trim()});
+			}
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,54 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.DataAnalysisProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures group-by aggregation of a double column by row count and number of groups (0 for an ungrouped column), against a loop over a
+ * HashMap of boxed keys and DoubleSummaryStatistics, which does not even compute the variance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DataAnalysisBenchmark {
+
+	@Param({"1000000", "10000000", "100000000"})
+	public int rows;
+
+	@Param({"0", "100", "100000"})
+	public int groups;
+
+	private final DataAnalysisProcessor processor = new DataAnalysisProcessor();
+	private double[] values;
+	private long[] keys;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		values = new double[rows];
+		for(int i = 0; i < rows; i++) values[i] = random.nextDouble() * 1000;
+		if(groups > 0) {
+			keys = new long[rows];
+			for(int i = 0; i < rows; i++) keys[i] = random.nextLong(groups);
+		}
+	}
+
+	@Benchmark
+	public Map<String, Object> aggregate() {
+		return processor.aggregate(values, keys);
+	}
+
+	@Benchmark
+	public Map<Long, DoubleSummaryStatistics> boxed() {
+		Map<Long, DoubleSummaryStatistics> statistics = new HashMap<>();
+		for(int i = 0; i < rows; i++) statistics.computeIfAbsent(keys == null ? 0L : keys[i], key -> new DoubleSummaryStatistics()).accept(values[i]);
+		return statistics;
+	}
+}
@@ -0,0 +1,57 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.Fft;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures forward complex transforms by size. Besides the transforms per second, the benchmark reports "msamples", the rate in millions
+ * of complex samples per second, which stays flat while the transform is bound by arithmetic and drops once it no longer fits in cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+public class FftBenchmark {
+
+	@Param({"64", "1024", "4096", "65536", "1048576"})
+	public int size;
+
+	private Fft fft;
+	private float[] real;
+	private float[] imaginary;
+	private float[] workReal;
+	private float[] workImaginary;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Samples {
+
+		public double msamples;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		fft = Fft.forSize(size);
+		real = new float[size];
+		imaginary = new float[size];
+		for(int i = 0; i < size; i++) {
+			real[i] = (float) random.nextDouble(-1, 1);
+			imaginary[i] = (float) random.nextDouble(-1, 1);
+		}
+		workReal = new float[size];
+		workImaginary = new float[size];
+	}
+
+	@Benchmark
+	public float[] forward(Samples samples) {
+		System.arraycopy(real, 0, workReal, 0, size);
+		System.arraycopy(imaginary, 0, workImaginary, 0, size);
+		fft.forward(workReal, workImaginary);
+		samples.msamples += size / 1e6;
+		return workReal;
+	}
+}
@@ -0,0 +1,76 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.BufferPool;
+import garretreichenbach.taskprocessor.processor.ImageFormat;
+import garretreichenbach.taskprocessor.processor.JpegEncoder;
+import garretreichenbach.taskprocessor.processor.PngEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link PngEncoder} and {@link JpegEncoder} with ImageIO.write on a 1920x1080 RGB image. PNGs use the default deflate level
+ * and JPEGs quality 75, ImageIO's default. The baseline is given a BufferedImage built during setup, so only the encoding is measured. Output sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class ImageConversionBenchmark {
+
+	private static final int WIDTH = 1920;
+	private static final int HEIGHT = 1080;
+	private static final int JPEG_QUALITY = 75;
+
+	@Param({"PNG", "JPEG"})
+	public ImageFormat format;
+
+	@Param({"gradient", "photo"})
+	public String corpus;
+
+	private ByteBuffer image;
+	private BufferedImage bufferedImage;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		byte[] data = ImageCorpus.generate(corpus, WIDTH, HEIGHT);
+		image = ByteBuffer.wrap(data);
+		bufferedImage = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+		byte[] bgr = ((DataBufferByte) bufferedImage.getRaster().getDataBuffer()).getData();
+		for(int i = 0; i < data.length; i += 3) {
+			bgr[i] = data[i + 2];
+			bgr[i + 1] = data[i + 1];
+			bgr[i + 2] = data[i];
+		}
+		int encoded;
+		if(format == ImageFormat.PNG) {
+			try(BufferPool.Lease<byte[]> png = PngEncoder.encode(image, WIDTH, HEIGHT, -1)) {
+				encoded = png.length();
+			}
+		} else {
+			encoded = JpegEncoder.encode(image, WIDTH, HEIGHT, JPEG_QUALITY).length;
+		}
+		System.out.printf("%n[%s/%s] %d bytes encoded as %d bytes, ImageIO.write %d bytes%n", format, corpus, data.length, encoded, imageIO().length);
+	}
+
+	@Benchmark
+	public int encoder() throws IOException {
+		if(format == ImageFormat.JPEG) return JpegEncoder.encode(image, WIDTH, HEIGHT, JPEG_QUALITY).length;
+		try(BufferPool.Lease<byte[]> png = PngEncoder.encode(image, WIDTH, HEIGHT, -1)) {
+			return png.length();
+		}
+	}
+
+	@Benchmark
+	public byte[] imageIO() throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		ImageIO.write(bufferedImage, format.name().toLowerCase(), output);
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,52 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generates reproducible packed RGB test images that stand in for the kinds of images clients submit.
+ */
+public final class ImageCorpus {
+
+	private ImageCorpus() {
+	}
+
+	/**
+	 * Generates an image.
+	 * @param kind "gradient" for smooth synthetic content, "photo" for smooth content with sensor-like noise, or "noise" for incompressible data.
+	 * @param width The width of the image.
+	 * @param height The height of the image.
+	 * @return The packed RGB bytes, 3 per pixel.
+	 */
+	public static byte[] generate(String kind, int width, int height) {
+		byte[] data = new byte[width * height * 3];
+		Random random = new Random(width * 31L + height);
+		switch(kind) {
+			case "gradient" -> fillGradient(data, width, height, null);
+			case "photo" -> fillGradient(data, width, height, random);
+			case "noise" -> random.nextBytes(data);
+			default -> throw new IllegalArgumentException("Unknown corpus: " + kind);
+		}
+		return data;
+	}
+
+	private static void fillGradient(byte[] data, int width, int height, Random noise) {
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				int index = (y * width + x) * 3;
+				double fx = (double) x / width;
+				double fy = (double) y / height;
+				int r = (int) (255 * fx);
+				int g = (int) (255 * fy);
+				int b = (int) (127.5 + 127.5 * Math.sin(fx * 12 + fy * 7));
+				if(noise != null) {
+					r += noise.nextInt(9) - 4;
+					g += noise.nextInt(9) - 4;
+					b += noise.nextInt(9) - 4;
+				}
+				data[index] = (byte) Math.max(0, Math.min(255, r));
+				data[index + 1] = (byte) Math.max(0, Math.min(255, g));
+				data[index + 2] = (byte) Math.max(0, Math.min(255, b));
+			}
+		}
+	}
+}
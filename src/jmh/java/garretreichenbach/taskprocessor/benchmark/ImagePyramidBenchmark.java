@@ -0,0 +1,54 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.model.parameters.ImagePyramidParameters;
+import garretreichenbach.taskprocessor.processor.ImageProcessor;
+import garretreichenbach.taskprocessor.processor.ResamplingFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares producing a preview, a small preview and a thumbnail of a 12 MP photo as three separate scaling tasks against one pyramid task,
+ * with the largest scale alone as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ImagePyramidBenchmark {
+
+	private static final int WIDTH = 4000;
+	private static final int HEIGHT = 3000;
+	private static final List<ImagePyramidParameters.Size> SIZES = List.of(new ImagePyramidParameters.Size(2000, 1500), new ImagePyramidParameters.Size(800, 600), new ImagePyramidParameters.Size(160, 120));
+
+	@Param({"AREA", "BILINEAR", "LANCZOS"})
+	public ResamplingFilter filter;
+
+	private final ImageProcessor processor = new ImageProcessor();
+	private ByteBuffer image;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		image = ByteBuffer.wrap(ImageCorpus.generate("photo", WIDTH, HEIGHT));
+	}
+
+	@Benchmark
+	public Map<String, Object> largestOnly() {
+		return processor.scaleImage(image, WIDTH, HEIGHT, 0.5, filter);
+	}
+
+	@Benchmark
+	public Object separateTasks() {
+		Object last = null;
+		for(ImagePyramidParameters.Size size : SIZES) last = processor.scaleImage(image, WIDTH, HEIGHT, (double) size.width() / WIDTH, filter);
+		return last;
+	}
+
+	@Benchmark
+	public Map<String, Object> pyramid() {
+		return processor.buildPyramid(image, WIDTH, HEIGHT, SIZES, filter);
+	}
+}
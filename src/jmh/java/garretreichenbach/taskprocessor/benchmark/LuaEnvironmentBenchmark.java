@@ -0,0 +1,59 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.lua.LuaEnvironment;
+import org.luaj.vm2.LuaValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-task overhead of running a short CUSTOM_TASK script, with its compiled form cached and with the cache cleared before
+ * every task, as every task compiled its script before the cache, and preparing the cached script alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class LuaEnvironmentBenchmark {
+
+	private static final String SCRIPT = """
+			local function fib(n)
+				if n < 2 then return n end
+				local a, b = 0, 1
+				for i = 2, n do a, b = b, a + b end
+				return b
+			end
+
+			local function summarize(values)
+				local sum, min, max = 0, math.huge, -math.huge
+				for i = 1, #values do
+					local value = values[i]
+					sum = sum + value
+					min = math.min(min, value)
+					max = math.max(max, value)
+				end
+				return {sum = sum, min = min, max = max, mean = sum / #values}
+			end
+
+			local result = summarize({3, 1, 4, 1, 5, 9, 2, 6})
+			result.fib = fib(20)
+			result.message = string.format("mean %.2f", result.mean)
+			return result
+			""";
+
+	@Benchmark
+	public LuaValue cached() {
+		return LuaEnvironment.create(SCRIPT).call();
+	}
+
+	@Benchmark
+	public LuaValue uncached() {
+		LuaEnvironment.getScriptCache().clear();
+		return LuaEnvironment.create(SCRIPT).call();
+	}
+
+	@Benchmark
+	public LuaValue setup() {
+		return LuaEnvironment.create(SCRIPT);
+	}
+}
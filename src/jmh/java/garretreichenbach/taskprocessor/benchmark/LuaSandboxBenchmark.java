@@ -0,0 +1,43 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.lua.LuaEnvironment;
+import org.luaj.vm2.LuaValue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a short CUSTOM_TASK script that calls string methods, after a number of tasks have already run in the same JVM.
+ * The cost stays flat however many tasks ran before, as the sandbox and the string metatable are built once rather than per task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class LuaSandboxBenchmark {
+
+	private static final String SCRIPT = """
+			local words = {"alpha", "beta", "gamma", "delta", "epsilon"}
+			local result = {}
+			for i = 1, #words do
+				local word = words[i]
+				result[word] = word:upper():sub(1, 3) .. string.rep("-", word:len()) .. string.format("%03d", i)
+			end
+			total = (total or 0) + 1
+			result.total = total
+			return result
+			""";
+
+	@Param({"0", "1000000"})
+	public int tasksBefore;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		for(int i = 0; i < tasksBefore; i++) LuaEnvironment.create(SCRIPT).call();
+	}
+
+	@Benchmark
+	public LuaValue task() {
+		return LuaEnvironment.create(SCRIPT).call();
+	}
+}
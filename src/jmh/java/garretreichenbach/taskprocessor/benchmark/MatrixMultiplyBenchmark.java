@@ -0,0 +1,79 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.LinearAlgebra;
+import garretreichenbach.taskprocessor.processor.MatrixKernels;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures square matrix products by size: the blocked product with the scalar and SIMD kernels, against a naive triple loop. Besides the
+ * operations per second, each benchmark reports "gflop", the rate in GFLOP/s counting a multiply and an add per term.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MatrixMultiplyBenchmark {
+
+	@Param({"64", "256", "1024", "2048"})
+	public int size;
+
+	private final LinearAlgebra scalar = new LinearAlgebra(MatrixKernels.forName("scalar"), ForkJoinPool.commonPool());
+	private final LinearAlgebra vector = new LinearAlgebra(MatrixKernels.forName("vector"), ForkJoinPool.commonPool());
+	private double[] a;
+	private double[] b;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Flops {
+
+		public double gflop;
+
+		private double perProduct;
+
+		@Setup(Level.Trial)
+		public void setup(MatrixMultiplyBenchmark benchmark) {
+			perProduct = 2.0 * benchmark.size * benchmark.size * benchmark.size / 1e9;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		a = new double[size * size];
+		b = new double[size * size];
+		for(int i = 0; i < a.length; i++) {
+			a[i] = random.nextDouble() * 2 - 1;
+			b[i] = random.nextDouble() * 2 - 1;
+		}
+	}
+
+	@Benchmark
+	public double[] blockedVector(Flops flops) {
+		flops.gflop += flops.perProduct;
+		return vector.multiply(a, b, size, size, size);
+	}
+
+	@Benchmark
+	public double[] blockedScalar(Flops flops) {
+		flops.gflop += flops.perProduct;
+		return scalar.multiply(a, b, size, size, size);
+	}
+
+	@Benchmark
+	public double[] naive(Flops flops) {
+		flops.gflop += flops.perProduct;
+		double[] c = new double[size * size];
+		for(int i = 0; i < size; i++) {
+			for(int j = 0; j < size; j++) {
+				double sum = 0.0;
+				for(int p = 0; p < size; p++) sum += a[i * size + p] * b[p * size + j];
+				c[i * size + j] = sum;
+			}
+		}
+		return c;
+	}
+}
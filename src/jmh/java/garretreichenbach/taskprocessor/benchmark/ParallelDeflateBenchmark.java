@@ -0,0 +1,44 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.CompressionCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares gzip of a 1920x1080 RGB image as a single stream and in parallel blocks.
+ * <br/>Decompression of the parallel output inflates its segments in parallel; the single stream is always inflated sequentially.
+ * Run with -Djava.util.concurrent.ForkJoinPool.common.parallelism=N to vary the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelDeflateBenchmark {
+
+	@Param({"false", "true"})
+	public boolean parallel;
+
+	@Param({"gradient", "photo"})
+	public String corpus;
+
+	private byte[] image;
+	private byte[] compressed;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		image = ImageCorpus.generate(corpus, 1920, 1080);
+		compressed = compress();
+		System.out.printf("%n[%s/%s] %d -> %d bytes (%.1f%%)%n", parallel ? "parallel" : "single", corpus, image.length, compressed.length, 100.0 * compressed.length / image.length);
+	}
+
+	@Benchmark
+	public byte[] compress() {
+		return CompressionCodec.GZIP.compress(image, 0, image.length, -1, parallel);
+	}
+
+	@Benchmark
+	public byte[] decompress() throws IOException {
+		return CompressionCodec.GZIP.decompress(compressed, image.length);
+	}
+}
@@ -0,0 +1,75 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.PixelKernels;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and SIMD {@link PixelKernels} on one 1920x1080 RGB frame per operation.
+ * <br/>multiplyAdd and narrow run over the same number of bytes as one frame, as the vertical pass of the Resampler does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PixelKernelsBenchmark {
+
+	private static final int PIXELS = 1920 * 1080;
+
+	@Param({"scalar", "vector"})
+	public String implementation;
+
+	private PixelKernels kernels;
+	private byte[] rgb;
+	private byte[] other;
+	private byte[] target;
+	private int[] packed;
+	private int[] accumulator;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		kernels = PixelKernels.forName(implementation);
+		rgb = ImageCorpus.generate("photo", 1920, 1080);
+		other = ImageCorpus.generate("gradient", 1920, 1080);
+		target = new byte[rgb.length];
+		packed = new int[PIXELS];
+		accumulator = new int[rgb.length];
+		kernels.rgbToInt(rgb, 0, packed, 0, PIXELS);
+	}
+
+	@Benchmark
+	public int[] rgbToInt() {
+		kernels.rgbToInt(rgb, 0, packed, 0, PIXELS);
+		return packed;
+	}
+
+	@Benchmark
+	public byte[] intToRgb() {
+		kernels.intToRgb(packed, 0, target, 0, PIXELS);
+		return target;
+	}
+
+	@Benchmark
+	public byte[] swapRedBlue() {
+		kernels.swapRedBlue(rgb, 0, target, 0, PIXELS);
+		return target;
+	}
+
+	@Benchmark
+	public byte[] blend() {
+		kernels.blend(rgb, 0, other, 0, 100, target, 0, rgb.length);
+		return target;
+	}
+
+	@Benchmark
+	public int[] multiplyAdd() {
+		kernels.multiplyAdd(rgb, 0, 1 << 20, accumulator, 0, rgb.length);
+		return accumulator;
+	}
+
+	@Benchmark
+	public byte[] narrow() {
+		kernels.narrow(accumulator, 0, 22, target, 0, rgb.length);
+		return target;
+	}
+}
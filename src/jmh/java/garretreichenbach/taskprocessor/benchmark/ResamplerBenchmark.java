@@ -0,0 +1,65 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.Resampler;
+import garretreichenbach.taskprocessor.processor.ResamplingFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares halving a 4:3 photo-like image with the {@link Resampler} against the previous BufferedImage path ("awt"),
+ * which unpacked the bytes into an int[], scaled with Graphics.drawImage and repacked the result.
+ * <br/>Run with -prof gc to compare the bytes allocated per image.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ResamplerBenchmark {
+
+	@Param({"awt", "nearest", "area", "bilinear", "bicubic", "lanczos"})
+	public String method;
+
+	@Param({"1", "12", "50"})
+	public int megapixels;
+
+	private int width;
+	private int height;
+	private ByteBuffer image;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		width = (int) Math.sqrt(megapixels * 1_000_000 * 4.0 / 3.0);
+		height = width * 3 / 4;
+		image = ByteBuffer.wrap(ImageCorpus.generate("photo", width, height));
+	}
+
+	@Benchmark
+	public byte[] halve() {
+		if(method.equals("awt")) return awt(image, width, height, width / 2, height / 2);
+		return Resampler.resample(image, width, height, width / 2, height / 2, ResamplingFilter.valueOf(method.toUpperCase()));
+	}
+
+	private static byte[] awt(ByteBuffer data, int width, int height, int newWidth, int newHeight) {
+		int[] pixels = new int[width * height];
+		for(int i = 0; i < width * height; i++) {
+			int index = i * 3;
+			pixels[i] = (data.get(index) & 0xFF) << 16 | (data.get(index + 1) & 0xFF) << 8 | data.get(index + 2) & 0xFF;
+		}
+		BufferedImage source = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		source.getRaster().setDataElements(0, 0, width, height, pixels);
+		BufferedImage scaled = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
+		scaled.getGraphics().drawImage(source, 0, 0, newWidth, newHeight, null);
+		int[] scaledPixels = new int[newWidth * newHeight];
+		scaled.getRaster().getDataElements(0, 0, newWidth, newHeight, scaledPixels);
+		byte[] result = new byte[scaledPixels.length * 3];
+		for(int i = 0; i < scaledPixels.length; i++) {
+			result[i * 3] = (byte) (scaledPixels[i] >> 16);
+			result[i * 3 + 1] = (byte) (scaledPixels[i] >> 8);
+			result[i * 3 + 2] = (byte) scaledPixels[i];
+		}
+		return result;
+	}
+}
@@ -0,0 +1,49 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.model.PayloadCodec;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.TaskResultStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of storing and reading a 1080p image output with each {@link PayloadCodec}.
+ * <br/>The memory saved per image is printed once per trial from {@link TaskResultStore#getCompressionStats()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResultCompressionBenchmark {
+
+	@Param({"gradient", "photo", "noise"})
+	public String corpus;
+
+	@Param({"NONE", "LZ4", "SNAPPY"})
+	public PayloadCodec codec;
+
+	private byte[] image;
+	private TaskResultStore store;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		image = ImageCorpus.generate(corpus, 1920, 1080);
+		store = new TaskResultStore(16, codec, TaskResultStore.DEFAULT_COMPRESSION_THRESHOLD);
+		store.storeResult(TaskResult.success("read", Map.of("scaled_image", image)));
+		TaskResultStore.CompressionStats stats = store.getCompressionStats();
+		long stored = stats.payloadsCompressed() == 0 ? image.length : stats.compressedBytes();
+		System.out.printf("%n[%s/%s] %d bytes held as %d bytes (%.1f%% of original)%n", corpus, codec, image.length, stored, 100.0 * stored / image.length);
+	}
+
+	@Benchmark
+	public TaskResultStore store() {
+		store.storeResult(TaskResult.success("write", Map.of("scaled_image", image)));
+		return store;
+	}
+
+	@Benchmark
+	public Object read() {
+		return store.getResult("read").getOutput().get("scaled_image");
+	}
+}
@@ -0,0 +1,71 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.DataAnalysisProcessor;
+import garretreichenbach.taskprocessor.processor.sketch.Sketch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures building each sketch over a column, against an exact distinct count with a HashSet of boxed keys, and merging the serialized
+ * sketches of 16 partitions as a "merge" task would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SketchBenchmark {
+
+	@Param({"1000000", "10000000"})
+	public int rows;
+
+	private final DataAnalysisProcessor processor = new DataAnalysisProcessor();
+	private double[] values;
+	private long[] keys;
+	private List<byte[]> partitions;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		values = new double[rows];
+		keys = new long[rows];
+		for(int i = 0; i < rows; i++) {
+			values[i] = random.nextDouble() * 1000;
+			keys[i] = random.nextLong(rows / 4);
+		}
+		partitions = IntStream.range(0, 16).mapToObj(partition -> processor.quantiles(Arrays.copyOfRange(values, rows / 16 * partition, rows / 16 * (partition + 1))).toBytes()).toList();
+	}
+
+	@Benchmark
+	public long distinct() {
+		return processor.distinct(null, keys).estimate();
+	}
+
+	@Benchmark
+	public int distinctExact() {
+		Set<Long> distinct = new HashSet<>();
+		for(long key : keys) distinct.add(key);
+		return distinct.size();
+	}
+
+	@Benchmark
+	public double quantiles() {
+		return processor.quantiles(values).quantile(0.99);
+	}
+
+	@Benchmark
+	public long[] heavyHitters() {
+		return processor.heavyHitters(keys).topKeys(10);
+	}
+
+	@Benchmark
+	public Sketch merge() {
+		return processor.merge(partitions);
+	}
+}
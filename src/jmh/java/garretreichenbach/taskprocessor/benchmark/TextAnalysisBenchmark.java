@@ -0,0 +1,77 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import garretreichenbach.taskprocessor.processor.TextAnalyzer;
+import garretreichenbach.taskprocessor.processor.TextStatistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures counting the terms, and the terms and bigrams, of 64 MiB of text drawn from a 50,000 word vocabulary with a skewed
+ * distribution, against a String based baseline that splits the text on non-word characters and counts into a HashMap. Besides the
+ * operations per second, each benchmark reports "gigabytes", the rate in GB/s of text counted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TextAnalysisBenchmark {
+
+	private static final int SIZE = 64 * 1024 * 1024;
+
+	private final TextAnalyzer terms = new TextAnalyzer(1, true);
+	private final TextAnalyzer bigrams = new TextAnalyzer(2, true);
+	private byte[] text;
+	private ByteBuffer heap;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Bytes {
+
+		public double gigabytes;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		SplittableRandom random = new SplittableRandom(42);
+		String[] vocabulary = new String[50_000];
+		for(int i = 0; i < vocabulary.length; i++) {
+			StringBuilder word = new StringBuilder();
+			for(int length = 2 + random.nextInt(9); word.length() < length; ) word.append((char) ('a' + random.nextInt(26)));
+			vocabulary[i] = word.toString();
+		}
+		StringBuilder builder = new StringBuilder(SIZE + 64);
+		while(builder.length() < SIZE) {
+			builder.append(vocabulary[(int) (Math.pow(random.nextDouble(), 3) * vocabulary.length)]);
+			int separator = random.nextInt(16);
+			builder.append(separator == 0 ? ". " : separator == 1 ? ", " : separator == 2 ? "\n" : " ");
+		}
+		text = builder.toString().getBytes(StandardCharsets.UTF_8);
+		heap = ByteBuffer.wrap(text);
+	}
+
+	@Benchmark
+	public TextStatistics countTerms(Bytes bytes) {
+		bytes.gigabytes += text.length / 1e9;
+		return terms.analyze(heap);
+	}
+
+	@Benchmark
+	public TextStatistics countBigrams(Bytes bytes) {
+		bytes.gigabytes += text.length / 1e9;
+		return bigrams.analyze(heap);
+	}
+
+	@Benchmark
+	public Map<String, Integer> hashMapTerms(Bytes bytes) {
+		bytes.gigabytes += text.length / 1e9;
+		Map<String, Integer> counts = new HashMap<>();
+		for(String token : new String(text, StandardCharsets.UTF_8).toLowerCase().split("[^\\p{L}\\p{N}']+")) if(!token.isEmpty()) counts.merge(token, 1, Integer::sum);
+		return counts;
+	}
+}
@@ -0,0 +1,106 @@
+package garretreichenbach.taskprocessor.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskStreamReader;
+import garretreichenbach.taskprocessor.model.TaskType;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding and decoding an image scaling task in each wire format.
+ * <br/>"legacy" reproduces the previous org.json path, which wrote byte[] parameters as arrays of numbers.
+ * "stream-json" and "stream-cbor" decode the json and cbor encodings with the {@link TaskStreamReader} used for submissions;
+ * run with {@code -prof gc} to compare the bytes allocated per decoded task.
+ * The encoded size of each format is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WireFormatBenchmark {
+
+	private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+	private static final ObjectMapper CBOR_MAPPER = new CBORMapper();
+	private static final TaskStreamReader JSON_READER = new TaskStreamReader(JSON_MAPPER, TaskStreamReader.DEFAULT_MAX_PAYLOAD_BYTES);
+	private static final TaskStreamReader CBOR_READER = new TaskStreamReader(CBOR_MAPPER, TaskStreamReader.DEFAULT_MAX_PAYLOAD_BYTES);
+
+	@Param({"legacy", "orgjson", "json", "cbor", "stream-json", "stream-cbor"})
+	public String format;
+
+	@Param({"256", "1024"})
+	public int size;
+
+	private Task task;
+	private byte[] encoded;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("data", ImageCorpus.generate("photo", size, size));
+		parameters.put("width", size);
+		parameters.put("height", size);
+		parameters.put("scale", 0.5);
+		task = new Task(UUID.randomUUID().toString(), TaskType.IMAGE_SCALING, parameters, 5);
+		encoded = encode();
+		int raw = size * size * 3;
+		System.out.printf("%n[%s/%d] %d bytes of image data encoded as %d bytes (%.2fx)%n", format, size, raw, encoded.length, (double) encoded.length / raw);
+	}
+
+	@Benchmark
+	public byte[] encode() throws Exception {
+		return switch(format) {
+			case "legacy" -> legacyJSON(task).toString().getBytes(StandardCharsets.UTF_8);
+			case "orgjson" -> task.toJSON().toString().getBytes(StandardCharsets.UTF_8);
+			case "json", "stream-json" -> JSON_MAPPER.writeValueAsBytes(task);
+			case "cbor", "stream-cbor" -> CBOR_MAPPER.writeValueAsBytes(task);
+			default -> throw new IllegalStateException(format);
+		};
+	}
+
+	@Benchmark
+	public Object decode() throws Exception {
+		return switch(format) {
+			case "legacy" -> fromLegacyJSON(new JSONObject(new String(encoded, StandardCharsets.UTF_8)));
+			case "orgjson" -> {
+				Task decoded = new Task(null, TaskType.IMAGE_SCALING, null, 0);
+				decoded.fromJSON(new JSONObject(new String(encoded, StandardCharsets.UTF_8)));
+				yield decoded;
+			}
+			case "json" -> JSON_MAPPER.readValue(encoded, Task.class);
+			case "cbor" -> CBOR_MAPPER.readValue(encoded, Task.class);
+			case "stream-json" -> JSON_READER.read(new ByteArrayInputStream(encoded));
+			case "stream-cbor" -> CBOR_READER.read(new ByteArrayInputStream(encoded));
+			default -> throw new IllegalStateException(format);
+		};
+	}
+
+	private static JSONObject legacyJSON(Task task) {
+		JSONObject jsonObject = new JSONObject();
+		jsonObject.put("id", task.getId());
+		jsonObject.put("type", task.getType().name());
+		jsonObject.put("priority", task.getPriority());
+		jsonObject.put("createdAt", task.getCreatedAt());
+		JSONObject params = new JSONObject();
+		for(Map.Entry<String, Object> entry : task.getParameters().entrySet()) params.put(entry.getKey(), entry.getValue());
+		jsonObject.put("parameters", params);
+		return jsonObject;
+	}
+
+	private static Map<String, Object> fromLegacyJSON(JSONObject jsonObject) {
+		Map<String, Object> parameters = jsonObject.getJSONObject("parameters").toMap();
+		JSONArray array = jsonObject.getJSONObject("parameters").getJSONArray("data");
+		byte[] data = new byte[array.length()];
+		for(int i = 0; i < data.length; i++) data[i] = (byte) array.getInt(i);
+		parameters.put("data", data);
+		return parameters;
+	}
+}
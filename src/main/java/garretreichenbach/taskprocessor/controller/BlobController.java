@@ -0,0 +1,65 @@
+package garretreichenbach.taskprocessor.controller;
+
+import garretreichenbach.taskprocessor.model.TaskStreamReader;
+import garretreichenbach.taskprocessor.service.BlobStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Uploads and retrieves content-addressed payloads from the {@link BlobStore}.
+ * <br/>Clients upload an image once, then reference it from any number of tasks with {@code {"blob": "sha256:<hex>"}}.
+ * A HEAD request tells a client whether a blob is already stored, so it never has to send the same bytes twice.
+ */
+@RestController @RequestMapping("/api/blobs")
+public class BlobController {
+
+	private final BlobStore blobStore;
+
+	@Autowired
+	public BlobController(BlobStore blobStore) {
+		this.blobStore = blobStore;
+	}
+
+	@PostMapping(consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+	public ResponseEntity<?> uploadBlob(InputStream body) throws IOException {
+		try {
+			String reference = blobStore.put(body, TaskStreamReader.DEFAULT_MAX_PAYLOAD_BYTES);
+			return ResponseEntity.created(URI.create("/api/blobs/" + reference)).body(Map.of(BlobStore.REFERENCE_KEY, reference));
+		} catch(IllegalArgumentException exception) {
+			return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(exception.getMessage());
+		}
+	}
+
+	@RequestMapping(value = "/{reference}", method = RequestMethod.HEAD)
+	public ResponseEntity<?> hasBlob(@PathVariable String reference) {
+		try {
+			long size = blobStore.size(reference);
+			if(size < 0) return ResponseEntity.notFound().build();
+			return ResponseEntity.ok().contentLength(size).build();
+		} catch(IllegalArgumentException exception) {
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
+	@GetMapping("/{reference}")
+	public ResponseEntity<?> getBlob(@PathVariable String reference) {
+		try {
+			ByteBuffer blob = blobStore.get(reference);
+			if(blob == null) return ResponseEntity.notFound().build();
+			byte[] data = new byte[blob.remaining()];
+			blob.get(data);
+			return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(data);
+		} catch(IllegalArgumentException exception) {
+			return ResponseEntity.badRequest().body(exception.getMessage());
+		}
+	}
+}
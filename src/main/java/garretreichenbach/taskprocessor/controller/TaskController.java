@@ -1,27 +1,55 @@
 package garretreichenbach.taskprocessor.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import garretreichenbach.taskprocessor.model.ResultFilter;
 import garretreichenbach.taskprocessor.model.Task;
 import garretreichenbach.taskprocessor.model.TaskResult;
 import garretreichenbach.taskprocessor.model.TaskResultStore;
+import garretreichenbach.taskprocessor.service.BlobStore;
 import garretreichenbach.taskprocessor.service.TaskQueueService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @RestController @RequestMapping("/api/tasks")
 public class TaskController {
 
+	private static final ObjectMapper NDJSON_MAPPER = new ObjectMapper().disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
 	private final TaskQueueService queueService;
 	private final TaskResultStore resultStore;
+	private final BlobStore blobStore;
 
 	@Autowired
-	public TaskController(TaskQueueService queueService, TaskResultStore resultStore) {
+	public TaskController(TaskQueueService queueService, TaskResultStore resultStore, BlobStore blobStore) {
 		this.queueService = queueService;
 		this.resultStore = resultStore;
+		this.blobStore = blobStore;
 	}
 
+	/**
+	 * Submits a task. Parameters that reference a stored blob ({@code {"blob": "sha256:<hex>"}}) are resolved to a shared read-only view of the blob,
+	 * then the parameters are bound to the parameter record of the task type, so invalid tasks are rejected here rather than on a worker.
+	 */
 	@PostMapping
 	public ResponseEntity<Task> submitTask(@RequestBody Task task) {
+		try {
+			blobStore.resolveReferences(task.getParameters());
+			task.bindParameters();
+		} catch(IllegalArgumentException exception) {
+			return ResponseEntity.badRequest().build();
+		}
 		TaskQueueService.QueueType addedTo = queueService.submitTask(task);
 		if(addedTo == null) return ResponseEntity.status(503).body(null);
 		return ResponseEntity.status(202).body(task);
@@ -50,8 +78,28 @@ public class TaskController {
 	}
 
 	@GetMapping("/results")
-	public ResponseEntity<?> getAllResults() {
-		return ResponseEntity.ok(resultStore.getAllResults());
+	public ResponseEntity<?> getAllResults(@RequestParam(required = false) String queue, @RequestParam(required = false) String type, @RequestParam(required = false) String status, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "100") int limit, @RequestParam(required = false) String fields) {
+		try {
+			ResultFilter filter = ResultFilter.parse(queue, type, status);
+			EnumSet<TaskResult.Field> selected = TaskResult.Field.parse(fields);
+			return ResponseEntity.ok(resultStore.getResultsPage(filter, cursor, limit).map(result -> result.project(selected)));
+		} catch(IllegalArgumentException exception) {
+			return ResponseEntity.badRequest().body(exception.getMessage());
+		}
+	}
+
+	@GetMapping("/results/stream")
+	public ResponseEntity<?> streamResults(@RequestParam(required = false) String queue, @RequestParam(required = false) String type, @RequestParam(required = false) String status, @RequestParam(required = false) String cursor, @RequestParam(required = false) String fields) {
+		EnumSet<TaskResult.Field> selected;
+		Stream<TaskResult> results;
+		try {
+			selected = TaskResult.Field.parse(fields);
+			results = resultStore.streamResults(ResultFilter.parse(queue, type, status), cursor);
+		} catch(IllegalArgumentException exception) {
+			return ResponseEntity.badRequest().body(exception.getMessage());
+		}
+		StreamingResponseBody body = outputStream -> writeNdjson(results, selected, outputStream);
+		return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
 	}
 
 	@GetMapping("/results/recent")
@@ -59,8 +107,14 @@ public class TaskController {
 		return ResponseEntity.ok(resultStore.getRecentResults(limit));
 	}
 
+	/**
+	 * Returns the result of a single task or, when the path names a queue tier, a page of the results processed from that queue.
+	 * <br/>Both lookups share one route because "/results/{taskId}" and "/results/{queueName}" cannot be told apart by path alone.
+	 */
 	@GetMapping("/results/{taskId}")
-	public ResponseEntity<?> getResultById(@PathVariable String taskId) {
+	public ResponseEntity<?> getResultById(@PathVariable String taskId, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "100") int limit, @RequestParam(required = false) String fields) {
+		TaskQueueService.QueueType queueType = parseQueueName(taskId);
+		if(queueType != null) return getAllResults(queueType.name(), null, null, cursor, limit, fields);
 		TaskResult result = resultStore.getResult(taskId);
 		if(result == null) return ResponseEntity.notFound().build();
 		return ResponseEntity.ok(result);
@@ -68,17 +122,34 @@ public class TaskController {
 
 	@GetMapping("/results/{queueName}/recent")
 	public ResponseEntity<?> getRecentResultsByQueue(@PathVariable String queueName, @RequestParam(defaultValue = "10") int limit) {
-		return switch(queueName.toLowerCase()) {
-			case "high", "normal", "low" -> ResponseEntity.ok(resultStore.getRecentResults(limit));
-			default -> ResponseEntity.badRequest().body("Invalid queue name");
-		};
+		TaskQueueService.QueueType queueType = parseQueueName(queueName);
+		if(queueType == null) return ResponseEntity.badRequest().body("Invalid queue name");
+		return ResponseEntity.ok(resultStore.getRecentResults(ResultFilter.byQueue(queueType), limit));
 	}
 
-	@GetMapping("/results/{queueName}")
-	public ResponseEntity<?> getResultsByQueue(@PathVariable String queueName) {
+	private static TaskQueueService.QueueType parseQueueName(String queueName) {
 		return switch(queueName.toLowerCase()) {
-			case "high", "normal", "low" -> ResponseEntity.ok(resultStore.getAllResults());
-			default -> ResponseEntity.badRequest().body("Invalid queue name");
+			case "high" -> TaskQueueService.QueueType.HIGH;
+			case "normal" -> TaskQueueService.QueueType.NORMAL;
+			case "low" -> TaskQueueService.QueueType.LOW;
+			case "backlog" -> TaskQueueService.QueueType.BACKLOG;
+			default -> null;
 		};
 	}
+
+	/**
+	 * Writes each result as a single line of JSON, one result at a time.
+	 * @param results The results to write.
+	 * @param fields The fields to include for each result.
+	 * @param outputStream The response stream.
+	 */
+	private static void writeNdjson(Stream<TaskResult> results, Set<TaskResult.Field> fields, OutputStream outputStream) throws IOException {
+		JsonGenerator generator = NDJSON_MAPPER.createGenerator(outputStream);
+		generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+		for(Iterator<TaskResult> iterator = results.iterator(); iterator.hasNext(); ) {
+			NDJSON_MAPPER.writeValue(generator, iterator.next().project(fields));
+			generator.writeRaw('\n');
+		}
+		generator.close();
+	}
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package garretreichenbach.taskprocessor.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskStreamReader;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+
+/**
+ * Reads submitted {@link Task}s with a {@link TaskStreamReader} instead of binding a fully buffered body.
+ * <br/>Requests whose Content-Length already exceeds the payload limit are rejected before the body is read,
+ * and oversized binary parameters are rejected as soon as the limit is crossed. Both answer 413 Payload Too Large.
+ * Writing tasks is left to the regular Jackson converters.
+ */
+@Component
+public class TaskHttpMessageConverter extends AbstractHttpMessageConverter<Task> {
+
+	/**
+	 * Allowance for the non-binary parts of a task (id, type, scalar parameters) on top of the payload limit.
+	 */
+	private static final long METADATA_ALLOWANCE = 64 * 1024;
+
+	private static final MediaType APPLICATION_CBOR = MediaType.parseMediaType("application/cbor");
+
+	private final TaskStreamReader jsonReader;
+	private final TaskStreamReader cborReader;
+
+	public TaskHttpMessageConverter() {
+		this(TaskStreamReader.DEFAULT_MAX_PAYLOAD_BYTES);
+	}
+
+	/**
+	 * @param maxPayloadBytes the maximum total size of the binary parameters of a task
+	 */
+	public TaskHttpMessageConverter(long maxPayloadBytes) {
+		super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), APPLICATION_CBOR);
+		jsonReader = new TaskStreamReader(new ObjectMapper(), maxPayloadBytes);
+		cborReader = new TaskStreamReader(new CBORMapper(), maxPayloadBytes);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return Task.class == clazz;
+	}
+
+	@Override
+	protected boolean canWrite(MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected Task readInternal(Class<? extends Task> clazz, HttpInputMessage inputMessage) throws IOException {
+		MediaType contentType = inputMessage.getHeaders().getContentType();
+		TaskStreamReader reader = contentType != null && APPLICATION_CBOR.includes(contentType) ? cborReader : jsonReader;
+		long contentLength = inputMessage.getHeaders().getContentLength();
+		if(contentLength > reader.getMaxPayloadBytes() * 4 / 3 + METADATA_ALLOWANCE) throw tooLarge(new TaskStreamReader.PayloadTooLargeException(reader.getMaxPayloadBytes()));
+		try {
+			return reader.read(inputMessage.getBody());
+		} catch(TaskStreamReader.PayloadTooLargeException exception) {
+			throw tooLarge(exception);
+		} catch(IllegalArgumentException | JsonProcessingException exception) {
+			throw new HttpMessageNotReadableException("Invalid task: " + exception.getMessage(), exception, inputMessage);
+		}
+	}
+
+	@Override
+	protected void writeInternal(Task task, HttpOutputMessage outputMessage) {
+		throw new UnsupportedOperationException("TaskHttpMessageConverter only reads tasks");
+	}
+
+	private static ResponseStatusException tooLarge(TaskStreamReader.PayloadTooLargeException exception) {
+		return new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, exception.getMessage(), exception);
+	}
+}
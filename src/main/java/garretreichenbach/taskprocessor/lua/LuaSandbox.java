@@ -0,0 +1,103 @@
+package garretreichenbach.taskprocessor.lua;
+
+import lombok.extern.slf4j.Slf4j;
+import org.luaj.vm2.*;
+import org.luaj.vm2.lib.*;
+import org.luaj.vm2.lib.jse.JseBaseLib;
+import org.luaj.vm2.lib.jse.JseMathLib;
+
+import static org.luaj.vm2.LuaValue.NIL;
+
+/**
+ * The sandbox for Lua scripts, built once when it is first used and shared by every task on every thread.
+ * <br/>Building the globals and loading the libraries takes far longer than a short script runs, so it is done once: the libraries are
+ * loaded, everything that is not whitelisted is removed, and the result, libraries and metatables included, is frozen into
+ * {@link ReadOnlyLuaTable}s. The string metatable, which LuaJ keeps in a static, is made read-only at the same time, once per JVM. Each
+ * script runs with an empty environment table of its own that falls back to the frozen globals for reads. Globals a script assigns land in
+ * its own environment, which is dropped with the script, so every task starts from the same pristine state without anything being rebuilt
+ * or restored, and tasks on different threads never write to anything they share.
+ * <br/>Scripts cannot reach the globals table itself: _G, getmetatable, rawset and the other base functions are not whitelisted, and of the
+ * package library only package.loaded is kept, as its loader functions hold the globals. math.randomseed is removed too, as the seed of
+ * the random numbers is shared by every task.
+ */
+@Slf4j
+public final class LuaSandbox {
+
+	private static final String[] WHITELISTED_LIBS = {"base", "string", "table", "math", "package", "bit32"};
+	private static final String[] PACKAGE_LOADERS = {"searchers", "loadlib", "searchpath", "preload", "path"};
+	private static final LuaSandbox SHARED = new LuaSandbox();
+
+	private final LuaTable overlay;
+
+	/**
+	 * Returns the shared sandbox.
+	 */
+	public static LuaSandbox shared() {
+		return SHARED;
+	}
+
+	private LuaSandbox() {
+		Globals globals = new Globals();
+		globals.load(new JseBaseLib());
+		globals.load(new PackageLib());
+		globals.load(new StringLib());
+		globals.load(new TableLib());
+		globals.load(new JseMathLib());
+		globals.load(new Bit32Lib());
+		LuaString.s_metatable = new ReadOnlyLuaTable(LuaString.s_metatable);
+
+		//Security Patches
+		for(LuaValue key : globals.keys()) {
+			LuaValue value = globals.get(key);
+			if(value instanceof LuaTable table) {
+				if(table.getmetatable() != null) table.setmetatable(new ReadOnlyLuaTable(table.getmetatable()));
+			}
+			//Check for whitelisted libs
+			boolean whitelisted = false;
+			for(String lib : WHITELISTED_LIBS) {
+				if(key.tojstring().equals(lib)) {
+					whitelisted = true;
+					break;
+				}
+			}
+			if(!whitelisted) globals.set(key, NIL);
+		}
+		// The searchers, loadlib and searchpath hold the globals and would hand them to scripts, unfrozen
+		LuaValue packages = globals.get("package");
+		for(String loader : PACKAGE_LOADERS) packages.set(loader, NIL);
+		globals.get("math").set("randomseed", NIL);
+		// Only once the rest is removed, as package.loaded holds the globals too
+		for(LuaValue key : globals.keys()) {
+			if(globals.get(key).istable()) globals.set(key, new ReadOnlyLuaTable(globals.get(key)));
+		}
+		//Todo: Scan for suspicious code
+		assignFunctions(globals);
+		overlay = new ReadOnlyLuaTable(LuaValue.tableOf(new LuaValue[] {LuaValue.INDEX, new ReadOnlyLuaTable(globals)}));
+	}
+
+	/**
+	 * Instantiates a compiled script over a fresh environment of the sandbox.
+	 * @param prototype the compiled script
+	 * @return the script, as a function
+	 */
+	public LuaValue load(Prototype prototype) {
+		LuaTable environment = new LuaTable();
+		environment.setmetatable(overlay);
+		return new LuaClosure(prototype, environment);
+	}
+
+	/**
+	 * Assigns functions to the Lua environment.
+	 * @param globals The Lua globals table.
+	 */
+	private static void assignFunctions(Globals globals) {
+		globals.set("print", new OneArgFunction() {
+			@Override
+			public LuaValue call(LuaValue arg) {
+				log.info("Lua print: {}", arg.tojstring());
+				return NIL;
+			}
+		});
+		//Todo: Add more functions and values
+	}
+}
@@ -0,0 +1,66 @@
+package garretreichenbach.taskprocessor.lua;
+
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.luaj.vm2.LuaValue.NIL;
+
+/**
+ * A read-only deep copy of a Lua table. Nested tables are copied read-only too, once each, so tables that reference each other, like
+ * package.loaded and the libraries in it, are copied with their references intact.
+ * <br/>Every method scripts can reach that writes to a table is overridden to raise an error, including sort, which reorders the array
+ * part in place without going through rawset.
+ */
+class ReadOnlyLuaTable extends LuaTable {
+
+	public ReadOnlyLuaTable(LuaValue table) {
+		this(table, new IdentityHashMap<>());
+	}
+
+	private ReadOnlyLuaTable(LuaValue table, Map<LuaValue, ReadOnlyLuaTable> copies) {
+		copies.put(table, this);
+		presize(table.length(), 0);
+		for(Varargs n = table.next(NIL); !n.arg1().isnil(); n = table.next(n.arg1())) {
+			LuaValue key = n.arg1();
+			LuaValue value = n.arg(2);
+			if(value.istable()) {
+				ReadOnlyLuaTable copy = copies.get(value);
+				value = copy != null ? copy : new ReadOnlyLuaTable(value, copies);
+			}
+			super.rawset(key, value);
+		}
+		if(table.getmetatable() != null) super.setmetatable(table.getmetatable());
+	}
+
+	public LuaValue setmetatable(LuaValue metatable) {
+		return error("table is read-only");
+	}
+
+	public void set(int key, LuaValue value) {
+		error("table is read-only");
+	}
+
+	public void rawset(int key, LuaValue value) {
+		error("table is read-only");
+	}
+
+	public void rawset(LuaValue key, LuaValue value) {
+		error("table is read-only");
+	}
+
+	public LuaValue remove(int pos) {
+		return error("table is read-only");
+	}
+
+	public void insert(int pos, LuaValue value) {
+		error("table is read-only");
+	}
+
+	public void sort(LuaValue comparator) {
+		error("table is read-only");
+	}
+}
@@ -0,0 +1,90 @@
+package garretreichenbach.taskprocessor.lua;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import org.luaj.vm2.Prototype;
+import org.luaj.vm2.compiler.LuaC;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A bounded cache of compiled Lua scripts, keyed by the SHA-256 hash of their source.
+ * <br/>Compiling a script is most of the cost of running a short one, and most tasks reuse a handful of scripts. A {@link Prototype} holds
+ * no state of its own, so one compiled script can be instantiated as a closure over any number of environments, on any thread. The least
+ * recently used scripts are evicted once the cache is full. Scripts that fail to compile are not cached.
+ */
+@Slf4j
+public final class ScriptCache {
+
+	private final Cache<HashCode, Prototype> prototypes;
+
+	/**
+	 * Creates a cache.
+	 * @param maximumSize the most compiled scripts kept
+	 */
+	public ScriptCache(int maximumSize) {
+		prototypes = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+	}
+
+	/**
+	 * Returns a script compiled, compiling it if it is not cached.
+	 * @param script the source of the script
+	 * @return the compiled script
+	 * @throws org.luaj.vm2.LuaError if the script does not compile
+	 */
+	public Prototype get(String script) {
+		byte[] source = script.getBytes(StandardCharsets.UTF_8);
+		HashCode hash = Hashing.sha256().hashBytes(source);
+		Prototype prototype = prototypes.getIfPresent(hash);
+		if(prototype != null) return prototype;
+		try {
+			// Two threads may compile the same script at once; either prototype can be kept
+			prototype = LuaC.instance.compile(new ByteArrayInputStream(source), "script");
+		} catch(IOException exception) {
+			throw new IllegalStateException("Failed to read script", exception);
+		}
+		prototypes.put(hash, prototype);
+		log.info("Compiled Lua script {}", hash);
+		return prototype;
+	}
+
+	/**
+	 * Returns the number of lookups that found the script compiled.
+	 */
+	public long getHits() {
+		return prototypes.stats().hitCount();
+	}
+
+	/**
+	 * Returns the number of lookups that had to compile the script.
+	 */
+	public long getMisses() {
+		return prototypes.stats().missCount();
+	}
+
+	/**
+	 * Returns the share of lookups that found the script compiled, 1 if there were none.
+	 */
+	public double getHitRate() {
+		return prototypes.stats().hitRate();
+	}
+
+	/**
+	 * Returns the number of compiled scripts cached.
+	 */
+	public long size() {
+		return prototypes.size();
+	}
+
+	/**
+	 * Removes every compiled script.
+	 */
+	public void clear() {
+		prototypes.invalidateAll();
+	}
+}
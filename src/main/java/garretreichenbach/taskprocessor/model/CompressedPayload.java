@@ -0,0 +1,50 @@
+package garretreichenbach.taskprocessor.model;
+
+import lombok.Getter;
+
+import java.io.Serializable;
+
+/**
+ * A byte[] output value held in compressed form by the {@link TaskResultStore}.
+ * <br/>Readers never see this type through {@link TaskResult#getOutput()}; the output map decompresses it on access.
+ */
+public final class CompressedPayload implements Serializable {
+
+	/**
+	 * The codec the payload was compressed with.
+	 */
+	@Getter
+	private final PayloadCodec codec;
+
+	/**
+	 * The compressed bytes.
+	 */
+	private final byte[] data;
+
+	/**
+	 * The length of the original payload.
+	 */
+	@Getter
+	private final int length;
+
+	public CompressedPayload(PayloadCodec codec, byte[] data, int length) {
+		this.codec = codec;
+		this.data = data;
+		this.length = length;
+	}
+
+	/**
+	 * @return The number of bytes the payload occupies while compressed.
+	 */
+	public int getCompressedLength() {
+		return data.length;
+	}
+
+	/**
+	 * Decompresses the payload into a new array. The result is not cached, so the payload stays compressed in memory.
+	 * @return The original bytes.
+	 */
+	public byte[] decompress() {
+		return codec.decompress(data, length);
+	}
+}
@@ -0,0 +1,146 @@
+package garretreichenbach.taskprocessor.model;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The output map of a {@link TaskResult}.
+ * <br/>Behaves like a {@link HashMap}, except that values held as {@link CompressedPayload} are decompressed when they are read,
+ * so compression by the {@link TaskResultStore} is invisible to callers and to serialization. Values held as {@link PooledPayload}
+ * are likewise copied out on read, and their arrays are returned to the pool when they are replaced or removed.
+ */
+public class OutputMap extends AbstractMap<String, Object> implements Serializable {
+
+	private final HashMap<String, Object> values = new HashMap<>();
+
+	/**
+	 * Returns the backing map without decompressing anything, for use by the result store.
+	 */
+	Map<String, Object> raw() {
+		return values;
+	}
+
+	@Override
+	public Object get(Object key) {
+		return inflate(values.get(key));
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		return detach(values.put(key, value));
+	}
+
+	@Override
+	public Object remove(Object key) {
+		return detach(values.remove(key));
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return values.containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		return values.size();
+	}
+
+	@Override
+	public void clear() {
+		for(Object value : values.values()) if(value instanceof PooledPayload payload) payload.release();
+		values.clear();
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return values.keySet();
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return new AbstractSet<>() {
+			@Override
+			public Iterator<Entry<String, Object>> iterator() {
+				Iterator<Entry<String, Object>> iterator = values.entrySet().iterator();
+				return new Iterator<>() {
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public Entry<String, Object> next() {
+						Entry<String, Object> entry = iterator.next();
+						return new Entry<>() {
+							@Override
+							public String getKey() {
+								return entry.getKey();
+							}
+
+							@Override
+							public Object getValue() {
+								return inflate(entry.getValue());
+							}
+
+							@Override
+							public Object setValue(Object value) {
+								return detach(entry.setValue(value));
+							}
+
+							@Override
+							public boolean equals(Object o) {
+								return o instanceof Entry<?, ?> other && getKey().equals(other.getKey()) && valueEquals(getValue(), other.getValue());
+							}
+
+							@Override
+							public int hashCode() {
+								return getKey().hashCode() ^ valueHashCode(getValue());
+							}
+						};
+					}
+
+					@Override
+					public void remove() {
+						iterator.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return values.size();
+			}
+		};
+	}
+
+	private static Object inflate(Object value) {
+		if(value instanceof CompressedPayload payload) return payload.decompress();
+		if(value instanceof PooledPayload payload) return payload.toByteArray();
+		return value;
+	}
+
+	/**
+	 * Inflates a value that has been taken out of the map, returning its array to the pool if it was pooled.
+	 */
+	private static Object detach(Object value) {
+		Object inflated = inflate(value);
+		if(value instanceof PooledPayload payload) payload.release();
+		return inflated;
+	}
+
+	private static boolean valueEquals(Object a, Object b) {
+		if(a instanceof byte[] bytesA && b instanceof byte[] bytesB) return Arrays.equals(bytesA, bytesB);
+		return Objects.equals(a, b);
+	}
+
+	private static int valueHashCode(Object value) {
+		return value instanceof byte[] bytes ? Arrays.hashCode(bytes) : Objects.hashCode(value);
+	}
+}
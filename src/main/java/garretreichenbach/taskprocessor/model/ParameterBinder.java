@@ -0,0 +1,225 @@
+package garretreichenbach.taskprocessor.model;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Binds the untyped parameter map of a {@link Task} to a typed parameter record.
+ * <br/>Everything that can be worked out from the record class (parameter names, converters, defaults and the canonical constructor)
+ * is resolved once per class and cached, so binding a task is a single pass over the components with no reflection.
+ * Processors then read primitive record fields instead of casting and unboxing map values.
+ * <br/>Numeric columns are bound to double[] or long[] components. They can be given as primitive arrays, as lists of numbers (JSON arrays),
+ * or as binary data of little-endian values, 8 bytes each, which is how they travel in CBOR, as Base64 in JSON, or as a blob.
+ *
+ * @param <R> the parameter record type
+ */
+public final class ParameterBinder<R extends Record> {
+
+	private static final ClassValue<ParameterBinder<?>> BINDERS = new ClassValue<>() {
+		@Override
+		protected ParameterBinder<?> computeValue(Class<?> type) {
+			return new ParameterBinder<>(type.asSubclass(Record.class));
+		}
+	};
+
+	/**
+	 * Returns the binder for a parameter record type.
+	 * @param type the record type
+	 * @return the cached binder
+	 */
+	@SuppressWarnings("unchecked")
+	public static <R extends Record> ParameterBinder<R> of(Class<R> type) {
+		return (ParameterBinder<R>) BINDERS.get(type);
+	}
+
+	private final Class<R> type;
+	private final Component[] components;
+	private final Map<String, Component> componentsByName = new HashMap<>();
+	private final MethodHandle constructor;
+
+	private ParameterBinder(Class<R> type) {
+		if(!type.isRecord()) throw new IllegalArgumentException(type + " is not a record");
+		this.type = type;
+		RecordComponent[] recordComponents = type.getRecordComponents();
+		components = new Component[recordComponents.length];
+		Class<?>[] parameterTypes = new Class<?>[recordComponents.length];
+		for(int i = 0; i < recordComponents.length; i++) {
+			components[i] = Component.of(recordComponents[i]);
+			componentsByName.put(components[i].name, components[i]);
+			parameterTypes[i] = recordComponents[i].getType();
+		}
+		try {
+			constructor = MethodHandles.publicLookup()
+					.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+					.asSpreader(Object[].class, parameterTypes.length)
+					.asType(MethodType.methodType(Object.class, Object[].class));
+		} catch(NoSuchMethodException | IllegalAccessException exception) {
+			throw new IllegalArgumentException("Parameter record " + type.getName() + " must be public", exception);
+		}
+	}
+
+	/**
+	 * Binds a parameter map to a new record.
+	 * @param parameters the parameters of a task
+	 * @return the bound record
+	 * @throws IllegalArgumentException if a required parameter is missing or a value has the wrong type
+	 */
+	public R bind(Map<String, Object> parameters) {
+		Object[] arguments = new Object[components.length];
+		for(int i = 0; i < components.length; i++) {
+			Component component = components[i];
+			Object value = parameters == null ? null : parameters.get(component.name);
+			if(value == null) {
+				if(!component.optional) throw new IllegalArgumentException("Missing parameter: " + component.name);
+				arguments[i] = component.defaultValue;
+			} else {
+				try {
+					arguments[i] = component.converter.apply(value);
+				} catch(ClassCastException | ArithmeticException exception) {
+					throw new IllegalArgumentException("Invalid type for parameter: " + component.name + " (expected " + component.type.getSimpleName() + ", got " + value.getClass().getSimpleName() + ")", exception);
+				}
+			}
+		}
+		try {
+			return type.cast((Object) constructor.invokeExact(arguments));
+		} catch(RuntimeException exception) {
+			throw exception;
+		} catch(Throwable throwable) {
+			throw new IllegalStateException("Failed to construct " + type.getName(), throwable);
+		}
+	}
+
+	/**
+	 * Returns the record type this binder creates.
+	 */
+	public Class<R> getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the declared type of a parameter.
+	 * @param name the name of the parameter
+	 * @return the type of the record component bound from it, or null if the record has no such parameter
+	 */
+	public Class<?> getParameterType(String name) {
+		Component component = componentsByName.get(name);
+		return component == null ? null : component.type;
+	}
+
+	/**
+	 * Checks whether a parameter carries binary data, i.e. is bound to a byte[], {@link ByteBuffer}, double[] or long[] component.
+	 * @param name the name of the parameter
+	 * @return true if the parameter is binary
+	 */
+	public boolean isBinary(String name) {
+		Class<?> parameterType = getParameterType(name);
+		return parameterType == byte[].class || parameterType == ByteBuffer.class || parameterType == double[].class || parameterType == long[].class;
+	}
+
+	private record Component(String name, Class<?> type, boolean optional, Object defaultValue, Function<Object, Object> converter) {
+
+		private static Component of(RecordComponent recordComponent) {
+			TaskParameter annotation = recordComponent.getAnnotation(TaskParameter.class);
+			Class<?> type = recordComponent.getType();
+			String name = annotation == null || annotation.name().isEmpty() ? recordComponent.getName() : annotation.name();
+			boolean optional = annotation != null && annotation.optional();
+			Function<Object, Object> converter = converterFor(type);
+			Object defaultValue = annotation == null || annotation.defaultValue().isEmpty() ? zeroValue(type) : converter.apply(parseDefault(type, annotation.defaultValue()));
+			return new Component(name, type, optional, defaultValue, converter);
+		}
+
+		private static Function<Object, Object> converterFor(Class<?> type) {
+			if(type == int.class || type == Integer.class) return value -> toIntExact((Number) value);
+			if(type == long.class || type == Long.class) return value -> toLongExact((Number) value);
+			if(type == double.class || type == Double.class) return value -> ((Number) value).doubleValue();
+			if(type == float.class || type == Float.class) return value -> ((Number) value).floatValue();
+			if(type == boolean.class || type == Boolean.class) return value -> (Boolean) value;
+			if(type == String.class) return value -> (String) value;
+			if(type == ByteBuffer.class) return value -> value instanceof byte[] bytes ? ByteBuffer.wrap(bytes) : (ByteBuffer) value;
+			if(type == double[].class) return Component::toDoubles;
+			if(type == long[].class) return Component::toLongs;
+			if(type.isEnum()) return value -> enumValue(type, (String) value);
+			return type::cast;
+		}
+
+		private static Object parseDefault(Class<?> type, String value) {
+			if(type == int.class || type == Integer.class || type == long.class || type == Long.class) return Long.parseLong(value);
+			if(type == double.class || type == Double.class || type == float.class || type == Float.class) return Double.parseDouble(value);
+			if(type == boolean.class || type == Boolean.class) return Boolean.parseBoolean(value);
+			return value;
+		}
+
+		private static Object zeroValue(Class<?> type) {
+			if(type == int.class) return 0;
+			if(type == long.class) return 0L;
+			if(type == double.class) return 0.0;
+			if(type == float.class) return 0.0f;
+			if(type == boolean.class) return false;
+			return null;
+		}
+
+		private static int toIntExact(Number number) {
+			return Math.toIntExact(toLongExact(number));
+		}
+
+		private static long toLongExact(Number number) {
+			if(number instanceof Double || number instanceof Float) {
+				double value = number.doubleValue();
+				if(value != Math.rint(value) || Math.abs(value) > Long.MAX_VALUE) throw new ArithmeticException("Not an integer: " + value);
+				return (long) value;
+			}
+			return number.longValue();
+		}
+
+		private static double[] toDoubles(Object value) {
+			if(value instanceof double[] doubles) return doubles;
+			if(value instanceof Collection<?> list) {
+				double[] column = new double[list.size()];
+				int i = 0;
+				for(Object element : list) column[i++] = ((Number) element).doubleValue();
+				return column;
+			}
+			ByteBuffer data = littleEndian(value);
+			double[] column = new double[data.remaining() / Double.BYTES];
+			data.asDoubleBuffer().get(column);
+			return column;
+		}
+
+		private static long[] toLongs(Object value) {
+			if(value instanceof long[] longs) return longs;
+			if(value instanceof Collection<?> list) {
+				long[] column = new long[list.size()];
+				int i = 0;
+				for(Object element : list) column[i++] = toLongExact((Number) element);
+				return column;
+			}
+			ByteBuffer data = littleEndian(value);
+			long[] column = new long[data.remaining() / Long.BYTES];
+			data.asLongBuffer().get(column);
+			return column;
+		}
+
+		/**
+		 * Returns a little-endian view of a binary column.
+		 * @throws IllegalArgumentException if the length is not a whole number of 8 byte values
+		 */
+		private static ByteBuffer littleEndian(Object value) {
+			ByteBuffer data = value instanceof byte[] bytes ? ByteBuffer.wrap(bytes) : ((ByteBuffer) value).duplicate();
+			if(data.remaining() % Long.BYTES != 0) throw new IllegalArgumentException("Binary column of " + data.remaining() + " bytes is not a whole number of 8 byte values");
+			return data.order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private static Object enumValue(Class<?> type, String value) {
+			return Enum.valueOf((Class) type, value.trim().toUpperCase());
+		}
+	}
+}
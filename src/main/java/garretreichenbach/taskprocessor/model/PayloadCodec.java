@@ -0,0 +1,107 @@
+package garretreichenbach.taskprocessor.model;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.apache.commons.compress.compressors.snappy.FramedSnappyCompressorInputStream;
+import org.apache.commons.compress.compressors.snappy.FramedSnappyCompressorOutputStream;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Fast codecs used by {@link TaskResultStore} to keep large output payloads compressed in memory.
+ */
+public enum PayloadCodec {
+	/**
+	 * Stores payloads as-is.
+	 */
+	NONE {
+		@Override
+		public byte[] compress(byte[] data, int offset, int length) {
+			return Arrays.copyOfRange(data, offset, offset + length);
+		}
+
+		@Override
+		public byte[] decompress(byte[] data, int length) {
+			return Arrays.copyOf(data, length);
+		}
+	},
+	/**
+	 * LZ4 block format. The fastest to encode and decode, and the default.
+	 * <br/>The store records the original length, so a raw block is enough and no frame is needed.
+	 */
+	LZ4 {
+		@Override
+		public byte[] compress(byte[] data, int offset, int length) {
+			LZ4Compressor compressor = LZ4Holder.FACTORY.fastCompressor();
+			byte[] buffer = new byte[compressor.maxCompressedLength(length)];
+			int compressedLength = compressor.compress(data, offset, length, buffer, 0, buffer.length);
+			return Arrays.copyOf(buffer, compressedLength);
+		}
+
+		@Override
+		public byte[] decompress(byte[] data, int length) {
+			LZ4FastDecompressor decompressor = LZ4Holder.FACTORY.fastDecompressor();
+			byte[] decompressed = new byte[length];
+			decompressor.decompress(data, 0, decompressed, 0, length);
+			return decompressed;
+		}
+	},
+	/**
+	 * Snappy framing format.
+	 */
+	SNAPPY {
+		@Override
+		public byte[] compress(byte[] data, int offset, int length) {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(length / 2 + 64);
+			try(OutputStream compressor = new FramedSnappyCompressorOutputStream(buffer)) {
+				compressor.write(data, offset, length);
+			} catch(IOException exception) {
+				throw new UncheckedIOException("Failed to compress payload with " + this, exception);
+			}
+			return buffer.toByteArray();
+		}
+
+		@Override
+		public byte[] decompress(byte[] data, int length) {
+			byte[] decompressed = new byte[length];
+			try(InputStream decompressor = new FramedSnappyCompressorInputStream(new ByteArrayInputStream(data))) {
+				IOUtils.readFully(decompressor, decompressed);
+			} catch(IOException exception) {
+				throw new UncheckedIOException("Failed to decompress payload with " + this, exception);
+			}
+			return decompressed;
+		}
+	};
+
+	/**
+	 * Compresses a range of bytes.
+	 * @param data The data to compress.
+	 * @param offset The offset of the first byte.
+	 * @param length The number of bytes to compress.
+	 * @return The compressed bytes.
+	 */
+	public abstract byte[] compress(byte[] data, int offset, int length);
+
+	/**
+	 * Decompresses bytes produced by {@link #compress(byte[], int, int)}.
+	 * @param data The compressed bytes.
+	 * @param length The exact length of the original data.
+	 * @return The original bytes.
+	 */
+	public abstract byte[] decompress(byte[] data, int length);
+
+	/**
+	 * Resolves the LZ4 implementation lazily, so the native/unsafe probe only runs if LZ4 is used.
+	 */
+	private static final class LZ4Holder {
+		private static final LZ4Factory FACTORY = LZ4Factory.fastestJavaInstance();
+	}
+}
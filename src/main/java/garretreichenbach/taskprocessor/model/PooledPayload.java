@@ -0,0 +1,67 @@
+package garretreichenbach.taskprocessor.model;
+
+import garretreichenbach.taskprocessor.processor.BufferPool;
+import lombok.Getter;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A byte[] output value held in an array leased from a {@link BufferPool}.
+ * <br/>Readers never see this type through {@link TaskResult#getOutput()}; the output map copies the payload out on access.
+ * The {@link TaskResultStore} compresses or copies the payload when the result is stored and returns the array to the pool,
+ * so stored results never hold pooled memory.
+ */
+public final class PooledPayload implements Serializable {
+
+	/**
+	 * The lease of the array holding the payload.
+	 */
+	private final transient BufferPool.Lease<byte[]> lease;
+
+	/**
+	 * The length of the payload.
+	 */
+	@Getter
+	private final int length;
+
+	/**
+	 * Wraps a lease. The payload is the first {@link BufferPool.Lease#length()} bytes of the leased array.
+	 * @param lease the lease, owned by the payload from now on
+	 */
+	public PooledPayload(BufferPool.Lease<byte[]> lease) {
+		this.lease = lease;
+		length = lease.length();
+	}
+
+	/**
+	 * @return The leased array. It may be longer than the payload and must not be used after {@link #release()}.
+	 */
+	public byte[] array() {
+		return lease.array();
+	}
+
+	/**
+	 * Copies the payload into a new array of exactly its length.
+	 * @return The payload bytes.
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(lease.array(), length);
+	}
+
+	/**
+	 * Returns the array to the pool. Releasing more than once has no effect.
+	 */
+	public void release() {
+		lease.release();
+	}
+
+	/**
+	 * Serializes the payload as a plain byte[].
+	 */
+	@Serial
+	private Object writeReplace() {
+		return toByteArray();
+	}
+}
@@ -0,0 +1,62 @@
+package garretreichenbach.taskprocessor.model;
+
+import garretreichenbach.taskprocessor.service.TaskQueueService;
+
+/**
+ * Restricts a result query by queue tier, task type and/or status. A null component matches any value.
+ *
+ * @param queueType the queue tier the task was processed from
+ * @param taskType  the type of the task
+ * @param status    the status of the result
+ */
+public record ResultFilter(TaskQueueService.QueueType queueType, TaskType taskType, TaskResult.ResultStatus status) {
+
+	/**
+	 * A filter that matches every result.
+	 */
+	public static final ResultFilter ANY = new ResultFilter(null, null, null);
+
+	/**
+	 * Parses a filter from request parameters.
+	 * @param queueType the queue tier name (e.g. "high"), or null
+	 * @param taskType the task type name (e.g. "scale" or "IMAGE_SCALING"), or null
+	 * @param status the status name (e.g. "success"), or null
+	 * @return the parsed filter
+	 * @throws IllegalArgumentException if any name is not recognised
+	 */
+	public static ResultFilter parse(String queueType, String taskType, String status) {
+		try {
+			return new ResultFilter(
+					isBlank(queueType) ? null : TaskQueueService.QueueType.valueOf(queueType.trim().toUpperCase()),
+					isBlank(taskType) ? null : TaskType.fromString(taskType.trim()),
+					isBlank(status) ? null : TaskResult.ResultStatus.valueOf(status.trim().toUpperCase())
+			);
+		} catch(IllegalArgumentException exception) {
+			throw new IllegalArgumentException("Invalid result filter: " + exception.getMessage(), exception);
+		}
+	}
+
+	/**
+	 * Creates a filter matching results from a single queue tier.
+	 * @param queueType the queue tier
+	 * @return the filter
+	 */
+	public static ResultFilter byQueue(TaskQueueService.QueueType queueType) {
+		return new ResultFilter(queueType, null, null);
+	}
+
+	/**
+	 * Checks whether the given indexed values match this filter.
+	 * @param queueType the queue tier of a result
+	 * @param taskType the task type of a result
+	 * @param status the status of a result
+	 * @return true if every non-null component of this filter equals the corresponding value
+	 */
+	public boolean matches(TaskQueueService.QueueType queueType, TaskType taskType, TaskResult.ResultStatus status) {
+		return (this.queueType == null || this.queueType == queueType) && (this.taskType == null || this.taskType == taskType) && (this.status == null || this.status == status);
+	}
+
+	private static boolean isBlank(String value) {
+		return value == null || value.isBlank();
+	}
+}
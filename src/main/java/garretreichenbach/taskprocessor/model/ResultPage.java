@@ -0,0 +1,22 @@
+package garretreichenbach.taskprocessor.model;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A single page of results returned by a paginated listing.
+ *
+ * @param results    the results in this page
+ * @param nextCursor the cursor to pass to fetch the following page, or null if this is the last page
+ */
+public record ResultPage<T>(List<T> results, String nextCursor) {
+
+	/**
+	 * Maps every result in this page, keeping the same cursor.
+	 * @param mapper the function to apply to each result
+	 * @return a new page containing the mapped results
+	 */
+	public <R> ResultPage<R> map(Function<? super T, ? extends R> mapper) {
+		return new ResultPage<>(results.stream().<R>map(mapper).toList(), nextCursor);
+	}
+}
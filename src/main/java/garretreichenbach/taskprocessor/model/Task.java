@@ -1,5 +1,8 @@
 package garretreichenbach.taskprocessor.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import garretreichenbach.taskprocessor.service.TaskQueueService;
 import garretreichenbach.taskprocessor.util.JSONSerializable;
 import lombok.Getter;
 import lombok.Setter;
@@ -7,12 +10,16 @@ import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
 
 import java.io.Serializable;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
 /**
  * Represents a task to be processed by the system.
  * This class is serializable and comparable, and it contains information about the task's ID, type, parameters, priority, and creation time.
+ * <br/>Over the REST API a task can be sent as JSON or as CBOR ({@code application/cbor}). In CBOR, byte[] parameters are carried as raw byte strings;
+ * in JSON they are carried as Base64 strings and decoded back to byte[] for the parameters the {@link TaskType} declares as byte[].
  */
 @Slf4j
 public class Task implements Serializable, JSONSerializable, Comparable<Task> {
@@ -47,6 +54,17 @@ public class Task implements Serializable, JSONSerializable, Comparable<Task> {
 	@Getter
 	private long createdAt;
 
+	/**
+	 * The queue tier the task was placed in when it was submitted, or null if it has not been submitted.
+	 */
+	@Getter @Setter
+	private transient TaskQueueService.QueueType queueType;
+
+	/**
+	 * The parameters bound to the parameter record of the task type, or null if they have not been bound yet.
+	 */
+	private transient Record boundParameters;
+
 	/**
 	 * Compares this task with another task based on their priority.
 	 *
@@ -73,7 +91,7 @@ public class Task implements Serializable, JSONSerializable, Comparable<Task> {
 	@Override
 	public void fromJSON(JSONObject jsonObject) {
 		id = jsonObject.getString("id");
-		type = TaskType.valueOf(jsonObject.getString("type"));
+		type = TaskType.fromString(jsonObject.getString("type"));
 		priority = jsonObject.getInt("priority");
 		createdAt = jsonObject.getLong("createdAt");
 		parameters = deserializeParameters(jsonObject);
@@ -94,6 +112,7 @@ public class Task implements Serializable, JSONSerializable, Comparable<Task> {
 		for(Map.Entry<String, Object> entry : parameters.entrySet()) {
 			try {
 				if(entry.getValue() instanceof JSONSerializable jsonSerializable) params.put(entry.getKey(), jsonSerializable.toJSON());
+				else if(entry.getValue() instanceof byte[] bytes) params.put(entry.getKey(), Base64.getEncoder().encodeToString(bytes));
 				else params.put(entry.getKey(), entry.getValue());
 			} catch(Exception exception) {
 				log.error(exception.getMessage(), exception);
@@ -110,6 +129,7 @@ public class Task implements Serializable, JSONSerializable, Comparable<Task> {
 	 */
 	public Map<String, Object> deserializeParameters(JSONObject jsonObject) {
 		JSONObject params = jsonObject.getJSONObject("parameters");
+		if(parameters == null) parameters = new HashMap<>();
 		for(String key : params.keySet()) {
 			Object value = params.get(key);
 			if(value instanceof JSONObject jsonObject1) {
@@ -127,9 +147,76 @@ public class Task implements Serializable, JSONSerializable, Comparable<Task> {
 				parameters.put(key, jsonSerializable);
 			} else parameters.put(key, value);
 		}
+		decodeBinaryParameters(type, parameters);
 		return parameters;
 	}
 
+	/**
+	 * Replaces Base64 strings with the decoded bytes for every parameter the task type declares as byte[].
+	 * <br/>Text formats cannot carry raw bytes, so byte[] parameters travel as Base64 in JSON.
+	 *
+	 * @param type The type of the task, or null if unknown.
+	 * @param parameters The parameters to decode in place.
+	 */
+	private static void decodeBinaryParameters(TaskType type, Map<String, Object> parameters) {
+		if(type == null) return;
+		for(Map.Entry<String, Object> entry : parameters.entrySet()) {
+			if(entry.getValue() instanceof String encoded && type.isBinaryParameter(entry.getKey())) {
+				try {
+					entry.setValue(Base64.getDecoder().decode(encoded));
+				} catch(IllegalArgumentException exception) {
+					throw new IllegalArgumentException("Parameter " + entry.getKey() + " must be Base64 encoded binary data", exception);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Binds the parameters of this task to the parameter record of its type, validating them.
+	 * The record is kept, so binding at submission means workers never touch the parameter map.
+	 *
+	 * @return The bound parameters.
+	 * @throws IllegalArgumentException If a required parameter is missing or a value has the wrong type.
+	 */
+	public Record bindParameters() {
+		if(boundParameters == null) boundParameters = type.bindParameters(parameters);
+		return boundParameters;
+	}
+
+	/**
+	 * Returns the parameters of this task as the given record, reusing the record bound at submission when it has that type.
+	 *
+	 * @param parameterType The parameter record type.
+	 * @return The bound parameters.
+	 * @throws IllegalArgumentException If a required parameter is missing or a value has the wrong type.
+	 */
+	public <R extends Record> R getParameters(Class<R> parameterType) {
+		if(parameterType.isInstance(boundParameters)) return parameterType.cast(boundParameters);
+		if(type != null && type.getParameterType() == parameterType) return parameterType.cast(bindParameters());
+		return ParameterBinder.of(parameterType).bind(parameters);
+	}
+
+	/**
+	 * Creates a task from its wire representation, used by Jackson for both JSON and CBOR request bodies.
+	 * Missing values fall back to the same defaults as {@link #Task(String, Map)}.
+	 *
+	 * @param id The unique identifier of the task, or null to generate one.
+	 * @param type The task type, either its name (e.g. "IMAGE_SCALING") or its short name (e.g. "scale").
+	 * @param parameters The parameters of the task.
+	 * @param priority The priority of the task, or null for the default priority.
+	 * @param createdAt The creation time of the task, or null for the current time.
+	 * @return The task.
+	 */
+	@JsonCreator
+	public static Task fromWire(@JsonProperty("id") String id, @JsonProperty("type") String type, @JsonProperty("parameters") Map<String, Object> parameters, @JsonProperty("priority") Integer priority, @JsonProperty("createdAt") Long createdAt) {
+		TaskType taskType = TaskType.fromString(type);
+		Map<String, Object> params = parameters == null ? new HashMap<>() : new HashMap<>(parameters);
+		decodeBinaryParameters(taskType, params);
+		Task task = new Task(id == null ? UUID.randomUUID().toString() : id, taskType, params, priority == null ? 1 : priority);
+		if(createdAt != null) task.createdAt = createdAt;
+		return task;
+	}
+
 	/**
 	 * Constructs a new Task with the specified ID, type, parameters, and priority.
 	 * The creation time is set to the current system time.
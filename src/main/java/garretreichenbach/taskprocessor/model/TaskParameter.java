@@ -0,0 +1,30 @@
+package garretreichenbach.taskprocessor.model;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Customizes how a component of a task parameter record is bound by the {@link ParameterBinder}.
+ * Components without this annotation are required and bound from the parameter of the same name.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.RECORD_COMPONENT, ElementType.PARAMETER})
+public @interface TaskParameter {
+
+	/**
+	 * The name of the parameter in the task, if it differs from the component name.
+	 */
+	String name() default "";
+
+	/**
+	 * Whether the parameter may be omitted. Omitted parameters take the {@link #defaultValue()}, or null/zero/false if there is none.
+	 */
+	boolean optional() default false;
+
+	/**
+	 * The value of an omitted optional parameter, parsed to the component type.
+	 */
+	String defaultValue() default "";
+}
@@ -1,16 +1,20 @@
 package garretreichenbach.taskprocessor.model;
 
+import garretreichenbach.taskprocessor.service.TaskQueueService;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Represents the result of a task processed by the system.
  * This class is serializable and contains information about the task's ID, status, output,
- * completion time, and the processor that handled it.
+ * completion time, the processor that handled it, and the queue tier and type of the task.
  */
 public class TaskResult implements Serializable {
 
@@ -44,9 +48,10 @@ public class TaskResult implements Serializable {
 
 	/**
 	 * A map containing the output data of the task.
+	 * Large byte[] values may be held compressed by the {@link TaskResultStore}; they are decompressed transparently when read.
 	 */
 	@Getter
-	private final Map<String, Object> output = new HashMap<>();
+	private final OutputMap output = new OutputMap();
 
 	/**
 	 * The timestamp (in milliseconds) when the task was completed.
@@ -60,6 +65,18 @@ public class TaskResult implements Serializable {
 	@Getter @Setter
 	private String processorId;
 
+	/**
+	 * The queue tier the task was processed from.
+	 */
+	@Getter @Setter
+	private TaskQueueService.QueueType queueType;
+
+	/**
+	 * The type of the task that produced this result.
+	 */
+	@Getter @Setter
+	private TaskType taskType;
+
 	/**
 	 * Enum representing the possible statuses of a task result.
 	 */
@@ -78,6 +95,63 @@ public class TaskResult implements Serializable {
 		TIMEOUT
 	}
 
+	/**
+	 * Enum representing the fields of a task result that can be selected when listing results.
+	 */
+	public enum Field {
+		TASK_ID("taskId", TaskResult::getTaskId),
+		STATUS("status", TaskResult::getStatus),
+		COMPLETED_AT("completedAt", TaskResult::getCompletedAt),
+		PROCESSOR_ID("processorId", TaskResult::getProcessorId),
+		QUEUE_TYPE("queueType", TaskResult::getQueueType),
+		TASK_TYPE("taskType", TaskResult::getTaskType),
+		OUTPUT("output", TaskResult::getOutput);
+
+		private final String name;
+		private final Function<TaskResult, Object> accessor;
+
+		Field(String name, Function<TaskResult, Object> accessor) {
+			this.name = name;
+			this.accessor = accessor;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+		public static Field fromString(String name) {
+			for(Field field : values()) {
+				if(field.name.equalsIgnoreCase(name.trim())) return field;
+			}
+			throw new IllegalArgumentException("No result field found for name: " + name);
+		}
+
+		/**
+		 * Parses a comma separated list of field names.
+		 * @param fields The field names, or null/blank to select every field.
+		 * @return The selected fields.
+		 */
+		public static EnumSet<Field> parse(String fields) {
+			if(fields == null || fields.isBlank()) return EnumSet.allOf(Field.class);
+			EnumSet<Field> selected = EnumSet.noneOf(Field.class);
+			for(String name : fields.split(",")) selected.add(fromString(name));
+			return selected;
+		}
+	}
+
+	/**
+	 * Creates a view of this result containing only the selected fields, so listings can skip large outputs.
+	 *
+	 * @param fields The fields to include.
+	 * @return A map of field names to values.
+	 */
+	public Map<String, Object> project(Collection<Field> fields) {
+		Map<String, Object> projection = new LinkedHashMap<>();
+		for(Field field : fields) projection.put(field.name, field.accessor.apply(this));
+		return projection;
+	}
+
 	/**
 	 * Constructs a new TaskResult with the specified task ID and status.
 	 *
@@ -1,34 +1,179 @@
 package garretreichenbach.taskprocessor.model;
 
-import java.util.Comparator;
+import garretreichenbach.taskprocessor.service.TaskQueueService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * A thread-safe store for task results.
+ * <p>Results are indexed by task ID for lookups and kept in a skip list ordered by completion time, so eviction, recent-result queries and
+ * cursor pagination only touch the entries they return instead of copying or sorting the whole store.</p>
+ * <p>Secondary indexes by queue tier, task type and status are updated on every store and eviction. Filtered queries walk the smallest
+ * matching index, so their cost is proportional to the matching results rather than to the whole store.</p>
  */
 public class TaskResultStore {
 
-	private final ConcurrentHashMap<String, TaskResult> results;
+	/**
+	 * The maximum number of results that can be requested in a single page.
+	 */
+	public static final int MAX_PAGE_SIZE = 1000;
+
+	/**
+	 * The default size (in bytes) above which byte[] outputs are compressed.
+	 */
+	public static final int DEFAULT_COMPRESSION_THRESHOLD = 64 * 1024;
+
+	/**
+	 * The number of leading bytes compressed to decide whether a payload is worth compressing at all.
+	 */
+	private static final int COMPRESSION_SAMPLE_SIZE = 64 * 1024;
+
+	/**
+	 * Payloads that do not shrink below this fraction of their original size are stored uncompressed.
+	 */
+	private static final double MAX_COMPRESSION_RATIO = 0.9;
+
+	private final ConcurrentHashMap<String, StoredResult> entries;
+	private final ConcurrentSkipListMap<ResultKey, StoredResult> results;
+	private final Index<TaskQueueService.QueueType> queueIndex;
+	private final Index<TaskType> typeIndex;
+	private final Index<TaskResult.ResultStatus> statusIndex;
 	private final int maxResultsToKeep;
+	private final PayloadCodec codec;
+	private final int compressionThreshold;
+	private final AtomicLong payloadsCompressed = new AtomicLong();
+	private final AtomicLong payloadsSkipped = new AtomicLong();
+	private final AtomicLong rawBytes = new AtomicLong();
+	private final AtomicLong compressedBytes = new AtomicLong();
 
 	/**
 	 * Creates a new TaskResultStore with the specified maximum number of results to keep.
+	 * Outputs larger than {@link #DEFAULT_COMPRESSION_THRESHOLD} are compressed with {@link PayloadCodec#LZ4}.
 	 * @param maxResultsToKeep the maximum number of results to keep in the store
 	 */
 	public TaskResultStore(int maxResultsToKeep) {
+		this(maxResultsToKeep, PayloadCodec.LZ4, DEFAULT_COMPRESSION_THRESHOLD);
+	}
+
+	/**
+	 * Creates a new TaskResultStore with the specified maximum number of results to keep and payload compression settings.
+	 * @param maxResultsToKeep the maximum number of results to keep in the store
+	 * @param codec the codec used to compress large byte[] outputs, or {@link PayloadCodec#NONE} to disable compression
+	 * @param compressionThreshold the size in bytes above which byte[] outputs are compressed
+	 */
+	public TaskResultStore(int maxResultsToKeep, PayloadCodec codec, int compressionThreshold) {
 		this.maxResultsToKeep = maxResultsToKeep;
-		results = new ConcurrentHashMap<>();
+		this.codec = codec;
+		this.compressionThreshold = compressionThreshold;
+		entries = new ConcurrentHashMap<>();
+		results = new ConcurrentSkipListMap<>();
+		queueIndex = new Index<>(TaskQueueService.QueueType.class, StoredResult::queueType);
+		typeIndex = new Index<>(TaskType.class, StoredResult::taskType);
+		statusIndex = new Index<>(TaskResult.ResultStatus.class, StoredResult::status);
 	}
 
 	/**
 	 * Stores a task result in the store. If the store exceeds the maximum number of results to keep, it will remove the oldest results.
+	 * <br/>A result stored under an existing task ID replaces the previous result.
+	 * <br/>Large byte[] outputs are compressed on the calling thread before the result becomes visible; they are decompressed again on read.
+	 * Outputs held in pooled buffers are compressed or copied out, and their buffers are returned to the pool.
 	 * @param result the task result to store
 	 */
 	public void storeResult(TaskResult result) {
-		if(results.size() >= maxResultsToKeep) {
-			results.entrySet().stream().sorted(Comparator.comparingLong(e -> e.getValue().getCompletedAt())).limit(results.size() - maxResultsToKeep + 1).forEach(entry -> results.remove(entry.getKey()));
+		compressPayloads(result);
+		insert(result);
+	}
+
+	private synchronized void insert(TaskResult result) {
+		StoredResult previous = entries.get(result.getTaskId());
+		if(previous != null) remove(previous);
+		while(entries.size() >= maxResultsToKeep) {
+			Map.Entry<ResultKey, StoredResult> oldest = results.firstEntry();
+			if(oldest == null) break;
+			remove(oldest.getValue());
+		}
+		StoredResult stored = new StoredResult(new ResultKey(result.getCompletedAt(), result.getTaskId()), result, result.getQueueType(), result.getTaskType(), result.getStatus());
+		results.put(stored.key(), stored);
+		queueIndex.add(stored);
+		typeIndex.add(stored);
+		statusIndex.add(stored);
+		entries.put(result.getTaskId(), stored);
+	}
+
+	private void compressPayloads(TaskResult result) {
+		if(result.getOutput() == null) return;
+		for(Map.Entry<String, Object> entry : result.getOutput().raw().entrySet()) {
+			if(entry.getValue() instanceof PooledPayload pooled) {
+				try {
+					CompressedPayload payload = compressPayload(pooled.array(), pooled.getLength());
+					entry.setValue(payload != null ? payload : pooled.toByteArray());
+				} finally {
+					pooled.release();
+				}
+			} else if(entry.getValue() instanceof byte[] data) {
+				CompressedPayload payload = compressPayload(data, data.length);
+				if(payload != null) entry.setValue(payload);
+			}
+		}
+	}
+
+	/**
+	 * Compresses the first length bytes of an array if they are above the threshold and compress well enough, and records the outcome.
+	 * @return the compressed payload, or null if the bytes should be stored as they are
+	 */
+	private CompressedPayload compressPayload(byte[] data, int length) {
+		if(codec == PayloadCodec.NONE || length < compressionThreshold) return null;
+		CompressedPayload payload = compress(data, length);
+		if(payload == null) {
+			payloadsSkipped.incrementAndGet();
+			return null;
 		}
-		results.put(result.getTaskId(), result);
+		payloadsCompressed.incrementAndGet();
+		rawBytes.addAndGet(length);
+		compressedBytes.addAndGet(payload.getCompressedLength());
+		return payload;
+	}
+
+	/**
+	 * Compresses a payload, first trying a leading sample so that incompressible data (e.g. noise or already compressed images)
+	 * costs only a small fraction of a full compression pass.
+	 * @return the compressed payload, or null if the data does not compress well enough to be worth it
+	 */
+	private CompressedPayload compress(byte[] data, int length) {
+		if(length > COMPRESSION_SAMPLE_SIZE * 2) {
+			byte[] sample = codec.compress(data, 0, COMPRESSION_SAMPLE_SIZE);
+			if(sample.length > COMPRESSION_SAMPLE_SIZE * MAX_COMPRESSION_RATIO) return null;
+		}
+		byte[] compressed = codec.compress(data, 0, length);
+		if(compressed.length > length * MAX_COMPRESSION_RATIO) return null;
+		return new CompressedPayload(codec, compressed, length);
+	}
+
+	/**
+	 * @return cumulative statistics about payloads compressed by this store
+	 */
+	public CompressionStats getCompressionStats() {
+		return new CompressionStats(payloadsCompressed.get(), payloadsSkipped.get(), rawBytes.get(), compressedBytes.get());
+	}
+
+	private void remove(StoredResult stored) {
+		entries.remove(stored.key().taskId());
+		results.remove(stored.key());
+		queueIndex.remove(stored);
+		typeIndex.remove(stored);
+		statusIndex.remove(stored);
 	}
 
 	/**
@@ -37,7 +182,8 @@ public class TaskResultStore {
 	 * @return the task result, or null if not found
 	 */
 	public TaskResult getResult(String taskId) {
-		return results.get(taskId);
+		StoredResult stored = entries.get(taskId);
+		return stored == null ? null : stored.result();
 	}
 
 	/**
@@ -46,15 +192,204 @@ public class TaskResultStore {
 	 * @return a map of the most recent task results
 	 */
 	public ConcurrentHashMap<String, TaskResult> getRecentResults(int limit) {
-		return results.entrySet().stream().sorted((e1, e2) -> Long.compare(e2.getValue().getCompletedAt(), e1.getValue().getCompletedAt())).limit(limit).collect(ConcurrentHashMap::new, (map, entry) -> map.put(entry.getKey(), entry.getValue()), ConcurrentHashMap::putAll);
+		return getRecentResults(ResultFilter.ANY, limit);
+	}
+
+	/**
+	 * Retrieves the most recent task results matching a filter.
+	 * @param filter the filter results must match
+	 * @param limit the maximum number of results to retrieve
+	 * @return a map of the most recent matching task results
+	 */
+	public ConcurrentHashMap<String, TaskResult> getRecentResults(ResultFilter filter, int limit) {
+		ConcurrentHashMap<String, TaskResult> recent = new ConcurrentHashMap<>();
+		candidates(filter).descendingMap().values().stream().filter(stored -> stored.matches(filter)).limit(limit).forEach(stored -> recent.put(stored.key().taskId(), stored.result()));
+		return recent;
 	}
 
 	/**
 	 * Retrieves all task results from the store.
+	 * <br/>This copies every entry, so prefer {@link #getResultsPage(ResultFilter, String, int)} or {@link #streamResults(ResultFilter, String)}
+	 * for listing large stores.
 	 * @return a map of all task results
 	 */
 	public ConcurrentHashMap<String, TaskResult> getAllResults() {
-		return new ConcurrentHashMap<>(results);
+		ConcurrentHashMap<String, TaskResult> all = new ConcurrentHashMap<>();
+		results.values().forEach(stored -> all.put(stored.key().taskId(), stored.result()));
+		return all;
+	}
+
+	/**
+	 * Retrieves a single page of results in completion order, starting after the given cursor.
+	 * @param cursor the cursor returned with the previous page, or null to start from the oldest result
+	 * @param limit the maximum number of results in the page, capped at {@link #MAX_PAGE_SIZE}
+	 * @return the page of results, with a cursor for the next page if more results may follow
+	 * @throws IllegalArgumentException if the cursor is malformed or the limit is not positive
+	 */
+	public ResultPage<TaskResult> getResultsPage(String cursor, int limit) {
+		return getResultsPage(ResultFilter.ANY, cursor, limit);
+	}
+
+	/**
+	 * Retrieves a single page of results matching a filter in completion order, starting after the given cursor.
+	 * @param filter the filter results must match
+	 * @param cursor the cursor returned with the previous page, or null to start from the oldest result
+	 * @param limit the maximum number of results in the page, capped at {@link #MAX_PAGE_SIZE}
+	 * @return the page of results, with a cursor for the next page if more results may follow
+	 * @throws IllegalArgumentException if the cursor is malformed or the limit is not positive
+	 */
+	public ResultPage<TaskResult> getResultsPage(ResultFilter filter, String cursor, int limit) {
+		if(limit <= 0) throw new IllegalArgumentException("Page limit must be positive: " + limit);
+		int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+		List<TaskResult> page = new ArrayList<>(Math.min(pageSize, entries.size()));
+		ResultKey last = null;
+		for(Iterator<StoredResult> iterator = tail(filter, cursor).iterator(); iterator.hasNext(); ) {
+			StoredResult stored = iterator.next();
+			if(!stored.matches(filter)) continue;
+			if(page.size() == pageSize) return new ResultPage<>(page, last.toCursor());
+			page.add(stored.result());
+			last = stored.key();
+		}
+		return new ResultPage<>(page, null);
 	}
-}
 
+	/**
+	 * Lazily streams results in completion order, starting after the given cursor.
+	 * <br/>The stream is weakly consistent and reads entries one at a time, so memory use does not depend on the store size.
+	 * @param cursor a cursor returned by {@link #getResultsPage(String, int)}, or null to start from the oldest result
+	 * @return a stream of results
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	public Stream<TaskResult> streamResults(String cursor) {
+		return streamResults(ResultFilter.ANY, cursor);
+	}
+
+	/**
+	 * Lazily streams results matching a filter in completion order, starting after the given cursor.
+	 * @param filter the filter results must match
+	 * @param cursor a cursor returned by {@link #getResultsPage(ResultFilter, String, int)}, or null to start from the oldest result
+	 * @return a stream of results
+	 * @throws IllegalArgumentException if the cursor is malformed
+	 */
+	public Stream<TaskResult> streamResults(ResultFilter filter, String cursor) {
+		return tail(filter, cursor).stream().filter(stored -> stored.matches(filter)).map(StoredResult::result);
+	}
+
+	private Collection<StoredResult> tail(ResultFilter filter, String cursor) {
+		NavigableMap<ResultKey, StoredResult> candidates = candidates(filter);
+		if(cursor == null || cursor.isBlank()) return candidates.values();
+		return candidates.tailMap(ResultKey.fromCursor(cursor), false).values();
+	}
+
+	/**
+	 * Picks the smallest index that can satisfy the filter. Any remaining filter components are checked per entry.
+	 */
+	private ConcurrentSkipListMap<ResultKey, StoredResult> candidates(ResultFilter filter) {
+		ConcurrentSkipListMap<ResultKey, StoredResult> best = results;
+		int bestSize = entries.size();
+		if(filter.queueType() != null && queueIndex.size(filter.queueType()) < bestSize) {
+			best = queueIndex.bucket(filter.queueType());
+			bestSize = queueIndex.size(filter.queueType());
+		}
+		if(filter.taskType() != null && typeIndex.size(filter.taskType()) < bestSize) {
+			best = typeIndex.bucket(filter.taskType());
+			bestSize = typeIndex.size(filter.taskType());
+		}
+		if(filter.status() != null && statusIndex.size(filter.status()) < bestSize) best = statusIndex.bucket(filter.status());
+		return best;
+	}
+
+	/**
+	 * Cumulative payload compression statistics.
+	 *
+	 * @param payloadsCompressed the number of payloads stored compressed
+	 * @param payloadsSkipped    the number of payloads above the threshold that did not compress well enough and were stored as-is
+	 * @param rawBytes           the original size of all compressed payloads
+	 * @param compressedBytes    the compressed size of all compressed payloads
+	 */
+	public record CompressionStats(long payloadsCompressed, long payloadsSkipped, long rawBytes, long compressedBytes) {
+
+		/**
+		 * @return the number of bytes saved by compression
+		 */
+		public long savedBytes() {
+			return rawBytes - compressedBytes;
+		}
+	}
+
+	/**
+	 * Orders results by completion time, using the task ID to break ties.
+	 * <br/>The key is captured when the result is stored, so later changes to the result cannot corrupt the ordering.
+	 */
+	private record ResultKey(long completedAt, String taskId) implements Comparable<ResultKey> {
+
+		private static ResultKey fromCursor(String cursor) {
+			int separator = cursor.indexOf(':');
+			if(separator <= 0) throw new IllegalArgumentException("Invalid cursor: " + cursor);
+			try {
+				return new ResultKey(Long.parseLong(cursor.substring(0, separator)), cursor.substring(separator + 1));
+			} catch(NumberFormatException exception) {
+				throw new IllegalArgumentException("Invalid cursor: " + cursor, exception);
+			}
+		}
+
+		private String toCursor() {
+			return completedAt + ":" + taskId;
+		}
+
+		@Override
+		public int compareTo(ResultKey o) {
+			int compare = Long.compare(completedAt, o.completedAt);
+			return compare != 0 ? compare : taskId.compareTo(o.taskId);
+		}
+	}
+
+	/**
+	 * A stored result together with the indexed values captured when it was stored.
+	 */
+	private record StoredResult(ResultKey key, TaskResult result, TaskQueueService.QueueType queueType, TaskType taskType, TaskResult.ResultStatus status) {
+
+		private boolean matches(ResultFilter filter) {
+			return filter.matches(queueType, taskType, status);
+		}
+	}
+
+	/**
+	 * A secondary index with one completion-ordered bucket per enum constant.
+	 * <br/>Buckets are created up front and never replaced, so reads need no locking. Writes happen under the store's lock.
+	 */
+	private static final class Index<K extends Enum<K>> {
+
+		private final Function<StoredResult, K> classifier;
+		private final EnumMap<K, ConcurrentSkipListMap<ResultKey, StoredResult>> buckets;
+		private final EnumMap<K, AtomicInteger> sizes;
+
+		private Index(Class<K> type, Function<StoredResult, K> classifier) {
+			this.classifier = classifier;
+			buckets = new EnumMap<>(type);
+			sizes = new EnumMap<>(type);
+			for(K key : type.getEnumConstants()) {
+				buckets.put(key, new ConcurrentSkipListMap<>());
+				sizes.put(key, new AtomicInteger());
+			}
+		}
+
+		private void add(StoredResult stored) {
+			K key = classifier.apply(stored);
+			if(key != null && buckets.get(key).put(stored.key(), stored) == null) sizes.get(key).incrementAndGet();
+		}
+
+		private void remove(StoredResult stored) {
+			K key = classifier.apply(stored);
+			if(key != null && buckets.get(key).remove(stored.key()) != null) sizes.get(key).decrementAndGet();
+		}
+
+		private ConcurrentSkipListMap<ResultKey, StoredResult> bucket(K key) {
+			return buckets.get(key);
+		}
+
+		private int size(K key) {
+			return sizes.get(key).get();
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package garretreichenbach.taskprocessor.model;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a {@link Task} from a JSON or CBOR stream token by token, without building a tree of the whole body first.
+ * <br/>Binary parameters (CBOR byte strings, or Base64 strings in JSON for parameters the task type declares as byte[]) are decoded
+ * straight from the stream into an array pre-sized from the image dimensions when they have already been read.
+ * The total size of the parameters is checked as they arrive, binary data by its decoded length and other values by the bytes the parser
+ * consumed for them, so an oversized task is rejected without reading the rest of the body even when it is sent without a length, and an
+ * unknown task type is rejected as soon as the "type" field is read.
+ * <br/>Clients should send "type" and the image dimensions before the data for the best results; other orders are accepted but
+ * Base64 data that arrives before the type is known is buffered as a string and decoded afterwards.
+ */
+public class TaskStreamReader {
+
+	/**
+	 * The default limit on the total size of the binary parameters of a single task.
+	 */
+	public static final long DEFAULT_MAX_PAYLOAD_BYTES = 64L * 1024 * 1024;
+
+	private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+	private static final int BYTES_PER_PIXEL = 3;
+
+	private final ObjectMapper mapper;
+	private final long maxPayloadBytes;
+
+	/**
+	 * Creates a reader for the format of the given mapper (e.g. an {@link ObjectMapper} for JSON or a CBORMapper for CBOR).
+	 * @param mapper the mapper used to create parsers and to read non-binary parameter values
+	 * @param maxPayloadBytes the maximum total size of the binary parameters of a task
+	 */
+	public TaskStreamReader(ObjectMapper mapper, long maxPayloadBytes) {
+		this.mapper = mapper;
+		this.maxPayloadBytes = maxPayloadBytes;
+	}
+
+	public long getMaxPayloadBytes() {
+		return maxPayloadBytes;
+	}
+
+	/**
+	 * Reads a single task from a stream.
+	 * @param inputStream the stream, positioned at the start of the task object
+	 * @return the task
+	 * @throws IOException if the stream cannot be read or is not well-formed
+	 * @throws IllegalArgumentException if the task is invalid (e.g. an unknown type)
+	 * @throws PayloadTooLargeException if the binary parameters exceed the limit
+	 */
+	public Task read(InputStream inputStream) throws IOException {
+		try(JsonParser parser = mapper.getFactory().createParser(inputStream)) {
+			return read(parser);
+		}
+	}
+
+	/**
+	 * Reads a single task from a parser.
+	 * @param parser the parser, positioned before or at the start of the task object
+	 * @return the task
+	 * @throws IOException if the stream cannot be read or is not well-formed
+	 * @throws IllegalArgumentException if the task is invalid (e.g. an unknown type)
+	 * @throws PayloadTooLargeException if the binary parameters exceed the limit
+	 */
+	public Task read(JsonParser parser) throws IOException {
+		if(parser.currentToken() == null) parser.nextToken();
+		if(parser.currentToken() != JsonToken.START_OBJECT) throw new IllegalArgumentException("Task must be an object");
+		String id = null;
+		TaskType type = null;
+		Integer priority = null;
+		Long createdAt = null;
+		Map<String, Object> parameters = new HashMap<>();
+		long[] payloadBytes = {0};
+		while(parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.currentName();
+			JsonToken token = parser.nextToken();
+			switch(field) {
+				case "id" -> id = token == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+				case "type" -> type = TaskType.fromString(parser.getValueAsString());
+				case "priority" -> priority = token == JsonToken.VALUE_NULL ? null : parser.getValueAsInt();
+				case "createdAt" -> createdAt = token == JsonToken.VALUE_NULL ? null : parser.getValueAsLong();
+				case "parameters" -> readParameters(parser, type, parameters, payloadBytes);
+				default -> parser.skipChildren();
+			}
+		}
+		if(type == null) throw new IllegalArgumentException("Task type is required");
+		return Task.fromWire(id, type.name(), parameters, priority, createdAt);
+	}
+
+	private void readParameters(JsonParser parser, TaskType type, Map<String, Object> parameters, long[] payloadBytes) throws IOException {
+		if(parser.currentToken() == JsonToken.VALUE_NULL) return;
+		if(parser.currentToken() != JsonToken.START_OBJECT) throw new IllegalArgumentException("Task parameters must be an object");
+		while(parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.currentName();
+			JsonToken token = parser.nextToken();
+			boolean binary = token == JsonToken.VALUE_EMBEDDED_OBJECT || (token == JsonToken.VALUE_STRING && type != null && type.isBinaryParameter(key));
+			if(binary) {
+				parameters.put(key, readBinary(parser, expectedLength(parameters), payloadBytes));
+			} else if(token.isStructStart()) {
+				parameters.put(key, readStructure(parser, payloadBytes));
+			} else {
+				if(token == JsonToken.VALUE_STRING) charge(payloadBytes, parser.getTextLength());
+				parameters.put(key, mapper.readValue(parser, Object.class));
+			}
+		}
+	}
+
+	/**
+	 * Reads an array or object value, charging the bytes the parser consumes for each of its tokens as they are read, so a huge array
+	 * or deeply nested value is rejected before it is held in memory.
+	 */
+	private Object readStructure(JsonParser parser, long[] payloadBytes) throws IOException {
+		TokenBuffer buffer = new TokenBuffer(mapper, false);
+		long offset = offset(parser.currentTokenLocation());
+		int depth = 0;
+		do {
+			JsonToken token = parser.currentToken();
+			buffer.copyCurrentEvent(parser);
+			if(token.isStructStart()) depth++;
+			else if(token.isStructEnd()) depth--;
+			long consumed = offset(parser.currentLocation());
+			charge(payloadBytes, consumed - offset);
+			offset = consumed;
+		} while(depth > 0 && parser.nextToken() != null);
+		if(depth > 0) throw new IOException("Unexpected end of input in task parameters");
+		try(JsonParser buffered = buffer.asParser()) {
+			buffered.nextToken();
+			return mapper.readValue(buffered, Object.class);
+		}
+	}
+
+	/**
+	 * Returns the byte offset of a location, or its character offset for parsers that read characters.
+	 */
+	private static long offset(JsonLocation location) {
+		return location.getByteOffset() >= 0 ? location.getByteOffset() : location.getCharOffset();
+	}
+
+	private byte[] readBinary(JsonParser parser, int expectedLength, long[] payloadBytes) throws IOException {
+		long remaining = maxPayloadBytes - payloadBytes[0];
+		if(expectedLength > remaining) throw new PayloadTooLargeException(maxPayloadBytes);
+		BoundedBuffer buffer = new BoundedBuffer(expectedLength > 0 ? expectedLength : (int) Math.min(INITIAL_BUFFER_SIZE, remaining), remaining);
+		parser.readBinaryValue(buffer);
+		payloadBytes[0] += buffer.size;
+		return buffer.toByteArray();
+	}
+
+	private void charge(long[] payloadBytes, long length) {
+		payloadBytes[0] += length;
+		if(payloadBytes[0] > maxPayloadBytes) throw new PayloadTooLargeException(maxPayloadBytes);
+	}
+
+	/**
+	 * Returns the size of packed RGB image data for the dimensions read so far, or 0 if they are not known yet.
+	 */
+	private static int expectedLength(Map<String, Object> parameters) {
+		if(parameters.get("width") instanceof Integer width && parameters.get("height") instanceof Integer height && width > 0 && height > 0) {
+			long length = (long) width * height * BYTES_PER_PIXEL;
+			if(length <= Integer.MAX_VALUE - 8) return (int) length;
+		}
+		return 0;
+	}
+
+	/**
+	 * An output stream that refuses to grow past a limit.
+	 * <br/>When the expected size is known the bytes are written into a single array of that size and returned as-is.
+	 * Otherwise they are written into a list of chunks and copied once into an exact-size array at the end,
+	 * so growing never copies data that has already been written.
+	 */
+	private final class BoundedBuffer extends OutputStream {
+
+		private final long limit;
+		private final List<byte[]> chunks = new ArrayList<>();
+		private byte[] current;
+		private int position;
+		private long size;
+
+		private BoundedBuffer(int initialSize, long limit) {
+			this.limit = limit;
+			current = new byte[Math.max(initialSize, 16)];
+			chunks.add(current);
+		}
+
+		@Override
+		public void write(int b) {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			if(size + len > limit) throw new PayloadTooLargeException(maxPayloadBytes);
+			size += len;
+			while(len > 0) {
+				if(position == current.length) {
+					current = new byte[(int) Math.min(Math.max(size - len, INITIAL_BUFFER_SIZE), Math.min(limit - size + len, Integer.MAX_VALUE - 8))];
+					chunks.add(current);
+					position = 0;
+				}
+				int count = Math.min(len, current.length - position);
+				System.arraycopy(b, off, current, position, count);
+				position += count;
+				off += count;
+				len -= count;
+			}
+		}
+
+		private byte[] toByteArray() {
+			if(chunks.size() == 1 && size == current.length) return current;
+			byte[] data = new byte[(int) size];
+			int offset = 0;
+			for(byte[] chunk : chunks) {
+				int count = (int) Math.min(chunk.length, size - offset);
+				System.arraycopy(chunk, 0, data, offset, count);
+				offset += count;
+			}
+			return data;
+		}
+	}
+
+	/**
+	 * Thrown when the binary parameters of a task exceed the configured limit.
+	 */
+	public static class PayloadTooLargeException extends RuntimeException {
+
+		public PayloadTooLargeException(long maxPayloadBytes) {
+			super("Task payload exceeds the limit of " + maxPayloadBytes + " bytes");
+		}
+	}
+}
@@ -1,22 +1,61 @@
 package garretreichenbach.taskprocessor.model;
 
+import garretreichenbach.taskprocessor.model.parameters.AudioManipulationParameters;
+import garretreichenbach.taskprocessor.model.parameters.CustomTaskParameters;
+import garretreichenbach.taskprocessor.model.parameters.DataAnalysisParameters;
+import garretreichenbach.taskprocessor.model.parameters.DataCleaningParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImageCompressionParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImageConversionParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImageDecompressionParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImageManipulationParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImagePyramidParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImageScalingParameters;
+import garretreichenbach.taskprocessor.model.parameters.MathematicalComputationParameters;
+import garretreichenbach.taskprocessor.model.parameters.TextAnalysisParameters;
+import garretreichenbach.taskprocessor.model.parameters.TextExtractionParameters;
+import garretreichenbach.taskprocessor.processor.AudioOperation;
+import garretreichenbach.taskprocessor.processor.AudioProcessor;
 import garretreichenbach.taskprocessor.processor.CustomTaskProcessor;
+import garretreichenbach.taskprocessor.processor.DataAnalysisProcessor;
+import garretreichenbach.taskprocessor.processor.DataCleaningProcessor;
+import garretreichenbach.taskprocessor.processor.ImageFormat;
+import garretreichenbach.taskprocessor.processor.ImageOperation;
 import garretreichenbach.taskprocessor.processor.ImageProcessor;
+import garretreichenbach.taskprocessor.processor.NumericalCalculationProcessor;
 import garretreichenbach.taskprocessor.processor.TaskProcessor;
+import garretreichenbach.taskprocessor.processor.TextProcessor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 @Slf4j
 public enum TaskType {
 	//Image Processing Tasks
-//	IMAGE_MANIPULATION,
-	IMAGE_COMPRESSION("compress", ImageProcessor.class, Map.of(
-			"data", byte[].class,
-			"width", int.class,
-			"height", int.class
-	), () -> {
+	IMAGE_MANIPULATION("manipulate", ImageProcessor.class, ImageManipulationParameters.class, () -> {
+		try {
+			//Generate random image data
+			int width = (int) (Math.random() * 1000) + 1;
+			int height = (int) (Math.random() * 1000) + 1;
+			ImageOperation[] operations = ImageOperation.values();
+			byte[] data = new byte[width * height * 3];
+			for(int i = 0; i < data.length; i++) data[i] = (byte) (Math.random() * 256);
+			return new Task("manipulate", Map.of(
+					"data", data,
+					"width", width,
+					"height", height,
+					"operation", operations[(int) (Math.random() * operations.length)].name(),
+					"radius", Math.random() * 10
+			));
+		} catch(OutOfMemoryError | Exception error) {
+			log.error(error.getMessage(), error);
+			return null;
+		}
+	}),
+	IMAGE_COMPRESSION("compress", ImageProcessor.class, ImageCompressionParameters.class, () -> {
 		try {
 			//Generate random image data
 			int width = (int) (Math.random() * 1000);
@@ -33,17 +72,8 @@ public enum TaskType {
 			return null;
 		}
 	}),
-	IMAGE_DECOMPRESSION("decompress", ImageProcessor.class, Map.of(
-			"data", byte[].class,
-			"width", int.class,
-			"height", int.class
-	), null),
-	IMAGE_SCALING("scale", ImageProcessor.class, Map.of(
-			"data", byte[].class,
-			"width", int.class,
-			"height", int.class,
-			"scale", double.class
-	), () -> {
+	IMAGE_DECOMPRESSION("decompress", ImageProcessor.class, ImageDecompressionParameters.class, null),
+	IMAGE_SCALING("scale", ImageProcessor.class, ImageScalingParameters.class, () -> {
 		try {
 			//Generate random image data
 			int width = (int) (Math.random() * 1000);
@@ -62,21 +92,171 @@ public enum TaskType {
 			return null;
 		}
 	}),
-//	IMAGE_CONVERSION,
+	IMAGE_PYRAMID("pyramid", ImageProcessor.class, ImagePyramidParameters.class, () -> {
+		try {
+			//Generate random image data
+			int width = (int) (Math.random() * 1000) + 1;
+			int height = (int) (Math.random() * 1000) + 1;
+			byte[] data = new byte[width * height * 3];
+			for(int i = 0; i < data.length; i++) data[i] = (byte) (Math.random() * 256);
+			return new Task("pyramid", Map.of(
+					"data", data,
+					"width", width,
+					"height", height,
+					"levels", 4
+			));
+		} catch(OutOfMemoryError | Exception error) {
+			log.error(error.getMessage(), error);
+			return null;
+		}
+	}),
+	IMAGE_CONVERSION("convert", ImageProcessor.class, ImageConversionParameters.class, () -> {
+		try {
+			//Generate random image data
+			int width = (int) (Math.random() * 1000) + 1;
+			int height = (int) (Math.random() * 1000) + 1;
+			ImageFormat[] formats = ImageFormat.values();
+			byte[] data = new byte[width * height * 3];
+			for(int i = 0; i < data.length; i++) data[i] = (byte) (Math.random() * 256);
+			return new Task("convert", Map.of(
+					"data", data,
+					"width", width,
+					"height", height,
+					"format", formats[(int) (Math.random() * formats.length)].name()
+			));
+		} catch(OutOfMemoryError | Exception error) {
+			log.error(error.getMessage(), error);
+			return null;
+		}
+	}),
 
 	//Data Processing Tasks
-//	DATA_ANALYSIS,
-//	DATA_CLEANING,
+	DATA_ANALYSIS("analyze", DataAnalysisProcessor.class, DataAnalysisParameters.class, () -> {
+		try {
+			//Generate a random column in up to 100 groups
+			int rows = (int) (Math.random() * 1_000_000) + 1;
+			int groups = (int) (Math.random() * 100) + 1;
+			double[] values = new double[rows];
+			long[] keys = new long[rows];
+			for(int i = 0; i < rows; i++) {
+				values[i] = Math.random() * 1000;
+				keys[i] = (long) (Math.random() * groups);
+			}
+			return new Task("analyze", Map.of(
+					"values", values,
+					"keys", keys
+			));
+		} catch(OutOfMemoryError | Exception error) {
+			log.error(error.getMessage(), error);
+			return null;
+		}
+	}),
+	DATA_CLEANING("clean", DataCleaningProcessor.class, DataCleaningParameters.class, () -> {
+		try {
+			//Generate a random CSV table with some duplicate and incomplete rows
+			int rows = (int) (Math.random() * 100_000) + 1;
+			StringBuilder text = new StringBuilder("id,name,price\n");
+			for(int i = 0; i < rows; i++) {
+				int id = Math.random() < 0.05 ? i / 2 : i;
+				text.append(id).append(",item ").append(id).append(',');
+				if(Math.random() >= 0.01) text.append(id * 0.25);
+				text.append('\n');
+			}
+			return new Task("clean", Map.of(
+					"data", text.toString().getBytes(StandardCharsets.UTF_8),
+					"normalize", "min_max"
+			));
+		} catch(OutOfMemoryError | Exception error) {
+			log.error(error.getMessage(), error);
+			return null;
+		}
+	}),
 
 	//Numerical Tasks
-//	MATHEMATICAL_COMPUTATION,
+	MATHEMATICAL_COMPUTATION("compute", NumericalCalculationProcessor.class, MathematicalComputationParameters.class, () -> {
+		try {
+			//Generate a random matrix product of up to 512x512x512
+			int rows = (int) (Math.random() * 512) + 1;
+			int depth = (int) (Math.random() * 512) + 1;
+			int columns = (int) (Math.random() * 512) + 1;
+			double[] a = new double[rows * depth];
+			double[] b = new double[depth * columns];
+			for(int i = 0; i < a.length; i++) a[i] = Math.random() * 2 - 1;
+			for(int i = 0; i < b.length; i++) b[i] = Math.random() * 2 - 1;
+			return new Task("compute", Map.of(
+					"operation", "multiply",
+					"a", a,
+					"rows", rows,
+					"columns", depth,
+					"b", b
+			));
+		} catch(OutOfMemoryError | Exception error) {
+			log.error(error.getMessage(), error);
+			return null;
+		}
+	}),
 
 	//Text Processing Tasks
-//	TEXT_ANALYSIS,
-//	TEXT_EXTRACTION,
+	TEXT_ANALYSIS("text", TextProcessor.class, TextAnalysisParameters.class, () -> {
+		try {
+			//Generate up to 1 MB of sentences over a vocabulary with a skewed word distribution
+			int words = (int) (Math.random() * 150_000) + 1;
+			StringBuilder text = new StringBuilder();
+			for(int i = 0; i < words; i++) {
+				text.append("word").append((int) (Math.pow(Math.random(), 3) * 5000));
+				text.append(Math.random() < 0.08 ? ". " : " ");
+			}
+			return new Task("text", Map.of(
+					"data", text.toString().getBytes(StandardCharsets.UTF_8),
+					"ngram", 2
+			));
+		} catch(OutOfMemoryError | Exception error) {
+			log.error(error.getMessage(), error);
+			return null;
+		}
+	}),
+	TEXT_EXTRACTION("keywords", TextProcessor.class, TextExtractionParameters.class, () -> {
+		try {
+			//Generate up to 1 MB of sentences mixing stop words with a skewed vocabulary
+			String[] stopWords = {"the", "of", "and", "a", "to", "in", "is", "that"};
+			int words = (int) (Math.random() * 150_000) + 1;
+			StringBuilder text = new StringBuilder();
+			for(int i = 0; i < words; i++) {
+				if(Math.random() < 0.4) text.append(stopWords[(int) (Math.random() * stopWords.length)]);
+				else text.append("term").append((int) (Math.pow(Math.random(), 3) * 5000));
+				text.append(Math.random() < 0.08 ? ". " : " ");
+			}
+			return new Task("keywords", Map.of(
+					"data", text.toString().getBytes(StandardCharsets.UTF_8)
+			));
+		} catch(OutOfMemoryError | Exception error) {
+			log.error(error.getMessage(), error);
+			return null;
+		}
+	}),
 
 	//Audio Processing Tasks
-//	AUDIO_MANIPULATION,
+	AUDIO_MANIPULATION("audio", AudioProcessor.class, AudioManipulationParameters.class, () -> {
+		try {
+			//Generate up to 10 seconds of a noisy stereo tone at 44.1 kHz
+			int frames = (int) (Math.random() * 441_000) + 1;
+			double frequency = Math.random() * 4000 + 100;
+			ByteBuffer samples = ByteBuffer.allocate(frames * 2 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			for(int i = 0; i < frames * 2; i++) samples.putFloat((float) (0.5 * Math.sin(2 * Math.PI * frequency * (i / 2) / 44_100) + (Math.random() - 0.5) * 0.1));
+			AudioOperation[] operations = {AudioOperation.LOW_PASS, AudioOperation.HIGH_PASS, AudioOperation.IIR, AudioOperation.RESAMPLE, AudioOperation.SPECTRUM};
+			return new Task("audio", Map.of(
+					"samples", samples.array(),
+					"sample_rate", 44_100,
+					"channels", 2,
+					"operation", operations[(int) (Math.random() * operations.length)].name(),
+					"cutoff", 2000.0,
+					"target_rate", 48_000
+			));
+		} catch(OutOfMemoryError | Exception error) {
+			log.error(error.getMessage(), error);
+			return null;
+		}
+	}),
 //	AUDIO_COMPRESSION,
 //	AUDIO_DECOMPRESSION,
 //	AUDIO_CONVERSION,
@@ -88,23 +268,23 @@ public enum TaskType {
 //	VIDEO_CONVERSION,
 
 	//Misc.
-	CUSTOM_TASK("custom", CustomTaskProcessor.class, Map.of("script", String.class, "task_id", String.class), null);
+	CUSTOM_TASK("custom", CustomTaskProcessor.class, CustomTaskParameters.class, null);
 
 	private final String name;
 	private final Class<? extends TaskProcessor> processor;
-	private final Map<String, Class<?>> parameters;
+	private final Class<? extends Record> parameterType;
 	private final RandomTaskGenerator randomTaskGenerator;
 
 	/**
 	 * Constructor for TaskType enum.
 	 *
-	 * @param processor   The class of the processor associated with this task type.
-	 * @param parameters  A map of parameters required for the task type.
+	 * @param processor     The class of the processor associated with this task type.
+	 * @param parameterType The record the parameters of a task of this type are bound to.
 	 */
-	TaskType(String name, Class<? extends TaskProcessor> processor, Map<String, Class<?>> parameters, RandomTaskGenerator randomTaskGenerator) {
+	TaskType(String name, Class<? extends TaskProcessor> processor, Class<? extends Record> parameterType, RandomTaskGenerator randomTaskGenerator) {
 		this.name = name;
 		this.processor = processor;
-		this.parameters = parameters;
+		this.parameterType = parameterType;
 		this.randomTaskGenerator = randomTaskGenerator;
 	}
 
@@ -123,11 +303,46 @@ public enum TaskType {
 
 	public static TaskType fromString(String name) {
 		for(TaskType type : values()) {
-			if(type.toString().equalsIgnoreCase(name)) return type;
+			if(type.toString().equalsIgnoreCase(name) || type.name().equalsIgnoreCase(name)) return type;
 		}
 		throw new IllegalArgumentException("No TaskType found for name: " + name);
 	}
 
+	/**
+	 * Returns the record the parameters of a task of this type are bound to.
+	 */
+	public Class<? extends Record> getParameterType() {
+		return parameterType;
+	}
+
+	/**
+	 * Returns the declared type of a parameter of this task type.
+	 * @param key The name of the parameter.
+	 * @return The declared type, or null if this task type does not declare the parameter.
+	 */
+	public Class<?> getParameterType(String key) {
+		return ParameterBinder.of(parameterType).getParameterType(key);
+	}
+
+	/**
+	 * Checks whether a parameter of this task type carries binary data.
+	 * @param key The name of the parameter.
+	 * @return True if the parameter is declared as byte[] or ByteBuffer.
+	 */
+	public boolean isBinaryParameter(String key) {
+		return ParameterBinder.of(parameterType).isBinary(key);
+	}
+
+	/**
+	 * Binds a parameter map to the parameter record of this task type.
+	 * @param parameters The parameters of a task.
+	 * @return The bound record.
+	 * @throws IllegalArgumentException If a required parameter is missing or a value has the wrong type.
+	 */
+	public Record bindParameters(Map<String, Object> parameters) {
+		return ParameterBinder.of(parameterType).bind(parameters);
+	}
+
 	/**
 	 * Creates a new instance of the processor associated with this task type.
 	 * @param task The task for which the processor is created.
@@ -136,12 +351,7 @@ public enum TaskType {
 	public TaskProcessor createProcessor(Task task) {
 		try {
 			//Check if the parameters match
-			Map<String, Object> taskParameters = task.getParameters();
-			taskParameters.put("task_type", toString());
-			for(String key : parameters.keySet()) {
-				if(!taskParameters.containsKey(key)) throw new IllegalArgumentException("Missing parameter: " + key);
-				if(!parameters.get(key).isInstance(taskParameters.get(key))) throw new IllegalArgumentException("Invalid type for parameter: " + key);
-			}
+			task.bindParameters();
 			return processor.getDeclaredConstructor().newInstance();
 		} catch(NoSuchMethodException exception) {
 			throw new RuntimeException("No default constructor found for processor: " + processor, exception);
@@ -0,0 +1,22 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+import garretreichenbach.taskprocessor.processor.AudioOperation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parameters of an {@link garretreichenbach.taskprocessor.model.TaskType#AUDIO_MANIPULATION} task.
+ *
+ * @param samples      the audio as little-endian 32-bit float samples, channels interleaved
+ * @param sampleRate   the sample rate in Hz ("sample_rate")
+ * @param operation    the operation to apply
+ * @param channels     the number of interleaved channels
+ * @param cutoff       the cutoff frequency in Hz of "low_pass", "high_pass" and "iir" without coefficients
+ * @param taps         the number of taps of "low_pass" and "high_pass", odd
+ * @param coefficients the taps of "fir", or the biquad sections of "iir"
+ * @param targetRate   the sample rate in Hz to convert to with "resample" ("target_rate")
+ * @param fftSize      the frame size of "spectrum", a power of two ("fft_size")
+ */
+public record AudioManipulationParameters(ByteBuffer samples, @TaskParameter(name = "sample_rate") int sampleRate, AudioOperation operation, @TaskParameter(optional = true, defaultValue = "1") int channels, @TaskParameter(optional = true) double cutoff, @TaskParameter(optional = true, defaultValue = "255") int taps, @TaskParameter(optional = true) double[] coefficients, @TaskParameter(name = "target_rate", optional = true) int targetRate, @TaskParameter(name = "fft_size", optional = true, defaultValue = "4096") int fftSize) {
+}
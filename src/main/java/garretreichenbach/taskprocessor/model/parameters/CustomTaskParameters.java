@@ -0,0 +1,12 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+
+/**
+ * Parameters of a {@link garretreichenbach.taskprocessor.model.TaskType#CUSTOM_TASK} task.
+ *
+ * @param script the Lua script to run
+ * @param taskId the id to report the result under, if it differs from the id of the task
+ */
+public record CustomTaskParameters(String script, @TaskParameter(name = "task_id", optional = true) String taskId) {
+}
@@ -0,0 +1,20 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+import garretreichenbach.taskprocessor.processor.AnalysisOperation;
+
+import java.util.List;
+
+/**
+ * Parameters of a {@link garretreichenbach.taskprocessor.model.TaskType#DATA_ANALYSIS} task.
+ *
+ * @param values    the column to analyze; required by every operation but "distinct" with keys, "heavy_hitters" and "merge"
+ * @param keys      the group key of each value, or null to aggregate the whole column as one group
+ * @param operation the analysis to run
+ * @param ranks     the normalized ranks, 0-1, to estimate for "quantiles", or null for the median, 90th and 99th percentiles
+ * @param top       the number of keys to return for "heavy_hitters"
+ * @param sketches  the serialized sketches to combine for "merge", each a byte[], a ByteBuffer or a Base64 string
+ * @param splitRows the most rows one worker analyzes; longer columns are split into subtasks of this many rows whose results are reduced
+ */
+public record DataAnalysisParameters(@TaskParameter(optional = true) double[] values, @TaskParameter(optional = true) long[] keys, @TaskParameter(optional = true, defaultValue = "aggregate") AnalysisOperation operation, @TaskParameter(optional = true) double[] ranks, @TaskParameter(optional = true, defaultValue = "10") int top, @TaskParameter(optional = true) List<?> sketches, @TaskParameter(name = "split_rows", optional = true, defaultValue = "4194304") int splitRows) {
+}
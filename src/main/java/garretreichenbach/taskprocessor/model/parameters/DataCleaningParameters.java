@@ -0,0 +1,21 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+import garretreichenbach.taskprocessor.processor.Normalization;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parameters of a {@link garretreichenbach.taskprocessor.model.TaskType#DATA_CLEANING} task.
+ *
+ * @param data           the CSV or TSV text as UTF-8 bytes, inline or as a blob reference; one of data, text and path is required
+ * @param text           the CSV or TSV text as a string, for small tables
+ * @param path           a file to read the text from, relative to the data directory
+ * @param delimiter      the field delimiter: a single ASCII character, or "tab"
+ * @param header         whether the first row holds the column names
+ * @param dedupe         whether to drop rows equal to an earlier row
+ * @param dropIncomplete whether to drop rows with an empty field ("drop_incomplete")
+ * @param normalize      how to rescale the numeric columns
+ */
+public record DataCleaningParameters(@TaskParameter(optional = true) ByteBuffer data, @TaskParameter(optional = true) String text, @TaskParameter(optional = true) String path, @TaskParameter(optional = true, defaultValue = ",") String delimiter, @TaskParameter(optional = true, defaultValue = "true") boolean header, @TaskParameter(optional = true, defaultValue = "true") boolean dedupe, @TaskParameter(name = "drop_incomplete", optional = true, defaultValue = "true") boolean dropIncomplete, @TaskParameter(optional = true, defaultValue = "none") Normalization normalize) {
+}
@@ -0,0 +1,18 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parameters of an {@link garretreichenbach.taskprocessor.model.TaskType#IMAGE_COMPRESSION} task.
+ *
+ * @param data      the packed RGB image, 3 bytes per pixel
+ * @param width     the width of the image
+ * @param height    the height of the image
+ * @param algorithm the compression algorithm (e.g. "gz", "bzip2", "xz", "lz4", "snappy")
+ * @param level     the compression level, or -1 for the algorithm's default
+ * @param parallel  whether a large image may be compressed in parallel blocks (gz and deflate only)
+ */
+public record ImageCompressionParameters(ByteBuffer data, int width, int height, @TaskParameter(optional = true, defaultValue = "gz") String algorithm, @TaskParameter(optional = true, defaultValue = "-1") int level, @TaskParameter(optional = true, defaultValue = "true") boolean parallel) {
+}
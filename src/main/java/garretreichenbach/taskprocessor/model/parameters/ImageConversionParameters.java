@@ -0,0 +1,18 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+import garretreichenbach.taskprocessor.processor.ImageFormat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parameters of an {@link garretreichenbach.taskprocessor.model.TaskType#IMAGE_CONVERSION} task.
+ *
+ * @param data    the packed RGB image, 3 bytes per pixel
+ * @param width   the width of the image
+ * @param height  the height of the image
+ * @param format  the file format to encode to ("png" or "jpeg")
+ * @param quality the deflate level for "png", 0-9, or the quality for "jpeg", 0-100; -1 for the format's default
+ */
+public record ImageConversionParameters(ByteBuffer data, int width, int height, @TaskParameter(optional = true, defaultValue = "png") ImageFormat format, @TaskParameter(optional = true, defaultValue = "-1") int quality) {
+}
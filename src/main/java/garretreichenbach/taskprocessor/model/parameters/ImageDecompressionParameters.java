@@ -0,0 +1,16 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parameters of an {@link garretreichenbach.taskprocessor.model.TaskType#IMAGE_DECOMPRESSION} task.
+ *
+ * @param data      the compressed image
+ * @param width     the width of the image
+ * @param height    the height of the image
+ * @param algorithm the compression algorithm, or null to detect it from the data
+ */
+public record ImageDecompressionParameters(ByteBuffer data, int width, int height, @TaskParameter(optional = true) String algorithm) {
+}
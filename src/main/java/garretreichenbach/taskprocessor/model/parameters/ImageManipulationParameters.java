@@ -0,0 +1,21 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+import garretreichenbach.taskprocessor.processor.EdgeMode;
+import garretreichenbach.taskprocessor.processor.ImageOperation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parameters of an {@link garretreichenbach.taskprocessor.model.TaskType#IMAGE_MANIPULATION} task.
+ *
+ * @param data      the packed RGB image, 3 bytes per pixel
+ * @param width     the width of the image
+ * @param height    the height of the image
+ * @param operation the operation ("blur", "box_blur", "sharpen" or "edges")
+ * @param radius    the blur radius in pixels: the standard deviation for "blur" and "sharpen", the half-width of the box for "box_blur"
+ * @param amount    the strength of "sharpen"
+ * @param edge      how pixels outside the image are read ("clamp", "mirror" or "wrap")
+ */
+public record ImageManipulationParameters(ByteBuffer data, int width, int height, ImageOperation operation, @TaskParameter(optional = true, defaultValue = "2") double radius, @TaskParameter(optional = true, defaultValue = "1") double amount, @TaskParameter(optional = true, defaultValue = "clamp") EdgeMode edge) {
+}
@@ -0,0 +1,75 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+import garretreichenbach.taskprocessor.processor.ResamplingFilter;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parameters of an {@link garretreichenbach.taskprocessor.model.TaskType#IMAGE_PYRAMID} task.
+ *
+ * @param data   the packed RGB image, 3 bytes per pixel
+ * @param width  the width of the image
+ * @param height the height of the image
+ * @param sizes  a comma separated list of target sizes such as "1024x768,320x240", or null for a mipmap pyramid
+ * @param levels the number of mipmap levels, each half the size of the previous one, or 0 for every level down to 1x1. Ignored if sizes are given
+ * @param filter the resampling filter ("nearest", "area", "bilinear", "bicubic" or "lanczos")
+ */
+public record ImagePyramidParameters(ByteBuffer data, int width, int height, @TaskParameter(optional = true) String sizes, @TaskParameter(optional = true) int levels, @TaskParameter(optional = true, defaultValue = "area") ResamplingFilter filter) {
+
+	/**
+	 * Returns the sizes of the images to produce, in the order they are returned.
+	 * @throws IllegalArgumentException if a size is malformed or not positive, or no size is requested
+	 */
+	public List<Size> targetSizes() {
+		List<Size> targets = new ArrayList<>();
+		if(sizes != null && !sizes.isBlank()) {
+			for(String size : sizes.split(",")) targets.add(Size.parse(size));
+		} else {
+			int levelWidth = width, levelHeight = height;
+			while((levelWidth > 1 || levelHeight > 1) && (levels <= 0 || targets.size() < levels)) {
+				levelWidth = Math.max(1, levelWidth / 2);
+				levelHeight = Math.max(1, levelHeight / 2);
+				targets.add(new Size(levelWidth, levelHeight));
+			}
+		}
+		if(targets.isEmpty()) throw new IllegalArgumentException("No pyramid levels for a " + width + "x" + height + " image");
+		return targets;
+	}
+
+	/**
+	 * The dimensions of one image of the pyramid.
+	 *
+	 * @param width  the width in pixels
+	 * @param height the height in pixels
+	 */
+	public record Size(int width, int height) {
+
+		public Size {
+			if(width <= 0 || height <= 0) throw new IllegalArgumentException("Invalid size " + width + "x" + height);
+		}
+
+		/**
+		 * Parses a size of the form "WIDTHxHEIGHT".
+		 * @throws IllegalArgumentException if the size is malformed or not positive
+		 */
+		public static Size parse(String size) {
+			String[] parts = size.trim().toLowerCase().split("x");
+			if(parts.length != 2) throw new IllegalArgumentException("Invalid size: " + size);
+			try {
+				return new Size(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+			} catch(NumberFormatException exception) {
+				throw new IllegalArgumentException("Invalid size: " + size, exception);
+			}
+		}
+
+		/**
+		 * Returns the number of pixels.
+		 */
+		public long area() {
+			return (long) width * height;
+		}
+	}
+}
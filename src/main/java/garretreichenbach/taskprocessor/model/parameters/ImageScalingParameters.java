@@ -0,0 +1,18 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+import garretreichenbach.taskprocessor.processor.ResamplingFilter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parameters of an {@link garretreichenbach.taskprocessor.model.TaskType#IMAGE_SCALING} task.
+ *
+ * @param data   the packed RGB image, 3 bytes per pixel
+ * @param width  the width of the image
+ * @param height the height of the image
+ * @param scale  the scaling factor
+ * @param filter the resampling filter ("nearest", "area", "bilinear", "bicubic" or "lanczos")
+ */
+public record ImageScalingParameters(ByteBuffer data, int width, int height, double scale, @TaskParameter(optional = true, defaultValue = "bilinear") ResamplingFilter filter) {
+}
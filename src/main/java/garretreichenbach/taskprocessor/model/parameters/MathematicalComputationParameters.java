@@ -0,0 +1,18 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+import garretreichenbach.taskprocessor.processor.MatrixOperation;
+
+/**
+ * Parameters of a {@link garretreichenbach.taskprocessor.model.TaskType#MATHEMATICAL_COMPUTATION} task. Matrices are flat row-major
+ * double[] buffers.
+ *
+ * @param operation the operation to apply
+ * @param a         the first operand, rows x columns
+ * @param rows      the number of rows of a
+ * @param columns   the number of columns of a
+ * @param b         the second operand; its shape depends on the operation, and "scale" does not use it
+ * @param scalar    the factor of "scale"
+ */
+public record MathematicalComputationParameters(MatrixOperation operation, double[] a, int rows, int columns, @TaskParameter(optional = true) double[] b, @TaskParameter(optional = true, defaultValue = "1") double scalar) {
+}
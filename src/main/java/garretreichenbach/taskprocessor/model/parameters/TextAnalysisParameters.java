@@ -0,0 +1,17 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parameters of a {@link garretreichenbach.taskprocessor.model.TaskType#TEXT_ANALYSIS} task.
+ *
+ * @param data      the text as UTF-8 bytes, inline or as a blob reference; one of data and text is required
+ * @param text      the text as a string, for small documents
+ * @param ngram     the length of the n-grams to count, 1-5, or 1 to count terms only
+ * @param top       the number of terms and n-grams to return
+ * @param lowercase whether letters are lower-cased before counting
+ */
+public record TextAnalysisParameters(@TaskParameter(optional = true) ByteBuffer data, @TaskParameter(optional = true) String text, @TaskParameter(optional = true, defaultValue = "2") int ngram, @TaskParameter(optional = true, defaultValue = "20") int top, @TaskParameter(optional = true, defaultValue = "true") boolean lowercase) {
+}
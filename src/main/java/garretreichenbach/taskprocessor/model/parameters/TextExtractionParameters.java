@@ -0,0 +1,17 @@
+package garretreichenbach.taskprocessor.model.parameters;
+
+import garretreichenbach.taskprocessor.model.TaskParameter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parameters of a {@link garretreichenbach.taskprocessor.model.TaskType#TEXT_EXTRACTION} task.
+ *
+ * @param data      the text as UTF-8 bytes, inline or as a blob reference; one of data and text is required
+ * @param text      the text as a string, for small documents
+ * @param ngram     the number of terms in a keyphrase, 2-5, or 1 to extract keywords only
+ * @param top       the number of keywords and keyphrases to return
+ * @param minLength the fewest characters a keyword has ("min_length")
+ */
+public record TextExtractionParameters(@TaskParameter(optional = true) ByteBuffer data, @TaskParameter(optional = true) String text, @TaskParameter(optional = true, defaultValue = "2") int ngram, @TaskParameter(optional = true, defaultValue = "10") int top, @TaskParameter(name = "min_length", optional = true, defaultValue = "3") int minLength) {
+}
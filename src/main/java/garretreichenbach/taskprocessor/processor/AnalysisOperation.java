@@ -0,0 +1,28 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * The operations of DATA_ANALYSIS tasks. All but {@link #AGGREGATE} are approximate and return a serialized
+ * {@link garretreichenbach.taskprocessor.processor.sketch.Sketch} as "sketch", so partial results can be combined with {@link #MERGE}.
+ */
+public enum AnalysisOperation {
+	/**
+	 * Exact count, sum, mean, minimum, maximum and variance per group, computed with {@link GroupedStatistics}.
+	 */
+	AGGREGATE,
+	/**
+	 * The number of distinct keys, or of distinct values if there are no keys, estimated with a HyperLogLog.
+	 */
+	DISTINCT,
+	/**
+	 * Quantiles of the values, estimated with a KLL sketch.
+	 */
+	QUANTILES,
+	/**
+	 * The most frequent keys and their counts, estimated with a count-min sketch.
+	 */
+	HEAVY_HITTERS,
+	/**
+	 * Merges sketches returned by earlier tasks and answers from the merged sketch.
+	 */
+	MERGE
+}
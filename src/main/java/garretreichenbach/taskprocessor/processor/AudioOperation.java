@@ -0,0 +1,33 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * The operations of AUDIO_MANIPULATION tasks. All but {@link #SPECTRUM} stream each channel through a {@link SampleStream}.
+ */
+public enum AudioOperation {
+	/**
+	 * Linear-phase low-pass FIR filter below the cutoff, a windowed sinc of the given number of taps applied by {@link OverlapAddFilter}
+	 * with its delay removed.
+	 */
+	LOW_PASS,
+	/**
+	 * Linear-phase high-pass FIR filter above the cutoff, like {@link #LOW_PASS}.
+	 */
+	HIGH_PASS,
+	/**
+	 * FIR filter with the coefficients as taps, applied by {@link OverlapAddFilter} without delay compensation.
+	 */
+	FIR,
+	/**
+	 * IIR filter of cascaded biquads with the coefficients (b0, b1, b2, a1, a2 per section), or a second-order Butterworth low-pass at
+	 * the cutoff if there are none, applied by {@link BiquadFilter}.
+	 */
+	IIR,
+	/**
+	 * Sample rate conversion to the target rate by {@link SampleRateConverter}.
+	 */
+	RESAMPLE,
+	/**
+	 * Power spectrum averaged over all channels, estimated by {@link SpectrumAnalyzer}.
+	 */
+	SPECTRUM
+}
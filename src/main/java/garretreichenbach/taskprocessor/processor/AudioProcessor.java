@@ -0,0 +1,141 @@
+package garretreichenbach.taskprocessor.processor;
+
+import garretreichenbach.taskprocessor.model.PooledPayload;
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.parameters.AudioManipulationParameters;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Processes AUDIO_MANIPULATION tasks: FIR and IIR filtering, sample rate conversion and spectrum analysis of 32-bit float audio.
+ * <br/>Each channel is streamed through its own stage in chunks of {@value #CHUNK_FRAMES} frames, read straight from the interleaved input
+ * and written straight into the interleaved output, so the working memory per channel is bounded however long the clip is. Channels
+ * are independent and run on a parallel stream. The output is leased from {@link BufferPool#SHARED} and returned as a
+ * {@link PooledPayload}.
+ */
+@Slf4j
+public class AudioProcessor implements TaskProcessor {
+
+	private static final int CHUNK_FRAMES = 16 * 1024;
+	private static final int MAX_CHANNELS = 64;
+
+	@Override
+	public TaskResult process(Task task) {
+		try {
+			AudioManipulationParameters parameters = task.getParameters(AudioManipulationParameters.class);
+			return TaskResult.success(task.getId(), manipulate(parameters));
+		} catch(Exception exception) {
+			log.error(exception.getMessage(), exception);
+			return TaskResult.error(task.getId(), exception);
+		}
+	}
+
+	/**
+	 * Applies the operation of a task.
+	 * @param parameters The parameters of the task.
+	 * @return For "spectrum", a map containing "power", "frequencies" (the center of each bin in Hz) and "frames" (per channel); otherwise
+	 * a map containing the processed "samples" and their "sample_rate", "channels" and "frames".
+	 * @throws IllegalArgumentException If the samples are not whole frames or a parameter of the operation is invalid.
+	 */
+	public Map<String, Object> manipulate(AudioManipulationParameters parameters) {
+		int channels = parameters.channels();
+		if(channels <= 0 || channels > MAX_CHANNELS) throw new IllegalArgumentException("Invalid number of channels: " + channels);
+		if(parameters.sampleRate() <= 0) throw new IllegalArgumentException("Invalid sample rate: " + parameters.sampleRate());
+		ByteBuffer samples = parameters.samples().duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		if(samples.remaining() % (Float.BYTES * channels) != 0) throw new IllegalArgumentException("Got " + samples.remaining() + " bytes, which is not a whole number of " + channels + "-channel float frames");
+		int frames = samples.remaining() / (Float.BYTES * channels);
+		if(parameters.operation() == AudioOperation.SPECTRUM) return analyze(samples, frames, channels, parameters.sampleRate(), parameters.fftSize());
+		SampleStream[] streams = new SampleStream[channels];
+		for(int channel = 0; channel < channels; channel++) streams[channel] = createStream(parameters);
+		int outputRate = parameters.operation() == AudioOperation.RESAMPLE ? parameters.targetRate() : parameters.sampleRate();
+		long outputFrames = streams[0] instanceof SampleRateConverter converter ? converter.outputLength(frames) : frames;
+		if(outputFrames * channels * Float.BYTES > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Output of " + outputFrames + " frames is too large");
+		BufferPool.Lease<byte[]> output = BufferPool.SHARED.leaseBytes((int) (outputFrames * channels * Float.BYTES));
+		try {
+			ByteBuffer target = ByteBuffer.wrap(output.array()).order(ByteOrder.LITTLE_ENDIAN);
+			IntStream.range(0, channels).parallel().forEach(channel -> streamChannel(samples, frames, channels, channel, streams[channel], target));
+		} catch(RuntimeException exception) {
+			output.release();
+			throw exception;
+		}
+		Map<String, Object> outputs = new HashMap<>();
+		outputs.put("samples", new PooledPayload(output));
+		outputs.put("sample_rate", outputRate);
+		outputs.put("channels", channels);
+		outputs.put("frames", (int) outputFrames);
+		return outputs;
+	}
+
+	private static SampleStream createStream(AudioManipulationParameters parameters) {
+		return switch(parameters.operation()) {
+			case LOW_PASS, HIGH_PASS -> new OverlapAddFilter(OverlapAddFilter.windowedSinc(parameters.taps(), parameters.sampleRate(), parameters.cutoff(), parameters.operation() == AudioOperation.HIGH_PASS), true);
+			case FIR -> {
+				if(parameters.coefficients() == null) throw new IllegalArgumentException("Missing parameter: coefficients");
+				float[] taps = new float[parameters.coefficients().length];
+				for(int i = 0; i < taps.length; i++) taps[i] = (float) parameters.coefficients()[i];
+				yield new OverlapAddFilter(taps, false);
+			}
+			case IIR -> new BiquadFilter(parameters.coefficients() != null ? parameters.coefficients() : BiquadFilter.butterworth(parameters.sampleRate(), parameters.cutoff(), false));
+			case RESAMPLE -> new SampleRateConverter(parameters.sampleRate(), parameters.targetRate());
+			case SPECTRUM -> throw new IllegalStateException("Spectrum analysis is not a sample stream");
+		};
+	}
+
+	/**
+	 * Streams one channel of the interleaved input through its stage into the interleaved output.
+	 */
+	private static void streamChannel(ByteBuffer source, int frames, int channels, int channel, SampleStream stream, ByteBuffer target) {
+		float[] input = new float[CHUNK_FRAMES];
+		float[] output = new float[stream.maxOutput(CHUNK_FRAMES)];
+		int base = source.position();
+		int written = 0;
+		for(int frame = 0; frame < frames; frame += CHUNK_FRAMES) {
+			int count = Math.min(CHUNK_FRAMES, frames - frame);
+			for(int i = 0; i < count; i++) input[i] = source.getFloat(base + ((frame + i) * channels + channel) * Float.BYTES);
+			written = write(output, stream.process(input, count, output), channels, channel, target, written);
+		}
+		write(output, stream.flush(output), channels, channel, target, written);
+	}
+
+	private static int write(float[] samples, int count, int channels, int channel, ByteBuffer target, int frame) {
+		for(int i = 0; i < count; i++) target.putFloat(((frame + i) * channels + channel) * Float.BYTES, samples[i]);
+		return frame + count;
+	}
+
+	/**
+	 * Estimates the power spectrum of each channel and averages them.
+	 */
+	private static Map<String, Object> analyze(ByteBuffer source, int frames, int channels, int sampleRate, int fftSize) {
+		double[][] spectra = new double[channels][];
+		long[] counts = new long[channels];
+		IntStream.range(0, channels).parallel().forEach(channel -> {
+			SpectrumAnalyzer analyzer = new SpectrumAnalyzer(fftSize);
+			float[] input = new float[CHUNK_FRAMES];
+			int base = source.position();
+			for(int frame = 0; frame < frames; frame += CHUNK_FRAMES) {
+				int count = Math.min(CHUNK_FRAMES, frames - frame);
+				for(int i = 0; i < count; i++) input[i] = source.getFloat(base + ((frame + i) * channels + channel) * Float.BYTES);
+				analyzer.accept(input, 0, count);
+			}
+			spectra[channel] = analyzer.power();
+			counts[channel] = analyzer.getFrames();
+		});
+		double[] power = new double[fftSize / 2 + 1];
+		double[] frequencies = new double[power.length];
+		for(int k = 0; k < power.length; k++) {
+			for(double[] spectrum : spectra) power[k] += spectrum[k] / channels;
+			frequencies[k] = (double) k * sampleRate / fftSize;
+		}
+		Map<String, Object> outputs = new HashMap<>();
+		outputs.put("power", power);
+		outputs.put("frequencies", frequencies);
+		outputs.put("frames", counts[0]);
+		return outputs;
+	}
+}
@@ -0,0 +1,72 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * An infinite impulse response filter made of cascaded second-order sections (biquads) in transposed direct form II, which keeps two
+ * state values per section and is the best behaved direct form in floating point.
+ * <br/>Each section is given by 5 coefficients b0, b1, b2, a1, a2, normalized so a0 is 1:
+ * y[n] = b0 x[n] + b1 x[n-1] + b2 x[n-2] - a1 y[n-1] - a2 y[n-2]. The state is kept in double precision across chunks.
+ */
+public final class BiquadFilter implements SampleStream {
+
+	private final double[] coefficients;
+	private final double[] state;
+
+	/**
+	 * Creates a filter.
+	 * @param coefficients b0, b1, b2, a1, a2 of each section, one section after another
+	 * @throws IllegalArgumentException if the number of coefficients is not a positive multiple of 5
+	 */
+	public BiquadFilter(double[] coefficients) {
+		if(coefficients.length == 0 || coefficients.length % 5 != 0) throw new IllegalArgumentException("IIR coefficients must be 5 per section, got " + coefficients.length);
+		this.coefficients = coefficients.clone();
+		state = new double[coefficients.length / 5 * 2];
+	}
+
+	/**
+	 * Designs a second-order Butterworth low-pass or high-pass section with the bilinear transform (the RBJ cookbook formulas).
+	 * @param sampleRate the sample rate in Hz
+	 * @param cutoff the cutoff frequency in Hz, below half the sample rate
+	 * @param highPass whether to design a high-pass instead of a low-pass section
+	 * @return b0, b1, b2, a1, a2
+	 */
+	public static double[] butterworth(int sampleRate, double cutoff, boolean highPass) {
+		if(!(cutoff > 0 && cutoff < sampleRate / 2.0)) throw new IllegalArgumentException("Cutoff must be between 0 and " + sampleRate / 2.0 + " Hz: " + cutoff);
+		double omega = 2 * Math.PI * cutoff / sampleRate;
+		double alpha = Math.sin(omega) / Math.sqrt(2);
+		double cos = Math.cos(omega);
+		double a0 = 1 + alpha;
+		double b1 = highPass ? -(1 + cos) : 1 - cos;
+		double b0 = highPass ? (1 + cos) / 2 : (1 - cos) / 2;
+		return new double[] {b0 / a0, b1 / a0, b0 / a0, -2 * cos / a0, (1 - alpha) / a0};
+	}
+
+	@Override
+	public int process(float[] input, int length, float[] output) {
+		System.arraycopy(input, 0, output, 0, length);
+		for(int section = 0; section < state.length / 2; section++) {
+			int base = section * 5;
+			double b0 = coefficients[base], b1 = coefficients[base + 1], b2 = coefficients[base + 2], a1 = coefficients[base + 3], a2 = coefficients[base + 4];
+			double s1 = state[section * 2], s2 = state[section * 2 + 1];
+			for(int i = 0; i < length; i++) {
+				double x = output[i];
+				double y = b0 * x + s1;
+				s1 = b1 * x - a1 * y + s2;
+				s2 = b2 * x - a2 * y;
+				output[i] = (float) y;
+			}
+			state[section * 2] = s1;
+			state[section * 2 + 1] = s2;
+		}
+		return length;
+	}
+
+	@Override
+	public int flush(float[] output) {
+		return 0;
+	}
+
+	@Override
+	public int maxOutput(int length) {
+		return length;
+	}
+}
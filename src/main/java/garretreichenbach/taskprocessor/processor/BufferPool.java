@@ -0,0 +1,270 @@
+package garretreichenbach.taskprocessor.processor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * A pool of large byte[] and int[] arrays for image-sized buffers, so tasks stop allocating a fresh humongous array for every image.
+ * <br/>Arrays are grouped in size classes four to a power of two, so a leased array is at most 25% longer than requested. Requests below
+ * {@link #MIN_POOLED_BYTES} or above {@link #MAX_POOLED_BYTES} are allocated directly. Released arrays are kept until the pool holds
+ * its maximum number of bytes; past that they are left to the garbage collector.
+ * <br/>A {@link Lease} must be released exactly once when its array is no longer used. Arrays are handed out as they were released, not cleared.
+ * When the system property {@value #DEBUG_PROPERTY} is "true", leases that become unreachable without being released are logged
+ * with the stack trace of the lease and counted in the {@link Stats}.
+ */
+@Slf4j
+public final class BufferPool {
+
+	/**
+	 * The system property that enables leak detection.
+	 */
+	public static final String DEBUG_PROPERTY = "taskprocessor.bufferPool.debug";
+
+	/**
+	 * The smallest array, in bytes, that is pooled.
+	 */
+	public static final int MIN_POOLED_BYTES = 64 * 1024;
+
+	/**
+	 * The largest array, in bytes, that is pooled.
+	 */
+	public static final int MAX_POOLED_BYTES = 1 << 30;
+
+	/**
+	 * The pool shared by the image processors, retaining up to an eighth of the maximum heap.
+	 */
+	public static final BufferPool SHARED = new BufferPool(Runtime.getRuntime().maxMemory() / 8, Boolean.getBoolean(DEBUG_PROPERTY));
+
+	private static final int MIN_EXPONENT = Integer.numberOfTrailingZeros(MIN_POOLED_BYTES);
+	private static final int CLASSES_PER_EXPONENT = 4;
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	private final long maxRetainedBytes;
+	private final boolean debug;
+	private final SizeClasses<byte[]> bytes = new SizeClasses<>(byte[]::new, array -> array.length, Byte.BYTES);
+	private final SizeClasses<int[]> ints = new SizeClasses<>(int[]::new, array -> array.length, Integer.BYTES);
+	private final AtomicLong retainedBytes = new AtomicLong();
+	private final AtomicLong leases = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong unpooled = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong bytesRecycled = new AtomicLong();
+	private final AtomicLong leaks = new AtomicLong();
+
+	/**
+	 * Creates a pool.
+	 * @param maxRetainedBytes the total size of the released arrays the pool keeps for reuse
+	 * @param debug whether to track unreleased leases
+	 */
+	public BufferPool(long maxRetainedBytes, boolean debug) {
+		this.maxRetainedBytes = maxRetainedBytes;
+		this.debug = debug;
+	}
+
+	/**
+	 * Leases a byte[] of at least the given length.
+	 * @param length the number of bytes needed
+	 * @return the lease
+	 * @throws IllegalArgumentException if the length is negative
+	 */
+	public Lease<byte[]> leaseBytes(int length) {
+		return lease(bytes, length);
+	}
+
+	/**
+	 * Leases an int[] of at least the given length.
+	 * @param length the number of ints needed
+	 * @return the lease
+	 * @throws IllegalArgumentException if the length is negative
+	 */
+	public Lease<int[]> leaseInts(int length) {
+		return lease(ints, length);
+	}
+
+	/**
+	 * Wraps an array that does not belong to any pool in a lease, so code can treat pooled and unpooled arrays alike.
+	 * Releasing the lease does nothing.
+	 * @param array the array
+	 * @return a lease of the whole array
+	 */
+	public static Lease<byte[]> wrap(byte[] array) {
+		return new Lease<>(null, null, array, array.length);
+	}
+
+	/**
+	 * Returns the statistics of this pool.
+	 */
+	public Stats getStats() {
+		return new Stats(leases.get(), hits.get(), misses.get(), unpooled.get(), dropped.get(), bytesRecycled.get(), retainedBytes.get(), leaks.get());
+	}
+
+	private <T> Lease<T> lease(SizeClasses<T> classes, int length) {
+		if(length < 0) throw new IllegalArgumentException("Negative buffer length: " + length);
+		leases.incrementAndGet();
+		long byteLength = (long) length * classes.elementSize;
+		if(byteLength < MIN_POOLED_BYTES || byteLength > MAX_POOLED_BYTES) {
+			unpooled.incrementAndGet();
+			return new Lease<>(this, null, classes.allocator.apply(length), length);
+		}
+		int index = classIndex(byteLength);
+		T array = classes.free[index].pollFirst();
+		if(array != null) {
+			long capacity = (long) classes.length.applyAsInt(array) * classes.elementSize;
+			retainedBytes.addAndGet(-capacity);
+			hits.incrementAndGet();
+			bytesRecycled.addAndGet(capacity);
+		} else {
+			misses.incrementAndGet();
+			array = classes.allocator.apply((int) (classCapacity(index) / classes.elementSize));
+		}
+		return new Lease<>(this, classes, array, length);
+	}
+
+	private <T> void release(SizeClasses<T> classes, T array) {
+		long capacity = (long) classes.length.applyAsInt(array) * classes.elementSize;
+		if(retainedBytes.addAndGet(capacity) > maxRetainedBytes) {
+			retainedBytes.addAndGet(-capacity);
+			dropped.incrementAndGet();
+			return;
+		}
+		classes.free[classIndex(capacity)].offerFirst(array);
+	}
+
+	/**
+	 * Returns the size class of a byte length between {@link #MIN_POOLED_BYTES} and {@link #MAX_POOLED_BYTES}.
+	 */
+	static int classIndex(long byteLength) {
+		int exponent = 63 - Long.numberOfLeadingZeros(byteLength - 1);
+		if(exponent < MIN_EXPONENT) return 0;
+		int quarter = (int) ((byteLength - 1) >> (exponent - 2)) - CLASSES_PER_EXPONENT;
+		return (exponent - MIN_EXPONENT) * CLASSES_PER_EXPONENT + quarter + 1;
+	}
+
+	/**
+	 * Returns the length in bytes of the arrays in a size class.
+	 */
+	static long classCapacity(int index) {
+		if(index == 0) return MIN_POOLED_BYTES;
+		int exponent = (index - 1) / CLASSES_PER_EXPONENT + MIN_EXPONENT;
+		int quarter = (index - 1) % CLASSES_PER_EXPONENT;
+		return (long) (CLASSES_PER_EXPONENT + quarter + 1) << (exponent - 2);
+	}
+
+	/**
+	 * The free lists of one array type, one per size class.
+	 */
+	private static final class SizeClasses<T> {
+
+		private final IntFunction<T> allocator;
+		private final ToIntFunction<T> length;
+		private final int elementSize;
+		private final ConcurrentLinkedDeque<T>[] free;
+
+		@SuppressWarnings("unchecked")
+		private SizeClasses(IntFunction<T> allocator, ToIntFunction<T> length, int elementSize) {
+			this.allocator = allocator;
+			this.length = length;
+			this.elementSize = elementSize;
+			free = new ConcurrentLinkedDeque[classIndex(MAX_POOLED_BYTES) + 1];
+			for(int i = 0; i < free.length; i++) free[i] = new ConcurrentLinkedDeque<>();
+		}
+	}
+
+	/**
+	 * An array leased from the pool. The array may be longer than requested; only the first {@link #length()} elements belong to the lease.
+	 * <br/>Closing the lease releases it, so it can be used in a try-with-resources block when the array does not outlive the task.
+	 */
+	public static final class Lease<T> implements AutoCloseable {
+
+		private final BufferPool pool;
+		private final SizeClasses<T> classes;
+		private final int length;
+		private final AtomicBoolean released;
+		private final Cleaner.Cleanable cleanable;
+		private volatile T array;
+
+		private Lease(BufferPool pool, SizeClasses<T> classes, T array, int length) {
+			this.pool = pool;
+			this.classes = classes;
+			this.array = array;
+			this.length = length;
+			released = new AtomicBoolean();
+			cleanable = pool != null && pool.debug ? CLEANER.register(this, new LeakCheck(pool, released, length, new Throwable("Buffer leased here"))) : null;
+		}
+
+		/**
+		 * Returns the leased array.
+		 * @throws IllegalStateException if the lease has been released
+		 */
+		public T array() {
+			T current = array;
+			if(current == null) throw new IllegalStateException("Buffer has been released");
+			return current;
+		}
+
+		/**
+		 * Returns the requested length of the buffer, in elements.
+		 */
+		public int length() {
+			return length;
+		}
+
+		/**
+		 * Returns the array to the pool. Releasing a lease more than once has no effect.
+		 */
+		public void release() {
+			if(!released.compareAndSet(false, true)) return;
+			T current = array;
+			array = null;
+			if(cleanable != null) cleanable.clean();
+			if(classes != null) pool.release(classes, current);
+		}
+
+		@Override
+		public void close() {
+			release();
+		}
+	}
+
+	/**
+	 * The cleaning action of a lease in debug mode. It must not reference the lease itself, or the lease would never become unreachable.
+	 */
+	private record LeakCheck(BufferPool pool, AtomicBoolean released, int length, Throwable origin) implements Runnable {
+
+		@Override
+		public void run() {
+			if(released.get()) return;
+			pool.leaks.incrementAndGet();
+			log.warn("Buffer of {} elements was garbage collected without being released", length, origin);
+		}
+	}
+
+	/**
+	 * Cumulative buffer pool statistics.
+	 *
+	 * @param leases        the number of leases handed out
+	 * @param hits          the number of pooled leases served from a released array
+	 * @param misses        the number of pooled leases that had to allocate a new array
+	 * @param unpooled      the number of leases too small or too large to be pooled
+	 * @param dropped       the number of released arrays discarded because the pool was full
+	 * @param bytesRecycled the total size of the arrays reused by hits
+	 * @param retainedBytes the total size of the released arrays currently held by the pool
+	 * @param leaks         the number of leases garbage collected without being released, counted in debug mode only
+	 */
+	public record Stats(long leases, long hits, long misses, long unpooled, long dropped, long bytesRecycled, long retainedBytes, long leaks) {
+
+		/**
+		 * @return the fraction of pooled leases served from a released array
+		 */
+		public double hitRate() {
+			return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+		}
+	}
+}
@@ -0,0 +1,421 @@
+package garretreichenbach.taskprocessor.processor;
+
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHashFactory;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.snappy.FramedSnappyCompressorInputStream;
+import org.apache.commons.compress.compressors.snappy.FramedSnappyCompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The codecs available to IMAGE_COMPRESSION and IMAGE_DECOMPRESSION tasks.
+ * <br/>GZIP and DEFLATE run directly on {@link Deflater}/{@link Inflater} instances pooled per thread, writing into the thread's
+ * {@link OutputBuffer}. The other codecs stream through the same buffer. Either way the result is copied out at exactly its compressed length.
+ * <br/>Every codec implements {@link #compress(byte[], int, int, int, OutputBuffer)} and {@link #decompressor}, which decompression falls
+ * back to; GZIP and DEFLATE also decompress directly on arrays.
+ * <br/>GZIP and DEFLATE inputs larger than a segment of {@link ParallelDeflate#DEFAULT} are compressed in parallel blocks instead, and
+ * GZIP members with a segment index are decompressed in parallel.
+ */
+public enum CompressionCodec {
+	/**
+	 * gzip (RFC 1952). Levels 0-9, default 6.
+	 */
+	GZIP(0, 9, 6, "gz", "gzip") {
+		@Override
+		protected void compress(byte[] data, int offset, int length, int level, OutputBuffer output) {
+			CRC32 crc = new CRC32();
+			crc.update(data, offset, length);
+			writeGzipHeader(output, level);
+			deflate(RAW_DEFLATERS.get(), data, offset, length, level, output);
+			writeIntLE(output, (int) crc.getValue());
+			writeIntLE(output, length);
+		}
+
+		@Override
+		public byte[] decompress(byte[] data, int expectedLength) throws IOException {
+			if(expectedLength >= 0) return super.decompress(data, expectedLength);
+			byte[] parallel = ParallelDeflate.DEFAULT.gunzip(data, expectedLength);
+			if(parallel != null) return parallel;
+			int offset = skipGzipHeader(data);
+			byte[] result = inflate(RAW_INFLATERS.get(), data, offset, data.length - offset, expectedLength);
+			checkGzipTrailer(data, result, result.length);
+			return result;
+		}
+
+		@Override
+		protected void decompressInto(byte[] data, byte[] target, int length) throws IOException {
+			if(ParallelDeflate.DEFAULT.gunzip(data, target, length)) return;
+			int offset = skipGzipHeader(data);
+			inflate(RAW_INFLATERS.get(), data, offset, data.length - offset, target, 0, length);
+			checkGzipTrailer(data, target, length);
+		}
+
+		@Override
+		protected InputStream decompressor(InputStream inputStream) throws IOException {
+			return new GZIPInputStream(inputStream);
+		}
+	},
+	/**
+	 * zlib-wrapped deflate (RFC 1950), the format commons-compress calls "deflate". Levels 0-9, default 6.
+	 */
+	DEFLATE(0, 9, 6, "deflate", "zlib") {
+		@Override
+		protected void compress(byte[] data, int offset, int length, int level, OutputBuffer output) {
+			deflate(ZLIB_DEFLATERS.get(), data, offset, length, level, output);
+		}
+
+		@Override
+		public byte[] decompress(byte[] data, int expectedLength) throws IOException {
+			return inflate(ZLIB_INFLATERS.get(), data, 0, data.length, expectedLength);
+		}
+
+		@Override
+		protected void decompressInto(byte[] data, byte[] target, int length) throws IOException {
+			inflate(ZLIB_INFLATERS.get(), data, 0, data.length, target, 0, length);
+		}
+
+		@Override
+		protected InputStream decompressor(InputStream inputStream) {
+			return new InflaterInputStream(inputStream);
+		}
+	},
+	/**
+	 * bzip2. The level is the block size in units of 100k, 1-9, default 9.
+	 */
+	BZIP2(1, 9, 9, "bzip2", "bz2") {
+		@Override
+		protected void compress(byte[] data, int offset, int length, int level, OutputBuffer output) throws IOException {
+			write(new BZip2CompressorOutputStream(output, level), data, offset, length);
+		}
+
+		@Override
+		protected InputStream decompressor(InputStream inputStream) throws IOException {
+			return new BZip2CompressorInputStream(inputStream);
+		}
+	},
+	/**
+	 * xz (LZMA2). The level is the xz preset, 0-9, default 6.
+	 */
+	XZ(0, 9, 6, "xz") {
+		@Override
+		protected void compress(byte[] data, int offset, int length, int level, OutputBuffer output) throws IOException {
+			write(new XZCompressorOutputStream(output, level), data, offset, length);
+		}
+
+		@Override
+		protected InputStream decompressor(InputStream inputStream) throws IOException {
+			return new XZCompressorInputStream(inputStream);
+		}
+	},
+	/**
+	 * LZ4 frame format. Level 0 uses the fast compressor, 1-17 the high compression compressor at that level. Default 0.
+	 * <br/>Frames are written with lz4-java rather than commons-compress, whose LZ4 encoder is orders of magnitude slower on image data.
+	 */
+	LZ4(0, 17, 0, "lz4-framed", "lz4") {
+		@Override
+		protected void compress(byte[] data, int offset, int length, int level, OutputBuffer output) throws IOException {
+			LZ4Factory factory = LZ4Factory.fastestJavaInstance();
+			write(new LZ4FrameOutputStream(output, LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB, -1L, level == 0 ? factory.fastCompressor() : factory.highCompressor(level), XXHashFactory.fastestJavaInstance().hash32(), LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE), data, offset, length);
+		}
+
+		@Override
+		protected InputStream decompressor(InputStream inputStream) throws IOException {
+			return new LZ4FrameInputStream(inputStream, LZ4Factory.fastestJavaInstance().safeDecompressor(), XXHashFactory.fastestJavaInstance().hash32());
+		}
+	},
+	/**
+	 * Snappy framing format. Snappy has no levels.
+	 */
+	SNAPPY(0, 0, 0, "snappy-framed", "snappy") {
+		@Override
+		protected void compress(byte[] data, int offset, int length, int level, OutputBuffer output) throws IOException {
+			write(new FramedSnappyCompressorOutputStream(output), data, offset, length);
+		}
+
+		@Override
+		protected InputStream decompressor(InputStream inputStream) throws IOException {
+			return new FramedSnappyCompressorInputStream(inputStream);
+		}
+	};
+
+	private static final ThreadLocal<Deflater> RAW_DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+	private static final ThreadLocal<Deflater> ZLIB_DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, false));
+	static final ThreadLocal<Inflater> RAW_INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+	private static final ThreadLocal<Inflater> ZLIB_INFLATERS = ThreadLocal.withInitial(() -> new Inflater(false));
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+	private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+
+	private final int minLevel;
+	private final int maxLevel;
+	private final int defaultLevel;
+	private final String[] names;
+
+	CompressionCodec(int minLevel, int maxLevel, int defaultLevel, String... names) {
+		this.minLevel = minLevel;
+		this.maxLevel = maxLevel;
+		this.defaultLevel = defaultLevel;
+		this.names = names;
+	}
+
+	@Override
+	public String toString() {
+		return names[0];
+	}
+
+	/**
+	 * Finds a codec by name, accepting the commons-compress names (e.g. "gz", "lz4-framed") and common aliases.
+	 * @param name the name of the codec
+	 * @return the codec
+	 * @throws IllegalArgumentException if no codec has that name
+	 */
+	public static CompressionCodec fromString(String name) {
+		for(CompressionCodec codec : values()) {
+			if(codec.name().equalsIgnoreCase(name)) return codec;
+			for(String alias : codec.names) if(alias.equalsIgnoreCase(name)) return codec;
+		}
+		throw new IllegalArgumentException("Unknown compression algorithm: " + name);
+	}
+
+	/**
+	 * Identifies the codec that produced some data from its leading magic bytes.
+	 * @param data the compressed data
+	 * @return the codec, or null if the format is not recognised
+	 */
+	public static CompressionCodec detect(byte[] data) {
+		if(data.length < 4) return null;
+		int b0 = data[0] & 0xFF, b1 = data[1] & 0xFF, b2 = data[2] & 0xFF, b3 = data[3] & 0xFF;
+		if(b0 == 0x1F && b1 == 0x8B) return GZIP;
+		if(b0 == 'B' && b1 == 'Z' && b2 == 'h') return BZIP2;
+		if(b0 == 0xFD && b1 == '7' && b2 == 'z' && b3 == 'X') return XZ;
+		if(b0 == 0x04 && b1 == 0x22 && b2 == 0x4D && b3 == 0x18) return LZ4;
+		if(b0 == 0xFF && b1 == 0x06 && b2 == 0x00 && b3 == 0x00) return SNAPPY;
+		if((b0 & 0x0F) == 8 && ((b0 << 8) | b1) % 31 == 0) return DEFLATE;
+		return null;
+	}
+
+	/**
+	 * Returns the level used when none is given.
+	 */
+	public int getDefaultLevel() {
+		return defaultLevel;
+	}
+
+	/**
+	 * Compresses data.
+	 * @param data the data to compress
+	 * @param offset the offset of the first byte
+	 * @param length the number of bytes to compress
+	 * @param level the compression level, or -1 for the codec's default
+	 * @return the compressed data, exactly as long as the compressed stream
+	 * @throws IllegalArgumentException if the level is out of range for this codec
+	 */
+	public byte[] compress(byte[] data, int offset, int length, int level) {
+		return compress(data, offset, length, level, true);
+	}
+
+	/**
+	 * Compresses data.
+	 * @param data the data to compress
+	 * @param offset the offset of the first byte
+	 * @param length the number of bytes to compress
+	 * @param level the compression level, or -1 for the codec's default
+	 * @param parallel whether GZIP and DEFLATE may split a large input into blocks compressed in parallel
+	 * @return the compressed data, exactly as long as the compressed stream
+	 * @throws IllegalArgumentException if the level is out of range for this codec
+	 */
+	public byte[] compress(byte[] data, int offset, int length, int level, boolean parallel) {
+		if(level == -1) level = defaultLevel;
+		if(level < minLevel || level > maxLevel) throw new IllegalArgumentException("Level " + level + " is out of range for " + this + " (" + minLevel + "-" + maxLevel + ")");
+		if(parallel && length > ParallelDeflate.DEFAULT.getSegmentSize()) {
+			if(this == GZIP) return ParallelDeflate.DEFAULT.gzip(data, offset, length, level);
+			if(this == DEFLATE) return ParallelDeflate.DEFAULT.zlib(data, offset, length, level);
+		}
+		OutputBuffer output = OutputBuffer.acquire();
+		try {
+			compress(data, offset, length, level, output);
+		} catch(IOException exception) {
+			throw new UncheckedIOException("Failed to compress with " + this, exception);
+		}
+		return output.toByteArray();
+	}
+
+	/**
+	 * Decompresses data.
+	 * @param data the compressed data
+	 * @param expectedLength the length of the original data if known (e.g. width * height * 3), or -1
+	 * @return the original data
+	 * @throws IOException if the data is corrupt or not in this codec's format
+	 */
+	public byte[] decompress(byte[] data, int expectedLength) throws IOException {
+		if(expectedLength < 0) {
+			try(InputStream decompressor = decompressor(new ByteArrayInputStream(data))) {
+				return decompressor.readAllBytes();
+			}
+		}
+		byte[] result = new byte[expectedLength];
+		decompressInto(data, result, expectedLength);
+		return result;
+	}
+
+	/**
+	 * Decompresses data of a known length into an existing array, e.g. one leased from a {@link BufferPool}.
+	 * @param data the compressed data
+	 * @param target the array to decompress into, from index 0
+	 * @param length the length of the original data
+	 * @throws IOException if the data is corrupt, not in this codec's format, or does not decompress to exactly length bytes
+	 * @throws IllegalArgumentException if the target is shorter than length
+	 */
+	public void decompress(byte[] data, byte[] target, int length) throws IOException {
+		if(length < 0 || length > target.length) throw new IllegalArgumentException("Invalid length " + length + " for a target of " + target.length + " bytes");
+		decompressInto(data, target, length);
+	}
+
+	protected void decompressInto(byte[] data, byte[] target, int length) throws IOException {
+		try(InputStream decompressor = decompressor(new ByteArrayInputStream(data))) {
+			IOUtils.readFully(decompressor, target, 0, length);
+			if(decompressor.read() != -1) throw new IOException("Decompressed data is longer than " + length + " bytes");
+		}
+	}
+
+	/**
+	 * Compresses data into the thread's output buffer, at a level already checked against the codec's range.
+	 */
+	protected abstract void compress(byte[] data, int offset, int length, int level, OutputBuffer output) throws IOException;
+
+	/**
+	 * Returns a stream that decompresses another, used when a codec does not decompress directly on arrays.
+	 */
+	protected abstract InputStream decompressor(InputStream inputStream) throws IOException;
+
+	/**
+	 * Writes data through a compressing stream and closes it, which finishes the compressed stream.
+	 */
+	private static void write(OutputStream compressor, byte[] data, int offset, int length) throws IOException {
+		try(compressor) {
+			compressor.write(data, offset, length);
+		}
+	}
+
+	static void deflate(Deflater deflater, byte[] data, int offset, int length, int level, OutputBuffer output) {
+		deflater.reset();
+		deflater.setLevel(level);
+		deflater.setInput(data, offset, length);
+		deflater.finish();
+		output.reserve(length / 2 + 64);
+		while(!deflater.finished()) {
+			if(output.available() == 0) output.reserve(64 * 1024);
+			byte[] array = output.array();
+			output.advance(deflater.deflate(array, output.size(), output.available()));
+		}
+	}
+
+	static byte[] inflate(Inflater inflater, byte[] data, int offset, int length, int expectedLength) throws IOException {
+		inflater.reset();
+		inflater.setInput(data, offset, length);
+		try {
+			if(expectedLength >= 0) {
+				byte[] result = new byte[expectedLength];
+				inflate(inflater, data, offset, length, result, 0, expectedLength);
+				return result;
+			}
+			OutputBuffer output = OutputBuffer.acquire();
+			output.reserve(length * 2);
+			while(!inflater.finished()) {
+				if(output.available() == 0) output.reserve(64 * 1024);
+				int count = inflater.inflate(output.array(), output.size(), output.available());
+				if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) throw new EOFException("Truncated compressed data");
+				output.advance(count);
+			}
+			return output.toByteArray();
+		} catch(DataFormatException exception) {
+			throw new IOException("Corrupt compressed data: " + exception.getMessage(), exception);
+		}
+	}
+
+	/**
+	 * Inflates exactly outputLength bytes into an array. The deflate stream may end there or continue after a flush point.
+	 */
+	static void inflate(Inflater inflater, byte[] data, int offset, int length, byte[] output, int outputOffset, int outputLength) throws IOException {
+		inflater.reset();
+		inflater.setInput(data, offset, length);
+		try {
+			int size = 0;
+			while(size < outputLength && !inflater.finished()) {
+				int count = inflater.inflate(output, outputOffset + size, outputLength - size);
+				if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) throw new EOFException("Truncated compressed data");
+				size += count;
+			}
+			if(size != outputLength) throw new IOException("Decompressed " + size + " bytes, expected " + outputLength);
+			if(!inflater.finished() && inflater.inflate(new byte[1]) > 0) throw new IOException("Decompressed data is longer than " + outputLength + " bytes");
+		} catch(DataFormatException exception) {
+			throw new IOException("Corrupt compressed data: " + exception.getMessage(), exception);
+		}
+	}
+
+	private static void checkGzipTrailer(byte[] data, byte[] result, int length) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(result, 0, length);
+		if((int) crc.getValue() != readIntLE(data, data.length - 8)) throw new IOException("gzip CRC mismatch");
+		if(length != readIntLE(data, data.length - 4)) throw new IOException("gzip length mismatch");
+	}
+
+	static void writeGzipHeader(OutputBuffer output, int level) {
+		int xfl = level == 9 ? 2 : level == 1 ? 4 : 0;
+		output.write(new byte[] {0x1F, (byte) 0x8B, Deflater.DEFLATED, 0, 0, 0, 0, 0, (byte) xfl, (byte) 0xFF}, 0, 10);
+	}
+
+	/**
+	 * Returns the offset of the deflate stream in a gzip member, skipping the optional header fields.
+	 */
+	static int skipGzipHeader(byte[] data) throws IOException {
+		if(data.length < 18 || (readShortLE(data, 0) != GZIP_MAGIC) || data[2] != Deflater.DEFLATED) throw new IOException("Not in gzip format");
+		int flags = data[3] & 0xFF;
+		int offset = 10;
+		if((flags & FEXTRA) != 0) offset += 2 + readShortLE(data, offset);
+		if((flags & FNAME) != 0) offset = skipZeroTerminated(data, offset);
+		if((flags & FCOMMENT) != 0) offset = skipZeroTerminated(data, offset);
+		if((flags & FHCRC) != 0) offset += 2;
+		if(offset > data.length - 8) throw new EOFException("Truncated gzip header");
+		return offset;
+	}
+
+	private static int skipZeroTerminated(byte[] data, int offset) throws EOFException {
+		while(offset < data.length && data[offset] != 0) offset++;
+		if(offset == data.length) throw new EOFException("Truncated gzip header");
+		return offset + 1;
+	}
+
+	static int readShortLE(byte[] data, int offset) {
+		return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+	}
+
+	static int readIntLE(byte[] data, int offset) {
+		return readShortLE(data, offset) | readShortLE(data, offset + 2) << 16;
+	}
+
+	static void writeIntLE(OutputBuffer output, int value) {
+		output.write(value);
+		output.write(value >>> 8);
+		output.write(value >>> 16);
+		output.write(value >>> 24);
+	}
+}
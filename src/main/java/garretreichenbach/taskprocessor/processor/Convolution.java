@@ -0,0 +1,353 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Blurs, sharpens and edge-detects packed RGB images (3 bytes per pixel, row-major) with separable kernels.
+ * <br/>Every operation runs as two passes over the image. The horizontal pass works in strips of rows: each row is copied into a
+ * scratch buffer padded according to the {@link EdgeMode}, so the inner loops need no bounds checks, and written to an intermediate
+ * image leased from {@link BufferPool#SHARED}. The vertical pass works in strips of columns, a few hundred bytes wide, walking down the
+ * intermediate image so each strip stays in cache. Strips are processed on a parallel stream.
+ * <br/>Gaussian kernels are applied as fixed-point weights with the {@link PixelKernels}. Box blurs, and Gaussian blurs too wide for a
+ * direct kernel, use running sums, so their cost does not depend on the radius.
+ */
+public final class Convolution {
+
+	/**
+	 * Gaussian blurs with a kernel radius above this are approximated by three box blurs.
+	 */
+	public static final int MAX_KERNEL_RADIUS = 12;
+
+	private static final int BYTES_PER_PIXEL = Resampler.BYTES_PER_PIXEL;
+	private static final int PRECISION_BITS = 14;
+	private static final int ROUNDING = 1 << (PRECISION_BITS - 1);
+	private static final int BOX_BITS = 24;
+	private static final long BOX_ROUNDING = 1L << (BOX_BITS - 1);
+	private static final int MIN_STRIP_ROWS = 8;
+	private static final int MAX_STRIP_ROWS = 64;
+	private static final int COLUMN_STRIP_BYTES = 768;
+	private static final PixelKernels KERNELS = PixelKernels.get();
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+	private Convolution() {
+	}
+
+	/**
+	 * Blurs an image with a Gaussian kernel.
+	 * @param source the packed RGB image, read from its current position
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param target the array the blurred image is written to, from index 0
+	 * @param sigma the standard deviation of the Gaussian in pixels, at most twice the larger image dimension; 0 copies the image
+	 * @param edge how pixels outside the image are read
+	 * @throws IllegalArgumentException if a dimension is not positive, sigma is out of range or an array is too short
+	 */
+	public static void gaussianBlur(ByteBuffer source, int width, int height, byte[] target, double sigma, EdgeMode edge) {
+		checkSize(source, width, height, target);
+		checkRadius(sigma, width, height);
+		try(BufferPool.Lease<byte[]> intermediate = BufferPool.SHARED.leaseBytes(width * height * BYTES_PER_PIXEL)) {
+			if(Math.ceil(3 * sigma) <= MAX_KERNEL_RADIUS) {
+				int[] kernel = gaussianKernel(sigma);
+				horizontalKernel(source, width, height, intermediate.array(), kernel, edge);
+				verticalKernel(intermediate.array(), width, height, target, kernel, edge);
+				return;
+			}
+			ByteBuffer input = source;
+			for(int radius : boxRadii(sigma, 3)) {
+				horizontalBox(input, width, height, intermediate.array(), radius, edge);
+				verticalBox(intermediate.array(), width, height, target, radius, edge);
+				input = ByteBuffer.wrap(target);
+			}
+		}
+	}
+
+	/**
+	 * Blurs an image by averaging a square of (2 * radius + 1)^2 pixels around each pixel.
+	 * @param source the packed RGB image, read from its current position
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param target the array the blurred image is written to, from index 0
+	 * @param radius the radius of the box in pixels, at most twice the larger image dimension; 0 copies the image
+	 * @param edge how pixels outside the image are read
+	 * @throws IllegalArgumentException if a dimension is not positive, the radius is out of range or an array is too short
+	 */
+	public static void boxBlur(ByteBuffer source, int width, int height, byte[] target, int radius, EdgeMode edge) {
+		checkSize(source, width, height, target);
+		checkRadius(radius, width, height);
+		try(BufferPool.Lease<byte[]> intermediate = BufferPool.SHARED.leaseBytes(width * height * BYTES_PER_PIXEL)) {
+			horizontalBox(source, width, height, intermediate.array(), radius, edge);
+			verticalBox(intermediate.array(), width, height, target, radius, edge);
+		}
+	}
+
+	/**
+	 * Sharpens an image by unsharp masking: target = source + (source - blur(source)) * amount.
+	 * @param source the packed RGB image, read from its current position
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param target the array the sharpened image is written to, from index 0
+	 * @param sigma the standard deviation of the Gaussian blur in pixels, at most twice the larger image dimension
+	 * @param amount the strength of the sharpening, typically 0.5-2
+	 * @param edge how pixels outside the image are read
+	 * @throws IllegalArgumentException if a dimension is not positive, sigma is out of range or an array is too short
+	 */
+	public static void sharpen(ByteBuffer source, int width, int height, byte[] target, double sigma, double amount, EdgeMode edge) {
+		gaussianBlur(source, width, height, target, sigma, edge);
+		int weight = (int) Math.round(amount * 256);
+		int base = source.position();
+		int rowBytes = width * BYTES_PER_PIXEL;
+		parallelStrips(height, rowStripSize(height), (first, end) -> {
+			byte[] row = SCRATCH.get().row(rowBytes);
+			for(int y = first; y < end; y++) {
+				source.get(base + y * rowBytes, row, 0, rowBytes);
+				int offset = y * rowBytes;
+				for(int i = 0; i < rowBytes; i++) {
+					int original = row[i] & 0xFF;
+					target[offset + i] = clamp(original + ((original - (target[offset + i] & 0xFF)) * weight + 128 >> 8));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Detects edges with the Sobel operator, per channel. Each output byte is the gradient magnitude divided by 4, clamped to 255.
+	 * @param source the packed RGB image, read from its current position
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param target the array the edge image is written to, from index 0
+	 * @param edge how pixels outside the image are read
+	 * @throws IllegalArgumentException if a dimension is not positive or an array is too short
+	 */
+	public static void sobel(ByteBuffer source, int width, int height, byte[] target, EdgeMode edge) {
+		checkSize(source, width, height, target);
+		int rowBytes = width * BYTES_PER_PIXEL;
+		int base = source.position();
+		try(BufferPool.Lease<byte[]> smoothLease = BufferPool.SHARED.leaseBytes(width * height * BYTES_PER_PIXEL);
+			BufferPool.Lease<byte[]> differenceLease = BufferPool.SHARED.leaseBytes(width * height * BYTES_PER_PIXEL)) {
+			byte[] smooth = smoothLease.array();
+			byte[] difference = differenceLease.array();
+
+			// Horizontally: smooth = [1 2 1] / 4 and difference = [-1 0 1] / 2, offset by 128 to fit in a byte
+			parallelStrips(height, rowStripSize(height), (first, end) -> {
+				Scratch scratch = SCRATCH.get();
+				for(int y = first; y < end; y++) {
+					byte[] padded = readPadded(source, base + y * rowBytes, width, 1, edge, scratch);
+					int offset = y * rowBytes;
+					for(int i = 0; i < rowBytes; i++) {
+						int left = padded[i] & 0xFF, centre = padded[i + BYTES_PER_PIXEL] & 0xFF, right = padded[i + 2 * BYTES_PER_PIXEL] & 0xFF;
+						smooth[offset + i] = (byte) (left + 2 * centre + right + 2 >> 2);
+						difference[offset + i] = (byte) ((right - left >> 1) + 128);
+					}
+				}
+			});
+
+			// Vertically: gx = [1 2 1] of the differences, gy = [-1 0 1] of the smoothed rows. The true gradients are 8 * gx and 4 * gy
+			parallelStrips(rowBytes, COLUMN_STRIP_BYTES, (first, end) -> {
+				for(int y = 0; y < height; y++) {
+					int up = edge.map(y - 1, height) * rowBytes, middle = y * rowBytes, down = edge.map(y + 1, height) * rowBytes;
+					for(int i = first; i < end; i++) {
+						int gx = ((difference[up + i] & 0xFF) + 2 * (difference[middle + i] & 0xFF) + (difference[down + i] & 0xFF) + 2 >> 2) - 128;
+						int gy = (smooth[down + i] & 0xFF) - (smooth[up + i] & 0xFF);
+						target[middle + i] = (byte) Math.min(255, (int) Math.sqrt(4 * gx * gx + gy * gy));
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the fixed-point weights of a normalized Gaussian kernel with a radius of ceil(3 * sigma).
+	 */
+	static int[] gaussianKernel(double sigma) {
+		if(sigma <= 0) return new int[] {1 << PRECISION_BITS};
+		int radius = (int) Math.ceil(3 * sigma);
+		double[] values = new double[2 * radius + 1];
+		double total = 0.0;
+		for(int i = -radius; i <= radius; i++) total += values[i + radius] = Math.exp(-i * i / (2 * sigma * sigma));
+		int[] kernel = new int[values.length];
+		int sum = 0;
+		for(int i = 0; i < kernel.length; i++) sum += kernel[i] = (int) Math.round(values[i] / total * (1 << PRECISION_BITS));
+		kernel[radius] += (1 << PRECISION_BITS) - sum;
+		return kernel;
+	}
+
+	/**
+	 * Returns the radii of the box blurs whose succession best approximates a Gaussian blur (W. Jarosz, "Fast Image Convolutions").
+	 */
+	static int[] boxRadii(double sigma, int boxes) {
+		double ideal = Math.sqrt(12 * sigma * sigma / boxes + 1);
+		int lower = (int) Math.floor(ideal);
+		if(lower % 2 == 0) lower--;
+		int upper = lower + 2;
+		int lowerCount = (int) Math.round((12 * sigma * sigma - boxes * lower * lower - 4.0 * boxes * lower - 3 * boxes) / (-4.0 * lower - 4));
+		int[] radii = new int[boxes];
+		for(int i = 0; i < boxes; i++) radii[i] = ((i < lowerCount ? lower : upper) - 1) / 2;
+		return radii;
+	}
+
+	private static void horizontalKernel(ByteBuffer source, int width, int height, byte[] target, int[] kernel, EdgeMode edge) {
+		int radius = kernel.length / 2;
+		int base = source.position();
+		int rowBytes = width * BYTES_PER_PIXEL;
+		parallelStrips(height, rowStripSize(height), (first, end) -> {
+			Scratch scratch = SCRATCH.get();
+			for(int y = first; y < end; y++) {
+				byte[] padded = readPadded(source, base + y * rowBytes, width, radius, edge, scratch);
+				int offset = y * rowBytes;
+				for(int x = 0; x < width; x++) {
+					int r = ROUNDING, g = ROUNDING, b = ROUNDING;
+					int index = x * BYTES_PER_PIXEL;
+					for(int k = 0; k < kernel.length; k++, index += BYTES_PER_PIXEL) {
+						int weight = kernel[k];
+						r += (padded[index] & 0xFF) * weight;
+						g += (padded[index + 1] & 0xFF) * weight;
+						b += (padded[index + 2] & 0xFF) * weight;
+					}
+					int pixel = offset + x * BYTES_PER_PIXEL;
+					target[pixel] = clamp(r >> PRECISION_BITS);
+					target[pixel + 1] = clamp(g >> PRECISION_BITS);
+					target[pixel + 2] = clamp(b >> PRECISION_BITS);
+				}
+			}
+		});
+	}
+
+	private static void verticalKernel(byte[] source, int width, int height, byte[] target, int[] kernel, EdgeMode edge) {
+		int radius = kernel.length / 2;
+		int rowBytes = width * BYTES_PER_PIXEL;
+		parallelStrips(rowBytes, COLUMN_STRIP_BYTES, (first, end) -> {
+			int length = end - first;
+			int[] accumulator = SCRATCH.get().accumulator(length);
+			for(int y = 0; y < height; y++) {
+				Arrays.fill(accumulator, 0, length, ROUNDING);
+				for(int k = 0; k < kernel.length; k++) {
+					KERNELS.multiplyAdd(source, edge.map(y + k - radius, height) * rowBytes + first, kernel[k], accumulator, 0, length);
+				}
+				KERNELS.narrow(accumulator, 0, PRECISION_BITS, target, y * rowBytes + first, length);
+			}
+		});
+	}
+
+	private static void horizontalBox(ByteBuffer source, int width, int height, byte[] target, int radius, EdgeMode edge) {
+		int window = 2 * radius + 1;
+		long inverse = ((1L << BOX_BITS) + window / 2) / window;
+		int base = source.position();
+		int rowBytes = width * BYTES_PER_PIXEL;
+		parallelStrips(height, rowStripSize(height), (first, end) -> {
+			Scratch scratch = SCRATCH.get();
+			for(int y = first; y < end; y++) {
+				byte[] padded = readPadded(source, base + y * rowBytes, width, radius, edge, scratch);
+				int offset = y * rowBytes;
+				for(int channel = 0; channel < BYTES_PER_PIXEL; channel++) {
+					int sum = 0;
+					for(int k = 0; k < window; k++) sum += padded[k * BYTES_PER_PIXEL + channel] & 0xFF;
+					for(int x = 0; x < width; x++) {
+						target[offset + x * BYTES_PER_PIXEL + channel] = (byte) (sum * inverse + BOX_ROUNDING >> BOX_BITS);
+						if(x + 1 < width) sum += (padded[(x + window) * BYTES_PER_PIXEL + channel] & 0xFF) - (padded[x * BYTES_PER_PIXEL + channel] & 0xFF);
+					}
+				}
+			}
+		});
+	}
+
+	private static void verticalBox(byte[] source, int width, int height, byte[] target, int radius, EdgeMode edge) {
+		long inverse = ((1L << BOX_BITS) + radius) / (2 * radius + 1);
+		int rowBytes = width * BYTES_PER_PIXEL;
+		parallelStrips(rowBytes, COLUMN_STRIP_BYTES, (first, end) -> {
+			int length = end - first;
+			int[] sums = SCRATCH.get().accumulator(length);
+			Arrays.fill(sums, 0, length, 0);
+			for(int k = -radius; k <= radius; k++) {
+				int row = edge.map(k, height) * rowBytes + first;
+				for(int i = 0; i < length; i++) sums[i] += source[row + i] & 0xFF;
+			}
+			for(int y = 0; y < height; y++) {
+				int offset = y * rowBytes + first;
+				for(int i = 0; i < length; i++) target[offset + i] = (byte) (sums[i] * inverse + BOX_ROUNDING >> BOX_BITS);
+				if(y + 1 == height) break;
+				int added = edge.map(y + radius + 1, height) * rowBytes + first;
+				int removed = edge.map(y - radius, height) * rowBytes + first;
+				for(int i = 0; i < length; i++) sums[i] += (source[added + i] & 0xFF) - (source[removed + i] & 0xFF);
+			}
+		});
+	}
+
+	/**
+	 * Copies a row into the calling thread's scratch buffer with radius pixels of padding on each side, filled as the edge mode demands.
+	 * @return the padded row; pixel x of the image is at index (x + radius) * 3
+	 */
+	private static byte[] readPadded(ByteBuffer source, int offset, int width, int radius, EdgeMode edge, Scratch scratch) {
+		byte[] padded = scratch.row((width + 2 * radius) * BYTES_PER_PIXEL);
+		source.get(offset, padded, radius * BYTES_PER_PIXEL, width * BYTES_PER_PIXEL);
+		for(int p = 0; p < radius; p++) {
+			System.arraycopy(padded, (edge.map(p - radius, width) + radius) * BYTES_PER_PIXEL, padded, p * BYTES_PER_PIXEL, BYTES_PER_PIXEL);
+			System.arraycopy(padded, (edge.map(width + p, width) + radius) * BYTES_PER_PIXEL, padded, (width + radius + p) * BYTES_PER_PIXEL, BYTES_PER_PIXEL);
+		}
+		return padded;
+	}
+
+	private static int rowStripSize(int height) {
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		return Math.clamp((height + 4L * parallelism - 1) / (4L * parallelism), MIN_STRIP_ROWS, MAX_STRIP_ROWS);
+	}
+
+	/**
+	 * Splits the range 0 to size into strips and runs them on a parallel stream.
+	 */
+	private static void parallelStrips(int size, int stripSize, Strip strip) {
+		int strips = (size + stripSize - 1) / stripSize;
+		IntStream.range(0, strips).parallel().forEach(index -> strip.process(index * stripSize, Math.min(size, (index + 1) * stripSize)));
+	}
+
+	private static void checkSize(ByteBuffer source, int width, int height, byte[] target) {
+		if(width <= 0 || height <= 0) throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+		long length = (long) width * height * BYTES_PER_PIXEL;
+		if(length > source.remaining()) throw new IllegalArgumentException("Image data is shorter than " + width + "x" + height + " pixels");
+		if(length > target.length) throw new IllegalArgumentException("Target is shorter than " + width + "x" + height + " pixels");
+	}
+
+	/**
+	 * Rejects blur radii that are negative, NaN or above twice the larger image dimension. A wider blur barely changes the result, while
+	 * the padded rows and the kernel it needs grow with the radius, so a huge radius would exhaust memory or overflow the array sizes.
+	 */
+	static void checkRadius(double radius, int width, int height) {
+		if(!(radius >= 0 && radius <= 2.0 * Math.max(width, height))) {
+			throw new IllegalArgumentException("Invalid radius " + radius + " for a " + width + "x" + height + " image");
+		}
+	}
+
+	private static byte clamp(int value) {
+		return (byte) (value < 0 ? 0 : Math.min(value, 255));
+	}
+
+	/**
+	 * A range of rows or of bytes within rows.
+	 */
+	@FunctionalInterface
+	private interface Strip {
+
+		void process(int first, int end);
+	}
+
+	/**
+	 * The buffers a worker thread reuses between strips and between images.
+	 */
+	private static final class Scratch {
+
+		private byte[] row = new byte[0];
+		private int[] accumulator = new int[0];
+
+		private byte[] row(int length) {
+			if(row.length < length) row = new byte[length];
+			return row;
+		}
+
+		private int[] accumulator(int length) {
+			if(accumulator.length < length) accumulator = new int[length];
+			return accumulator;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package garretreichenbach.taskprocessor.processor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The structural scan of {@link CsvParser}: finding the delimiters, line feeds and quotes of a block of CSV text, so the parser only
+ * visits the bytes that end a field or a row.
+ * <br/>Two implementations exist. The SIMD one is built on the incubating Vector API and is selected at startup when the
+ * jdk.incubator.vector module is present (--add-modules jdk.incubator.vector) and the CPU has vectors of at least 256 bits.
+ * Otherwise, or when the system property {@value #IMPLEMENTATION_PROPERTY} is "scalar", a plain loop is used. Both find the same positions.
+ */
+@Slf4j
+public abstract class CsvKernels {
+
+	/**
+	 * The system property that forces an implementation ("scalar" or "vector").
+	 */
+	public static final String IMPLEMENTATION_PROPERTY = "taskprocessor.csvKernels";
+
+	private static final CsvKernels INSTANCE = select();
+
+	/**
+	 * Returns the implementation selected for this JVM.
+	 */
+	public static CsvKernels get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns a new instance of a specific implementation, e.g. to compare them.
+	 * @param name "scalar" or "vector"
+	 * @return the implementation
+	 * @throws IllegalArgumentException if the name is unknown
+	 * @throws LinkageError if the vector implementation is requested and the Vector API is not available
+	 */
+	public static CsvKernels forName(String name) {
+		return switch(name.toLowerCase()) {
+			case "scalar" -> new ScalarCsvKernels();
+			case "vector" -> new VectorCsvKernels();
+			default -> throw new IllegalArgumentException("Unknown CSV kernels: " + name);
+		};
+	}
+
+	private static CsvKernels select() {
+		String implementation = System.getProperty(IMPLEMENTATION_PROPERTY, "");
+		if(!implementation.equalsIgnoreCase("scalar")) {
+			try {
+				if(implementation.equalsIgnoreCase("vector") || VectorCsvKernels.isSupported()) {
+					log.info("Using SIMD CSV kernels");
+					return forName("vector");
+				}
+			} catch(LinkageError error) {
+				log.info("Vector API is not available ({}), using scalar CSV kernels", error.toString());
+			}
+		}
+		log.info("Using scalar CSV kernels");
+		return forName("scalar");
+	}
+
+	/**
+	 * Returns the name of the implementation ("scalar" or "vector").
+	 */
+	public abstract String getName();
+
+	/**
+	 * Finds the structural bytes of a block: the delimiter, line feeds and double quotes.
+	 * @param data the text
+	 * @param from the index of the first byte of the block
+	 * @param to the index after the last byte of the block
+	 * @param delimiter the field delimiter
+	 * @param positions receives the indices of the structural bytes in ascending order; must hold to - from values
+	 * @return the number of positions found
+	 */
+	public abstract int scan(byte[] data, int from, int to, byte delimiter, int[] positions);
+}
@@ -0,0 +1,367 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Parses delimited text (CSV, TSV) into a {@link CsvTable} in parallel, without creating a String per field.
+ * <br/>The text is split into chunks at line breaks outside quoted fields and each chunk is parsed on a parallel stream. A chunk is copied from the source in
+ * windows of {@link #WINDOW_BYTES}, so a memory-mapped file is paged in by the threads that parse it and each thread works on a buffer
+ * that stays in its L2 cache. The {@link CsvKernels} find the delimiters, line feeds and quotes of a window in one pass, and the parser
+ * then only visits those positions. Fields are recorded as offsets into the source, numbers are parsed from the bytes, and each row is
+ * hashed for {@link CsvTable#deduplicate()}.
+ * <br/>Fields are trimmed of spaces and tabs, and may be quoted with double quotes, a quote inside being written twice. A row ends at a line
+ * feed, optionally preceded by a carriage return; a line feed inside a quoted field is part of the field. Rows with a different number of
+ * fields than the first are dropped as malformed, and blank lines are skipped. The text is expected in UTF-8, optionally with a byte order mark.
+ */
+public final class CsvParser {
+
+	/**
+	 * The smallest chunk parsed by one task.
+	 */
+	public static final int MIN_CHUNK_BYTES = 4 * 1024 * 1024;
+
+	/**
+	 * The size of the window a chunk is copied into, grown for rows that do not fit.
+	 */
+	static final int WINDOW_BYTES = 1024 * 1024;
+
+	static final int ESCAPED = 1 << 31;
+	static final long ROW_SEED = 0x2545F4914F6CDD1DL;
+	static final long EMPTY_HASH = 0x9E3779B97F4A7C15L;
+
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	private final byte delimiter;
+	private final boolean header;
+	private final boolean dropIncomplete;
+	private final CsvKernels kernels;
+
+	/**
+	 * Creates a parser with the kernels selected for this JVM.
+	 * @param delimiter the field delimiter, e.g. ',' or '\t'
+	 * @param header whether the first row holds the column names
+	 * @param dropIncomplete whether rows with an empty field are dropped
+	 */
+	public CsvParser(char delimiter, boolean header, boolean dropIncomplete) {
+		this(delimiter, header, dropIncomplete, CsvKernels.get());
+	}
+
+	/**
+	 * Creates a parser.
+	 * @param delimiter the field delimiter, e.g. ',' or '\t'
+	 * @param header whether the first row holds the column names
+	 * @param dropIncomplete whether rows with an empty field are dropped
+	 * @param kernels the kernels that find the structural bytes
+	 * @throws IllegalArgumentException if the delimiter is not an ASCII character other than a quote or line break
+	 */
+	public CsvParser(char delimiter, boolean header, boolean dropIncomplete, CsvKernels kernels) {
+		if(delimiter == 0 || delimiter > 127 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+		this.delimiter = (byte) delimiter;
+		this.header = header;
+		this.dropIncomplete = dropIncomplete;
+		this.kernels = kernels;
+	}
+
+	/**
+	 * Parses a table.
+	 * @param source the text, read from its position to its limit, which is not changed; may be a heap, direct or mapped buffer
+	 * @return the table, which keeps a view of the source to decode its text fields
+	 * @throws IllegalArgumentException if the text is empty
+	 */
+	public CsvTable parse(ByteBuffer source) {
+		ByteBuffer text = source.slice();
+		int length = text.limit();
+		int start = length >= 3 && text.get(0) == (byte) 0xEF && text.get(1) == (byte) 0xBB && text.get(2) == (byte) 0xBF ? 3 : 0;
+		if(start == length) throw new IllegalArgumentException("The table is empty");
+		int firstEnd = rowEnd(text, start, length, false);
+		String[] first = splitLine(text, start, firstEnd);
+		String[] names = new String[first.length];
+		Set<String> seen = new HashSet<>();
+		for(int column = 0; column < names.length; column++) {
+			String name = header && !first[column].isEmpty() ? first[column] : "column_" + (column + 1);
+			names[column] = seen.add(name) ? name : name + "_" + (column + 1);
+			seen.add(names[column]);
+		}
+		int dataStart = header ? firstEnd : start;
+		int chunks = (int) Math.max(1, Math.min((length - dataStart) / MIN_CHUNK_BYTES, ForkJoinPool.getCommonPoolParallelism() * 4L));
+		int[] bounds = chunkBounds(text, dataStart, length, chunks);
+		List<CsvTable.Chunk> parsed = IntStream.range(0, chunks).parallel().mapToObj(i -> new ChunkParser(text, names.length).parse(bounds[i], bounds[i + 1])).toList();
+		return new CsvTable(text, names, new ArrayList<>(parsed));
+	}
+
+	/**
+	 * Parses a number written in decimal, optionally signed and with a fraction and exponent, such as "-12", "3.5" or "1e-3".
+	 * <br/>Numbers of up to 15 significant digits and powers of ten up to 22 are computed exactly from a long and a power of ten; others
+	 * fall back to {@link Double#parseDouble}, the only case that allocates.
+	 * @param data the text
+	 * @param from the index of the first character
+	 * @param to the index after the last character
+	 * @return the number, or NaN if the text is not one
+	 */
+	static double parseNumber(byte[] data, int from, int to) {
+		int i = from;
+		if(i < to && (data[i] == '-' || data[i] == '+')) i++;
+		boolean negative = i > from && data[from] == '-';
+		long mantissa = 0;
+		int significant = 0, exponent = 0;
+		boolean digits = false;
+		for(; i < to && data[i] >= '0' && data[i] <= '9'; i++) {
+			digits = true;
+			if(significant < 19) {
+				mantissa = mantissa * 10 + (data[i] - '0');
+				if(mantissa != 0) significant++;
+			} else exponent++;
+		}
+		if(i < to && data[i] == '.') {
+			for(i++; i < to && data[i] >= '0' && data[i] <= '9'; i++) {
+				digits = true;
+				if(significant < 19) {
+					mantissa = mantissa * 10 + (data[i] - '0');
+					if(mantissa != 0) significant++;
+					exponent--;
+				}
+			}
+		}
+		if(!digits) return Double.NaN;
+		if(i < to && (data[i] == 'e' || data[i] == 'E')) {
+			i++;
+			boolean negativeExponent = i < to && data[i] == '-';
+			if(i < to && (data[i] == '-' || data[i] == '+')) i++;
+			int exponentStart = i, value = 0;
+			for(; i < to && data[i] >= '0' && data[i] <= '9'; i++) value = Math.min(value * 10 + (data[i] - '0'), 100_000);
+			if(i == exponentStart) return Double.NaN;
+			exponent += negativeExponent ? -value : value;
+		}
+		if(i != to) return Double.NaN;
+		if(significant <= 15 && exponent >= -22 && exponent <= 22) {
+			double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+			return negative ? -value : value;
+		}
+		return Double.parseDouble(new String(data, from, to - from, StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Splits the text into chunks that start at rows. The quotes between evenly spaced split points are counted in parallel, so the parity
+	 * of the quotes before each point tells whether it falls inside a quoted field, and it is moved to the next line feed outside one.
+	 * A doubled quote inside a quoted field counts twice, so it does not change the parity.
+	 * @return the bounds, chunks + 1 of them, from the start to the length
+	 */
+	private static int[] chunkBounds(ByteBuffer text, int start, int length, int chunks) {
+		int[] bounds = new int[chunks + 1];
+		for(int i = 0; i <= chunks; i++) bounds[i] = (int) (start + (long) (length - start) * i / chunks);
+		if(chunks == 1) return bounds;
+		int[] quotes = IntStream.range(0, chunks - 1).parallel().map(i -> countQuotes(text, bounds[i], bounds[i + 1])).toArray();
+		boolean quoted = false;
+		for(int i = 1; i < chunks; i++) {
+			quoted ^= (quotes[i - 1] & 1) != 0;
+			bounds[i] = Math.max(bounds[i - 1], rowEnd(text, bounds[i], length, quoted));
+		}
+		return bounds;
+	}
+
+	private static int countQuotes(ByteBuffer text, int from, int to) {
+		int quotes = 0;
+		for(int i = from; i < to; i++) if(text.get(i) == '"') quotes++;
+		return quotes;
+	}
+
+	/**
+	 * Returns the index after the first line feed outside a quoted field at or after an index, or the length if there is none.
+	 * @param quoted whether the index is inside a quoted field
+	 */
+	private static int rowEnd(ByteBuffer text, int from, int length, boolean quoted) {
+		for(int i = from; i < length; i++) {
+			byte value = text.get(i);
+			if(value == '"') quoted = !quoted;
+			else if(value == '\n' && !quoted) return i + 1;
+		}
+		return length;
+	}
+
+	/**
+	 * Splits one line into trimmed and unquoted Strings, for the header.
+	 */
+	private String[] splitLine(ByteBuffer text, int from, int to) {
+		byte[] line = new byte[to - from];
+		text.get(from, line);
+		List<String> fields = new ArrayList<>();
+		byte[] field = new byte[line.length];
+		int length = 0;
+		boolean quoted = false;
+		for(int i = 0; i <= line.length; i++) {
+			byte value = i < line.length ? line[i] : (byte) '\n';
+			if(value == '"') {
+				if(quoted && i + 1 < line.length && line[i + 1] == '"') field[length++] = line[++i];
+				else quoted = !quoted;
+			} else if(!quoted && (value == delimiter || value == '\n')) {
+				fields.add(new String(field, 0, length, StandardCharsets.UTF_8).strip());
+				length = 0;
+				if(value == '\n') break;
+			} else if(value != '\r' || quoted) field[length++] = value;
+		}
+		return fields.toArray(String[]::new);
+	}
+
+	/**
+	 * Parses one chunk into flat row-major arrays. The arrays are sized from the rows found in the first window, so they rarely grow.
+	 */
+	private final class ChunkParser {
+
+		private final ByteBuffer text;
+		private final int columns;
+		private CsvTable.Chunk chunk;
+		private byte[] window;
+		private int offset;
+
+		ChunkParser(ByteBuffer text, int columns) {
+			this.text = text;
+			this.columns = columns;
+		}
+
+		CsvTable.Chunk parse(int from, int to) {
+			try(BufferPool.Lease<byte[]> windowLease = BufferPool.SHARED.leaseBytes(Math.min(WINDOW_BYTES, Math.max(to - from, 1)));
+					BufferPool.Lease<int[]> positionsLease = BufferPool.SHARED.leaseInts(windowLease.length())) {
+				window = windowLease.array();
+				int[] positions = positionsLease.array();
+				offset = from;
+				int filled = 0;
+				while(true) {
+					int read = Math.min(window.length - filled, to - offset - filled);
+					text.get(offset + filled, window, filled, read);
+					filled += read;
+					boolean last = offset + filled == to;
+					int count = kernels.scan(window, 0, filled, delimiter, positions);
+					if(chunk == null) chunk = new CsvTable.Chunk(columns, estimateRows(positions, count, filled, to - from));
+					int consumed = parseRows(positions, count, filled, last);
+					if(last) break;
+					if(consumed == 0 && filled == window.length) {
+						// A row longer than the window: grow it and rescan
+						window = Arrays.copyOf(window, window.length * 2);
+						positions = new int[window.length];
+						continue;
+					}
+					System.arraycopy(window, consumed, window, 0, filled - consumed);
+					offset += consumed;
+					filled -= consumed;
+				}
+			} finally {
+				window = null;
+			}
+			return chunk;
+		}
+
+		/**
+		 * Estimates the rows of a chunk from the line feeds in its first window, with some slack.
+		 */
+		private int estimateRows(int[] positions, int count, int filled, int length) {
+			int lines = 0;
+			for(int k = 0; k < count; k++) if(window[positions[k]] == '\n') lines++;
+			long estimate = (long) length * (lines + 1) / Math.max(filled, 1);
+			return (int) Math.min(estimate + (estimate >> 4) + 16, Integer.MAX_VALUE / columns / 2);
+		}
+
+		/**
+		 * Parses the complete rows of a window, and at the end of the chunk the unterminated last row.
+		 * @return the index after the last complete row
+		 */
+		private int parseRows(int[] positions, int count, int filled, boolean last) {
+			byte[] data = window;
+			int rowStart = 0, fieldStart = 0, column = 0;
+			boolean quoted = false, escaped = false, empty = false;
+			long hash = ROW_SEED;
+			for(int k = 0; k < count; k++) {
+				int position = positions[k];
+				byte value = data[position];
+				if(value == '"') {
+					if(quoted && position + 1 < filled && data[position + 1] == '"') {
+						escaped = true;
+						k++;
+					} else quoted = !quoted;
+				} else if(!quoted) {
+					if(column < columns) {
+						long cellHash = field(fieldStart, value == '\n' && position > fieldStart && data[position - 1] == '\r' ? position - 1 : position, escaped, column);
+						empty |= cellHash == EMPTY_HASH;
+						hash = (hash ^ cellHash) * 0x9E3779B97F4A7C15L;
+					}
+					column++;
+					escaped = false;
+					fieldStart = position + 1;
+					if(value == '\n') {
+						endRow(column, empty, hash);
+						rowStart = fieldStart;
+						column = 0;
+						empty = false;
+						hash = ROW_SEED;
+					}
+				}
+			}
+			if(last && rowStart < filled) {
+				if(quoted) chunk.malformed++;
+				else {
+					if(column < columns) {
+						long cellHash = field(fieldStart, data[filled - 1] == '\r' ? filled - 1 : filled, escaped, column);
+						empty |= cellHash == EMPTY_HASH;
+						hash = (hash ^ cellHash) * 0x9E3779B97F4A7C15L;
+					}
+					endRow(column + 1, empty, hash);
+				}
+				return filled;
+			}
+			return rowStart;
+		}
+
+		/**
+		 * Records a field of the current row: trims and unquotes it, parses it as a number and hashes it.
+		 * @return the hash of the field, {@link #EMPTY_HASH} if it is empty
+		 */
+		private long field(int start, int end, boolean escaped, int column) {
+			byte[] data = window;
+			while(start < end && (data[start] == ' ' || data[start] == '\t')) start++;
+			while(end > start && (data[end - 1] == ' ' || data[end - 1] == '\t')) end--;
+			if(end - start >= 2 && data[start] == '"' && data[end - 1] == '"') {
+				start++;
+				end--;
+			}
+			CsvTable.Chunk chunk = this.chunk;
+			int cell = chunk.rows * columns + column;
+			int length = end - start;
+			chunk.starts[cell] = offset + start;
+			chunk.lengths[cell] = escaped ? length | ESCAPED : length;
+			if(length == 0) {
+				chunk.numbers[cell] = Double.NaN;
+				return EMPTY_HASH;
+			}
+			double number = escaped ? Double.NaN : parseNumber(data, start, end);
+			chunk.numbers[cell] = number;
+			if(number == number) {
+				chunk.hasNumber[column] = true;
+				return CsvTable.mix(Double.doubleToLongBits(number + 0.0));
+			}
+			chunk.hasText[column] = true;
+			return CsvTable.hashBytes(data, start, end);
+		}
+
+		private void endRow(int fields, boolean empty, long hash) {
+			if(fields != columns) {
+				// A blank line holds one empty field
+				if(fields != 1 || !empty) chunk.malformed++;
+				return;
+			}
+			if(empty && dropIncomplete) {
+				chunk.incomplete++;
+				return;
+			}
+			chunk.hashes[chunk.rows] = hash;
+			chunk.rows++;
+			chunk.ensureCapacity(chunk.rows + 1);
+		}
+	}
+}
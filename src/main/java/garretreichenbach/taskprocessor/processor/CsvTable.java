@@ -0,0 +1,270 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * A table parsed by {@link CsvParser}, held as field offsets into the source text and parsed numbers, chunk by chunk.
+ * <br/>A column is numeric when it holds at least one number and every other field in it is empty; it is returned as a double[] with NaN
+ * for empty fields. Any other column is returned as a String[] with null for empty fields, decoded only when the columns are built.
+ * <br/>{@link #deduplicate()} drops every row equal to an earlier one. Rows are compared by a hash computed while parsing, and rows with
+ * equal hashes field by field: numbers by value, so "1.50" equals "1.5" in a numeric column, and text by its bytes.
+ */
+public final class CsvTable {
+
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private final ByteBuffer text;
+	private final String[] names;
+	private final List<Chunk> chunks;
+	private final boolean[] numeric;
+	private long duplicates;
+
+	CsvTable(ByteBuffer text, String[] names, List<Chunk> chunks) {
+		this.text = text;
+		this.names = names;
+		this.chunks = chunks;
+		numeric = new boolean[names.length];
+		for(int column = 0; column < names.length; column++) {
+			boolean hasNumber = false, hasText = false;
+			for(Chunk chunk : chunks) {
+				hasNumber |= chunk.hasNumber[column];
+				hasText |= chunk.hasText[column];
+			}
+			numeric[column] = hasNumber && !hasText;
+		}
+	}
+
+	/**
+	 * Returns the names of the columns, from the header or "column_1", "column_2" and so on.
+	 */
+	public String[] getNames() {
+		return names.clone();
+	}
+
+	/**
+	 * Returns whether a column holds numbers.
+	 */
+	public boolean isNumeric(int column) {
+		return numeric[column];
+	}
+
+	/**
+	 * Returns the number of rows, not counting dropped ones.
+	 */
+	public int getRows() {
+		long rows = 0;
+		for(Chunk chunk : chunks) rows += chunk.rows - chunk.duplicates;
+		return Math.toIntExact(rows);
+	}
+
+	/**
+	 * Returns the number of rows dropped because they had a different number of fields than the first row.
+	 */
+	public long getMalformed() {
+		long malformed = 0;
+		for(Chunk chunk : chunks) malformed += chunk.malformed;
+		return malformed;
+	}
+
+	/**
+	 * Returns the number of rows dropped because they had an empty field.
+	 */
+	public long getIncomplete() {
+		long incomplete = 0;
+		for(Chunk chunk : chunks) incomplete += chunk.incomplete;
+		return incomplete;
+	}
+
+	/**
+	 * Returns the number of rows dropped as duplicates.
+	 */
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * Drops every row equal to an earlier row, keeping the first.
+	 * <br/>The row hashes go into an open-addressing table with linear probing that holds a row number per slot, so only rows with equal
+	 * hashes are compared field by field.
+	 * @return the number of rows dropped
+	 */
+	public long deduplicate() {
+		int[] firstRows = new int[chunks.size() + 1];
+		for(int i = 0; i < chunks.size(); i++) firstRows[i + 1] = Math.addExact(firstRows[i], chunks.get(i).rows);
+		int capacity = Integer.highestOneBit(Math.max(16, firstRows[chunks.size()] * 2 - 1)) << 1;
+		int shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+		long[] hashes = new long[capacity];
+		int[] rows = new int[capacity];
+		Arrays.fill(rows, -1);
+		long removed = 0;
+		for(int c = 0; c < chunks.size(); c++) {
+			Chunk chunk = chunks.get(c);
+			for(int row = 0; row < chunk.rows; row++) {
+				if(chunk.duplicate != null && chunk.duplicate[row]) continue;
+				long hash = chunk.hashes[row];
+				int slot = (int) ((hash * HASH_MULTIPLIER) >>> shift);
+				boolean duplicate = false;
+				for(; rows[slot] != -1; slot = (slot + 1) & (capacity - 1)) {
+					if(hashes[slot] != hash) continue;
+					int other = rows[slot];
+					int otherChunk = chunkOf(firstRows, other);
+					if(equal(chunks.get(otherChunk), other - firstRows[otherChunk], chunk, row)) {
+						duplicate = true;
+						break;
+					}
+				}
+				if(duplicate) {
+					if(chunk.duplicate == null) chunk.duplicate = new boolean[chunk.rows];
+					chunk.duplicate[row] = true;
+					chunk.duplicates++;
+					removed++;
+				} else {
+					hashes[slot] = hash;
+					rows[slot] = firstRows[c] + row;
+				}
+			}
+		}
+		duplicates += removed;
+		return removed;
+	}
+
+	/**
+	 * Builds the columns, in parallel over columns and chunks.
+	 * @param normalization how to rescale the numeric columns
+	 * @return the columns by name in their order in the table, each a double[] or a String[]
+	 */
+	public Map<String, Object> toColumns(Normalization normalization) {
+		int[] firstRows = new int[chunks.size() + 1];
+		for(int i = 0; i < chunks.size(); i++) firstRows[i + 1] = firstRows[i] + chunks.get(i).rows - chunks.get(i).duplicates;
+		Object[] columns = new Object[names.length];
+		for(int column = 0; column < names.length; column++) columns[column] = numeric[column] ? new double[firstRows[chunks.size()]] : new String[firstRows[chunks.size()]];
+		IntStream.range(0, names.length * chunks.size()).parallel().forEach(task -> {
+			int column = task / chunks.size(), c = task % chunks.size();
+			fill(chunks.get(c), column, columns[column], firstRows[c]);
+		});
+		IntStream.range(0, names.length).parallel().filter(column -> numeric[column]).forEach(column -> normalization.apply((double[]) columns[column]));
+		Map<String, Object> result = new LinkedHashMap<>();
+		for(int column = 0; column < names.length; column++) result.put(names[column], columns[column]);
+		return result;
+	}
+
+	/**
+	 * Copies the kept rows of a chunk into a column.
+	 */
+	private void fill(Chunk chunk, int column, Object target, int first) {
+		int index = first;
+		int columns = names.length;
+		if(target instanceof double[] values) {
+			double[] numbers = chunk.numbers;
+			for(int row = 0; row < chunk.rows; row++) if(chunk.duplicate == null || !chunk.duplicate[row]) values[index++] = numbers[row * columns + column];
+			return;
+		}
+		String[] values = (String[]) target;
+		byte[] scratch = new byte[256];
+		for(int row = 0; row < chunk.rows; row++) {
+			if(chunk.duplicate != null && chunk.duplicate[row]) continue;
+			int cell = row * columns + column;
+			int length = chunk.lengths[cell] & ~CsvParser.ESCAPED;
+			if(length == 0) {
+				index++;
+				continue;
+			}
+			if(length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+			text.get(chunk.starts[cell], scratch, 0, length);
+			String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+			values[index++] = (chunk.lengths[cell] & CsvParser.ESCAPED) != 0 ? value.replace("\"\"", "\"") : value;
+		}
+	}
+
+	private boolean equal(Chunk a, int rowA, Chunk b, int rowB) {
+		for(int column = 0; column < names.length; column++) {
+			int cellA = rowA * names.length + column, cellB = rowB * names.length + column;
+			if(numeric[column]) {
+				double x = a.numbers[cellA], y = b.numbers[cellB];
+				if(x != y && !(x != x && y != y)) return false;
+			} else {
+				int length = a.lengths[cellA];
+				if(length != b.lengths[cellB]) return false;
+				length &= ~CsvParser.ESCAPED;
+				if(!text.slice(a.starts[cellA], length).equals(text.slice(b.starts[cellB], length))) return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the chunk holding a row, given the number of the first row of each chunk.
+	 */
+	private static int chunkOf(int[] firstRows, int row) {
+		int index = Arrays.binarySearch(firstRows, row);
+		// Empty chunks share their first row with the next one
+		if(index >= 0) {
+			while(index + 1 < firstRows.length && firstRows[index + 1] == row) index++;
+			return index;
+		}
+		return -index - 2;
+	}
+
+	/**
+	 * Mixes the bits of a number into a hash (the finalizer of SplitMix64).
+	 */
+	static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+
+	/**
+	 * Hashes a run of bytes (FNV-1a).
+	 */
+	static long hashBytes(byte[] data, int from, int to) {
+		long hash = 0xCBF29CE484222325L;
+		for(int i = from; i < to; i++) hash = (hash ^ data[i]) * 0x100000001B3L;
+		return hash;
+	}
+
+	/**
+	 * The rows of one chunk, as the offset and length of every field in the source and the number it holds, row by row: the field in
+	 * column c of row r is at index r * columns + c.
+	 */
+	static final class Chunk {
+
+		final int columns;
+		int rows;
+		int[] starts;
+		int[] lengths;
+		double[] numbers;
+		long[] hashes;
+		final boolean[] hasNumber;
+		final boolean[] hasText;
+		long malformed;
+		long incomplete;
+		boolean[] duplicate;
+		int duplicates;
+
+		Chunk(int columns, int capacity) {
+			this.columns = columns;
+			starts = new int[columns * capacity];
+			lengths = new int[columns * capacity];
+			numbers = new double[columns * capacity];
+			hashes = new long[capacity];
+			hasNumber = new boolean[columns];
+			hasText = new boolean[columns];
+		}
+
+		void ensureCapacity(int capacity) {
+			if(capacity <= hashes.length) return;
+			int grown = Math.max(capacity, hashes.length + (hashes.length >> 1));
+			starts = Arrays.copyOf(starts, grown * columns);
+			lengths = Arrays.copyOf(lengths, grown * columns);
+			numbers = Arrays.copyOf(numbers, grown * columns);
+			hashes = Arrays.copyOf(hashes, grown);
+		}
+	}
+}
@@ -3,6 +3,7 @@ package garretreichenbach.taskprocessor.processor;
 import garretreichenbach.taskprocessor.lua.LuaEnvironment;
 import garretreichenbach.taskprocessor.model.Task;
 import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.parameters.CustomTaskParameters;
 import lombok.extern.slf4j.Slf4j;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
@@ -28,9 +29,8 @@ public class CustomTaskProcessor implements TaskProcessor {
 	@Override
 	public TaskResult process(Task task) {
 		// Allows for user-defined task processing via Lua scripts
-		Map<String, Object> parameters = task.getParameters();
-		String script = (String) parameters.get("script");
 		try {
+			String script = task.getParameters(CustomTaskParameters.class).script();
 			LuaValue value = LuaEnvironment.create(script);
 			if(value == null || value.isnil()) return TaskResult.error(task.getId(), new Exception("Script returned nil"));
 			if(value.isfunction()) {
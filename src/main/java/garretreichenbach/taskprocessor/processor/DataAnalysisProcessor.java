@@ -1,9 +1,236 @@
 package garretreichenbach.taskprocessor.processor;
 
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.parameters.DataAnalysisParameters;
+import garretreichenbach.taskprocessor.processor.sketch.CountMinSketch;
+import garretreichenbach.taskprocessor.processor.sketch.HyperLogLog;
+import garretreichenbach.taskprocessor.processor.sketch.KllSketch;
+import garretreichenbach.taskprocessor.processor.sketch.Sketch;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.stream.IntStream;
+
 /**
- * [Description]
- *
- * @author TheDerpGamer
+ * Processes DATA_ANALYSIS tasks: exact group-by aggregation of a numeric column, and approximate distinct counts, quantiles and heavy
+ * hitters with mergeable sketches.
+ * <br/>The rows are split into chunks that are summarized on a parallel stream, each into its own {@link GroupedStatistics} or
+ * {@link Sketch}, and the partial states are merged pairwise as the fork-join reduction completes. Sketches are returned serialized as
+ * "sketch", so results of tasks over different parts of a dataset can be merged by a later "merge" task without rescanning the data.
+ * <br/>The same partial states make the processor splittable: a column longer than "split_rows" is split into row ranges analyzed as
+ * subtasks on any worker, and their statistics or sketches are merged into the result of the task.
  */
-public class DataAnalysisProcessor {
+@Slf4j
+public class DataAnalysisProcessor implements SplittableTaskProcessor {
+
+	private static final int MIN_CHUNK_ROWS = 64 * 1024;
+	private static final double[] DEFAULT_RANKS = {0.5, 0.9, 0.99};
+
+	@Override
+	public TaskResult process(Task task) {
+		try {
+			DataAnalysisParameters parameters = task.getParameters(DataAnalysisParameters.class);
+			Map<String, Object> outputs = switch(parameters.operation()) {
+				case AGGREGATE -> aggregate(parameters.values(), parameters.keys());
+				case DISTINCT -> describe(distinct(parameters.values(), parameters.keys()), parameters);
+				case QUANTILES -> describe(quantiles(parameters.values()), parameters);
+				case HEAVY_HITTERS -> describe(heavyHitters(parameters.keys()), parameters);
+				case MERGE -> describe(merge(parameters.sketches()), parameters);
+			};
+			return TaskResult.success(task.getId(), outputs);
+		} catch(Exception exception) {
+			log.error(exception.getMessage(), exception);
+			return TaskResult.error(task.getId(), exception);
+		}
+	}
+
+	@Override
+	public List<Task> split(Task task) {
+		DataAnalysisParameters parameters = task.getParameters(DataAnalysisParameters.class);
+		if(parameters.splitRows() < 1) throw new IllegalArgumentException("Invalid split_rows: " + parameters.splitRows());
+		AnalysisOperation operation = parameters.operation();
+		if(operation == AnalysisOperation.MERGE) return List.of();
+		// The columns the operation reads, which are split into the same row ranges
+		boolean byKeys = operation == AnalysisOperation.HEAVY_HITTERS || (operation == AnalysisOperation.DISTINCT && parameters.keys() != null);
+		double[] values = byKeys ? null : parameters.values();
+		long[] keys = byKeys || operation == AnalysisOperation.AGGREGATE ? parameters.keys() : null;
+		int rows = byKeys ? (keys == null ? 0 : keys.length) : (values == null ? 0 : values.length);
+		if(rows <= parameters.splitRows()) return List.of();
+		if(keys != null && keys.length != rows) throw new IllegalArgumentException("Got " + keys.length + " keys for " + rows + " values");
+		int parts = (rows + parameters.splitRows() - 1) / parameters.splitRows();
+		List<Task> subtasks = new ArrayList<>(parts);
+		for(int part = 0; part < parts; part++) {
+			int from = (int) ((long) rows * part / parts), end = (int) ((long) rows * (part + 1) / parts);
+			Map<String, Object> range = new HashMap<>();
+			range.put("operation", operation.name().toLowerCase());
+			range.put("top", parameters.top());
+			if(parameters.ranks() != null) range.put("ranks", parameters.ranks());
+			if(values != null) range.put("values", Arrays.copyOfRange(values, from, end));
+			if(keys != null) range.put("keys", Arrays.copyOfRange(keys, from, end));
+			subtasks.add(SplittableTaskProcessor.subtask(task, part, range));
+		}
+		return subtasks;
+	}
+
+	@Override
+	public TaskResult reduce(Task task, List<TaskResult> results) {
+		DataAnalysisParameters parameters = task.getParameters(DataAnalysisParameters.class);
+		if(parameters.operation() == AnalysisOperation.AGGREGATE) {
+			GroupedStatistics statistics = results.stream().map(result -> GroupedStatistics.fromColumns(result.getOutput())).reduce(GroupedStatistics::merge).orElseThrow();
+			Map<String, Object> outputs = statistics.toColumns();
+			outputs.put("groups", statistics.size());
+			return TaskResult.success(task.getId(), outputs);
+		}
+		List<Object> sketches = results.stream().map(result -> result.getOutput().get("sketch")).toList();
+		return TaskResult.success(task.getId(), describe(merge(sketches), parameters));
+	}
+
+	/**
+	 * Computes the count, sum, mean, minimum, maximum and population variance of a column per group in one parallel pass.
+	 * @param values The column to aggregate.
+	 * @param keys The group key of each value, or null to aggregate the whole column as group 0.
+	 * @return A map containing "groups", the number of groups, and the columns of {@link GroupedStatistics#toColumns()}.
+	 * @throws IllegalArgumentException If there is no value column or the key column is not as long as it.
+	 */
+	public Map<String, Object> aggregate(double[] values, long[] keys) {
+		requireValues(values);
+		if(keys != null && keys.length != values.length) throw new IllegalArgumentException("Got " + keys.length + " keys for " + values.length + " values");
+		GroupedStatistics statistics = inChunks(values.length, (from, end) -> {
+			GroupedStatistics partial = new GroupedStatistics();
+			partial.addAll(keys, values, from, end);
+			return partial;
+		}, GroupedStatistics::merge);
+		Map<String, Object> outputs = statistics.toColumns();
+		outputs.put("groups", statistics.size());
+		return outputs;
+	}
+
+	/**
+	 * Builds a HyperLogLog of the distinct keys, or of the distinct values if there are no keys, in one parallel pass.
+	 * @param values The value column, used if there are no keys.
+	 * @param keys The key column, or null.
+	 * @return The sketch.
+	 * @throws IllegalArgumentException If neither column is given.
+	 */
+	public HyperLogLog distinct(double[] values, long[] keys) {
+		if(keys != null) return inChunks(keys.length, (from, end) -> {
+			HyperLogLog partial = new HyperLogLog();
+			partial.addAll(keys, from, end);
+			return partial;
+		}, HyperLogLog::merge);
+		requireValues(values);
+		return inChunks(values.length, (from, end) -> {
+			HyperLogLog partial = new HyperLogLog();
+			partial.addAll(values, from, end);
+			return partial;
+		}, HyperLogLog::merge);
+	}
+
+	/**
+	 * Builds a KLL sketch of a column in one parallel pass.
+	 * @param values The column.
+	 * @return The sketch.
+	 * @throws IllegalArgumentException If the column is not given.
+	 */
+	public KllSketch quantiles(double[] values) {
+		requireValues(values);
+		return inChunks(values.length, (from, end) -> {
+			KllSketch partial = new KllSketch();
+			partial.addAll(values, from, end);
+			return partial;
+		}, KllSketch::merge);
+	}
+
+	/**
+	 * Builds a count-min sketch of a key column in one parallel pass.
+	 * @param keys The column.
+	 * @return The sketch.
+	 * @throws IllegalArgumentException If the column is not given.
+	 */
+	public CountMinSketch heavyHitters(long[] keys) {
+		if(keys == null) throw new IllegalArgumentException("Missing parameter: keys");
+		return inChunks(keys.length, (from, end) -> {
+			CountMinSketch partial = new CountMinSketch();
+			partial.addAll(keys, from, end);
+			return partial;
+		}, CountMinSketch::merge);
+	}
+
+	/**
+	 * Merges serialized sketches of the same kind and configuration.
+	 * @param sketches The sketches, each a byte[], a ByteBuffer or a Base64 string.
+	 * @return The merged sketch.
+	 * @throws IllegalArgumentException If there are no sketches, or one is malformed or of a different kind or configuration.
+	 */
+	public Sketch merge(List<?> sketches) {
+		if(sketches == null || sketches.isEmpty()) throw new IllegalArgumentException("Missing parameter: sketches");
+		Sketch merged = null;
+		for(Object serialized : sketches) {
+			byte[] data = switch(serialized) {
+				case byte[] bytes -> bytes;
+				case ByteBuffer buffer -> {
+					byte[] bytes = new byte[buffer.remaining()];
+					buffer.get(buffer.position(), bytes);
+					yield bytes;
+				}
+				case String base64 -> Base64.getDecoder().decode(base64);
+				default -> throw new IllegalArgumentException("Not a serialized sketch: " + serialized.getClass().getSimpleName());
+			};
+			Sketch sketch = Sketch.fromBytes(data);
+			merged = merged == null ? sketch : merged.merge(sketch);
+		}
+		return merged;
+	}
+
+	/**
+	 * Answers the question a sketch summarizes and serializes it as "sketch".
+	 */
+	private static Map<String, Object> describe(Sketch sketch, DataAnalysisParameters parameters) {
+		Map<String, Object> outputs = new HashMap<>();
+		switch(sketch) {
+			case HyperLogLog distinct -> outputs.put("distinct", distinct.estimate());
+			case KllSketch quantiles -> {
+				double[] ranks = parameters.ranks() == null ? DEFAULT_RANKS : parameters.ranks();
+				outputs.put("ranks", ranks);
+				outputs.put("quantiles", quantiles.quantiles(ranks));
+				outputs.put("count", quantiles.getCount());
+			}
+			case CountMinSketch heavyHitters -> {
+				long[] keys = heavyHitters.topKeys(parameters.top());
+				long[] counts = new long[keys.length];
+				for(int i = 0; i < keys.length; i++) counts[i] = heavyHitters.estimate(keys[i]);
+				outputs.put("keys", keys);
+				outputs.put("counts", counts);
+				outputs.put("total", heavyHitters.getTotal());
+			}
+		}
+		outputs.put("sketch", sketch.toBytes());
+		return outputs;
+	}
+
+	private static void requireValues(double[] values) {
+		if(values == null) throw new IllegalArgumentException("Missing parameter: values");
+	}
+
+	/**
+	 * Summarizes rows in chunks on the common pool and merges the partial summaries.
+	 */
+	private static <T> T inChunks(int rows, Summary<T> summary, BinaryOperator<T> merge) {
+		int chunks = (int) Math.clamp(rows / MIN_CHUNK_ROWS, 1, 4L * ForkJoinPool.getCommonPoolParallelism());
+		return IntStream.range(0, chunks).parallel().mapToObj(chunk -> summary.of((int) ((long) rows * chunk / chunks), (int) ((long) rows * (chunk + 1) / chunks))).reduce(merge).orElseThrow();
+	}
+
+	@FunctionalInterface
+	private interface Summary<T> {
+		T of(int from, int end);
+	}
 }
@@ -0,0 +1,90 @@
+package garretreichenbach.taskprocessor.processor;
+
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.parameters.DataCleaningParameters;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Processes DATA_CLEANING tasks: parses CSV or TSV text into typed columns, dropping malformed, incomplete and duplicate rows and
+ * optionally rescaling the numeric columns.
+ * <br/>The text comes inline as bytes or a string, from a blob (large blobs arrive memory-mapped by the blob store), or from a file under the directory named
+ * by the system property {@value #DATA_DIRECTORY_PROPERTY}, which is memory-mapped here. Reading local files is disabled when the
+ * property is not set. Parsing is done by {@link CsvParser} in parallel chunks; see there for the accepted syntax.
+ */
+@Slf4j
+public class DataCleaningProcessor implements TaskProcessor {
+
+	/**
+	 * The system property naming the directory that "path" parameters are resolved against.
+	 */
+	public static final String DATA_DIRECTORY_PROPERTY = "taskprocessor.dataDirectory";
+
+	@Override
+	public TaskResult process(Task task) {
+		try {
+			DataCleaningParameters parameters = task.getParameters(DataCleaningParameters.class);
+			return TaskResult.success(task.getId(), clean(parameters));
+		} catch(Exception exception) {
+			log.error(exception.getMessage(), exception);
+			return TaskResult.error(task.getId(), exception);
+		}
+	}
+
+	/**
+	 * Cleans a table.
+	 * @param parameters The parameters of the task.
+	 * @return A map containing "columns" (each a double[] or a String[] by name, in table order), "names", the number of "rows" kept, and
+	 * the numbers of rows dropped as "malformed", "incomplete" and "duplicates".
+	 * @throws IllegalArgumentException If there is no text, the delimiter is invalid, or the path is outside the data directory.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public Map<String, Object> clean(DataCleaningParameters parameters) throws IOException {
+		CsvParser parser = new CsvParser(delimiterOf(parameters.delimiter()), parameters.header(), parameters.dropIncomplete());
+		CsvTable table;
+		if(parameters.path() != null) {
+			try(FileChannel channel = FileChannel.open(resolve(parameters.path()), StandardOpenOption.READ)) {
+				if(channel.size() > Integer.MAX_VALUE) throw new IllegalArgumentException("File is too large to map: " + channel.size() + " bytes");
+				table = parser.parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			}
+		} else if(parameters.data() != null) table = parser.parse(parameters.data());
+		else if(parameters.text() != null) table = parser.parse(ByteBuffer.wrap(parameters.text().getBytes(StandardCharsets.UTF_8)));
+		else throw new IllegalArgumentException("Missing parameter: data");
+		if(parameters.dedupe()) table.deduplicate();
+		Map<String, Object> outputs = new HashMap<>();
+		outputs.put("columns", table.toColumns(parameters.normalize()));
+		outputs.put("names", table.getNames());
+		outputs.put("rows", table.getRows());
+		outputs.put("malformed", table.getMalformed());
+		outputs.put("incomplete", table.getIncomplete());
+		outputs.put("duplicates", table.getDuplicates());
+		return outputs;
+	}
+
+	private static char delimiterOf(String delimiter) {
+		if(delimiter.equalsIgnoreCase("tab") || delimiter.equals("\\t")) return '\t';
+		if(delimiter.length() != 1) throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+		return delimiter.charAt(0);
+	}
+
+	/**
+	 * Resolves a path against the data directory, rejecting paths that lead outside it, also through symbolic links.
+	 */
+	private static Path resolve(String path) throws IOException {
+		String directory = System.getProperty(DATA_DIRECTORY_PROPERTY);
+		if(directory == null) throw new IllegalArgumentException("Reading local files is disabled; set " + DATA_DIRECTORY_PROPERTY);
+		Path root = Path.of(directory).toRealPath();
+		Path resolved = root.resolve(path).normalize();
+		if(!resolved.startsWith(root) || !resolved.toRealPath().startsWith(root)) throw new IllegalArgumentException("Path is outside the data directory: " + path);
+		return resolved;
+	}
+}
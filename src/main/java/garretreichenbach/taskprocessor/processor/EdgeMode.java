@@ -0,0 +1,43 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * How {@link Convolution} reads pixels outside the image.
+ */
+public enum EdgeMode {
+	/**
+	 * Repeats the pixels on the border (aaa|abcd|ddd).
+	 */
+	CLAMP {
+		@Override
+		int map(int index, int size) {
+			return Math.min(Math.max(index, 0), size - 1);
+		}
+	},
+	/**
+	 * Reflects the image at its border, repeating the border pixel (cba|abcd|dcb).
+	 */
+	MIRROR {
+		@Override
+		int map(int index, int size) {
+			int period = Math.floorMod(index, 2 * size);
+			return period < size ? period : 2 * size - 1 - period;
+		}
+	},
+	/**
+	 * Tiles the image (bcd|abcd|abc).
+	 */
+	WRAP {
+		@Override
+		int map(int index, int size) {
+			return Math.floorMod(index, size);
+		}
+	};
+
+	/**
+	 * Maps a pixel index that may lie outside the image to one inside it.
+	 * @param index the index along one axis, possibly negative or beyond the end
+	 * @param size the size of the image along that axis
+	 * @return an index between 0 and size - 1
+	 */
+	abstract int map(int index, int size);
+}
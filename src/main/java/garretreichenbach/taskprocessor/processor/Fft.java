@@ -0,0 +1,132 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-place complex fast Fourier transforms of power-of-two sizes over split float[] buffers (real parts in one array, imaginary parts
+ * in another).
+ * <br/>Each size has one shared, immutable instance holding its bit-reversal permutation and twiddle factors, computed in double
+ * precision once and cached. The twiddles of each radix-2 stage are stored contiguously, so every butterfly pass reads its table front to
+ * back. Transforms allocate nothing and are safe to run concurrently on different buffers.
+ * <br/>Two real signals can be transformed for the price of one by passing them as the real and imaginary parts of one complex signal,
+ * which is how the audio filters and the spectrum analyzer use it.
+ */
+public final class Fft {
+
+	/**
+	 * The largest supported size.
+	 */
+	public static final int MAX_SIZE = 1 << 24;
+
+	private static final Map<Integer, Fft> CACHE = new ConcurrentHashMap<>();
+
+	private final int size;
+	private final int[] swaps;
+	private final float[] cos;
+	private final float[] sin;
+
+	private Fft(int size) {
+		this.size = size;
+		int bits = Integer.numberOfTrailingZeros(size);
+		int[] pairs = new int[size];
+		int count = 0;
+		for(int i = 0; i < size; i++) {
+			int reversed = bits == 0 ? 0 : Integer.reverse(i) >>> (Integer.SIZE - bits);
+			if(i < reversed) {
+				pairs[count++] = i;
+				pairs[count++] = reversed;
+			}
+		}
+		swaps = Arrays.copyOf(pairs, count);
+		// The stage combining pairs of half-size transforms of length half reads entries half to 2 * half - 1
+		cos = new float[Math.max(1, size)];
+		sin = new float[Math.max(1, size)];
+		for(int half = 1; half < size; half <<= 1) {
+			for(int j = 0; j < half; j++) {
+				double angle = -Math.PI * j / half;
+				cos[half + j] = (float) Math.cos(angle);
+				sin[half + j] = (float) Math.sin(angle);
+			}
+		}
+	}
+
+	/**
+	 * Returns the transform of a size, creating and caching it on first use.
+	 * @param size the number of points, a power of two up to {@link #MAX_SIZE}
+	 * @return the transform
+	 * @throws IllegalArgumentException if the size is not a supported power of two
+	 */
+	public static Fft forSize(int size) {
+		if(size <= 0 || size > MAX_SIZE || Integer.bitCount(size) != 1) throw new IllegalArgumentException("FFT size must be a power of two up to " + MAX_SIZE + ": " + size);
+		return CACHE.computeIfAbsent(size, Fft::new);
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Replaces a signal by its discrete Fourier transform, X[k] = sum of x[n] * e^(-2 pi i k n / size).
+	 * @param real the real parts, at least size long
+	 * @param imaginary the imaginary parts, at least size long
+	 */
+	public void forward(float[] real, float[] imaginary) {
+		transform(real, imaginary);
+	}
+
+	/**
+	 * Replaces a transform by its signal, the inverse of {@link #forward}, scaled by 1 / size.
+	 * @param real the real parts, at least size long
+	 * @param imaginary the imaginary parts, at least size long
+	 */
+	public void inverse(float[] real, float[] imaginary) {
+		// The inverse transform is the forward transform with the imaginary parts negated before and after
+		negate(imaginary);
+		transform(real, imaginary);
+		float scale = 1.0f / size;
+		for(int i = 0; i < size; i++) {
+			real[i] *= scale;
+			imaginary[i] *= -scale;
+		}
+	}
+
+	private void negate(float[] values) {
+		for(int i = 0; i < size; i++) values[i] = -values[i];
+	}
+
+	private void transform(float[] real, float[] imaginary) {
+		if(real.length < size || imaginary.length < size) throw new IllegalArgumentException("Buffers are shorter than " + size + " points");
+		for(int i = 0; i < swaps.length; i += 2) {
+			int a = swaps[i], b = swaps[i + 1];
+			float re = real[a], im = imaginary[a];
+			real[a] = real[b];
+			imaginary[a] = imaginary[b];
+			real[b] = re;
+			imaginary[b] = im;
+		}
+		// The first stage has the twiddle factor 1 only
+		for(int i = 0; i + 1 < size; i += 2) {
+			float re = real[i + 1], im = imaginary[i + 1];
+			real[i + 1] = real[i] - re;
+			imaginary[i + 1] = imaginary[i] - im;
+			real[i] += re;
+			imaginary[i] += im;
+		}
+		for(int half = 2; half < size; half <<= 1) {
+			for(int start = 0; start < size; start += 2 * half) {
+				for(int j = 0; j < half; j++) {
+					float wr = cos[half + j], wi = sin[half + j];
+					int top = start + j, bottom = top + half;
+					float re = real[bottom] * wr - imaginary[bottom] * wi;
+					float im = real[bottom] * wi + imaginary[bottom] * wr;
+					real[bottom] = real[top] - re;
+					imaginary[bottom] = imaginary[top] - im;
+					real[top] += re;
+					imaginary[top] += im;
+				}
+			}
+		}
+	}
+}
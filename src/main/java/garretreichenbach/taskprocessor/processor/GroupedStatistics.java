@@ -0,0 +1,219 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The count, sum, mean, minimum, maximum and variance of a numeric column per group, computed in one pass.
+ * <br/>Groups are identified by long keys and live in an open-addressing hash table with linear probing, so no key or value is boxed.
+ * The statistics of a group are interleaved in one double[] next to each other, so updating a group touches a single cache line.
+ * <br/>The variance uses shifted sums: each group subtracts its first value before summing values and squares, which keeps the
+ * one-pass formula numerically stable without a division per row.
+ * <br/>Instances are mergeable partial states. Statistics built over disjoint rows are combined with {@link #merge}, which pools the
+ * moments of each group with Chan's formula, so a column can be aggregated in parallel chunks and reduced.
+ */
+public final class GroupedStatistics {
+
+	private static final int COUNT = 0;
+	private static final int SHIFT = 1;
+	private static final int SHIFTED_SUM = 2;
+	private static final int SHIFTED_SQUARES = 3;
+	private static final int MIN = 4;
+	private static final int MAX = 5;
+	private static final int STRIDE = 6;
+	private static final int INITIAL_CAPACITY = 16;
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private long[] keys;
+	private double[] statistics;
+	private int size;
+	private int shift;
+
+	/**
+	 * Creates empty statistics.
+	 */
+	public GroupedStatistics() {
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Adds the rows from to end of a column.
+	 * @param groups the group key of each row, or null to put every row in group 0
+	 * @param values the values; NaN propagates to the statistics of its group
+	 * @param from the first row
+	 * @param end the row after the last
+	 */
+	public void addAll(long[] groups, double[] values, int from, int end) {
+		if(groups != null) {
+			for(int row = from; row < end; row++) add(groups[row], values[row]);
+			return;
+		}
+		if(from >= end) return;
+		double first = values[from], sum = 0.0, squares = 0.0, min = first, max = first;
+		for(int row = from; row < end; row++) {
+			double value = values[row];
+			double shifted = value - first;
+			sum += shifted;
+			squares += shifted * shifted;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		combine(0L, end - from, first, sum, squares, min, max);
+	}
+
+	/**
+	 * Adds one row.
+	 * @param group the group key of the row
+	 * @param value the value
+	 */
+	public void add(long group, double value) {
+		int base = slot(group) * STRIDE;
+		double count = statistics[base + COUNT];
+		if(count == 0) {
+			statistics[base + SHIFT] = value;
+			statistics[base + MIN] = value;
+			statistics[base + MAX] = value;
+		}
+		double shifted = value - statistics[base + SHIFT];
+		statistics[base + COUNT] = count + 1;
+		statistics[base + SHIFTED_SUM] += shifted;
+		statistics[base + SHIFTED_SQUARES] += shifted * shifted;
+		statistics[base + MIN] = Math.min(statistics[base + MIN], value);
+		statistics[base + MAX] = Math.max(statistics[base + MAX], value);
+		if(count == 0) grown();
+	}
+
+	/**
+	 * Merges two partial states. The smaller one is folded into the larger one, which is returned; the other must not be used afterwards.
+	 * @param other statistics over rows disjoint from this one's
+	 * @return the merged statistics
+	 */
+	public GroupedStatistics merge(GroupedStatistics other) {
+		if(other.size > size) return other.merge(this);
+		for(int slot = 0; slot < other.keys.length; slot++) {
+			int base = slot * STRIDE;
+			double[] from = other.statistics;
+			if(from[base + COUNT] == 0) continue;
+			combine(other.keys[slot], from[base + COUNT], from[base + SHIFT], from[base + SHIFTED_SUM], from[base + SHIFTED_SQUARES], from[base + MIN], from[base + MAX]);
+		}
+		return this;
+	}
+
+	/**
+	 * Rebuilds statistics from the columns of {@link #toColumns()}, so results computed over disjoint rows elsewhere can be merged.
+	 * @param columns the "keys", "count", "mean", "min", "max" and "variance" columns
+	 * @return the statistics
+	 * @throws IllegalArgumentException if a column is missing
+	 */
+	public static GroupedStatistics fromColumns(Map<String, Object> columns) {
+		if(!(columns.get("keys") instanceof long[] keys) || !(columns.get("count") instanceof long[] counts) || !(columns.get("mean") instanceof double[] means) || !(columns.get("min") instanceof double[] mins) || !(columns.get("max") instanceof double[] maxes) || !(columns.get("variance") instanceof double[] variances)) {
+			throw new IllegalArgumentException("Missing statistics columns");
+		}
+		GroupedStatistics statistics = new GroupedStatistics();
+		for(int i = 0; i < keys.length; i++) statistics.combine(keys[i], counts[i], means[i], 0.0, variances[i] * counts[i], mins[i], maxes[i]);
+		return statistics;
+	}
+
+	/**
+	 * Returns the number of groups.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the statistics as columns ordered by group key: "keys" (long[]), "count" (long[]), and "sum", "mean", "min", "max" and
+	 * "variance" (double[]). The variance is the population variance, the mean squared deviation from the mean.
+	 */
+	public Map<String, Object> toColumns() {
+		long[] sorted = new long[size];
+		int index = 0;
+		for(int slot = 0; slot < keys.length; slot++) if(statistics[slot * STRIDE + COUNT] != 0) sorted[index++] = keys[slot];
+		Arrays.sort(sorted);
+		long[] counts = new long[size];
+		double[] sums = new double[size], means = new double[size], mins = new double[size], maxes = new double[size], variances = new double[size];
+		for(int i = 0; i < size; i++) {
+			int base = slot(sorted[i]) * STRIDE;
+			double count = statistics[base + COUNT];
+			double shiftedMean = statistics[base + SHIFTED_SUM] / count;
+			counts[i] = (long) count;
+			sums[i] = statistics[base + SHIFT] * count + statistics[base + SHIFTED_SUM];
+			means[i] = statistics[base + SHIFT] + shiftedMean;
+			mins[i] = statistics[base + MIN];
+			maxes[i] = statistics[base + MAX];
+			variances[i] = Math.max(0.0, statistics[base + SHIFTED_SQUARES] / count - shiftedMean * shiftedMean);
+		}
+		Map<String, Object> columns = new HashMap<>();
+		columns.put("keys", sorted);
+		columns.put("count", counts);
+		columns.put("sum", sums);
+		columns.put("mean", means);
+		columns.put("min", mins);
+		columns.put("max", maxes);
+		columns.put("variance", variances);
+		return columns;
+	}
+
+	/**
+	 * Folds the statistics of a run of rows into a group. The merged group is stored shifted by its mean, with a shifted sum of 0 and the
+	 * sum of squared deviations from the mean.
+	 */
+	private void combine(long group, double count, double shift, double shiftedSum, double shiftedSquares, double min, double max) {
+		int base = slot(group) * STRIDE;
+		double existing = statistics[base + COUNT];
+		if(existing == 0) {
+			statistics[base + COUNT] = count;
+			statistics[base + SHIFT] = shift;
+			statistics[base + SHIFTED_SUM] = shiftedSum;
+			statistics[base + SHIFTED_SQUARES] = shiftedSquares;
+			statistics[base + MIN] = min;
+			statistics[base + MAX] = max;
+			grown();
+			return;
+		}
+		double mean = statistics[base + SHIFT] + statistics[base + SHIFTED_SUM] / existing;
+		double deviations = statistics[base + SHIFTED_SQUARES] - statistics[base + SHIFTED_SUM] * statistics[base + SHIFTED_SUM] / existing;
+		double otherMean = shift + shiftedSum / count;
+		double otherDeviations = shiftedSquares - shiftedSum * shiftedSum / count;
+		double total = existing + count;
+		double delta = otherMean - mean;
+		statistics[base + COUNT] = total;
+		statistics[base + SHIFT] = mean + delta * count / total;
+		statistics[base + SHIFTED_SUM] = 0.0;
+		statistics[base + SHIFTED_SQUARES] = deviations + otherDeviations + delta * delta * existing * count / total;
+		statistics[base + MIN] = Math.min(statistics[base + MIN], min);
+		statistics[base + MAX] = Math.max(statistics[base + MAX], max);
+	}
+
+	/**
+	 * Returns the slot holding a group, or the empty slot where it belongs.
+	 */
+	private int slot(long group) {
+		int mask = keys.length - 1;
+		int slot = (int) ((group * HASH_MULTIPLIER) >>> shift);
+		while(statistics[slot * STRIDE + COUNT] != 0 && keys[slot] != group) slot = (slot + 1) & mask;
+		keys[slot] = group;
+		return slot;
+	}
+
+	/**
+	 * Records a new group, doubling the table when it is half full.
+	 */
+	private void grown() {
+		if(++size <= keys.length / 2) return;
+		long[] oldKeys = keys;
+		double[] oldStatistics = statistics;
+		allocate(keys.length * 2);
+		for(int slot = 0; slot < oldKeys.length; slot++) {
+			if(oldStatistics[slot * STRIDE + COUNT] == 0) continue;
+			System.arraycopy(oldStatistics, slot * STRIDE, statistics, slot(oldKeys[slot]) * STRIDE, STRIDE);
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		statistics = new double[capacity * STRIDE];
+		shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+	}
+}
@@ -0,0 +1,15 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * The file formats IMAGE_CONVERSION tasks encode images to.
+ */
+public enum ImageFormat {
+	/**
+	 * Lossless 8-bit truecolor PNG, encoded by the {@link PngEncoder}. The quality is the deflate level, 0-9.
+	 */
+	PNG,
+	/**
+	 * Lossy baseline JPEG, encoded by the {@link JpegEncoder}. The quality is 0-100.
+	 */
+	JPEG
+}
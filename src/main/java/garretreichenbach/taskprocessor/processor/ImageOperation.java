@@ -0,0 +1,24 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * The operations of IMAGE_MANIPULATION tasks, all implemented by {@link Convolution}.
+ */
+public enum ImageOperation {
+	/**
+	 * Gaussian blur. The radius is the standard deviation in pixels.
+	 */
+	BLUR,
+	/**
+	 * Box blur, averaging a square of 2 * radius + 1 pixels. The radius is rounded to whole pixels.
+	 */
+	BOX_BLUR,
+	/**
+	 * Unsharp masking: the difference between the image and its Gaussian blur is added back, scaled by the amount. The radius is the
+	 * standard deviation of the blur.
+	 */
+	SHARPEN,
+	/**
+	 * Sobel edge detection, per channel. The radius is ignored.
+	 */
+	EDGES
+}
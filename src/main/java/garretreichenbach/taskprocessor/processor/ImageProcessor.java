@@ -1,46 +1,74 @@
 package garretreichenbach.taskprocessor.processor;
 
+import garretreichenbach.taskprocessor.model.PooledPayload;
 import garretreichenbach.taskprocessor.model.Task;
 import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.parameters.ImageCompressionParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImageConversionParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImageDecompressionParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImageManipulationParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImagePyramidParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImageScalingParameters;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.compress.compressors.CompressorInputStream;
-import org.apache.commons.compress.compressors.CompressorStreamFactory;
-import org.apache.commons.compress.compressors.deflate.DeflateCompressorInputStream;
 
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
+/**
+ * Processes IMAGE_MANIPULATION, IMAGE_SCALING, IMAGE_PYRAMID, IMAGE_CONVERSION, IMAGE_COMPRESSION and IMAGE_DECOMPRESSION tasks on packed
+ * RGB images.
+ * <br/>Image-sized outputs and intermediates are leased from {@link BufferPool#SHARED}. Outputs are returned as {@link PooledPayload}s,
+ * whose buffers go back to the pool when the {@link garretreichenbach.taskprocessor.model.TaskResultStore} stores the result.
+ */
 @Slf4j
 public class ImageProcessor implements TaskProcessor {
 
 	@Override
 	public TaskResult process(Task task) {
-		Map<String, Object> parameters = task.getParameters();
 		Map<String, Object> outputs;
-		String taskType = (String) parameters.get("task_type");
-		byte[] data = (byte[]) parameters.get("data");
-		int width = (int) parameters.get("width");
-		int height = (int) parameters.get("height");
 		try {
-			switch(taskType.toLowerCase().trim()) {
-				case "scale" -> {
-					double scale = (double) parameters.get("scale");
-					outputs = scaleImage(data, width, height, scale);
+			switch(task.getType()) {
+				case IMAGE_MANIPULATION -> {
+					ImageManipulationParameters parameters = task.getParameters(ImageManipulationParameters.class);
+					outputs = manipulateImage(parameters.data(), parameters.width(), parameters.height(), parameters.operation(), parameters.radius(), parameters.amount(), parameters.edge());
 					return TaskResult.success(task.getId(), outputs);
 				}
-				case "compress" -> {
-					String algorithm = (String) parameters.get("algorithm");
-					outputs = compressImage(algorithm, data, width, height);
+				case IMAGE_SCALING -> {
+					ImageScalingParameters parameters = task.getParameters(ImageScalingParameters.class);
+					outputs = scaleImage(parameters.data(), parameters.width(), parameters.height(), parameters.scale(), parameters.filter());
 					return TaskResult.success(task.getId(), outputs);
 				}
-				case "decompress" -> {
-					outputs = decompressImage(data, width, height);
+				case IMAGE_PYRAMID -> {
+					ImagePyramidParameters parameters = task.getParameters(ImagePyramidParameters.class);
+					outputs = buildPyramid(parameters.data(), parameters.width(), parameters.height(), parameters.targetSizes(), parameters.filter());
+					return TaskResult.success(task.getId(), outputs);
+				}
+				case IMAGE_CONVERSION -> {
+					ImageConversionParameters parameters = task.getParameters(ImageConversionParameters.class);
+					outputs = convertImage(parameters.data(), parameters.width(), parameters.height(), parameters.format(), parameters.quality());
+					return TaskResult.success(task.getId(), outputs);
+				}
+				case IMAGE_COMPRESSION -> {
+					ImageCompressionParameters parameters = task.getParameters(ImageCompressionParameters.class);
+					try(BufferPool.Lease<byte[]> data = leaseBytes(parameters.data())) {
+						outputs = compressImage(parameters.algorithm(), parameters.level(), parameters.parallel(), data.array(), data.length(), parameters.width(), parameters.height());
+					}
+					return TaskResult.success(task.getId(), outputs);
+				}
+				case IMAGE_DECOMPRESSION -> {
+					ImageDecompressionParameters parameters = task.getParameters(ImageDecompressionParameters.class);
+					outputs = decompressImage(parameters.algorithm(), asBytes(parameters.data()), parameters.width(), parameters.height());
 					return TaskResult.success(task.getId(), outputs);
 				}
 				default -> {
-					log.error("Task type not supported: {}", taskType);
-					return TaskResult.error(task.getId(), new Exception("Unknown task type: " + taskType));
+					log.error("Task type not supported: {}", task.getType());
+					return TaskResult.error(task.getId(), new Exception("Unknown task type: " + task.getType()));
 				}
 			}
 		} catch(Exception exception) {
@@ -49,106 +77,198 @@ public class ImageProcessor implements TaskProcessor {
 		}
 	}
 
+	/**
+	 * Returns the image data as an array, copying it out of the buffer into a pooled array unless the buffer wraps a whole writable array.
+	 * The image occupies the first {@link BufferPool.Lease#length()} bytes of the array.
+	 */
+	private static BufferPool.Lease<byte[]> leaseBytes(ByteBuffer data) {
+		if(data.hasArray() && data.arrayOffset() == 0 && data.position() == 0 && data.remaining() == data.array().length) return BufferPool.wrap(data.array());
+		BufferPool.Lease<byte[]> lease = BufferPool.SHARED.leaseBytes(data.remaining());
+		data.duplicate().get(lease.array(), 0, data.remaining());
+		return lease;
+	}
+
+	/**
+	 * Returns the image data as a byte[], copying it out of the buffer unless the buffer wraps a whole writable array.
+	 */
+	private static byte[] asBytes(ByteBuffer data) {
+		if(data.hasArray() && data.arrayOffset() == 0 && data.position() == 0 && data.remaining() == data.array().length) return data.array();
+		byte[] bytes = new byte[data.remaining()];
+		data.duplicate().get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Leases an array for an image of the given size.
+	 * @throws IllegalArgumentException if the image is too large for an array
+	 */
+	private static BufferPool.Lease<byte[]> leaseImage(int width, int height) {
+		long length = (long) width * height * Resampler.BYTES_PER_PIXEL;
+		if(width < 0 || height < 0 || length > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+		return BufferPool.SHARED.leaseBytes((int) length);
+	}
+
+	/**
+	 * Blurs, sharpens or edge-detects an image with the {@link Convolution} engine.
+	 * @param data The image data, read from its current position.
+	 * @param width The width of the image.
+	 * @param height The height of the image.
+	 * @param operation The operation to apply.
+	 * @param radius The blur radius in pixels, see {@link ImageOperation}.
+	 * @param amount The strength of {@link ImageOperation#SHARPEN}.
+	 * @param edge How pixels outside the image are read.
+	 * @return A map containing the manipulated image and its dimensions.
+	 */
+	public Map<String, Object> manipulateImage(ByteBuffer data, int width, int height, ImageOperation operation, double radius, double amount, EdgeMode edge) {
+		Convolution.checkRadius(radius, width, height);
+		BufferPool.Lease<byte[]> manipulated = leaseImage(width, height);
+		try {
+			switch(operation) {
+				case BLUR -> Convolution.gaussianBlur(data, width, height, manipulated.array(), radius, edge);
+				case BOX_BLUR -> Convolution.boxBlur(data, width, height, manipulated.array(), (int) Math.round(radius), edge);
+				case SHARPEN -> Convolution.sharpen(data, width, height, manipulated.array(), radius, amount, edge);
+				case EDGES -> Convolution.sobel(data, width, height, manipulated.array(), edge);
+			}
+		} catch(RuntimeException exception) {
+			manipulated.release();
+			throw exception;
+		}
+		return Map.of("manipulated_image", new PooledPayload(manipulated), "width", width, "height", height);
+	}
+
 	/**
 	 * Scales an image using the specified parameters.
-	 * Uses parallel streams to process chunks of an image.
 	 * @param data The image data to be scaled.
 	 * @param width The width of the image.
 	 * @param height The height of the image.
 	 * @param scale The scaling factor.
 	 */
 	public Map<String, Object> scaleImage(byte[] data, int width, int height, double scale) {
-		// Create an int array from the byte data
-		int[] pixels = new int[width * height];
-		for(int i = 0; i < width * height; i++) {
-			// Assuming RGB byte order, 3 bytes per pixel
-			int index = i * 3;
-			int r = data[index] & 0xFF;
-			int g = data[index + 1] & 0xFF;
-			int b = data[index + 2] & 0xFF;
-			pixels[i] = (r << 16) | (g << 8) | b;
-		}
-
-		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		image.getRaster().setDataElements(0, 0, width, height, pixels);
+		return scaleImage(ByteBuffer.wrap(data), width, height, scale, ResamplingFilter.BILINEAR);
+	}
 
+	/**
+	 * Scales an image read from a buffer, without copying the source data.
+	 * The image is resampled in parallel strips of rows by the {@link Resampler} into a pooled buffer.
+	 * @param data The image data to be scaled, read from its current position.
+	 * @param width The width of the image.
+	 * @param height The height of the image.
+	 * @param scale The scaling factor.
+	 * @param filter The filter to resample with.
+	 */
+	public Map<String, Object> scaleImage(ByteBuffer data, int width, int height, double scale, ResamplingFilter filter) {
 		int newWidth = (int) (width * scale);
 		int newHeight = (int) (height * scale);
-		BufferedImage scaledImage = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-		scaledImage.getGraphics().drawImage(image, 0, 0, newWidth, newHeight, null);
-
-		// Convert back to byte array
-		int[] scaledPixels = new int[newWidth * newHeight];
-		scaledImage.getRaster().getDataElements(0, 0, newWidth, newHeight, scaledPixels);
-
-		byte[] scaledData = new byte[newWidth * newHeight * 3];
-		for(int i = 0; i < scaledPixels.length; i++) {
-			int pixel = scaledPixels[i];
-			int index = i * 3;
-			scaledData[index] = (byte) ((pixel >> 16) & 0xFF);
-			scaledData[index + 1] = (byte) ((pixel >> 8) & 0xFF);
-			scaledData[index + 2] = (byte) (pixel & 0xFF);
+		BufferPool.Lease<byte[]> scaledData = leaseImage(newWidth, newHeight);
+		try {
+			Resampler.resample(data, width, height, scaledData.array(), newWidth, newHeight, filter);
+		} catch(RuntimeException exception) {
+			scaledData.release();
+			throw exception;
 		}
-
-		return Map.of("scaled_image", scaledData, "width", newWidth, "height", newHeight);
+		return Map.of("scaled_image", new PooledPayload(scaledData), "width", newWidth, "height", newHeight);
 	}
 
 	/**
-	 * Compresses an image using the specified algorithm and parameters.
-	 * @param algorithm The compression algorithm to be used (e.g., "gzip", "bzip2").
-	 * @param data The image data to be compressed.
+	 * Scales an image to several sizes in one pass. The sizes are produced from the largest to the smallest, and each one is resampled
+	 * from the smallest image produced so far that is at least as large in both dimensions, so only the largest size reads the full image.
+	 * With the default area filter and halving sizes this builds a mipmap pyramid.
+	 * @param data The image data to be scaled, read from its current position.
 	 * @param width The width of the image.
 	 * @param height The height of the image.
-	 * @return A map containing the compressed image data and other parameters.
+	 * @param sizes The sizes to scale the image to.
+	 * @param filter The filter to resample with.
+	 * @return A map containing "count" and, for each size in the order given, "image_i", "width_i" and "height_i".
 	 */
-	private Map<String, Object> compressImage(String algorithm, byte[] data, int width, int height) {
-		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		image.getRaster().setDataElements(0, 0, width, height, data);
-		if(algorithm == null) algorithm = "gz"; // Default to gzip
+	public Map<String, Object> buildPyramid(ByteBuffer data, int width, int height, List<ImagePyramidParameters.Size> sizes, ResamplingFilter filter) {
+		Map<String, Object> outputs = new HashMap<>();
+		List<BufferPool.Lease<byte[]>> leases = new ArrayList<>(sizes.size());
+		List<Level> levels = new ArrayList<>(sizes.size() + 1);
+		Level original = new Level(new ImagePyramidParameters.Size(width, height), data);
 		try {
-			CompressorInputStream cis = new CompressorStreamFactory().createCompressorInputStream(algorithm, new ByteArrayInputStream(data));
-			byte[] compressedData = new byte[width * height * 3];
-			int bytesRead = cis.read(compressedData);
-			if(bytesRead == -1) {
-				log.error("Failed to read compressed data");
-				return Map.of("error", "Failed to read compressed data");
+			for(int index : IntStream.range(0, sizes.size()).boxed().sorted(Comparator.comparingLong(i -> -sizes.get(i).area())).toList()) {
+				ImagePyramidParameters.Size size = sizes.get(index);
+				Level source = original;
+				for(Level level : levels) {
+					if(level.size.width() >= size.width() && level.size.height() >= size.height() && level.size.area() < source.size.area()) source = level;
+				}
+				BufferPool.Lease<byte[]> lease = leaseImage(size.width(), size.height());
+				leases.add(lease);
+				Resampler.resample(source.data, source.size.width(), source.size.height(), lease.array(), size.width(), size.height(), filter);
+				levels.add(new Level(size, ByteBuffer.wrap(lease.array(), 0, lease.length())));
+				outputs.put("image_" + index, new PooledPayload(lease));
+				outputs.put("width_" + index, size.width());
+				outputs.put("height_" + index, size.height());
 			}
-			cis.close();
-			return Map.of("compressed_image", compressedData, "width", width, "height", height);
-		} catch(Exception exception) {
-			log.error(exception.getMessage(), exception);
-			return Map.of("error", exception.getMessage());
+		} catch(RuntimeException exception) {
+			leases.forEach(BufferPool.Lease::release);
+			throw exception;
 		}
+		outputs.put("count", sizes.size());
+		return outputs;
+	}
+
+	/**
+	 * An image of a pyramid that later sizes can be resampled from.
+	 */
+	private record Level(ImagePyramidParameters.Size size, ByteBuffer data) {
 	}
 
 	/**
-	 * Decompresses an image using the specified algorithm and parameters.
+	 * Encodes an image to a file format. PNGs are filtered and deflated in parallel strips straight into a pooled buffer by the
+	 * {@link PngEncoder}; JPEGs are written by the {@link JpegEncoder}.
+	 * @param data The image data, read from its current position.
+	 * @param width The width of the image.
+	 * @param height The height of the image.
+	 * @param format The format to encode to.
+	 * @param quality The deflate level for PNG or the quality for JPEG, or -1 for the format's default.
+	 * @return A map containing the encoded image, its format and the dimensions of the image.
+	 * @throws IOException If the JPEG writer fails.
+	 */
+	public Map<String, Object> convertImage(ByteBuffer data, int width, int height, ImageFormat format, int quality) throws IOException {
+		Object converted = switch(format) {
+			case PNG -> new PooledPayload(PngEncoder.encode(data, width, height, quality));
+			case JPEG -> JpegEncoder.encode(data, width, height, quality);
+		};
+		return Map.of("converted_image", converted, "format", format.name().toLowerCase(), "width", width, "height", height);
+	}
+
+	/**
+	 * Compresses an image using the specified algorithm and level.
+	 * @param algorithm The compression algorithm to be used (e.g., "gz", "bzip2"), or null for gzip.
+	 * @param level The compression level, or -1 for the algorithm's default.
+	 * @param parallel Whether a large image may be split into blocks compressed in parallel.
+	 * @param data The array holding the image data to be compressed.
+	 * @param length The length of the image data.
+	 * @param width The width of the image.
+	 * @param height The height of the image.
+	 * @return A map containing the compressed image data and other parameters.
+	 */
+	private Map<String, Object> compressImage(String algorithm, int level, boolean parallel, byte[] data, int length, int width, int height) {
+		CompressionCodec codec = CompressionCodec.fromString(algorithm == null ? "gz" : algorithm);
+		byte[] compressedData = codec.compress(data, 0, length, level, parallel);
+		return Map.of("compressed_image", compressedData, "width", width, "height", height, "algorithm", codec.toString(), "original_size", length, "compressed_size", compressedData.length);
+	}
+
+	/**
+	 * Decompresses an image compressed by {@link #compressImage}.
+	 * @param algorithm The compression algorithm, or null to detect it from the data.
 	 * @param data The image data to be decompressed.
 	 * @param width The width of the image.
 	 * @param height The height of the image.
 	 * @return A map containing the decompressed image data and other parameters.
+	 * @throws IOException If the data is corrupt, in an unknown format, or does not decompress to width * height * 3 bytes.
 	 */
-	private Map<String, Object> decompressImage(byte[] data, int width, int height) {
-		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-		image.getRaster().setDataElements(0, 0, width, height, data);
-		byte[] decompressedData = new byte[width * height * 3];
-		int bytesRead = 0;
+	private Map<String, Object> decompressImage(String algorithm, byte[] data, int width, int height) throws IOException {
+		CompressionCodec codec = algorithm == null ? CompressionCodec.detect(data) : CompressionCodec.fromString(algorithm);
+		if(codec == null) throw new IOException("Unrecognised compression format");
+		BufferPool.Lease<byte[]> decompressedData = leaseImage(width, height);
 		try {
-			DeflateCompressorInputStream dis = new DeflateCompressorInputStream(new ByteArrayInputStream(data));
-			bytesRead = dis.read(decompressedData);
-			if(bytesRead == -1) {
-				log.error("Failed to read decompressed data");
-				return Map.of("error", "Failed to read decompressed data");
-			}
-			dis.close();
-			BufferedImage decompressedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-			decompressedImage.getRaster().setDataElements(0, 0, width, height, decompressedData);
-			byte[] finalData = new byte[width * height * 3];
-			decompressedImage.getRaster().getDataElements(0, 0, width, height, finalData);
-			return Map.of("decompressed_image", finalData, "width", width, "height", height);
-		} catch(Exception exception) {
-			log.error(exception.getMessage(), exception);
-			return Map.of("error", exception.getMessage());
+			codec.decompress(data, decompressedData.array(), decompressedData.length());
+		} catch(IOException | RuntimeException exception) {
+			decompressedData.release();
+			throw exception;
 		}
+		return Map.of("decompressed_image", new PooledPayload(decompressedData), "width", width, "height", height);
 	}
 }
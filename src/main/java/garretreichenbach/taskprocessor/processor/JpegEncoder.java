@@ -0,0 +1,89 @@
+package garretreichenbach.taskprocessor.processor;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes packed RGB images (3 bytes per pixel, row-major) as baseline JPEGs with the ImageIO JPEG writer.
+ * <br/>The pixels are not converted to a BufferedImage type: the image is a view of the source array through an interleaved raster with
+ * an sRGB color model. Each thread keeps its own writer, so concurrent tasks encode in parallel without looking up and configuring a
+ * writer per image. The file is written to the thread's {@link OutputBuffer} and copied out once.
+ */
+public final class JpegEncoder {
+
+	/**
+	 * The quality used when none is given.
+	 */
+	public static final int DEFAULT_QUALITY = 90;
+
+	private static final int BYTES_PER_PIXEL = Resampler.BYTES_PER_PIXEL;
+	private static final ColorModel COLOR_MODEL = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+	private static final ThreadLocal<ImageWriter> WRITERS = ThreadLocal.withInitial(() -> ImageIO.getImageWritersByFormatName("jpeg").next());
+
+	private JpegEncoder() {
+	}
+
+	/**
+	 * Encodes an image as a JPEG.
+	 * @param source the packed RGB image, read from its current position
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param quality the quality, 0-100, or -1 for {@link #DEFAULT_QUALITY}
+	 * @return the JPEG file
+	 * @throws IllegalArgumentException if a dimension is not positive, the data is too short or the quality is out of range
+	 * @throws IOException if the writer fails
+	 */
+	public static byte[] encode(ByteBuffer source, int width, int height, int quality) throws IOException {
+		if(width <= 0 || height <= 0 || (long) width * height * BYTES_PER_PIXEL > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+		if(quality == -1) quality = DEFAULT_QUALITY;
+		if(quality < 0 || quality > 100) throw new IllegalArgumentException("Invalid JPEG quality: " + quality);
+		int length = width * height * BYTES_PER_PIXEL;
+		if(length > source.remaining()) throw new IllegalArgumentException("Image data is shorter than " + width + "x" + height + " pixels");
+		BufferPool.Lease<byte[]> copy = null;
+		try {
+			byte[] pixels;
+			int offset;
+			if(source.hasArray()) {
+				pixels = source.array();
+				offset = source.arrayOffset() + source.position();
+			} else {
+				copy = BufferPool.SHARED.leaseBytes(length);
+				source.get(source.position(), copy.array(), 0, length);
+				pixels = copy.array();
+				offset = 0;
+			}
+			// The writer reads the backing array directly, so the offset goes into the band offsets rather than the data buffer
+			WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(pixels, pixels.length), width, height, width * BYTES_PER_PIXEL, BYTES_PER_PIXEL, new int[] {offset, offset + 1, offset + 2}, null);
+			BufferedImage image = new BufferedImage(COLOR_MODEL, raster, false, null);
+			ImageWriter writer = WRITERS.get();
+			ImageWriteParam parameters = writer.getDefaultWriteParam();
+			parameters.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			parameters.setCompressionQuality(quality / 100.0f);
+			OutputBuffer output = OutputBuffer.acquire();
+			try(ImageOutputStream stream = new MemoryCacheImageOutputStream(output)) {
+				writer.setOutput(stream);
+				writer.write(null, new IIOImage(image, null, null), parameters);
+			} finally {
+				writer.reset();
+			}
+			return output.toByteArray();
+		} finally {
+			if(copy != null) copy.release();
+		}
+	}
+}
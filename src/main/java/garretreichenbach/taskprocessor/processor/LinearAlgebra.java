@@ -0,0 +1,211 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * Dense linear algebra over flat row-major double[] matrices: matrix products, matrix-vector products and elementwise arithmetic.
+ * <br/>Matrix products are cache-blocked. The product is split into tiles of {@value #ROW_BLOCK} rows by {@value #COLUMN_BLOCK}
+ * columns, and each tile is accumulated over blocks of {@value #DEPTH_BLOCK} columns of the left matrix. The matching block of the right
+ * matrix is first copied into a per-thread buffer with a row stride that is not a power of two, so it stays in the L2 cache (512 KiB)
+ * without cache set conflicts while the rows of the tile stream past it. Large products are computed in parallel on the pool by a fork-join
+ * task that halves the range of tiles until one is left; tiles never share output, so no synchronization is needed. Small products are
+ * computed tile by tile on the calling thread.
+ * <br/>Matrix-vector products and elementwise operations are memory bound and are only split into large chunks on a parallel stream.
+ * The inner loops are the {@link MatrixKernels}.
+ */
+public final class LinearAlgebra {
+
+	/**
+	 * The instance used by tasks, on the common pool with the kernels selected for this JVM.
+	 */
+	public static final LinearAlgebra DEFAULT = new LinearAlgebra(MatrixKernels.get(), ForkJoinPool.commonPool());
+
+	private static final int ROW_BLOCK = 64;
+	private static final int DEPTH_BLOCK = 256;
+	private static final int COLUMN_BLOCK = 256;
+	/**
+	 * The row stride of packed blocks of the right matrix. It is not a power of two, so consecutive rows fall into different cache sets.
+	 */
+	private static final int PACKED_STRIDE = COLUMN_BLOCK + 8;
+	private static final ThreadLocal<double[]> PACKED_BLOCKS = ThreadLocal.withInitial(() -> new double[DEPTH_BLOCK * PACKED_STRIDE]);
+	private static final long MIN_PARALLEL_MULTIPLY_ADDS = 1L << 20;
+	private static final int MIN_CHUNK_VALUES = 256 * 1024;
+
+	private final MatrixKernels kernels;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates an instance.
+	 * @param kernels the inner loops to use
+	 * @param pool the pool matrix products run on
+	 */
+	public LinearAlgebra(MatrixKernels kernels, ForkJoinPool pool) {
+		this.kernels = kernels;
+		this.pool = pool;
+	}
+
+	/**
+	 * Multiplies two matrices.
+	 * @param a the left matrix, rows x depth
+	 * @param b the right matrix, depth x columns
+	 * @param rows the number of rows of a
+	 * @param depth the number of columns of a and rows of b
+	 * @param columns the number of columns of b
+	 * @return the product, rows x columns
+	 * @throws IllegalArgumentException if a dimension is not positive or a matrix is shorter than its dimensions
+	 */
+	public double[] multiply(double[] a, double[] b, int rows, int depth, int columns) {
+		checkShape("a", a, rows, depth);
+		checkShape("b", b, depth, columns);
+		double[] c = new double[checkShape("The product", null, rows, columns)];
+		if((long) rows * depth * columns >= MIN_PARALLEL_MULTIPLY_ADDS) {
+			pool.invoke(new MultiplyTask(a, b, c, depth, columns, 0, rows, 0, columns));
+			return c;
+		}
+		for(int row = 0; row < rows; row += ROW_BLOCK) {
+			for(int column = 0; column < columns; column += COLUMN_BLOCK) {
+				multiplyTile(a, b, c, depth, columns, row, Math.min(rows, row + ROW_BLOCK), column, Math.min(columns, column + COLUMN_BLOCK));
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Multiplies a matrix by a column vector.
+	 * @param a the matrix, rows x columns
+	 * @param x the vector, with columns values
+	 * @param rows the number of rows of a
+	 * @param columns the number of columns of a
+	 * @return the product, with rows values
+	 * @throws IllegalArgumentException if a dimension is not positive or an input is shorter than its dimensions
+	 */
+	public double[] multiplyVector(double[] a, double[] x, int rows, int columns) {
+		checkShape("a", a, rows, columns);
+		checkShape("x", x, columns, 1);
+		double[] y = new double[rows];
+		parallelChunks(rows, Math.max(1, MIN_CHUNK_VALUES / columns), (from, to) -> {
+			for(int row = from; row < to; row++) y[row] = kernels.dot(a, row * columns, x, 0, columns);
+		});
+		return y;
+	}
+
+	/**
+	 * Adds two arrays elementwise.
+	 * @throws IllegalArgumentException if b is shorter than a
+	 */
+	public double[] add(double[] a, double[] b) {
+		double[] target = new double[checkLength(a, b)];
+		parallelChunks(target.length, MIN_CHUNK_VALUES, (from, to) -> kernels.add(a, b, target, from, to));
+		return target;
+	}
+
+	/**
+	 * Subtracts b from a elementwise.
+	 * @throws IllegalArgumentException if b is shorter than a
+	 */
+	public double[] subtract(double[] a, double[] b) {
+		double[] target = new double[checkLength(a, b)];
+		parallelChunks(target.length, MIN_CHUNK_VALUES, (from, to) -> kernels.subtract(a, b, target, from, to));
+		return target;
+	}
+
+	/**
+	 * Multiplies two arrays elementwise (the Hadamard product of two matrices).
+	 * @throws IllegalArgumentException if b is shorter than a
+	 */
+	public double[] multiplyElementwise(double[] a, double[] b) {
+		double[] target = new double[checkLength(a, b)];
+		parallelChunks(target.length, MIN_CHUNK_VALUES, (from, to) -> kernels.multiply(a, b, target, from, to));
+		return target;
+	}
+
+	/**
+	 * Multiplies every value of an array by a scalar.
+	 */
+	public double[] scale(double[] a, double scalar) {
+		double[] target = new double[a.length];
+		parallelChunks(target.length, MIN_CHUNK_VALUES, (from, to) -> kernels.scale(a, scalar, target, from, to));
+		return target;
+	}
+
+	/**
+	 * Computes one tile of a product, of at most {@value #ROW_BLOCK} rows by {@value #COLUMN_BLOCK} columns, a block of depth at a time.
+	 */
+	private void multiplyTile(double[] a, double[] b, double[] c, int depth, int width, int rowFrom, int rowTo, int columnFrom, int columnTo) {
+		int columns = columnTo - columnFrom;
+		double[] packed = PACKED_BLOCKS.get();
+		for(int p = 0; p < depth; p += DEPTH_BLOCK) {
+			int blockDepth = Math.min(DEPTH_BLOCK, depth - p);
+			for(int row = 0; row < blockDepth; row++) System.arraycopy(b, (p + row) * width + columnFrom, packed, row * PACKED_STRIDE, columns);
+			kernels.multiplyAdd(a, rowFrom * depth + p, depth, packed, 0, PACKED_STRIDE, c, rowFrom * width + columnFrom, width, rowTo - rowFrom, blockDepth, columns);
+		}
+	}
+
+	private static int checkShape(String name, double[] matrix, int rows, int columns) {
+		if(rows <= 0 || columns <= 0 || (long) rows * columns > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Invalid matrix size " + rows + "x" + columns);
+		if(matrix != null && matrix.length < rows * columns) throw new IllegalArgumentException(name + " has " + matrix.length + " values, expected " + rows + "x" + columns);
+		return rows * columns;
+	}
+
+	private static int checkLength(double[] a, double[] b) {
+		if(b.length < a.length) throw new IllegalArgumentException("Got " + b.length + " values for " + a.length + " values");
+		return a.length;
+	}
+
+	/**
+	 * Splits the range 0 to size into chunks of at least minChunk and runs them on a parallel stream.
+	 */
+	private static void parallelChunks(int size, int minChunk, Chunk chunk) {
+		int chunks = (int) Math.clamp(size / minChunk, 1, 4L * ForkJoinPool.getCommonPoolParallelism());
+		if(chunks == 1) chunk.process(0, size);
+		else IntStream.range(0, chunks).parallel().forEach(index -> chunk.process((int) ((long) size * index / chunks), (int) ((long) size * (index + 1) / chunks)));
+	}
+
+	@FunctionalInterface
+	private interface Chunk {
+		void process(int from, int to);
+	}
+
+	/**
+	 * Computes a range of tiles of a product, halving it along its longer side until a single tile is left.
+	 */
+	private final class MultiplyTask extends RecursiveAction {
+
+		private final double[] a;
+		private final double[] b;
+		private final double[] c;
+		private final int depth;
+		private final int width;
+		private final int rowFrom;
+		private final int rowTo;
+		private final int columnFrom;
+		private final int columnTo;
+
+		private MultiplyTask(double[] a, double[] b, double[] c, int depth, int width, int rowFrom, int rowTo, int columnFrom, int columnTo) {
+			this.a = a;
+			this.b = b;
+			this.c = c;
+			this.depth = depth;
+			this.width = width;
+			this.rowFrom = rowFrom;
+			this.rowTo = rowTo;
+			this.columnFrom = columnFrom;
+			this.columnTo = columnTo;
+		}
+
+		@Override
+		protected void compute() {
+			int rowBlocks = (rowTo - rowFrom + ROW_BLOCK - 1) / ROW_BLOCK;
+			int columnBlocks = (columnTo - columnFrom + COLUMN_BLOCK - 1) / COLUMN_BLOCK;
+			if(rowBlocks > 1 && rowBlocks * ROW_BLOCK >= columnBlocks * COLUMN_BLOCK) {
+				int split = rowFrom + rowBlocks / 2 * ROW_BLOCK;
+				invokeAll(new MultiplyTask(a, b, c, depth, width, rowFrom, split, columnFrom, columnTo), new MultiplyTask(a, b, c, depth, width, split, rowTo, columnFrom, columnTo));
+			} else if(columnBlocks > 1) {
+				int split = columnFrom + columnBlocks / 2 * COLUMN_BLOCK;
+				invokeAll(new MultiplyTask(a, b, c, depth, width, rowFrom, rowTo, columnFrom, split), new MultiplyTask(a, b, c, depth, width, rowFrom, rowTo, split, columnTo));
+			} else multiplyTile(a, b, c, depth, width, rowFrom, rowTo, columnFrom, columnTo);
+		}
+	}
+}
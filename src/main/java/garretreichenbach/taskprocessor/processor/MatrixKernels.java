@@ -0,0 +1,113 @@
+package garretreichenbach.taskprocessor.processor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The inner loops of {@link LinearAlgebra} over flat row-major double[] matrices: a block of a matrix product, dot products and
+ * elementwise arithmetic.
+ * <br/>Two implementations exist. The SIMD one is built on the incubating Vector API and is selected at startup when the
+ * jdk.incubator.vector module is present (--add-modules jdk.incubator.vector) and the CPU has vectors of at least 256 bits.
+ * Otherwise, or when the system property {@value #IMPLEMENTATION_PROPERTY} is "scalar", plain loops are used. The SIMD kernels fuse
+ * multiplies and adds and sum in a different order, so results may differ from the plain loops in the last bits.
+ */
+@Slf4j
+public abstract class MatrixKernels {
+
+	/**
+	 * The system property that forces an implementation ("scalar" or "vector").
+	 */
+	public static final String IMPLEMENTATION_PROPERTY = "taskprocessor.matrixKernels";
+
+	private static final MatrixKernels INSTANCE = select();
+
+	/**
+	 * Returns the implementation selected for this JVM.
+	 */
+	public static MatrixKernels get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns a new instance of a specific implementation, e.g. to compare them.
+	 * @param name "scalar" or "vector"
+	 * @return the implementation
+	 * @throws IllegalArgumentException if the name is unknown
+	 * @throws LinkageError if the vector implementation is requested and the Vector API is not available
+	 */
+	public static MatrixKernels forName(String name) {
+		return switch(name.toLowerCase()) {
+			case "scalar" -> new ScalarMatrixKernels();
+			case "vector" -> new VectorMatrixKernels();
+			default -> throw new IllegalArgumentException("Unknown matrix kernels: " + name);
+		};
+	}
+
+	private static MatrixKernels select() {
+		String implementation = System.getProperty(IMPLEMENTATION_PROPERTY, "");
+		if(!implementation.equalsIgnoreCase("scalar")) {
+			try {
+				if(implementation.equalsIgnoreCase("vector") || VectorMatrixKernels.isSupported()) {
+					log.info("Using SIMD matrix kernels");
+					return forName("vector");
+				}
+			} catch(LinkageError error) {
+				log.info("Vector API is not available ({}), using scalar matrix kernels", error.toString());
+			}
+		}
+		log.info("Using scalar matrix kernels");
+		return forName("scalar");
+	}
+
+	/**
+	 * Returns the name of the implementation ("scalar" or "vector").
+	 */
+	public abstract String getName();
+
+	/**
+	 * Adds the product of two blocks to a third: c[i][j] += a[i][p] * b[p][j] for i &lt; rows, p &lt; depth and j &lt; columns, where
+	 * element [i][j] of a block is at offset + i * stride + j in its array.
+	 * @param a the array holding the left block, rows x depth
+	 * @param aOffset the index of the first value of the left block
+	 * @param aStride the distance between rows of the left block
+	 * @param b the array holding the right block, depth x columns
+	 * @param bOffset the index of the first value of the right block
+	 * @param bStride the distance between rows of the right block
+	 * @param c the array holding the product block, rows x columns
+	 * @param cOffset the index of the first value of the product block
+	 * @param cStride the distance between rows of the product block
+	 * @param rows the number of rows of a and c
+	 * @param depth the number of columns of a and rows of b
+	 * @param columns the number of columns of b and c
+	 */
+	public abstract void multiplyAdd(double[] a, int aOffset, int aStride, double[] b, int bOffset, int bStride, double[] c, int cOffset, int cStride, int rows, int depth, int columns);
+
+	/**
+	 * Returns the dot product of two runs of values.
+	 * @param a the first values
+	 * @param aOffset the index of the first value in a
+	 * @param b the second values
+	 * @param bOffset the index of the first value in b
+	 * @param length the number of values
+	 */
+	public abstract double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+	/**
+	 * Computes target[i] = a[i] + b[i] for from &lt;= i &lt; to.
+	 */
+	public abstract void add(double[] a, double[] b, double[] target, int from, int to);
+
+	/**
+	 * Computes target[i] = a[i] - b[i] for from &lt;= i &lt; to.
+	 */
+	public abstract void subtract(double[] a, double[] b, double[] target, int from, int to);
+
+	/**
+	 * Computes target[i] = a[i] * b[i] for from &lt;= i &lt; to.
+	 */
+	public abstract void multiply(double[] a, double[] b, double[] target, int from, int to);
+
+	/**
+	 * Computes target[i] = a[i] * scalar for from &lt;= i &lt; to.
+	 */
+	public abstract void scale(double[] a, double scalar, double[] target, int from, int to);
+}
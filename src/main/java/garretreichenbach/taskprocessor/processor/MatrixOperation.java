@@ -0,0 +1,31 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * The operations of MATHEMATICAL_COMPUTATION tasks, all implemented by {@link LinearAlgebra}.
+ */
+public enum MatrixOperation {
+	/**
+	 * The matrix product of a (rows x columns) and b (columns x b.length / columns).
+	 */
+	MULTIPLY,
+	/**
+	 * The product of a (rows x columns) and the column vector b (columns values).
+	 */
+	MULTIPLY_VECTOR,
+	/**
+	 * a + b, elementwise.
+	 */
+	ADD,
+	/**
+	 * a - b, elementwise.
+	 */
+	SUBTRACT,
+	/**
+	 * a * b, elementwise (the Hadamard product).
+	 */
+	MULTIPLY_ELEMENTWISE,
+	/**
+	 * a * scalar.
+	 */
+	SCALE
+}
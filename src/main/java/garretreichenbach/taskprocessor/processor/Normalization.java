@@ -0,0 +1,56 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * How DATA_CLEANING tasks rescale numeric columns. Missing values (NaN) are skipped and stay missing.
+ */
+public enum Normalization {
+	/**
+	 * Keeps the values as they are.
+	 */
+	NONE {
+		@Override
+		public void apply(double[] values) {
+		}
+	},
+	/**
+	 * Maps the values linearly onto 0-1, the minimum to 0 and the maximum to 1. A constant column becomes all 0.
+	 */
+	MIN_MAX {
+		@Override
+		public void apply(double[] values) {
+			double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+			for(double value : values) {
+				if(value < min) min = value;
+				if(value > max) max = value;
+			}
+			double scale = max > min ? 1.0 / (max - min) : 0.0;
+			for(int i = 0; i < values.length; i++) values[i] = (values[i] - min) * scale;
+		}
+	},
+	/**
+	 * Subtracts the mean and divides by the population standard deviation. A constant column becomes all 0.
+	 */
+	Z_SCORE {
+		@Override
+		public void apply(double[] values) {
+			double sum = 0.0;
+			int count = 0;
+			for(double value : values) {
+				if(Double.isNaN(value)) continue;
+				sum += value;
+				count++;
+			}
+			double mean = sum / count, squares = 0.0;
+			for(double value : values) if(!Double.isNaN(value)) squares += (value - mean) * (value - mean);
+			double deviation = Math.sqrt(squares / count);
+			double scale = deviation > 0.0 ? 1.0 / deviation : 0.0;
+			for(int i = 0; i < values.length; i++) values[i] = (values[i] - mean) * scale;
+		}
+	};
+
+	/**
+	 * Rescales a column in place.
+	 * @param values the column
+	 */
+	public abstract void apply(double[] values);
+}
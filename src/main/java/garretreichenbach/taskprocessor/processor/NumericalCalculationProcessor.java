@@ -1,9 +1,73 @@
 package garretreichenbach.taskprocessor.processor;
 
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.parameters.MathematicalComputationParameters;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+
 /**
- * [Description]
+ * Processes MATHEMATICAL_COMPUTATION tasks: dense matrix products, matrix-vector products and elementwise arithmetic over flat
+ * row-major double[] matrices, computed by {@link LinearAlgebra#DEFAULT}.
  *
  * @author TheDerpGamer
  */
-public class NumericalCalculationProcessor {
+@Slf4j
+public class NumericalCalculationProcessor implements TaskProcessor {
+
+	@Override
+	public TaskResult process(Task task) {
+		try {
+			MathematicalComputationParameters parameters = task.getParameters(MathematicalComputationParameters.class);
+			return TaskResult.success(task.getId(), compute(parameters));
+		} catch(Exception exception) {
+			log.error(exception.getMessage(), exception);
+			return TaskResult.error(task.getId(), exception);
+		}
+	}
+
+	/**
+	 * Applies the operation of a task.
+	 * @param parameters The parameters of the task.
+	 * @return A map containing "result", the result as a flat row-major matrix, and its "rows" and "columns".
+	 * @throws IllegalArgumentException If an operand is missing or does not match the shape of a.
+	 */
+	public Map<String, Object> compute(MathematicalComputationParameters parameters) {
+		LinearAlgebra algebra = LinearAlgebra.DEFAULT;
+		double[] a = parameters.a();
+		int rows = parameters.rows();
+		int columns = parameters.columns();
+		if(rows <= 0 || columns <= 0 || (long) rows * columns != a.length) throw new IllegalArgumentException("Got " + a.length + " values for a " + rows + "x" + columns + " matrix");
+		double[] b = parameters.b();
+		if(b == null && parameters.operation() != MatrixOperation.SCALE) throw new IllegalArgumentException("Missing parameter: b");
+		int resultColumns = columns;
+		double[] result = switch(parameters.operation()) {
+			case MULTIPLY -> {
+				if(b.length % columns != 0 || b.length == 0) throw new IllegalArgumentException("Got " + b.length + " values for b, which has " + columns + " rows");
+				resultColumns = b.length / columns;
+				yield algebra.multiply(a, b, rows, columns, resultColumns);
+			}
+			case MULTIPLY_VECTOR -> {
+				if(b.length != columns) throw new IllegalArgumentException("Got " + b.length + " values for a vector of " + columns);
+				resultColumns = 1;
+				yield algebra.multiplyVector(a, b, rows, columns);
+			}
+			case ADD -> algebra.add(a, requireSameLength(a, b));
+			case SUBTRACT -> algebra.subtract(a, requireSameLength(a, b));
+			case MULTIPLY_ELEMENTWISE -> algebra.multiplyElementwise(a, requireSameLength(a, b));
+			case SCALE -> algebra.scale(a, parameters.scalar());
+		};
+		Map<String, Object> outputs = new HashMap<>();
+		outputs.put("result", result);
+		outputs.put("rows", rows);
+		outputs.put("columns", resultColumns);
+		return outputs;
+	}
+
+	private static double[] requireSameLength(double[] a, double[] b) {
+		if(b.length != a.length) throw new IllegalArgumentException("Got " + b.length + " values for b, expected " + a.length);
+		return b;
+	}
 }
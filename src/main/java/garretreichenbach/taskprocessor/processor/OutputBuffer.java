@@ -0,0 +1,95 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A growable, unsynchronized byte buffer that is reused by the thread that owns it.
+ * <br/>Compression writes into this buffer and copies out exactly the bytes produced, so the only allocation per task is the result itself.
+ * Buffers that grew past {@link #MAX_RETAINED_SIZE} are dropped on {@link #acquire()} instead of being kept alive by an idle thread.
+ */
+public final class OutputBuffer extends OutputStream {
+
+	/**
+	 * The largest buffer a thread keeps between uses.
+	 */
+	public static final int MAX_RETAINED_SIZE = 16 * 1024 * 1024;
+
+	private static final int INITIAL_SIZE = 64 * 1024;
+	private static final ThreadLocal<OutputBuffer> BUFFERS = ThreadLocal.withInitial(OutputBuffer::new);
+
+	private byte[] data = new byte[INITIAL_SIZE];
+	private int size;
+
+	private OutputBuffer() {
+	}
+
+	/**
+	 * Returns the calling thread's buffer, emptied.
+	 * The buffer must not be used after the thread acquires it again.
+	 */
+	public static OutputBuffer acquire() {
+		OutputBuffer buffer = BUFFERS.get();
+		if(buffer.data.length > MAX_RETAINED_SIZE) buffer.data = new byte[INITIAL_SIZE];
+		buffer.size = 0;
+		return buffer;
+	}
+
+	/**
+	 * Makes room for at least the given number of bytes after the current size, and returns the backing array to write into.
+	 * @param length the number of bytes about to be written
+	 * @return the backing array
+	 */
+	public byte[] reserve(int length) {
+		int required = size + length;
+		if(required < 0) throw new OutOfMemoryError("Output exceeds the maximum array size");
+		if(required > data.length) data = Arrays.copyOf(data, (int) Math.min(Math.max((long) data.length * 2, required), Integer.MAX_VALUE - 8));
+		return data;
+	}
+
+	/**
+	 * Records that bytes were written directly into the array returned by {@link #reserve(int)}.
+	 * @param length the number of bytes written
+	 */
+	public void advance(int length) {
+		size += length;
+	}
+
+	/**
+	 * Returns the number of free bytes in the backing array after the current size.
+	 */
+	public int available() {
+		return data.length - size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the backing array. Only the first {@link #size()} bytes are valid.
+	 */
+	public byte[] array() {
+		return data;
+	}
+
+	@Override
+	public void write(int b) {
+		reserve(1);
+		data[size++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		reserve(len);
+		System.arraycopy(b, off, data, size, len);
+		size += len;
+	}
+
+	/**
+	 * Copies the bytes written so far into an array of exactly that length.
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(data, size);
+	}
+}
@@ -0,0 +1,133 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.util.Arrays;
+
+/**
+ * A finite impulse response filter that convolves a stream with FFTs by the overlap-add method.
+ * <br/>The stream is cut into blocks of size - taps + 1 samples, each zero-padded to the FFT size, multiplied by the transform of the
+ * taps and transformed back; the taps - 1 samples each block spills past its end are added to the following blocks. Blocks are
+ * transformed two at a time, as the real and imaginary parts of one complex signal, which works because the taps are real. The FFT size
+ * is the power of two at least 4 times the number of taps, so a sample costs O(log taps) instead of O(taps).
+ * <br/>Linear-phase filters delay the signal by (taps - 1) / 2 samples. With delay compensation that many leading output samples are
+ * dropped and {@link #flush} convolves as many zeros to emit the end of the signal, so the output lines up with the input and has the
+ * same length.
+ */
+public final class OverlapAddFilter implements SampleStream {
+
+	private final Fft fft;
+	private final int size;
+	private final int blockSize;
+	private final int delay;
+	private final float[] responseReal;
+	private final float[] responseImaginary;
+	private final float[] real;
+	private final float[] imaginary;
+	private final float[] pending;
+	private int skip;
+
+	/**
+	 * Creates a filter.
+	 * @param taps the impulse response, at most 2^20 long
+	 * @param compensateDelay whether to remove the delay of a linear-phase filter, (taps - 1) / 2 samples
+	 */
+	public OverlapAddFilter(float[] taps, boolean compensateDelay) {
+		if(taps.length == 0 || taps.length > 1 << 20) throw new IllegalArgumentException("Invalid number of taps: " + taps.length);
+		size = Math.max(64, Integer.highestOneBit(taps.length * 4 - 1) << 1);
+		fft = Fft.forSize(size);
+		blockSize = size - taps.length + 1;
+		delay = compensateDelay ? (taps.length - 1) / 2 : 0;
+		skip = delay;
+		responseReal = Arrays.copyOf(taps, size);
+		responseImaginary = new float[size];
+		fft.forward(responseReal, responseImaginary);
+		real = new float[size];
+		imaginary = new float[size];
+		pending = new float[2 * size];
+	}
+
+	/**
+	 * Designs a linear-phase low-pass or high-pass filter as a Blackman-windowed sinc, normalized to unit gain in the pass band. The
+	 * high-pass is the spectral inversion of the low-pass, the impulse minus the low-pass taps.
+	 * @param taps the number of taps, odd; the transition band is about 5.5 / taps of the sample rate wide
+	 * @param sampleRate the sample rate in Hz
+	 * @param cutoff the cutoff frequency in Hz, below half the sample rate
+	 * @param highPass whether to design a high-pass instead of a low-pass filter
+	 * @return the taps
+	 */
+	public static float[] windowedSinc(int taps, int sampleRate, double cutoff, boolean highPass) {
+		if(taps <= 0 || taps % 2 == 0 || taps > 1 << 20) throw new IllegalArgumentException("The number of taps must be odd: " + taps);
+		if(!(cutoff > 0 && cutoff < sampleRate / 2.0)) throw new IllegalArgumentException("Cutoff must be between 0 and " + sampleRate / 2.0 + " Hz: " + cutoff);
+		double frequency = cutoff / sampleRate;
+		int middle = taps / 2;
+		double[] response = new double[taps];
+		double sum = 0.0;
+		for(int n = 0; n < taps; n++) {
+			int offset = n - middle;
+			double sinc = offset == 0 ? 2 * frequency : Math.sin(2 * Math.PI * frequency * offset) / (Math.PI * offset);
+			double window = taps == 1 ? 1.0 : 0.42 - 0.5 * Math.cos(2 * Math.PI * n / (taps - 1)) + 0.08 * Math.cos(4 * Math.PI * n / (taps - 1));
+			response[n] = sinc * window;
+			sum += response[n];
+		}
+		float[] result = new float[taps];
+		for(int n = 0; n < taps; n++) result[n] = (float) ((highPass ? -response[n] : response[n]) / sum);
+		if(highPass) result[middle] += 1.0f;
+		return result;
+	}
+
+	/**
+	 * Filters the next chunk of the stream in place. Without delay compensation every sample is replaced by its filtered value.
+	 * @param samples the samples
+	 * @param from the first sample
+	 * @param to the sample after the last
+	 */
+	public void filter(float[] samples, int from, int to) {
+		for(int position = from; position < to; ) {
+			int first = Math.min(blockSize, to - position);
+			int second = Math.min(blockSize, to - position - first);
+			System.arraycopy(samples, position, real, 0, first);
+			Arrays.fill(real, first, size, 0.0f);
+			System.arraycopy(samples, position + first, imaginary, 0, second);
+			Arrays.fill(imaginary, second, size, 0.0f);
+			fft.forward(real, imaginary);
+			for(int k = 0; k < size; k++) {
+				float re = real[k] * responseReal[k] - imaginary[k] * responseImaginary[k];
+				imaginary[k] = real[k] * responseImaginary[k] + imaginary[k] * responseReal[k];
+				real[k] = re;
+			}
+			fft.inverse(real, imaginary);
+			// The first block's output starts at the position, the second's right after the first block
+			for(int k = 0; k < size; k++) {
+				pending[k] += real[k];
+				pending[first + k] += imaginary[k];
+			}
+			int done = first + second;
+			System.arraycopy(pending, 0, samples, position, done);
+			System.arraycopy(pending, done, pending, 0, pending.length - done);
+			Arrays.fill(pending, pending.length - done, pending.length, 0.0f);
+			position += done;
+		}
+	}
+
+	@Override
+	public int process(float[] input, int length, float[] output) {
+		System.arraycopy(input, 0, output, 0, length);
+		filter(output, 0, length);
+		int dropped = Math.min(skip, length);
+		skip -= dropped;
+		System.arraycopy(output, dropped, output, 0, length - dropped);
+		return length - dropped;
+	}
+
+	@Override
+	public int flush(float[] output) {
+		if(delay == 0) return 0;
+		// Convolving delay zeros releases the last delay samples of the signal, less any still to be dropped if it was that short
+		Arrays.fill(output, 0, delay, 0.0f);
+		return process(output, delay, output);
+	}
+
+	@Override
+	public int maxOutput(int length) {
+		return Math.max(length, delay);
+	}
+}
@@ -0,0 +1,168 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.util.Arrays;
+
+/**
+ * Interns pairs of non-negative ints into dense int ids in the order they are first seen, and counts them. An n-gram is interned as the
+ * pair of the id of its first n - 1 tokens and the id of its last token, so n-grams of any length are counted with one lookup per token and
+ * length.
+ * <br/>Each pair is packed into a long key, and an open-addressing table with linear probing holds the key of each pair next to its id and
+ * count, so counting a pair touches a single slot; -1 marks an empty slot, since no packed key is negative.
+ */
+final class PairDictionary {
+
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+	private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+	/**
+	 * The number of pairs whose slots are loaded together.
+	 */
+	static final int BATCH = 64;
+
+	private long[] pairs;
+	private long[] table;
+	private int size;
+	private int shift;
+	private long sink;
+
+	/**
+	 * Creates an empty dictionary.
+	 * @param capacity the number of pairs expected
+	 */
+	PairDictionary(int capacity) {
+		capacity = Math.max(16, capacity);
+		pairs = new long[capacity];
+		allocate(Integer.highestOneBit(capacity) << 2);
+	}
+
+	/**
+	 * Returns the id of a pair, adding it if it is new.
+	 */
+	int intern(int first, int second) {
+		return add(first, second, 0);
+	}
+
+	/**
+	 * Counts occurrences of a pair, adding it if it is new.
+	 * @return the id of the pair
+	 */
+	int add(int first, int second, long occurrences) {
+		long key = (long) first << 32 | second;
+		int mask = (table.length >> 1) - 1;
+		for(int slot = (int) ((key * HASH_MULTIPLIER) >>> shift); ; slot = (slot + 1) & mask) {
+			long stored = table[2 * slot];
+			if(stored == key) {
+				table[2 * slot + 1] += occurrences;
+				return (int) (table[2 * slot + 1] >>> 32);
+			}
+			if(stored < 0) {
+				if(size == pairs.length) pairs = Arrays.copyOf(pairs, size + (size >> 1));
+				pairs[size] = key;
+				table[2 * slot] = key;
+				table[2 * slot + 1] = (long) size << 32 | occurrences;
+				if(++size * 2 > mask) allocate(table.length);
+				return size - 1;
+			}
+		}
+	}
+
+	/**
+	 * Counts one occurrence of each of a batch of packed pairs. The slots of the whole batch are loaded before any is probed, so their cache
+	 * misses overlap instead of each waiting for the last, which the long tokenizing between two n-grams would otherwise prevent.
+	 * @param keys the pairs, each first << 32 | second
+	 * @param count the number of pairs
+	 */
+	void addAll(long[] keys, int count) {
+		touch(keys, count);
+		for(int i = 0; i < count; i++) add((int) (keys[i] >>> 32), (int) keys[i], 1);
+	}
+
+	/**
+	 * Counts the pairs of another dictionary, mapping the ids in each pair. The other table is read in order, a batch at a time as in
+	 * {@link #addAll(long[], int)}.
+	 * @param other the dictionary to add
+	 * @param firstIds the id here of each first id there
+	 * @param secondIds the id here of each second id there
+	 * @param mapIds whether to return the ids of the pairs
+	 * @return the id here of each pair there, or null if not requested
+	 */
+	int[] addAll(PairDictionary other, int[] firstIds, int[] secondIds, boolean mapIds) {
+		int[] ids = mapIds ? new int[other.size] : null;
+		long[] keys = new long[BATCH];
+		int[] slots = new int[BATCH];
+		for(int slot = 0; slot < other.table.length; ) {
+			int count = 0;
+			for(; slot < other.table.length && count < BATCH; slot += 2) {
+				long key = other.table[slot];
+				if(key < 0) continue;
+				keys[count] = (long) firstIds[(int) (key >>> 32)] << 32 | secondIds[(int) key];
+				slots[count++] = slot;
+			}
+			touch(keys, count);
+			for(int i = 0; i < count; i++) {
+				long value = other.table[slots[i] + 1];
+				int id = add((int) (keys[i] >>> 32), (int) keys[i], value & COUNT_MASK);
+				if(mapIds) ids[(int) (value >>> 32)] = id;
+			}
+		}
+		return ids;
+	}
+
+	int size() {
+		return size;
+	}
+
+	int first(int id) {
+		return (int) (pairs[id] >>> 32);
+	}
+
+	int second(int id) {
+		return (int) pairs[id];
+	}
+
+	/**
+	 * Loads the slot of each of a batch of pairs, so their cache misses overlap instead of each waiting for the last.
+	 */
+	private void touch(long[] keys, int count) {
+		long touched = 0;
+		for(int i = 0; i < count; i++) touched += table[2 * (int) ((keys[i] * HASH_MULTIPLIER) >>> shift)];
+		sink = touched;
+	}
+
+	/**
+	 * Returns the count of every pair by id.
+	 */
+	long[] counts() {
+		long[] counts = new long[size];
+		for(int slot = 0; slot < table.length; slot += 2) if(table[slot] >= 0) counts[(int) (table[slot + 1] >>> 32)] = table[slot + 1] & COUNT_MASK;
+		return counts;
+	}
+
+	/**
+	 * Returns the total count of all pairs.
+	 */
+	long total() {
+		long total = 0;
+		for(int slot = 0; slot < table.length; slot += 2) if(table[slot] >= 0) total += table[slot + 1] & COUNT_MASK;
+		return total;
+	}
+
+	/**
+	 * Allocates a table of a number of slots, a power of two, and moves every pair into it.
+	 */
+	private void allocate(int slots) {
+		long[] old = table;
+		table = new long[2 * slots];
+		Arrays.fill(table, -1);
+		shift = Long.SIZE - Integer.numberOfTrailingZeros(slots);
+		if(old == null) return;
+		int mask = slots - 1;
+		for(int i = 0; i < old.length; i += 2) {
+			if(old[i] < 0) continue;
+			int slot = (int) ((old[i] * HASH_MULTIPLIER) >>> shift);
+			while(table[2 * slot] >= 0) slot = (slot + 1) & mask;
+			table[2 * slot] = old[i];
+			table[2 * slot + 1] = old[i + 1];
+		}
+	}
+}
@@ -0,0 +1,382 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses large inputs to gzip or zlib by deflating fixed-size blocks concurrently on a {@link ForkJoinPool}, in the manner of pigz.
+ * <br/>Each block is primed with the last 32 KiB of the block before it as a dictionary, so the ratio stays close to a single stream,
+ * and ends with a sync flush so the blocks can be concatenated into one ordinary deflate stream. The checksums of the blocks are
+ * computed alongside them and combined, so no pass over the whole input is needed.
+ * <br/>Every {@link #getSegmentSize()} bytes a block is compressed without a dictionary, starting an independent segment. The compressed
+ * length of each segment is recorded in a gzip extra field (subfield "TP"), which {@link #gunzip} uses to inflate segments in parallel.
+ * Standard decoders ignore the field and read the output as a single gzip member. zlib has no room for the index and is decoded sequentially.
+ */
+public final class ParallelDeflate {
+
+	/**
+	 * The instance used by {@link CompressionCodec}: 128 KiB blocks, 1 MiB segments, on the common pool.
+	 */
+	public static final ParallelDeflate DEFAULT = new ParallelDeflate(ForkJoinPool.commonPool(), 128 * 1024, 1024 * 1024);
+
+	private static final int WINDOW_SIZE = 32 * 1024;
+	private static final int SUBFIELD_ID = 'T' | 'P' << 8;
+	private static final int MAX_EXTRA_LENGTH = 0xFFFF;
+	private static final int ADLER_BASE = 65521;
+
+	/**
+	 * Raw deflaters per level. A level change only reaches zlib on the next deflate call, after the dictionary has been set,
+	 * and zlib then emits distances that reach past the dictionary, so primed blocks need a deflater already at their level.
+	 */
+	private static final ThreadLocal<Deflater[]> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater[Deflater.BEST_COMPRESSION + 1]);
+
+	private final ForkJoinPool pool;
+	private final int blockSize;
+	private final int segmentSize;
+
+	/**
+	 * Creates a parallel compressor.
+	 * @param pool the pool the blocks are compressed on
+	 * @param blockSize the size of the blocks compressed concurrently
+	 * @param segmentSize the size of the independently decodable segments, a multiple of the block size
+	 */
+	public ParallelDeflate(ForkJoinPool pool, int blockSize, int segmentSize) {
+		if(blockSize < WINDOW_SIZE || segmentSize < blockSize || segmentSize % blockSize != 0) throw new IllegalArgumentException("Segment size must be a multiple of a block size of at least " + WINDOW_SIZE);
+		this.pool = pool;
+		this.blockSize = blockSize;
+		this.segmentSize = segmentSize;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Compresses data to a single gzip member with a segment index.
+	 * @param data the data to compress
+	 * @param offset the offset of the first byte
+	 * @param length the number of bytes to compress
+	 * @param level the deflate level, 0-9
+	 * @return the gzip member
+	 */
+	public byte[] gzip(byte[] data, int offset, int length, int level) {
+		Block[] blocks = deflateBlocks(data, offset, length, level, true);
+		int segments = (blocks.length * blockSize + segmentSize - 1) / segmentSize;
+		int extraLength = 4 + 8 + segments * 4;
+		if(extraLength > MAX_EXTRA_LENGTH) throw new IllegalArgumentException("Input has too many segments for the gzip extra field");
+		int headerLength = 10 + 2 + extraLength;
+		byte[] result = new byte[headerLength + compressedLength(blocks) + 8];
+		result[0] = 0x1F;
+		result[1] = (byte) 0x8B;
+		result[2] = Deflater.DEFLATED;
+		result[3] = 4; // FEXTRA
+		result[8] = (byte) (level == 9 ? 2 : level == 1 ? 4 : 0);
+		result[9] = (byte) 0xFF;
+		writeShortLE(result, 10, extraLength);
+		writeShortLE(result, 12, SUBFIELD_ID);
+		writeShortLE(result, 14, extraLength - 4);
+		writeIntLE(result, 16, segmentSize);
+		writeIntLE(result, 20, segments);
+		int position = headerLength;
+		long crc = 0;
+		int blocksPerSegment = segmentSize / blockSize;
+		for(int segment = 0; segment < segments; segment++) {
+			int start = position;
+			for(int i = segment * blocksPerSegment; i < Math.min(blocks.length, (segment + 1) * blocksPerSegment); i++) {
+				System.arraycopy(blocks[i].data, 0, result, position, blocks[i].data.length);
+				position += blocks[i].data.length;
+				crc = crc32Combine(crc, blocks[i].checksum, blocks[i].length);
+			}
+			writeIntLE(result, 24 + segment * 4, position - start);
+		}
+		writeIntLE(result, position, (int) crc);
+		writeIntLE(result, position + 4, length);
+		return result;
+	}
+
+	/**
+	 * Compresses data to a zlib stream.
+	 * @param data the data to compress
+	 * @param offset the offset of the first byte
+	 * @param length the number of bytes to compress
+	 * @param level the deflate level, 0-9
+	 * @return the zlib stream
+	 */
+	public byte[] zlib(byte[] data, int offset, int length, int level) {
+		Block[] blocks = deflateBlocks(data, offset, length, level, false);
+		byte[] result = new byte[2 + compressedLength(blocks) + 4];
+		int header = zlibHeader(level);
+		result[0] = (byte) (header >>> 8);
+		result[1] = (byte) header;
+		int position = 2;
+		long adler = 1;
+		for(Block block : blocks) {
+			System.arraycopy(block.data, 0, result, position, block.data.length);
+			position += block.data.length;
+			adler = adler32Combine(adler, block.checksum, block.length);
+		}
+		for(int i = 0; i < 4; i++) result[position + i] = (byte) (adler >>> (24 - i * 8));
+		return result;
+	}
+
+	/**
+	 * Decompresses a gzip member written by {@link #gzip}, inflating its segments in parallel.
+	 * @param data the gzip member
+	 * @param expectedLength the length of the original data if known, or -1
+	 * @return the original data, or null if the member has no valid segment index and must be decoded sequentially
+	 * @throws IOException if the data is corrupt or does not decompress to the expected length
+	 */
+	public byte[] gunzip(byte[] data, int expectedLength) throws IOException {
+		int[] segmentLengths = readIndex(data);
+		if(segmentLengths == null) return null;
+		int length = readIntLE(data, data.length - 4);
+		if(expectedLength >= 0 && length != expectedLength) throw new IOException("Decompressed " + Integer.toUnsignedLong(length) + " bytes, expected " + expectedLength);
+		if(length < 0 || !indexMatches(data, segmentLengths, length)) return null;
+		byte[] result = new byte[length];
+		inflateSegments(data, segmentLengths, result, length);
+		return result;
+	}
+
+	/**
+	 * Decompresses a gzip member written by {@link #gzip} into the start of an existing array, inflating its segments in parallel.
+	 * @param data the gzip member
+	 * @param target the array to decompress into
+	 * @param length the length of the original data
+	 * @return whether the member was decompressed, false if it has no valid segment index and must be decoded sequentially
+	 * @throws IOException if the data is corrupt or does not decompress to the expected length
+	 */
+	public boolean gunzip(byte[] data, byte[] target, int length) throws IOException {
+		int[] segmentLengths = readIndex(data);
+		if(segmentLengths == null) return false;
+		int actualLength = readIntLE(data, data.length - 4);
+		if(actualLength != length) throw new IOException("Decompressed " + Integer.toUnsignedLong(actualLength) + " bytes, expected " + length);
+		if(!indexMatches(data, segmentLengths, length)) return false;
+		inflateSegments(data, segmentLengths, target, length);
+		return true;
+	}
+
+	private static boolean indexMatches(byte[] data, int[] segmentLengths, int length) {
+		int indexedSegmentSize = readIntLE(data, 16);
+		return segmentLengths.length == Math.max(1, (length + (long) indexedSegmentSize - 1) / indexedSegmentSize);
+	}
+
+	private void inflateSegments(byte[] data, int[] segmentLengths, byte[] result, int length) throws IOException {
+		int indexedSegmentSize = readIntLE(data, 16);
+		List<ForkJoinTask<Long>> tasks = new ArrayList<>(segmentLengths.length);
+		int position = CompressionCodec.skipGzipHeader(data);
+		for(int segment = 0; segment < segmentLengths.length; segment++) {
+			int inputOffset = position, inputLength = segmentLengths[segment];
+			int outputOffset = segment * indexedSegmentSize, outputLength = Math.min(indexedSegmentSize, length - outputOffset);
+			tasks.add(pool.submit((Callable<Long>) () -> {
+				CompressionCodec.inflate(CompressionCodec.RAW_INFLATERS.get(), data, inputOffset, inputLength, result, outputOffset, outputLength);
+				CRC32 crc = new CRC32();
+				crc.update(result, outputOffset, outputLength);
+				return crc.getValue();
+			}));
+			position += inputLength;
+		}
+		long crc = 0;
+		for(int segment = 0; segment < tasks.size(); segment++) crc = crc32Combine(crc, await(tasks.get(segment)), Math.min(indexedSegmentSize, length - segment * indexedSegmentSize));
+		if((int) crc != readIntLE(data, data.length - 8)) throw new IOException("gzip CRC mismatch");
+	}
+
+	/**
+	 * Reads the compressed segment lengths from the extra field of a gzip member.
+	 * @return the lengths, or null if there is no index or it does not match the size of the member
+	 */
+	private static int[] readIndex(byte[] data) throws IOException {
+		int deflateStart = CompressionCodec.skipGzipHeader(data);
+		if((data[3] & 4) == 0) return null;
+		int extraEnd = 12 + CompressionCodec.readShortLE(data, 10);
+		for(int position = 12; position + 4 <= extraEnd; ) {
+			int id = CompressionCodec.readShortLE(data, position);
+			int subfieldLength = CompressionCodec.readShortLE(data, position + 2);
+			if(id == SUBFIELD_ID && subfieldLength >= 8 && position + 4 + subfieldLength <= extraEnd) {
+				int segments = readIntLE(data, position + 8);
+				if(segments <= 0 || subfieldLength != 8 + segments * 4 || readIntLE(data, position + 4) <= 0) return null;
+				int[] lengths = new int[segments];
+				long total = 0;
+				for(int i = 0; i < segments; i++) {
+					lengths[i] = readIntLE(data, position + 12 + i * 4);
+					if(lengths[i] <= 0) return null;
+					total += lengths[i];
+				}
+				return total == data.length - deflateStart - 8 ? lengths : null;
+			}
+			position += 4 + subfieldLength;
+		}
+		return null;
+	}
+
+	private Block[] deflateBlocks(byte[] data, int offset, int length, int level, boolean gzip) {
+		int count = Math.max(1, (length + blockSize - 1) / blockSize);
+		int blocksPerSegment = segmentSize / blockSize;
+		List<ForkJoinTask<Block>> tasks = new ArrayList<>(count);
+		for(int i = 0; i < count; i++) {
+			int start = offset + i * blockSize;
+			int end = Math.min(start + blockSize, offset + length);
+			int dictionaryStart = i % blocksPerSegment == 0 ? start : start - WINDOW_SIZE;
+			boolean last = i == count - 1;
+			tasks.add(pool.submit(() -> deflateBlock(data, dictionaryStart, start, end, level, last, gzip ? new CRC32() : new Adler32())));
+		}
+		Block[] blocks = new Block[count];
+		for(int i = 0; i < count; i++) blocks[i] = tasks.get(i).join();
+		return blocks;
+	}
+
+	/**
+	 * Returns the two byte zlib header for a stream compressed at the given level, most significant byte first.
+	 * @param level the deflate level, 0-9
+	 */
+	static int zlibHeader(int level) {
+		int levelFlag = level < 2 ? 0 : level < 6 ? 1 : level == 6 ? 2 : 3;
+		int header = 0x7800 | levelFlag << 6;
+		return header + 31 - header % 31;
+	}
+
+	/**
+	 * Deflates one block, ending it with a sync flush (or the final block marker for the last block) so it ends on a byte boundary.
+	 * Blocks deflated this way can be concatenated into one raw deflate stream.
+	 * @param data the array holding the dictionary and the block
+	 * @param dictionaryStart the offset of the dictionary, or start for none
+	 * @param start the offset of the block
+	 * @param end the offset after the block
+	 * @param level the deflate level, 0-9
+	 * @param last whether this is the final block of the stream
+	 * @param checksum the checksum to update with the block
+	 */
+	static Block deflateBlock(byte[] data, int dictionaryStart, int start, int end, int level, boolean last, Checksum checksum) {
+		checksum.update(data, start, end - start);
+		Deflater[] deflaters = DEFLATERS.get();
+		if(deflaters[level] == null) deflaters[level] = new Deflater(level, true);
+		Deflater deflater = deflaters[level];
+		deflater.reset();
+		if(dictionaryStart < start) deflater.setDictionary(data, dictionaryStart, start - dictionaryStart);
+		deflater.setInput(data, start, end - start);
+		if(last) deflater.finish();
+		OutputBuffer output = OutputBuffer.acquire();
+		output.reserve((end - start) / 2 + 64);
+		while(true) {
+			if(output.available() == 0) output.reserve(64 * 1024);
+			int space = output.available();
+			int count = deflater.deflate(output.array(), output.size(), space, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+			output.advance(count);
+			if(last ? deflater.finished() : count < space) break;
+		}
+		return new Block(output.toByteArray(), checksum.getValue(), end - start);
+	}
+
+	private static int compressedLength(Block[] blocks) {
+		long total = 0;
+		for(Block block : blocks) total += block.data.length;
+		if(total > Integer.MAX_VALUE - 64) throw new OutOfMemoryError("Compressed output exceeds the maximum array size");
+		return (int) total;
+	}
+
+	private static long await(ForkJoinTask<Long> task) throws IOException {
+		try {
+			return task.get();
+		} catch(InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while decompressing");
+		} catch(ExecutionException exception) {
+			if(exception.getCause() instanceof IOException cause) throw cause;
+			if(exception.getCause() instanceof RuntimeException cause) throw cause;
+			throw new IOException(exception.getCause());
+		}
+	}
+
+	/**
+	 * Returns the CRC-32 of two concatenated inputs from their separate CRCs, as zlib's crc32_combine does.
+	 * @param crc1 the CRC of the first input
+	 * @param crc2 the CRC of the second input
+	 * @param length2 the length of the second input
+	 */
+	static long crc32Combine(long crc1, long crc2, long length2) {
+		if(length2 <= 0) return crc1;
+		long[] even = new long[32];
+		long[] odd = new long[32];
+		odd[0] = 0xEDB88320L;
+		for(int n = 1; n < 32; n++) odd[n] = 1L << (n - 1);
+		gf2MatrixSquare(even, odd);
+		gf2MatrixSquare(odd, even);
+		do {
+			gf2MatrixSquare(even, odd);
+			if((length2 & 1) != 0) crc1 = gf2MatrixTimes(even, crc1);
+			length2 >>= 1;
+			if(length2 == 0) break;
+			gf2MatrixSquare(odd, even);
+			if((length2 & 1) != 0) crc1 = gf2MatrixTimes(odd, crc1);
+			length2 >>= 1;
+		} while(length2 != 0);
+		return crc1 ^ crc2;
+	}
+
+	/**
+	 * Returns the Adler-32 of two concatenated inputs from their separate checksums, as zlib's adler32_combine does.
+	 * @param adler1 the checksum of the first input
+	 * @param adler2 the checksum of the second input
+	 * @param length2 the length of the second input
+	 */
+	static long adler32Combine(long adler1, long adler2, long length2) {
+		long remainder = length2 % ADLER_BASE;
+		long sum1 = adler1 & 0xFFFF;
+		long sum2 = remainder * sum1 % ADLER_BASE;
+		sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+		sum2 += ((adler1 >> 16) & 0xFFFF) + ((adler2 >> 16) & 0xFFFF) + ADLER_BASE - remainder;
+		if(sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+		if(sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+		if(sum2 >= (long) ADLER_BASE << 1) sum2 -= (long) ADLER_BASE << 1;
+		if(sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+		return sum1 | sum2 << 16;
+	}
+
+	private static long gf2MatrixTimes(long[] matrix, long vector) {
+		long sum = 0;
+		for(int i = 0; vector != 0; i++, vector >>>= 1) if((vector & 1) != 0) sum ^= matrix[i];
+		return sum;
+	}
+
+	private static void gf2MatrixSquare(long[] square, long[] matrix) {
+		for(int n = 0; n < 32; n++) square[n] = gf2MatrixTimes(matrix, matrix[n]);
+	}
+
+	private static int readIntLE(byte[] data, int offset) {
+		return CompressionCodec.readIntLE(data, offset);
+	}
+
+	private static void writeShortLE(byte[] data, int offset, int value) {
+		data[offset] = (byte) value;
+		data[offset + 1] = (byte) (value >>> 8);
+	}
+
+	private static void writeIntLE(byte[] data, int offset, int value) {
+		writeShortLE(data, offset, value);
+		writeShortLE(data, offset + 2, value >>> 16);
+	}
+
+	/**
+	 * A deflated block.
+	 *
+	 * @param data     the compressed bytes
+	 * @param checksum the checksum of the uncompressed bytes
+	 * @param length   the number of uncompressed bytes
+	 */
+	record Block(byte[] data, long checksum, int length) {
+	}
+}
@@ -0,0 +1,130 @@
+package garretreichenbach.taskprocessor.processor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The per-pixel loops shared by image tasks: format conversion, channel swizzles, blending and the inner loops of the {@link Resampler}.
+ * <br/>Two implementations exist. The SIMD one is built on the incubating Vector API and is selected at startup when the
+ * jdk.incubator.vector module is present (--add-modules jdk.incubator.vector) and the CPU has vectors of at least 256 bits.
+ * Otherwise, or when the system property {@value #IMPLEMENTATION_PROPERTY} is "scalar", plain loops are used. Both produce identical results.
+ */
+@Slf4j
+public abstract class PixelKernels {
+
+	/**
+	 * The system property that forces an implementation ("scalar" or "vector").
+	 */
+	public static final String IMPLEMENTATION_PROPERTY = "taskprocessor.pixelKernels";
+
+	private static final PixelKernels INSTANCE = select();
+
+	/**
+	 * Returns the implementation selected for this JVM.
+	 */
+	public static PixelKernels get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns a new instance of a specific implementation, e.g. to compare them.
+	 * @param name "scalar" or "vector"
+	 * @return the implementation
+	 * @throws IllegalArgumentException if the name is unknown
+	 * @throws LinkageError if the vector implementation is requested and the Vector API is not available
+	 */
+	public static PixelKernels forName(String name) {
+		return switch(name.toLowerCase()) {
+			case "scalar" -> new ScalarPixelKernels();
+			case "vector" -> new VectorPixelKernels();
+			default -> throw new IllegalArgumentException("Unknown pixel kernels: " + name);
+		};
+	}
+
+	private static PixelKernels select() {
+		String implementation = System.getProperty(IMPLEMENTATION_PROPERTY, "");
+		if(!implementation.equalsIgnoreCase("scalar")) {
+			try {
+				if(implementation.equalsIgnoreCase("vector") || VectorPixelKernels.isSupported()) {
+					log.info("Using SIMD pixel kernels");
+					return forName("vector");
+				}
+				log.info("Vectors are narrower than 256 bits, using scalar pixel kernels");
+				return forName("scalar");
+			} catch(LinkageError error) {
+				log.info("SIMD pixel kernels could not be loaded ({}), using scalar pixel kernels", error.toString());
+			}
+		}
+		log.info("Using scalar pixel kernels");
+		return forName("scalar");
+	}
+
+	/**
+	 * Returns the name of the implementation ("scalar" or "vector").
+	 */
+	public abstract String getName();
+
+	/**
+	 * Packs RGB pixels (3 bytes each) into ints of the form 0x00RRGGBB, as used by BufferedImage.TYPE_INT_RGB.
+	 * @param source the packed RGB bytes
+	 * @param sourceOffset the offset of the first pixel in the source
+	 * @param target the array to write the ints to
+	 * @param targetOffset the index of the first int
+	 * @param pixels the number of pixels
+	 */
+	public abstract void rgbToInt(byte[] source, int sourceOffset, int[] target, int targetOffset, int pixels);
+
+	/**
+	 * Unpacks 0x00RRGGBB ints into RGB pixels (3 bytes each). The top byte of each int is ignored.
+	 * @param source the ints
+	 * @param sourceOffset the index of the first int
+	 * @param target the array to write the packed RGB bytes to
+	 * @param targetOffset the offset of the first pixel in the target
+	 * @param pixels the number of pixels
+	 */
+	public abstract void intToRgb(int[] source, int sourceOffset, byte[] target, int targetOffset, int pixels);
+
+	/**
+	 * Swaps the first and third channel of 3-byte pixels, converting RGB to BGR and back. The source and target may be the same array.
+	 * @param source the pixels
+	 * @param sourceOffset the offset of the first pixel in the source
+	 * @param target the array to write the swapped pixels to
+	 * @param targetOffset the offset of the first pixel in the target
+	 * @param pixels the number of pixels
+	 */
+	public abstract void swapRedBlue(byte[] source, int sourceOffset, byte[] target, int targetOffset, int pixels);
+
+	/**
+	 * Blends two runs of unsigned bytes: target = first + (second - first) * alpha / 256, rounded.
+	 * @param first the first input
+	 * @param firstOffset the offset in the first input
+	 * @param second the second input
+	 * @param secondOffset the offset in the second input
+	 * @param alpha the weight of the second input, 0-256
+	 * @param target the array to write the result to
+	 * @param targetOffset the offset in the target
+	 * @param length the number of bytes
+	 */
+	public abstract void blend(byte[] first, int firstOffset, byte[] second, int secondOffset, int alpha, byte[] target, int targetOffset, int length);
+
+	/**
+	 * Adds weighted unsigned bytes to an accumulator: accumulator[accumulatorOffset + i] += source[sourceOffset + i] * weight.
+	 * @param source the bytes
+	 * @param sourceOffset the offset of the first byte
+	 * @param weight the weight
+	 * @param accumulator the accumulator
+	 * @param accumulatorOffset the index of the first accumulated value
+	 * @param length the number of bytes
+	 */
+	public abstract void multiplyAdd(byte[] source, int sourceOffset, int weight, int[] accumulator, int accumulatorOffset, int length);
+
+	/**
+	 * Shifts accumulated values right and clamps them to unsigned bytes: target[targetOffset + i] = clamp(accumulator[accumulatorOffset + i] >> shift, 0, 255).
+	 * @param accumulator the accumulator
+	 * @param accumulatorOffset the index of the first accumulated value
+	 * @param shift the number of bits to shift right
+	 * @param target the array to write the bytes to
+	 * @param targetOffset the offset of the first byte
+	 * @param length the number of values
+	 */
+	public abstract void narrow(int[] accumulator, int accumulatorOffset, int shift, byte[] target, int targetOffset, int length);
+}
@@ -0,0 +1,227 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+
+/**
+ * Encodes packed RGB images (3 bytes per pixel, row-major) as 8-bit truecolor PNGs, without going through a BufferedImage.
+ * <br/>The image is split into strips of rows that are encoded on a parallel stream. Each strip reads its rows straight from the source
+ * buffer, picks a filter for every row with the minimum sum of absolute differences heuristic, and deflates the filtered rows with
+ * {@link ParallelDeflate#deflateBlock}, primed with the last 32 KiB of filtered data before the strip as a dictionary. Those rows are
+ * filtered again by the strip rather than waited for, as filtering a row only needs the row above it. Every strip becomes one IDAT
+ * chunk whose CRC is computed alongside it, and the Adler-32 of the whole stream is combined from the strips, so assembling the file
+ * is a single copy into the result.
+ */
+public final class PngEncoder {
+
+	/**
+	 * The deflate level used when none is given.
+	 */
+	public static final int DEFAULT_LEVEL = 6;
+
+	private static final int BYTES_PER_PIXEL = Resampler.BYTES_PER_PIXEL;
+	private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+	private static final int CHUNK_OVERHEAD = 12;
+	private static final int HEADER_LENGTH = 13;
+	private static final int STRIP_BYTES = 128 * 1024;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+	private static final int FILTERS = 5;
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+	private PngEncoder() {
+	}
+
+	/**
+	 * Encodes an image as a PNG.
+	 * @param source the packed RGB image, read from its current position
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param level the deflate level, 0-9, or -1 for {@link #DEFAULT_LEVEL}
+	 * @return a lease on the PNG file, which occupies the first {@link BufferPool.Lease#length()} bytes of the array
+	 * @throws IllegalArgumentException if a dimension is not positive, the data is too short or the level is out of range
+	 */
+	public static BufferPool.Lease<byte[]> encode(ByteBuffer source, int width, int height, int level) {
+		if(width <= 0 || height <= 0) throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+		if(level == -1) level = DEFAULT_LEVEL;
+		if(level < 0 || level > 9) throw new IllegalArgumentException("Invalid PNG compression level: " + level);
+		long rowBytes = 1 + (long) width * BYTES_PER_PIXEL;
+		if(rowBytes > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+		if(rowBytes - 1 > source.remaining() / height) throw new IllegalArgumentException("Image data is shorter than " + width + "x" + height + " pixels");
+		ByteBuffer image = source.slice();
+		int stripRows = (int) Math.max(1, STRIP_BYTES / rowBytes);
+		int strips = (height + stripRows - 1) / stripRows;
+		int deflateLevel = level;
+		EncodedStrip[] encoded = IntStream.range(0, strips).parallel().mapToObj(index -> encodeStrip(image, width, index * stripRows, Math.min(height, (index + 1) * stripRows), deflateLevel, index == strips - 1)).toArray(EncodedStrip[]::new);
+
+		long length = SIGNATURE.length + CHUNK_OVERHEAD + HEADER_LENGTH + CHUNK_OVERHEAD + 2 + 4;
+		for(EncodedStrip strip : encoded) length += CHUNK_OVERHEAD + strip.block.data().length;
+		if(length > Integer.MAX_VALUE - 8) throw new OutOfMemoryError("PNG exceeds the maximum array size");
+		BufferPool.Lease<byte[]> result = BufferPool.SHARED.leaseBytes((int) length);
+		byte[] output = result.array();
+		System.arraycopy(SIGNATURE, 0, output, 0, SIGNATURE.length);
+		int position = SIGNATURE.length;
+
+		byte[] header = new byte[HEADER_LENGTH];
+		writeInt(header, 0, width);
+		writeInt(header, 4, height);
+		header[8] = 8; // bit depth
+		header[9] = 2; // truecolor
+		position = writeChunk(output, position, IHDR, header);
+
+		long adler = 1;
+		for(int i = 0; i < encoded.length; i++) {
+			ParallelDeflate.Block block = encoded[i].block;
+			int dataLength = block.data().length + (i == 0 ? 2 : 0) + (i == encoded.length - 1 ? 4 : 0);
+			writeInt(output, position, dataLength);
+			System.arraycopy(IDAT, 0, output, position + 4, IDAT.length);
+			position += 8;
+			if(i == 0) {
+				int zlibHeader = ParallelDeflate.zlibHeader(level);
+				output[position++] = (byte) (zlibHeader >>> 8);
+				output[position++] = (byte) zlibHeader;
+			}
+			System.arraycopy(block.data(), 0, output, position, block.data().length);
+			position += block.data().length;
+			adler = ParallelDeflate.adler32Combine(adler, block.checksum(), block.length());
+			long crc = encoded[i].crc;
+			if(i == encoded.length - 1) {
+				writeInt(output, position, (int) adler);
+				CRC32 trailer = new CRC32();
+				trailer.update(output, position, 4);
+				crc = ParallelDeflate.crc32Combine(crc, trailer.getValue(), 4);
+				position += 4;
+			}
+			writeInt(output, position, (int) crc);
+			position += 4;
+		}
+		writeChunk(output, position, IEND, new byte[0]);
+		return result;
+	}
+
+	/**
+	 * Filters and deflates the rows first to end, and computes the CRC of the IDAT chunk holding them.
+	 */
+	private static EncodedStrip encodeStrip(ByteBuffer image, int width, int first, int end, int level, boolean last) {
+		int rowLength = width * BYTES_PER_PIXEL;
+		int rowBytes = rowLength + 1;
+		int overlap = Math.min(first, (DICTIONARY_SIZE + rowBytes - 1) / rowBytes);
+		int startRow = first - overlap;
+		Scratch scratch = SCRATCH.get();
+		byte[] previous = scratch.previous(rowLength);
+		byte[] current = scratch.current(rowLength);
+		if(startRow > 0) image.get((startRow - 1) * rowLength, previous, 0, rowLength);
+		else Arrays.fill(previous, 0, rowLength, (byte) 0);
+		try(BufferPool.Lease<byte[]> filtered = BufferPool.SHARED.leaseBytes((end - startRow) * rowBytes)) {
+			for(int y = startRow; y < end; y++) {
+				image.get(y * rowLength, current, 0, rowLength);
+				filterRow(previous, current, rowLength, level, filtered.array(), (y - startRow) * rowBytes, scratch);
+				byte[] swap = previous;
+				previous = current;
+				current = swap;
+			}
+			int start = overlap * rowBytes;
+			ParallelDeflate.Block block = ParallelDeflate.deflateBlock(filtered.array(), Math.max(0, start - DICTIONARY_SIZE), start, filtered.length(), level, last, new Adler32());
+			CRC32 crc = new CRC32();
+			crc.update(IDAT);
+			if(first == 0) {
+				int zlibHeader = ParallelDeflate.zlibHeader(level);
+				crc.update(zlibHeader >>> 8);
+				crc.update(zlibHeader);
+			}
+			crc.update(block.data());
+			return new EncodedStrip(block, crc.getValue());
+		}
+	}
+
+	/**
+	 * Writes a row prefixed by its filter type. At level 0 the row is stored unfiltered, as filtering only helps deflate find matches.
+	 * Otherwise every filter is tried and the one whose output has the smallest sum of absolute values, read as signed bytes, is kept.
+	 */
+	private static void filterRow(byte[] previous, byte[] current, int length, int level, byte[] target, int offset, Scratch scratch) {
+		if(level == 0) {
+			target[offset] = 0;
+			System.arraycopy(current, 0, target, offset + 1, length);
+			return;
+		}
+		byte[][] candidates = scratch.candidates(length);
+		byte[] sub = candidates[1], up = candidates[2], average = candidates[3], paeth = candidates[4];
+		long none = 0, subSum = 0, upSum = 0, averageSum = 0, paethSum = 0;
+		for(int i = 0; i < length; i++) {
+			// The first pixel has no left neighbour, so a and c read as 0 and Paeth predicts the pixel above
+			int left = i - BYTES_PER_PIXEL;
+			int x = current[i] & 0xFF;
+			int a = left >= 0 ? current[left] & 0xFF : 0;
+			int b = previous[i] & 0xFF;
+			int c = left >= 0 ? previous[left] & 0xFF : 0;
+			int pa = Math.abs(b - c), pb = Math.abs(a - c), pc = Math.abs(a + b - 2 * c);
+			int predicted = pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+			byte subValue = (byte) (x - a), upValue = (byte) (x - b), averageValue = (byte) (x - ((a + b) >>> 1)), paethValue = (byte) (x - predicted);
+			sub[i] = subValue;
+			up[i] = upValue;
+			average[i] = averageValue;
+			paeth[i] = paethValue;
+			none += Math.abs((byte) x);
+			subSum += Math.abs(subValue);
+			upSum += Math.abs(upValue);
+			averageSum += Math.abs(averageValue);
+			paethSum += Math.abs(paethValue);
+		}
+		long[] sums = {none, subSum, upSum, averageSum, paethSum};
+		int best = 0;
+		for(int filter = 1; filter < FILTERS; filter++) if(sums[filter] < sums[best]) best = filter;
+		target[offset] = (byte) best;
+		System.arraycopy(best == 0 ? current : candidates[best], 0, target, offset + 1, length);
+	}
+
+	private static int writeChunk(byte[] output, int position, byte[] type, byte[] data) {
+		writeInt(output, position, data.length);
+		System.arraycopy(type, 0, output, position + 4, type.length);
+		System.arraycopy(data, 0, output, position + 8, data.length);
+		CRC32 crc = new CRC32();
+		crc.update(output, position + 4, type.length + data.length);
+		writeInt(output, position + 8 + data.length, (int) crc.getValue());
+		return position + CHUNK_OVERHEAD + data.length;
+	}
+
+	private static void writeInt(byte[] data, int offset, int value) {
+		for(int i = 0; i < 4; i++) data[offset + i] = (byte) (value >>> (24 - i * 8));
+	}
+
+	/**
+	 * The compressed rows of a strip and the CRC of the IDAT chunk holding them, without the stream trailer.
+	 */
+	private record EncodedStrip(ParallelDeflate.Block block, long crc) {
+	}
+
+	/**
+	 * The row buffers a worker thread reuses between strips and between images.
+	 */
+	private static final class Scratch {
+
+		private byte[] previous = new byte[0];
+		private byte[] current = new byte[0];
+		private byte[][] candidates = new byte[FILTERS][0];
+
+		private byte[] previous(int length) {
+			if(previous.length < length) previous = new byte[length];
+			return previous;
+		}
+
+		private byte[] current(int length) {
+			if(current.length < length) current = new byte[length];
+			return current;
+		}
+
+		private byte[][] candidates(int length) {
+			if(candidates[1].length < length) for(int filter = 1; filter < FILTERS; filter++) candidates[filter] = new byte[length];
+			return candidates;
+		}
+	}
+}
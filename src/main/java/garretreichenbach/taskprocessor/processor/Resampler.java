@@ -0,0 +1,196 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Resizes packed RGB images (3 bytes per pixel, row-major) with a separable {@link ResamplingFilter}.
+ * <br/>The filter weights of each axis are computed once per call as fixed-point integers. The output is produced in strips of rows
+ * on a parallel stream: each strip resamples the source rows it needs horizontally into a scratch buffer owned by the worker thread,
+ * then combines them vertically straight into the output array with the {@link PixelKernels}. Scratch buffers are reused, so the only allocation per image is the
+ * output itself (none with {@link #resample(ByteBuffer, int, int, byte[], int, int, ResamplingFilter)}).
+ */
+public final class Resampler {
+
+	public static final int BYTES_PER_PIXEL = 3;
+
+	private static final int PRECISION_BITS = 22;
+	private static final int ROUNDING = 1 << (PRECISION_BITS - 1);
+	private static final int MIN_STRIP_ROWS = 8;
+	private static final int MAX_STRIP_ROWS = 64;
+	private static final PixelKernels KERNELS = PixelKernels.get();
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+	private Resampler() {
+	}
+
+	/**
+	 * Resizes an image.
+	 * @param source the packed RGB image, read from its current position
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param newWidth the width of the resized image
+	 * @param newHeight the height of the resized image
+	 * @param filter the filter to resample with
+	 * @return the resized image
+	 * @throws IllegalArgumentException if a dimension is not positive or the source is too short
+	 */
+	public static byte[] resample(ByteBuffer source, int width, int height, int newWidth, int newHeight, ResamplingFilter filter) {
+		long length = (long) newWidth * newHeight * BYTES_PER_PIXEL;
+		if(newWidth <= 0 || newHeight <= 0 || length > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Invalid target size " + newWidth + "x" + newHeight);
+		byte[] target = new byte[(int) length];
+		resample(source, width, height, target, newWidth, newHeight, filter);
+		return target;
+	}
+
+	/**
+	 * Resizes an image into an existing array.
+	 * @param source the packed RGB image, read from its current position
+	 * @param width the width of the image
+	 * @param height the height of the image
+	 * @param target the array the resized image is written to, from index 0
+	 * @param newWidth the width of the resized image
+	 * @param newHeight the height of the resized image
+	 * @param filter the filter to resample with
+	 * @throws IllegalArgumentException if a dimension is not positive or an array is too short
+	 */
+	public static void resample(ByteBuffer source, int width, int height, byte[] target, int newWidth, int newHeight, ResamplingFilter filter) {
+		if(width <= 0 || height <= 0 || newWidth <= 0 || newHeight <= 0) throw new IllegalArgumentException("Invalid image size " + width + "x" + height + " -> " + newWidth + "x" + newHeight);
+		if((long) width * height * BYTES_PER_PIXEL > source.remaining()) throw new IllegalArgumentException("Image data is shorter than " + width + "x" + height + " pixels");
+		if((long) newWidth * newHeight * BYTES_PER_PIXEL > target.length) throw new IllegalArgumentException("Target is shorter than " + newWidth + "x" + newHeight + " pixels");
+		Weights horizontal = Weights.of(width, newWidth, filter);
+		Weights vertical = Weights.of(height, newHeight, filter);
+		int stripRows = Math.clamp((newHeight + 4L * ForkJoinPool.getCommonPoolParallelism() - 1) / (4L * ForkJoinPool.getCommonPoolParallelism()), MIN_STRIP_ROWS, MAX_STRIP_ROWS);
+		int strips = (newHeight + stripRows - 1) / stripRows;
+		int base = source.position();
+		IntStream.range(0, strips).parallel().forEach(strip -> resampleStrip(source, base, width, target, newWidth, strip * stripRows, Math.min(newHeight, (strip + 1) * stripRows), horizontal, vertical));
+	}
+
+	private static void resampleStrip(ByteBuffer source, int base, int width, byte[] target, int newWidth, int firstRow, int endRow, Weights horizontal, Weights vertical) {
+		int firstSourceRow = vertical.start[firstRow];
+		int endSourceRow = 0;
+		boolean copyRows = true;
+		for(int y = firstRow; y < endRow; y++) {
+			endSourceRow = Math.max(endSourceRow, vertical.start[y] + vertical.count[y]);
+			copyRows &= vertical.count[y] == 1;
+		}
+		int rowBytes = width * BYTES_PER_PIXEL;
+		int newRowBytes = newWidth * BYTES_PER_PIXEL;
+		Scratch scratch = SCRATCH.get();
+		byte[] row = scratch.row(rowBytes);
+
+		// Every output row takes a single source row (nearest neighbour, or no vertical scaling): resample it straight into the output
+		if(copyRows) {
+			for(int y = firstRow; y < endRow; y++) {
+				source.get(base + vertical.start[y] * rowBytes, row, 0, rowBytes);
+				resampleRow(row, target, y * newRowBytes, horizontal);
+			}
+			return;
+		}
+		byte[] rows = scratch.rows((endSourceRow - firstSourceRow) * newRowBytes);
+		int[] accumulator = scratch.accumulator(newRowBytes);
+
+		for(int y = firstSourceRow; y < endSourceRow; y++) {
+			source.get(base + y * rowBytes, row, 0, rowBytes);
+			resampleRow(row, rows, (y - firstSourceRow) * newRowBytes, horizontal);
+		}
+
+		for(int y = firstRow; y < endRow; y++) {
+			Arrays.fill(accumulator, 0, newRowBytes, ROUNDING);
+			int weightIndex = y * vertical.taps;
+			for(int k = 0; k < vertical.count[y]; k++) {
+				KERNELS.multiplyAdd(rows, (vertical.start[y] + k - firstSourceRow) * newRowBytes, vertical.weights[weightIndex + k], accumulator, 0, newRowBytes);
+			}
+			KERNELS.narrow(accumulator, 0, PRECISION_BITS, target, y * newRowBytes, newRowBytes);
+		}
+	}
+
+	private static void resampleRow(byte[] row, byte[] output, int outputOffset, Weights weights) {
+		for(int x = 0; x < weights.start.length; x++) {
+			int r = ROUNDING, g = ROUNDING, b = ROUNDING;
+			int index = weights.start[x] * BYTES_PER_PIXEL;
+			int weightIndex = x * weights.taps;
+			for(int k = 0; k < weights.count[x]; k++, index += BYTES_PER_PIXEL) {
+				int weight = weights.weights[weightIndex + k];
+				r += (row[index] & 0xFF) * weight;
+				g += (row[index + 1] & 0xFF) * weight;
+				b += (row[index + 2] & 0xFF) * weight;
+			}
+			int offset = outputOffset + x * BYTES_PER_PIXEL;
+			output[offset] = clamp(r);
+			output[offset + 1] = clamp(g);
+			output[offset + 2] = clamp(b);
+		}
+	}
+
+	private static byte clamp(int value) {
+		value >>= PRECISION_BITS;
+		return (byte) (value < 0 ? 0 : Math.min(value, 255));
+	}
+
+	/**
+	 * The fixed-point filter weights of one axis: output pixel i is the sum of source pixels start[i] to start[i] + count[i] - 1,
+	 * weighted by weights[i * taps] onwards.
+	 */
+	private record Weights(int[] start, int[] count, int[] weights, int taps) {
+
+		private static Weights of(int inputSize, int outputSize, ResamplingFilter filter) {
+			double scale = (double) inputSize / outputSize;
+			double filterScale = filter.isAntialiased() ? Math.max(scale, 1.0) : 1.0;
+			double support = filter.getSupport() * filterScale;
+			int taps = (int) Math.ceil(support) * 2 + 1;
+			int[] start = new int[outputSize];
+			int[] count = new int[outputSize];
+			int[] weights = new int[outputSize * taps];
+			double[] values = new double[taps];
+			for(int i = 0; i < outputSize; i++) {
+				double center = (i + 0.5) * scale;
+				int min = Math.max((int) (center - support + 0.5), 0);
+				int max = Math.min((int) (center + support + 0.5), inputSize);
+				double total = 0.0;
+				for(int j = min; j < max; j++) total += values[j - min] = filter.weight((j - center + 0.5) / filterScale);
+				if(total == 0.0) {
+					min = Math.min((int) center, inputSize - 1);
+					max = min + 1;
+					values[0] = total = 1.0;
+				}
+				while(min < max - 1 && values[0] == 0.0) {
+					System.arraycopy(values, 1, values, 0, max - min - 1);
+					min++;
+				}
+				while(max > min + 1 && values[max - min - 1] == 0.0) max--;
+				start[i] = min;
+				count[i] = max - min;
+				for(int j = 0; j < count[i]; j++) weights[i * taps + j] = (int) Math.round(values[j] / total * (1 << PRECISION_BITS));
+			}
+			return new Weights(start, count, weights, taps);
+		}
+	}
+
+	/**
+	 * The buffers a worker thread reuses between strips and between images.
+	 */
+	private static final class Scratch {
+
+		private byte[] row = new byte[0];
+		private byte[] rows = new byte[0];
+		private int[] accumulator = new int[0];
+
+		private byte[] row(int length) {
+			if(row.length < length) row = new byte[length];
+			return row;
+		}
+
+		private byte[] rows(int length) {
+			if(rows.length < length) rows = new byte[length];
+			return rows;
+		}
+
+		private int[] accumulator(int length) {
+			if(accumulator.length < length) accumulator = new int[length];
+			return accumulator;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * The reconstruction filters available to the {@link Resampler}.
+ * <br/>Except for {@link #NEAREST}, filters are stretched by the scale factor when downscaling, so every source pixel contributes to the
+ * output and fine detail is averaged instead of aliased.
+ */
+public enum ResamplingFilter {
+	/**
+	 * Nearest neighbour. Copies the source pixel under the centre of each output pixel.
+	 */
+	NEAREST(0.5, false) {
+		@Override
+		double weight(double x) {
+			return box(x);
+		}
+	},
+	/**
+	 * Box filter. When downscaling, each output pixel is the average of the source pixels it covers.
+	 */
+	AREA(0.5, true) {
+		@Override
+		double weight(double x) {
+			return box(x);
+		}
+	},
+	/**
+	 * Triangle filter, i.e. linear interpolation between the two nearest pixels when upscaling.
+	 */
+	BILINEAR(1.0, true) {
+		@Override
+		double weight(double x) {
+			x = Math.abs(x);
+			return x < 1.0 ? 1.0 - x : 0.0;
+		}
+	},
+	/**
+	 * Catmull-Rom cubic (a = -0.5). Sharper than bilinear, with slight overshoot at edges.
+	 */
+	BICUBIC(2.0, true) {
+		@Override
+		double weight(double x) {
+			double a = -0.5;
+			x = Math.abs(x);
+			if(x < 1.0) return ((a + 2.0) * x - (a + 3.0)) * x * x + 1.0;
+			if(x < 2.0) return (((x - 5.0) * x + 8.0) * x - 4.0) * a;
+			return 0.0;
+		}
+	},
+	/**
+	 * Three-lobed Lanczos. The sharpest filter, at the cost of the widest support.
+	 */
+	LANCZOS(3.0, true) {
+		@Override
+		double weight(double x) {
+			return x > -3.0 && x < 3.0 ? sinc(x) * sinc(x / 3.0) : 0.0;
+		}
+	};
+
+	private final double support;
+	private final boolean antialiased;
+
+	ResamplingFilter(double support, boolean antialiased) {
+		this.support = support;
+		this.antialiased = antialiased;
+	}
+
+	/**
+	 * Returns the radius of the filter, in source pixels at a scale of 1.
+	 */
+	public double getSupport() {
+		return support;
+	}
+
+	/**
+	 * Returns whether the filter is stretched when downscaling.
+	 */
+	public boolean isAntialiased() {
+		return antialiased;
+	}
+
+	/**
+	 * Evaluates the filter at a distance from the centre of an output pixel, in source pixels.
+	 */
+	abstract double weight(double x);
+
+	private static double box(double x) {
+		return x >= -0.5 && x < 0.5 ? 1.0 : 0.0;
+	}
+
+	private static double sinc(double x) {
+		if(x == 0.0) return 1.0;
+		x *= Math.PI;
+		return Math.sin(x) / x;
+	}
+}
@@ -0,0 +1,123 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.util.Arrays;
+
+/**
+ * Converts the sample rate of a stream by band-limited interpolation: each output sample is the input convolved with a Blackman-windowed
+ * sinc centered on its exact position in the input.
+ * <br/>Positions are tracked as exact fractions of the two rates, so no drift accumulates over long streams. The kernel spans
+ * {@value #ZERO_CROSSINGS} zero crossings on each side at the lower of the two rates; when downsampling it is widened so its cutoff is the
+ * output's Nyquist frequency. It is tabulated once at {@value #PHASES} points per input sample and interpolated linearly. The converter
+ * keeps only the input samples the kernel still needs between chunks.
+ */
+public final class SampleRateConverter implements SampleStream {
+
+	private static final int ZERO_CROSSINGS = 16;
+	private static final int PHASES = 256;
+	private static final int MAX_RATIO = 16;
+
+	private final long up;
+	private final long down;
+	private final int width;
+	private final float[] kernel;
+	private float[] buffer = new float[1024];
+	private long bufferStart;
+	private int bufferLength;
+	private long inputCount;
+	private long outputCount;
+
+	/**
+	 * Creates a converter.
+	 * @param sourceRate the sample rate of the input in Hz
+	 * @param targetRate the sample rate of the output in Hz, within a factor of 16 of the input's
+	 * @throws IllegalArgumentException if a rate is not positive or the ratio is too large
+	 */
+	public SampleRateConverter(int sourceRate, int targetRate) {
+		if(sourceRate <= 0 || targetRate <= 0 || (long) sourceRate > (long) targetRate * MAX_RATIO || (long) targetRate > (long) sourceRate * MAX_RATIO) throw new IllegalArgumentException("Cannot convert " + sourceRate + " Hz to " + targetRate + " Hz");
+		long divisor = gcd(sourceRate, targetRate);
+		up = targetRate / divisor;
+		down = sourceRate / divisor;
+		double cutoff = Math.min(1.0, (double) up / down);
+		// Half the kernel's span in input samples
+		width = (int) Math.ceil(ZERO_CROSSINGS / cutoff);
+		kernel = new float[width * PHASES + 2];
+		for(int i = 0; i <= width * PHASES; i++) {
+			double x = (double) i / PHASES;
+			double sinc = i == 0 ? 1.0 : Math.sin(Math.PI * cutoff * x) / (Math.PI * cutoff * x);
+			double window = 0.42 + 0.5 * Math.cos(Math.PI * x / width) + 0.08 * Math.cos(2 * Math.PI * x / width);
+			kernel[i] = (float) (cutoff * sinc * window);
+		}
+	}
+
+	/**
+	 * Returns the number of output samples a stream of the given number of input samples converts to.
+	 */
+	public long outputLength(long inputLength) {
+		return (inputLength * up + down - 1) / down;
+	}
+
+	@Override
+	public int process(float[] input, int length, float[] output) {
+		append(input, length);
+		inputCount += length;
+		int written = 0;
+		// An output sample is complete once the input reaches the end of its kernel
+		while((outputCount * down) / up + width < inputCount) output[written++] = interpolate();
+		compact();
+		return written;
+	}
+
+	@Override
+	public int flush(float[] output) {
+		int written = 0;
+		long total = outputLength(inputCount);
+		while(outputCount < total) output[written++] = interpolate();
+		return written;
+	}
+
+	@Override
+	public int maxOutput(int length) {
+		return (int) ((length + 2L * width + 2) * up / down + 2);
+	}
+
+	/**
+	 * Computes the next output sample. Input samples before the start or past the end of the stream count as 0.
+	 */
+	private float interpolate() {
+		long position = outputCount * down;
+		long center = position / up;
+		double fraction = (double) (position % up) / up;
+		long from = Math.max(center - width + 1, Math.max(0, bufferStart));
+		long to = Math.min(center + width, inputCount - 1);
+		double sum = 0.0;
+		for(long k = from; k <= to; k++) {
+			double index = Math.abs(center - k + fraction) * PHASES;
+			int i = (int) index;
+			double weight = kernel[i] + (index - i) * (kernel[i + 1] - kernel[i]);
+			sum += buffer[(int) (k - bufferStart)] * weight;
+		}
+		outputCount++;
+		return (float) sum;
+	}
+
+	private void append(float[] input, int length) {
+		if(bufferLength + length > buffer.length) buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, bufferLength + length));
+		System.arraycopy(input, 0, buffer, bufferLength, length);
+		bufferLength += length;
+	}
+
+	/**
+	 * Drops the buffered input samples no later output sample needs.
+	 */
+	private void compact() {
+		long keep = (outputCount * down) / up - width + 1;
+		int drop = Math.clamp(keep - bufferStart, 0, bufferLength);
+		System.arraycopy(buffer, drop, buffer, 0, bufferLength - drop);
+		bufferLength -= drop;
+		bufferStart += drop;
+	}
+
+	private static long gcd(long a, long b) {
+		return b == 0 ? a : gcd(b, a % b);
+	}
+}
@@ -0,0 +1,29 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * A stage that transforms a stream of mono audio samples fed in chunks of any length, keeping only a bounded amount of state between
+ * chunks, so clips of any length are processed in constant working memory.
+ */
+public interface SampleStream {
+
+	/**
+	 * Processes the next chunk of the stream.
+	 * @param input the samples
+	 * @param length the number of samples, from index 0
+	 * @param output the array the processed samples are written to, from index 0, at least {@link #maxOutput(int)} long
+	 * @return the number of samples written
+	 */
+	int process(float[] input, int length, float[] output);
+
+	/**
+	 * Ends the stream, writing the samples still held back.
+	 * @param output the array the samples are written to, from index 0, at least {@link #maxOutput(int)} of 0 long
+	 * @return the number of samples written
+	 */
+	int flush(float[] output);
+
+	/**
+	 * Returns the most samples a call to {@link #process} with a chunk of the given length, or to {@link #flush} with 0, can write.
+	 */
+	int maxOutput(int length);
+}
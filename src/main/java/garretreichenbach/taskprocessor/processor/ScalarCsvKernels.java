@@ -0,0 +1,29 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * The plain-loop {@link CsvKernels}, also used for the tails the SIMD kernels leave over.
+ */
+class ScalarCsvKernels extends CsvKernels {
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public int scan(byte[] data, int from, int to, byte delimiter, int[] positions) {
+		return scan(data, from, to, delimiter, positions, 0);
+	}
+
+	/**
+	 * Scans a block, writing its positions after the first count.
+	 * @return the total number of positions
+	 */
+	int scan(byte[] data, int from, int to, byte delimiter, int[] positions, int count) {
+		for(int i = from; i < to; i++) {
+			byte value = data[i];
+			if(value == delimiter || value == '\n' || value == '"') positions[count++] = i;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,52 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * The plain-loop {@link MatrixKernels}, also used for the tails the SIMD kernels leave over.
+ */
+class ScalarMatrixKernels extends MatrixKernels {
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public void multiplyAdd(double[] a, int aOffset, int aStride, double[] b, int bOffset, int bStride, double[] c, int cOffset, int cStride, int rows, int depth, int columns) {
+		// Row by row, each row of b scaled by one value of a is added to the row of c, so the innermost loop runs along rows
+		for(int row = 0; row < rows; row++) {
+			int cRow = cOffset + row * cStride;
+			for(int p = 0; p < depth; p++) {
+				double scale = a[aOffset + row * aStride + p];
+				int bRow = bOffset + p * bStride;
+				for(int column = 0; column < columns; column++) c[cRow + column] += scale * b[bRow + column];
+			}
+		}
+	}
+
+	@Override
+	public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+		double sum = 0.0;
+		for(int i = 0; i < length; i++) sum += a[aOffset + i] * b[bOffset + i];
+		return sum;
+	}
+
+	@Override
+	public void add(double[] a, double[] b, double[] target, int from, int to) {
+		for(int i = from; i < to; i++) target[i] = a[i] + b[i];
+	}
+
+	@Override
+	public void subtract(double[] a, double[] b, double[] target, int from, int to) {
+		for(int i = from; i < to; i++) target[i] = a[i] - b[i];
+	}
+
+	@Override
+	public void multiply(double[] a, double[] b, double[] target, int from, int to) {
+		for(int i = from; i < to; i++) target[i] = a[i] * b[i];
+	}
+
+	@Override
+	public void scale(double[] a, double scalar, double[] target, int from, int to) {
+		for(int i = from; i < to; i++) target[i] = a[i] * scalar;
+	}
+}
@@ -0,0 +1,63 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * The plain-loop {@link PixelKernels}, also used for the tails the SIMD kernels leave over.
+ */
+class ScalarPixelKernels extends PixelKernels {
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public void rgbToInt(byte[] source, int sourceOffset, int[] target, int targetOffset, int pixels) {
+		for(int i = 0; i < pixels; i++) {
+			int index = sourceOffset + i * 3;
+			target[targetOffset + i] = (source[index] & 0xFF) << 16 | (source[index + 1] & 0xFF) << 8 | source[index + 2] & 0xFF;
+		}
+	}
+
+	@Override
+	public void intToRgb(int[] source, int sourceOffset, byte[] target, int targetOffset, int pixels) {
+		for(int i = 0; i < pixels; i++) {
+			int pixel = source[sourceOffset + i];
+			int index = targetOffset + i * 3;
+			target[index] = (byte) (pixel >> 16);
+			target[index + 1] = (byte) (pixel >> 8);
+			target[index + 2] = (byte) pixel;
+		}
+	}
+
+	@Override
+	public void swapRedBlue(byte[] source, int sourceOffset, byte[] target, int targetOffset, int pixels) {
+		for(int i = 0; i < pixels * 3; i += 3) {
+			byte red = source[sourceOffset + i];
+			target[targetOffset + i + 1] = source[sourceOffset + i + 1];
+			target[targetOffset + i] = source[sourceOffset + i + 2];
+			target[targetOffset + i + 2] = red;
+		}
+	}
+
+	@Override
+	public void blend(byte[] first, int firstOffset, byte[] second, int secondOffset, int alpha, byte[] target, int targetOffset, int length) {
+		for(int i = 0; i < length; i++) {
+			int a = first[firstOffset + i] & 0xFF;
+			int b = second[secondOffset + i] & 0xFF;
+			target[targetOffset + i] = (byte) (a + ((b - a) * alpha + 128 >> 8));
+		}
+	}
+
+	@Override
+	public void multiplyAdd(byte[] source, int sourceOffset, int weight, int[] accumulator, int accumulatorOffset, int length) {
+		for(int i = 0; i < length; i++) accumulator[accumulatorOffset + i] += (source[sourceOffset + i] & 0xFF) * weight;
+	}
+
+	@Override
+	public void narrow(int[] accumulator, int accumulatorOffset, int shift, byte[] target, int targetOffset, int length) {
+		for(int i = 0; i < length; i++) {
+			int value = accumulator[accumulatorOffset + i] >> shift;
+			target[targetOffset + i] = (byte) (value < 0 ? 0 : Math.min(value, 255));
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package garretreichenbach.taskprocessor.processor;
+
+/**
+ * Estimates the power spectrum of a stream with Welch's method: the stream is cut into Hann-windowed frames overlapping by half, and the
+ * squared magnitudes of their transforms are averaged.
+ * <br/>Frames are transformed two at a time as the real and imaginary parts of one complex FFT. The transforms of the two real frames
+ * are X1[k] = (Z[k] + conj Z[n-k]) / 2 and X2[k] = (Z[k] - conj Z[n-k]) / 2i, so |X1[k]|^2 + |X2[k]|^2 = (|Z[k]|^2 + |Z[n-k]|^2) / 2,
+ * and the pair is accumulated without separating them. Only the current frame is kept between chunks.
+ */
+public final class SpectrumAnalyzer {
+
+	private final Fft fft;
+	private final int size;
+	private final int hop;
+	private final float[] window;
+	private final float[] frame;
+	private final float[] real;
+	private final float[] imaginary;
+	private final double[] power;
+	private double windowEnergy;
+	private int filled;
+	private boolean paired;
+	private long frames;
+
+	/**
+	 * Creates an analyzer.
+	 * @param size the frame and FFT size, a power of two; the spectrum has size / 2 + 1 bins
+	 */
+	public SpectrumAnalyzer(int size) {
+		if(size < 2) throw new IllegalArgumentException("FFT size must be at least 2: " + size);
+		fft = Fft.forSize(size);
+		this.size = size;
+		hop = size / 2;
+		window = new float[size];
+		for(int i = 0; i < size; i++) {
+			window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / size));
+			windowEnergy += (double) window[i] * window[i];
+		}
+		frame = new float[size];
+		real = new float[size];
+		imaginary = new float[size];
+		power = new double[size / 2 + 1];
+	}
+
+	/**
+	 * Adds the next chunk of the stream.
+	 * @param samples the samples
+	 * @param from the first sample
+	 * @param to the sample after the last
+	 */
+	public void accept(float[] samples, int from, int to) {
+		while(from < to) {
+			int count = Math.min(size - filled, to - from);
+			System.arraycopy(samples, from, frame, filled, count);
+			filled += count;
+			from += count;
+			if(filled == size) {
+				addFrame();
+				System.arraycopy(frame, hop, frame, 0, size - hop);
+				filled = size - hop;
+			}
+		}
+	}
+
+	/**
+	 * Returns the one-sided power spectrum of the samples so far: the mean squared magnitude per bin, normalized by the energy of the
+	 * window and doubled for the bins between 0 and the Nyquist frequency, so the bins sum to about the mean square of the signal (A^2 / 2
+	 * for a sine of amplitude A). A stream shorter than one frame is zero-padded to one.
+	 * @return size / 2 + 1 bins from 0 to the Nyquist frequency
+	 */
+	public double[] power() {
+		double[] sums = power.clone();
+		long count = frames;
+		// A frame still waiting for its pair is transformed alone, on a copy, so the analyzer stays usable
+		float[] pending = null;
+		if(paired) pending = real.clone();
+		else if(count == 0 && filled > 0) {
+			pending = new float[size];
+			for(int i = 0; i < filled; i++) pending[i] = frame[i] * window[i];
+			count = 1;
+		}
+		if(pending != null) transformPair(sums, pending, new float[size]);
+		double[] result = new double[sums.length];
+		if(count == 0) return result;
+		for(int k = 0; k < result.length; k++) {
+			double scale = k == 0 || k == size / 2 ? 1.0 : 2.0;
+			result[k] = sums[k] * scale / (count * windowEnergy * size);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of full frames analyzed so far.
+	 */
+	public long getFrames() {
+		return frames;
+	}
+
+	private void addFrame() {
+		float[] target = paired ? imaginary : real;
+		for(int i = 0; i < size; i++) target[i] = frame[i] * window[i];
+		frames++;
+		if(paired) transformPair(power, real, imaginary);
+		paired = !paired;
+	}
+
+	private void transformPair(double[] sums, float[] re, float[] im) {
+		fft.forward(re, im);
+		for(int k = 0; k <= size / 2; k++) {
+			int mirror = (size - k) & (size - 1);
+			double magnitude = (double) re[k] * re[k] + (double) im[k] * im[k];
+			double mirrored = (double) re[mirror] * re[mirror] + (double) im[mirror] * im[mirror];
+			sums[k] += (magnitude + mirrored) / 2;
+		}
+	}
+}
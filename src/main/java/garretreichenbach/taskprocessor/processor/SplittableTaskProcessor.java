@@ -0,0 +1,56 @@
+package garretreichenbach.taskprocessor.processor;
+
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.service.TaskQueueService;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A processor whose large tasks can be split into subtasks that run on any worker, and whose partial results are reduced into the result of
+ * the task, so one oversized task keeps every worker busy instead of one.
+ * <br/>A worker that takes a task of a splittable processor asks it to {@link #split} the task first. If it returns subtasks, they are
+ * {@link #schedule scheduled} on the queue like any other task, and once every subtask has succeeded the partial results are passed to
+ * {@link #reduce}, whose result is stored under the id of the task. A subtask that fails is scheduled again on its own, and subtasks are
+ * never split further.
+ */
+public interface SplittableTaskProcessor extends TaskProcessor {
+
+	/**
+	 * Splits a task into subtasks, each processed by {@link #process} on its own.
+	 * @param task The task to split.
+	 * @return The subtasks, or an empty list if the task is small enough to process whole.
+	 * @throws IllegalArgumentException If the parameters of the task are invalid.
+	 */
+	List<Task> split(Task task);
+
+	/**
+	 * Schedules subtasks of a task, or failed subtasks again. By default each is submitted to the queue with its own priority.
+	 * @param subtasks The subtasks to schedule.
+	 * @param queue The queue to schedule them on.
+	 */
+	default void schedule(List<Task> subtasks, TaskQueueService queue) {
+		for(Task subtask : subtasks) queue.submitTask(subtask);
+	}
+
+	/**
+	 * Reduces the results of the subtasks of a task into the result of the task.
+	 * @param task The task that was split.
+	 * @param results The successful result of each subtask, in the order of {@link #split}.
+	 * @return The result of the task, under its id.
+	 */
+	TaskResult reduce(Task task, List<TaskResult> results);
+
+	/**
+	 * Creates a subtask of a task, with the type and priority of the task and an id derived from its id. The id only labels the subtask in
+	 * logs and errors: subtasks are recognized as the objects that were scheduled, so a task submitted with such an id is not one.
+	 * @param task The task being split.
+	 * @param index The index of the subtask.
+	 * @param parameters The parameters of the subtask.
+	 * @return The subtask.
+	 */
+	static Task subtask(Task task, int index, Map<String, Object> parameters) {
+		return new Task(task.getId() + "#" + index, task.getType(), parameters, task.getPriority());
+	}
+}
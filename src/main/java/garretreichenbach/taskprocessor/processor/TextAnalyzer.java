@@ -0,0 +1,323 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Tokenizes UTF-8 text and counts its terms and n-grams in parallel, without creating a String per token.
+ * <br/>The text is split into chunks at whitespace and each chunk is counted on a parallel stream into a {@link TextStatistics.Chunk} of
+ * its own: tokens are interned into int ids by a {@link TokenDictionary} and counted in an int array indexed by id, and n-grams are
+ * interned and counted by one {@link PairDictionary} per length, a batch at a time. The chunks are merged once they are all counted.
+ * Like {@link CsvParser}, a chunk is copied from the source in windows of {@link #WINDOW_BYTES}, so a memory-mapped blob is paged in by
+ * the threads that read it.
+ * <br/>A token is a run of letters and digits, which may contain an apostrophe followed by a letter, as in "don't". Letters are lower-cased
+ * unless disabled. N-grams are runs of consecutive tokens that do not cross a clause break, one of . , ; : ! ? and brackets; an n-gram is
+ * counted by the chunk its first token is in, which reads on past its end for the rest of it, so the counts do not depend on the chunking.
+ */
+public final class TextAnalyzer {
+
+	/**
+	 * The smallest chunk counted by one task.
+	 */
+	public static final int MIN_CHUNK_BYTES = 4 * 1024 * 1024;
+
+	/**
+	 * The longest n-grams counted.
+	 */
+	public static final int MAX_NGRAM = 5;
+
+	/**
+	 * The size of the window a chunk is copied into, grown for tokens that do not fit.
+	 */
+	static final int WINDOW_BYTES = 1024 * 1024;
+
+	/**
+	 * The bytes read at a time past the end of a chunk to complete its last n-grams.
+	 */
+	private static final int OVERFLOW_BYTES = 4096;
+
+	private static final byte WORD = 1;
+	private static final byte BREAK = 2;
+	private static final byte[] KINDS = new byte[128];
+
+	static {
+		for(int c = '0'; c <= '9'; c++) KINDS[c] = WORD;
+		for(int c = 'a'; c <= 'z'; c++) KINDS[c] = WORD;
+		for(int c = 'A'; c <= 'Z'; c++) KINDS[c] = WORD;
+		for(char c : ".,;:!?()[]{}".toCharArray()) KINDS[c] = BREAK;
+	}
+
+	private final int ngram;
+	private final boolean lowercase;
+
+	/**
+	 * Creates an analyzer.
+	 * @param ngram the length of the n-grams to count, or 1 to count terms only
+	 * @param lowercase whether letters are lower-cased
+	 * @throws IllegalArgumentException if the n-gram length is not between 1 and {@link #MAX_NGRAM}
+	 */
+	public TextAnalyzer(int ngram, boolean lowercase) {
+		if(ngram < 1 || ngram > MAX_NGRAM) throw new IllegalArgumentException("Invalid n-gram length: " + ngram);
+		this.ngram = ngram;
+		this.lowercase = lowercase;
+	}
+
+	/**
+	 * Counts the terms and n-grams of a text.
+	 * @param source the text, read from its position to its limit, which is not changed; may be a heap, direct or mapped buffer
+	 * @return the counts
+	 */
+	public TextStatistics analyze(ByteBuffer source) {
+		ByteBuffer text = source.slice();
+		int length = text.limit();
+		int chunks = (int) Math.max(1, Math.min(length / MIN_CHUNK_BYTES, ForkJoinPool.getCommonPoolParallelism() * 4L));
+		int[] bounds = new int[chunks + 1];
+		bounds[chunks] = length;
+		for(int i = 1; i < chunks; i++) bounds[i] = Math.max(bounds[i - 1], whitespace(text, (int) ((long) length * i / chunks), length));
+		List<TextStatistics.Chunk> counted = IntStream.range(0, chunks).parallel().mapToObj(i -> new ChunkAnalyzer(text, bounds[i + 1] - bounds[i]).analyze(bounds[i], bounds[i + 1])).toList();
+		return new TextStatistics(ngram, new ArrayList<>(counted));
+	}
+
+	/**
+	 * Returns the index of the first whitespace byte at or after an index, or the length if there is none. No token or UTF-8 sequence
+	 * spans it.
+	 */
+	private static int whitespace(ByteBuffer text, int from, int length) {
+		for(int i = from; i < length; i++) {
+			byte value = text.get(i);
+			if(value == ' ' || value == '\n' || value == '\t' || value == '\r') return i;
+		}
+		return length;
+	}
+
+	/**
+	 * Returns the length of the UTF-8 sequence a byte starts, or 0 if it cannot start one.
+	 */
+	private static int sequenceLength(int value) {
+		if(value >= 0xF0) return value < 0xF5 ? 4 : 0;
+		if(value >= 0xE0) return 3;
+		return value >= 0xC2 ? 2 : 0;
+	}
+
+	/**
+	 * Decodes the UTF-8 sequence of a length at an index, returning -1 if it is invalid.
+	 */
+	private static int decode(byte[] data, int index, int length) {
+		int codePoint = data[index] & (0xFF >> (length + 1));
+		for(int i = 1; i < length; i++) {
+			int value = data[index + i];
+			if((value & 0xC0) != 0x80) return -1;
+			codePoint = codePoint << 6 | (value & 0x3F);
+		}
+		return codePoint;
+	}
+
+	/**
+	 * Counts one chunk. The state of the n-grams being built, the ids of the n-grams of each length ending at the last token, is kept
+	 * across windows.
+	 */
+	private final class ChunkAnalyzer {
+
+		private final ByteBuffer text;
+		private final TextStatistics.Chunk chunk;
+		private final int[] grams = new int[ngram];
+		private final long[] batch = new long[PairDictionary.BATCH];
+		private int batched;
+		private byte[] token = new byte[64];
+		private byte[] window;
+		private int run;
+		private boolean overflow;
+		private int extra;
+		private boolean stopped;
+
+		ChunkAnalyzer(ByteBuffer text, int bytes) {
+			this.text = text;
+			chunk = new TextStatistics.Chunk(ngram, bytes);
+		}
+
+		TextStatistics.Chunk analyze(int from, int to) {
+			try(BufferPool.Lease<byte[]> windowLease = BufferPool.SHARED.leaseBytes(Math.min(WINDOW_BYTES, Math.max(to - from, OVERFLOW_BYTES)))) {
+				window = windowLease.array();
+				read(from, to, window.length);
+				// Complete the n-grams that start in this chunk and end in the next
+				if(ngram > 1 && run > 0 && to < text.limit()) {
+					overflow = true;
+					read(to, text.limit(), OVERFLOW_BYTES);
+				}
+				window = null;
+			}
+			flush();
+			return chunk;
+		}
+
+		/**
+		 * Copies the text from to end into the window a step at a time and scans it, carrying a token cut by the end of the window over
+		 * to the next one.
+		 */
+		private void read(int from, int to, int step) {
+			int offset = from, filled = 0;
+			while(true) {
+				int read = Math.min(Math.min(window.length - filled, step), to - offset - filled);
+				text.get(offset + filled, window, filled, read);
+				filled += read;
+				boolean last = offset + filled == to;
+				int consumed = scan(window, filled, last);
+				if(stopped || last) return;
+				if(consumed == 0 && filled == window.length) {
+					// A token longer than the window: grow it and rescan
+					window = Arrays.copyOf(window, window.length * 2);
+					continue;
+				}
+				System.arraycopy(window, consumed, window, 0, filled - consumed);
+				offset += consumed;
+				filled -= consumed;
+			}
+		}
+
+		/**
+		 * Counts the tokens of data[0, filled).
+		 * @return the index up to which the data was consumed: all of it if it is the last, else up to a token that may continue past it
+		 */
+		private int scan(byte[] data, int filled, boolean last) {
+			int i = 0;
+			while(i < filled) {
+				int value = data[i] & 0xFF;
+				if(value < 0x80) {
+					byte kind = KINDS[value];
+					if(kind != WORD) {
+						if(kind == BREAK) {
+							run = 0;
+							if(overflow) {
+								stopped = true;
+								return i;
+							}
+						}
+						i++;
+						continue;
+					}
+				} else {
+					int length = sequenceLength(value);
+					if(length == 0) {
+						i++;
+						continue;
+					}
+					if(i + length > filled) {
+						if(!last) return i;
+						i++;
+						continue;
+					}
+					int codePoint = decode(data, i, length);
+					if(codePoint < 0 || !Character.isLetterOrDigit(codePoint)) {
+						i += codePoint < 0 ? 1 : length;
+						continue;
+					}
+				}
+				int start = i, length = 0, hash = TokenDictionary.FNV_OFFSET;
+				while(true) {
+					if(i >= filled) {
+						if(!last) return start;
+						break;
+					}
+					if(length + 4 > token.length) token = Arrays.copyOf(token, token.length * 2);
+					value = data[i] & 0xFF;
+					if(value < 0x80) {
+						if(KINDS[value] == WORD) {
+							if(lowercase && value >= 'A' && value <= 'Z') value |= 0x20;
+							token[length++] = (byte) value;
+							hash = (hash ^ (byte) value) * TokenDictionary.FNV_PRIME;
+							i++;
+							continue;
+						}
+						if(value != '\'') break;
+						if(i + 1 >= filled) {
+							if(!last) return start;
+							break;
+						}
+						int next = data[i + 1];
+						if(next < 'A' || next > 'z' || KINDS[next] != WORD) break;
+						token[length++] = '\'';
+						hash = (hash ^ '\'') * TokenDictionary.FNV_PRIME;
+						i++;
+						continue;
+					}
+					int sequence = sequenceLength(value);
+					if(sequence == 0) break;
+					if(i + sequence > filled) {
+						if(!last) return start;
+						break;
+					}
+					int codePoint = decode(data, i, sequence);
+					if(codePoint < 0 || !Character.isLetterOrDigit(codePoint)) break;
+					if(lowercase) codePoint = Character.toLowerCase(codePoint);
+					int end = length;
+					length = encode(codePoint, length);
+					for(int j = end; j < length; j++) hash = (hash ^ token[j]) * TokenDictionary.FNV_PRIME;
+					i += sequence;
+				}
+				emit(length, hash);
+				if(stopped) return i;
+			}
+			return filled;
+		}
+
+		/**
+		 * Counts the n-grams batched so far.
+		 */
+		private void flush() {
+			if(ngram == 1) return;
+			chunk.levels[ngram].addAll(batch, batched);
+			chunk.gramCount += batched;
+			batched = 0;
+		}
+
+		/**
+		 * Writes a code point to the token in UTF-8 and returns the new length of the token.
+		 */
+		private int encode(int codePoint, int length) {
+			if(codePoint < 0x80) token[length++] = (byte) codePoint;
+			else if(codePoint < 0x800) {
+				token[length++] = (byte) (0xC0 | codePoint >> 6);
+				token[length++] = (byte) (0x80 | (codePoint & 0x3F));
+			} else if(codePoint < 0x10000) {
+				token[length++] = (byte) (0xE0 | codePoint >> 12);
+				token[length++] = (byte) (0x80 | (codePoint >> 6 & 0x3F));
+				token[length++] = (byte) (0x80 | (codePoint & 0x3F));
+			} else {
+				token[length++] = (byte) (0xF0 | codePoint >> 18);
+				token[length++] = (byte) (0x80 | (codePoint >> 12 & 0x3F));
+				token[length++] = (byte) (0x80 | (codePoint >> 6 & 0x3F));
+				token[length++] = (byte) (0x80 | (codePoint & 0x3F));
+			}
+			return length;
+		}
+
+		/**
+		 * Counts a token and the n-gram it ends. Past the end of the chunk only the n-grams that start in it are counted.
+		 */
+		private void emit(int length, int hash) {
+			int id = chunk.tokens.intern(token, 0, length, hash);
+			if(overflow) extra++;
+			else {
+				if(id >= chunk.counts.length) chunk.counts = Arrays.copyOf(chunk.counts, Math.max(id + 1, chunk.counts.length + (chunk.counts.length >> 1)));
+				chunk.counts[id]++;
+				chunk.tokenCount++;
+			}
+			if(ngram == 1) return;
+			// Extend the n-grams ending at the previous token, longest first so each reads the shorter one before it is replaced
+			for(int n = Math.min(run + 1, ngram); n >= 2; n--) {
+				if(n < ngram) grams[n] = chunk.levels[n].intern(grams[n - 1], id);
+				else {
+					batch[batched++] = (long) grams[n - 1] << 32 | id;
+					if(batched == batch.length) flush();
+				}
+			}
+			grams[1] = id;
+			run = Math.min(run + 1, ngram - 1);
+			if(overflow && extra == ngram - 1) stopped = true;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package garretreichenbach.taskprocessor.processor;
+
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.parameters.TextAnalysisParameters;
+import garretreichenbach.taskprocessor.model.parameters.TextExtractionParameters;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Processes TEXT_ANALYSIS and TEXT_EXTRACTION tasks: term and n-gram frequencies of a document, and its keywords and keyphrases.
+ * <br/>Both count the text with a {@link TextAnalyzer}, in parallel chunks whose counts are merged, so large documents are counted without
+ * a String or boxed count per token; only the terms returned are decoded. Large blobs arrive memory-mapped by the blob store.
+ * <br/>Keywords are the most frequent terms that are not English stop words or numbers and have at least a minimum number of characters,
+ * scored by their frequency. Keyphrases are the most frequent n-grams that neither start nor end with a stop word, so "state of the art"
+ * is one but "of the" is not.
+ */
+@Slf4j
+public class TextProcessor implements TaskProcessor {
+
+	private static final Set<String> STOP_WORDS = Set.of(
+			"a", "about", "above", "after", "again", "against", "all", "also", "am", "an", "and", "any", "are", "as", "at", "be", "because",
+			"been", "before", "being", "below", "between", "both", "but", "by", "can", "could", "did", "do", "does", "doing", "down", "during",
+			"each", "few", "for", "from", "further", "had", "has", "have", "having", "he", "her", "here", "hers", "herself", "him", "himself",
+			"his", "how", "i", "if", "in", "into", "is", "it", "it's", "its", "itself", "just", "me", "more", "most", "my", "myself", "no", "nor",
+			"not", "now", "of", "off", "on", "once", "only", "or", "other", "our", "ours", "ourselves", "out", "over", "own", "same", "she",
+			"should", "so", "some", "such", "than", "that", "the", "their", "theirs", "them", "themselves", "then", "there", "these", "they",
+			"this", "those", "through", "to", "too", "under", "until", "up", "very", "was", "we", "were", "what", "when", "where", "which",
+			"while", "who", "whom", "why", "will", "with", "would", "you", "your", "yours", "yourself", "yourselves");
+
+	@Override
+	public TaskResult process(Task task) {
+		Map<String, Object> outputs;
+		try {
+			switch(task.getType()) {
+				case TEXT_ANALYSIS -> {
+					TextAnalysisParameters parameters = task.getParameters(TextAnalysisParameters.class);
+					outputs = analyzeText(textOf(parameters.data(), parameters.text()), parameters.ngram(), parameters.top(), parameters.lowercase());
+					return TaskResult.success(task.getId(), outputs);
+				}
+				case TEXT_EXTRACTION -> {
+					TextExtractionParameters parameters = task.getParameters(TextExtractionParameters.class);
+					outputs = extractKeywords(textOf(parameters.data(), parameters.text()), parameters.ngram(), parameters.top(), parameters.minLength());
+					return TaskResult.success(task.getId(), outputs);
+				}
+				default -> {
+					log.error("Task type not supported: {}", task.getType());
+					return TaskResult.error(task.getId(), new Exception("Unknown task type: " + task.getType()));
+				}
+			}
+		} catch(Exception exception) {
+			log.error(exception.getMessage(), exception);
+			return TaskResult.error(task.getId(), exception);
+		}
+	}
+
+	/**
+	 * Counts the terms and n-grams of a text.
+	 * @param text The text in UTF-8.
+	 * @param ngram The length of the n-grams to count, or 1 to count terms only.
+	 * @param top The number of terms and n-grams to return.
+	 * @param lowercase Whether letters are lower-cased.
+	 * @return A map containing the number of "tokens" and "distinct" terms, the most frequent "terms" with their "counts" and "frequencies"
+	 * (the share of all tokens), and for n-grams longer than 1 the most frequent "ngrams" with their "ngram_counts" and the number of
+	 * "distinct_ngrams".
+	 * @throws IllegalArgumentException If the n-gram length or the number to return is invalid.
+	 */
+	public Map<String, Object> analyzeText(ByteBuffer text, int ngram, int top, boolean lowercase) {
+		TextStatistics statistics = new TextAnalyzer(ngram, lowercase).analyze(text);
+		Map<String, Object> outputs = new HashMap<>();
+		outputs.put("tokens", statistics.getTokens());
+		outputs.put("distinct", statistics.getDistinct());
+		int[] terms = statistics.topTerms(top, id -> true);
+		putTerms(outputs, statistics, terms);
+		double[] frequencies = new double[terms.length];
+		for(int i = 0; i < terms.length; i++) frequencies[i] = (double) statistics.count(terms[i]) / statistics.getTokens();
+		outputs.put("frequencies", frequencies);
+		if(ngram > 1) {
+			putNgrams(outputs, statistics, statistics.topNgrams(top, id -> true));
+			outputs.put("distinct_ngrams", statistics.getDistinctNgrams());
+		}
+		return outputs;
+	}
+
+	/**
+	 * Extracts the keywords and keyphrases of a text.
+	 * @param text The text in UTF-8.
+	 * @param ngram The number of terms in a keyphrase, or 1 to extract keywords only.
+	 * @param top The number of keywords and keyphrases to return.
+	 * @param minLength The fewest characters a keyword has.
+	 * @return A map containing the number of "tokens", the "keywords" with their "scores", and for keyphrases of more than one term the
+	 * "keyphrases" with their "keyphrase_scores". Scores are the share of all tokens, or of all n-grams for keyphrases.
+	 * @throws IllegalArgumentException If the n-gram length or the number to return is invalid.
+	 */
+	public Map<String, Object> extractKeywords(ByteBuffer text, int ngram, int top, int minLength) {
+		TextStatistics statistics = new TextAnalyzer(ngram, true).analyze(text);
+		boolean[] stopWords = new boolean[statistics.getDistinct()];
+		for(String word : STOP_WORDS) {
+			int id = statistics.find(word);
+			if(id >= 0) stopWords[id] = true;
+		}
+		Map<String, Object> outputs = new HashMap<>();
+		outputs.put("tokens", statistics.getTokens());
+		int[] keywords = statistics.topTerms(top, id -> !stopWords[id] && !statistics.isNumber(id) && statistics.characters(id) >= minLength);
+		String[] words = new String[keywords.length];
+		double[] scores = new double[keywords.length];
+		for(int i = 0; i < keywords.length; i++) {
+			words[i] = statistics.term(keywords[i]);
+			scores[i] = (double) statistics.count(keywords[i]) / statistics.getTokens();
+		}
+		outputs.put("keywords", words);
+		outputs.put("scores", scores);
+		if(ngram > 1) {
+			int[] phrases = statistics.topNgrams(top, id -> !stopWords[statistics.firstTerm(id)] && !stopWords[statistics.lastTerm(id)]);
+			String[] keyphrases = new String[phrases.length];
+			double[] phraseScores = new double[phrases.length];
+			for(int i = 0; i < phrases.length; i++) {
+				keyphrases[i] = statistics.ngram(phrases[i]);
+				phraseScores[i] = (double) statistics.ngramCount(phrases[i]) / statistics.getNgrams();
+			}
+			outputs.put("keyphrases", keyphrases);
+			outputs.put("keyphrase_scores", phraseScores);
+		}
+		return outputs;
+	}
+
+	private static void putTerms(Map<String, Object> outputs, TextStatistics statistics, int[] ids) {
+		String[] terms = new String[ids.length];
+		long[] counts = new long[ids.length];
+		for(int i = 0; i < ids.length; i++) {
+			terms[i] = statistics.term(ids[i]);
+			counts[i] = statistics.count(ids[i]);
+		}
+		outputs.put("terms", terms);
+		outputs.put("counts", counts);
+	}
+
+	private static void putNgrams(Map<String, Object> outputs, TextStatistics statistics, int[] ids) {
+		String[] ngrams = new String[ids.length];
+		long[] counts = new long[ids.length];
+		for(int i = 0; i < ids.length; i++) {
+			ngrams[i] = statistics.ngram(ids[i]);
+			counts[i] = statistics.ngramCount(ids[i]);
+		}
+		outputs.put("ngrams", ngrams);
+		outputs.put("ngram_counts", counts);
+	}
+
+	private static ByteBuffer textOf(ByteBuffer data, String text) {
+		if(data != null) return data;
+		if(text != null) return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+		throw new IllegalArgumentException("Missing parameter: data");
+	}
+}
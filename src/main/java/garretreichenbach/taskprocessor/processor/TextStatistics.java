@@ -0,0 +1,248 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * The term and n-gram counts of a text, built by {@link TextAnalyzer} from the counts of its chunks.
+ * <br/>Terms have dense ids in the order they first occur in the text. Each chunk interns its tokens and n-grams into ids of its own;
+ * merging maps the ids of every chunk after the first into the merged dictionaries, one lookup per distinct entry, and adds its counts, so
+ * the cost of the merge does not depend on the length of the text. N-grams of chunks after the first are merged in the order of their
+ * hash tables, so their ids, which break ties between equal counts, follow no particular order.
+ */
+public final class TextStatistics {
+
+	private final int ngram;
+	private final TokenDictionary tokens;
+	private final PairDictionary[] levels;
+	private final long[] gramCounts;
+	private long[] counts;
+	private long tokenCount;
+	private long gramCount;
+
+	TextStatistics(int ngram, List<Chunk> chunks) {
+		this.ngram = ngram;
+		Chunk first = chunks.get(0);
+		tokens = first.tokens;
+		levels = first.levels;
+		counts = widen(first.counts, tokens.size());
+		tokenCount = first.tokenCount;
+		gramCount = first.gramCount;
+		for(int i = 1; i < chunks.size(); i++) merge(chunks.get(i));
+		gramCounts = ngram > 1 ? levels[ngram].counts() : new long[0];
+	}
+
+	/**
+	 * Returns the length of the n-grams counted, 1 if none are.
+	 */
+	public int getNgram() {
+		return ngram;
+	}
+
+	/**
+	 * Returns the number of tokens in the text.
+	 */
+	public long getTokens() {
+		return tokenCount;
+	}
+
+	/**
+	 * Returns the number of distinct terms.
+	 */
+	public int getDistinct() {
+		return tokens.size();
+	}
+
+	/**
+	 * Returns the number of n-grams in the text.
+	 */
+	public long getNgrams() {
+		return gramCount;
+	}
+
+	/**
+	 * Returns the number of distinct n-grams.
+	 */
+	public int getDistinctNgrams() {
+		return ngram > 1 ? levels[ngram].size() : 0;
+	}
+
+	/**
+	 * Returns a term by id.
+	 */
+	public String term(int id) {
+		return tokens.get(id);
+	}
+
+	/**
+	 * Returns the number of occurrences of a term.
+	 */
+	public long count(int id) {
+		return counts[id];
+	}
+
+	/**
+	 * Returns the id of a term, or -1 if it does not occur.
+	 */
+	public int find(String term) {
+		return tokens.find(term);
+	}
+
+	/**
+	 * Returns the number of characters of a term.
+	 */
+	public int characters(int id) {
+		return tokens.characters(id);
+	}
+
+	/**
+	 * Returns whether a term is made of digits only.
+	 */
+	public boolean isNumber(int id) {
+		return tokens.isNumber(id);
+	}
+
+	/**
+	 * Returns an n-gram by id, its terms separated by spaces.
+	 */
+	public String ngram(int id) {
+		String[] terms = new String[ngram];
+		for(int n = ngram; n > 1; n--) {
+			terms[n - 1] = tokens.get(levels[n].second(id));
+			id = levels[n].first(id);
+		}
+		terms[0] = tokens.get(id);
+		return String.join(" ", terms);
+	}
+
+	/**
+	 * Returns the number of occurrences of an n-gram.
+	 */
+	public long ngramCount(int id) {
+		return gramCounts[id];
+	}
+
+	/**
+	 * Returns the id of the first term of an n-gram.
+	 */
+	public int firstTerm(int id) {
+		for(int n = ngram; n > 1; n--) id = levels[n].first(id);
+		return id;
+	}
+
+	/**
+	 * Returns the id of the last term of an n-gram.
+	 */
+	public int lastTerm(int id) {
+		return levels[ngram].second(id);
+	}
+
+	/**
+	 * Returns the most frequent terms, most frequent first and ties in order of first occurrence.
+	 * @param limit the maximum number of terms
+	 * @param filter the terms to consider, by id
+	 * @return the ids of the terms
+	 */
+	public int[] topTerms(int limit, IntPredicate filter) {
+		return top(counts, tokens.size(), limit, filter);
+	}
+
+	/**
+	 * Returns the most frequent n-grams, most frequent first and ties by id.
+	 * @param limit the maximum number of n-grams
+	 * @param filter the n-grams to consider, by id
+	 * @return the ids of the n-grams
+	 */
+	public int[] topNgrams(int limit, IntPredicate filter) {
+		return top(gramCounts, getDistinctNgrams(), limit, filter);
+	}
+
+	/**
+	 * Maps the ids of a chunk into the merged dictionaries, level by level, and adds its counts.
+	 */
+	private void merge(Chunk chunk) {
+		int[] tokenIds = new int[chunk.tokens.size()];
+		for(int id = 0; id < tokenIds.length; id++) tokenIds[id] = tokens.intern(chunk.tokens, id);
+		if(counts.length < tokens.size()) counts = Arrays.copyOf(counts, Math.max(tokens.size(), counts.length + (counts.length >> 1)));
+		for(int id = 0; id < Math.min(tokenIds.length, chunk.counts.length); id++) counts[tokenIds[id]] += chunk.counts[id];
+		tokenCount += chunk.tokenCount;
+		int[] ids = tokenIds;
+		for(int n = 2; n <= ngram; n++) ids = levels[n].addAll(chunk.levels[n], ids, tokenIds, n < ngram);
+		gramCount += chunk.gramCount;
+	}
+
+	private static long[] widen(int[] counts, int size) {
+		long[] wide = new long[size];
+		for(int id = 0; id < Math.min(size, counts.length); id++) wide[id] = counts[id];
+		return wide;
+	}
+
+	/**
+	 * Selects the ids with the highest counts with a bounded min-heap, whose root is the worst id kept.
+	 */
+	private static int[] top(long[] counts, int size, int limit, IntPredicate filter) {
+		if(limit < 0) throw new IllegalArgumentException("Invalid limit: " + limit);
+		int[] heap = new int[Math.min(limit, size)];
+		int used = 0;
+		for(int id = 0; id < size && heap.length > 0; id++) {
+			if(counts[id] == 0 || (used == heap.length && !before(id, heap[0], counts)) || !filter.test(id)) continue;
+			if(used < heap.length) {
+				int index = used++;
+				for(; index > 0 && before(heap[(index - 1) >> 1], id, counts); index = (index - 1) >> 1) heap[index] = heap[(index - 1) >> 1];
+				heap[index] = id;
+			} else siftDown(heap, used, id, counts);
+		}
+		int[] result = new int[used];
+		for(int i = used - 1; i >= 0; i--) {
+			result[i] = heap[0];
+			siftDown(heap, i, heap[i], counts);
+		}
+		return result;
+	}
+
+	/**
+	 * Puts an id at the root of the heap of the first size ids and moves it down to its place.
+	 */
+	private static void siftDown(int[] heap, int size, int id, long[] counts) {
+		int index = 0;
+		for(int child = 1; child < size; child = 2 * index + 1) {
+			if(child + 1 < size && before(heap[child], heap[child + 1], counts)) child++;
+			if(!before(id, heap[child], counts)) break;
+			heap[index] = heap[child];
+			index = child;
+		}
+		if(size > 0) heap[index] = id;
+	}
+
+	/**
+	 * Returns whether one id ranks before another: it has a higher count, or the same count and occurs first.
+	 */
+	private static boolean before(int a, int b, long[] counts) {
+		return counts[a] > counts[b] || (counts[a] == counts[b] && a < b);
+	}
+
+	/**
+	 * The counts of one chunk, under ids of its own.
+	 */
+	static final class Chunk {
+
+		final TokenDictionary tokens;
+		final PairDictionary[] levels;
+		int[] counts;
+		long tokenCount;
+		long gramCount;
+
+		/**
+		 * Creates empty counts, sized for the distinct entries expected in a chunk of a number of bytes.
+		 */
+		Chunk(int ngram, int bytes) {
+			int distinct = Math.min(4096, bytes / 8);
+			int distinctGrams = Math.min(16384, bytes / 8);
+			tokens = new TokenDictionary(distinct);
+			levels = new PairDictionary[ngram + 1];
+			for(int n = 2; n <= ngram; n++) levels[n] = new PairDictionary(distinctGrams);
+			counts = new int[distinct];
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package garretreichenbach.taskprocessor.processor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interns tokens, given as runs of UTF-8 bytes, into dense int ids in the order they are first seen.
+ * <br/>The bytes of all tokens are appended to one array, and an open-addressing table with linear probing holds the hash and id of each
+ * token side by side, so a probe that misses touches one slot and no token bytes. Hashes are 32-bit FNV-1a, which the tokenizer computes
+ * while it copies a token, and are kept per id so the table grows without rehashing any bytes.
+ */
+final class TokenDictionary {
+
+	static final int FNV_OFFSET = 0x811C9DC5;
+	static final int FNV_PRIME = 0x01000193;
+
+	private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+	private byte[] bytes;
+	private int[] offsets;
+	private int[] hashes;
+	private int[] table;
+	private int size;
+	private int shift;
+
+	/**
+	 * Creates an empty dictionary.
+	 * @param capacity the number of tokens expected
+	 */
+	TokenDictionary(int capacity) {
+		capacity = Math.max(16, capacity);
+		bytes = new byte[capacity * 8];
+		offsets = new int[capacity + 1];
+		hashes = new int[capacity];
+		allocate(Integer.highestOneBit(capacity) << 2);
+	}
+
+	/**
+	 * Hashes a run of bytes as the tokenizer does.
+	 */
+	static int hash(byte[] data, int from, int to) {
+		int hash = FNV_OFFSET;
+		for(int i = from; i < to; i++) hash = (hash ^ data[i]) * FNV_PRIME;
+		return hash;
+	}
+
+	/**
+	 * Returns the id of a token, adding it if it is new.
+	 * @param token the bytes holding the token
+	 * @param from the index of its first byte
+	 * @param length its length in bytes
+	 * @param hash its hash, see {@link #hash}
+	 * @return the id
+	 */
+	int intern(byte[] token, int from, int length, int hash) {
+		int mask = (table.length >> 1) - 1;
+		for(int slot = (hash * HASH_MULTIPLIER) >>> shift; ; slot = (slot + 1) & mask) {
+			int id = table[2 * slot + 1];
+			if(id < 0) {
+				id = add(token, from, length, hash);
+				table[2 * slot] = hash;
+				table[2 * slot + 1] = id;
+				if(size * 2 > mask) allocate(table.length);
+				return id;
+			}
+			if(table[2 * slot] == hash && offsets[id + 1] - offsets[id] == length && Arrays.equals(bytes, offsets[id], offsets[id] + length, token, from, from + length)) return id;
+		}
+	}
+
+	/**
+	 * Returns the id of a token of another dictionary, adding it if it is new.
+	 */
+	int intern(TokenDictionary other, int id) {
+		return intern(other.bytes, other.offsets[id], other.offsets[id + 1] - other.offsets[id], other.hashes[id]);
+	}
+
+	/**
+	 * Returns the id of a token, or -1 if it has not been seen.
+	 */
+	int find(String token) {
+		byte[] encoded = token.getBytes(StandardCharsets.UTF_8);
+		int hash = hash(encoded, 0, encoded.length);
+		int mask = (table.length >> 1) - 1;
+		for(int slot = (hash * HASH_MULTIPLIER) >>> shift; ; slot = (slot + 1) & mask) {
+			int id = table[2 * slot + 1];
+			if(id < 0) return -1;
+			if(table[2 * slot] == hash && Arrays.equals(bytes, offsets[id], offsets[id + 1], encoded, 0, encoded.length)) return id;
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a token as a String.
+	 */
+	String get(int id) {
+		return new String(bytes, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the number of characters of a token, counting each code point once.
+	 */
+	int characters(int id) {
+		int characters = 0;
+		for(int i = offsets[id]; i < offsets[id + 1]; i++) if((bytes[i] & 0xC0) != 0x80) characters++;
+		return characters;
+	}
+
+	/**
+	 * Returns whether a token is made of ASCII digits only.
+	 */
+	boolean isNumber(int id) {
+		for(int i = offsets[id]; i < offsets[id + 1]; i++) if(bytes[i] < '0' || bytes[i] > '9') return false;
+		return true;
+	}
+
+	private int add(byte[] token, int from, int length, int hash) {
+		if(size + 1 == offsets.length) {
+			offsets = Arrays.copyOf(offsets, size + (size >> 1) + 2);
+			hashes = Arrays.copyOf(hashes, offsets.length - 1);
+		}
+		int offset = offsets[size];
+		if(offset + length > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(offset + length, bytes.length + (bytes.length >> 1)));
+		System.arraycopy(token, from, bytes, offset, length);
+		offsets[size + 1] = offset + length;
+		hashes[size] = hash;
+		return size++;
+	}
+
+	/**
+	 * Allocates a table of a number of slots, a power of two, and reinserts every token from its stored hash.
+	 */
+	private void allocate(int slots) {
+		table = new int[2 * slots];
+		Arrays.fill(table, -1);
+		shift = Integer.SIZE - Integer.numberOfTrailingZeros(slots);
+		int mask = slots - 1;
+		for(int id = 0; id < size; id++) {
+			int slot = (hashes[id] * HASH_MULTIPLIER) >>> shift;
+			while(table[2 * slot + 1] >= 0) slot = (slot + 1) & mask;
+			table[2 * slot] = hashes[id];
+			table[2 * slot + 1] = id;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package garretreichenbach.taskprocessor.processor;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD {@link CsvKernels}, built on the incubating Vector API.
+ * <br/>Each vector of bytes is compared with the three structural bytes at once, and the combined mask is turned into a bitmap whose set
+ * bits are extracted with a trailing zero count, so the cost follows the number of structural bytes rather than the length of the text.
+ * <br/>Loading this class fails with a {@link LinkageError} when the jdk.incubator.vector module is not in the module graph.
+ */
+final class VectorCsvKernels extends ScalarCsvKernels {
+
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+
+	/**
+	 * Returns whether the CPU has vectors wide enough for these kernels to beat the scalar loop.
+	 */
+	static boolean isSupported() {
+		return BYTES.vectorBitSize() >= 256;
+	}
+
+	@Override
+	public String getName() {
+		return "vector";
+	}
+
+	@Override
+	public int scan(byte[] data, int from, int to, byte delimiter, int[] positions) {
+		int count = 0;
+		int i = from;
+		for(int bound = to - BYTES.length(); i <= bound; i += BYTES.length()) {
+			ByteVector bytes = ByteVector.fromArray(BYTES, data, i);
+			long bits = bytes.eq(delimiter).or(bytes.eq((byte) '\n')).or(bytes.eq((byte) '"')).toLong();
+			while(bits != 0) {
+				positions[count++] = i + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+			}
+		}
+		return scan(data, i, to, delimiter, positions, count);
+	}
+}
@@ -0,0 +1,134 @@
+package garretreichenbach.taskprocessor.processor;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD {@link MatrixKernels}, built on the incubating Vector API at the preferred vector size.
+ * <br/>The matrix product is computed in tiles of 4 rows by 2 vectors of columns of c, held in 8 vector registers while the block of a
+ * and b is streamed through them: each step loads 2 vectors of a row of b, broadcasts 4 values of a and issues 8 fused multiply-adds.
+ * Rows and columns left over by the tiles go through narrower loops.
+ * <br/>Loading this class fails with a {@link LinkageError} when the jdk.incubator.vector module is not in the module graph.
+ */
+final class VectorMatrixKernels extends ScalarMatrixKernels {
+
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	private static final int LANES = DOUBLES.length();
+	private static final int TILE_ROWS = 4;
+	private static final int TILE_COLUMNS = 2 * LANES;
+
+	/**
+	 * Returns whether the CPU has vectors wide enough for these kernels to beat the scalar loops.
+	 */
+	static boolean isSupported() {
+		return DOUBLES.vectorBitSize() >= 256;
+	}
+
+	@Override
+	public String getName() {
+		return "vector";
+	}
+
+	@Override
+	public void multiplyAdd(double[] a, int aOffset, int aStride, double[] b, int bOffset, int bStride, double[] c, int cOffset, int cStride, int rows, int depth, int columns) {
+		int row = 0;
+		for(; row + TILE_ROWS <= rows; row += TILE_ROWS) {
+			int column = 0;
+			for(; column + TILE_COLUMNS <= columns; column += TILE_COLUMNS) multiplyTile(a, aOffset + row * aStride, aStride, b, bOffset + column, bStride, c, cOffset + row * cStride + column, cStride, depth);
+			for(int tileRow = row; tileRow < row + TILE_ROWS; tileRow++) multiplyRow(a, aOffset + tileRow * aStride, b, bOffset, bStride, c, cOffset + tileRow * cStride, depth, column, columns);
+		}
+		for(; row < rows; row++) multiplyRow(a, aOffset + row * aStride, b, bOffset, bStride, c, cOffset + row * cStride, depth, 0, columns);
+	}
+
+	@Override
+	public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+		// Two accumulators hide the latency of the fused multiply-add
+		DoubleVector first = DoubleVector.zero(DOUBLES);
+		DoubleVector second = DoubleVector.zero(DOUBLES);
+		int i = 0;
+		for(; i + 2 * LANES <= length; i += 2 * LANES) {
+			first = DoubleVector.fromArray(DOUBLES, a, aOffset + i).fma(DoubleVector.fromArray(DOUBLES, b, bOffset + i), first);
+			second = DoubleVector.fromArray(DOUBLES, a, aOffset + i + LANES).fma(DoubleVector.fromArray(DOUBLES, b, bOffset + i + LANES), second);
+		}
+		return first.add(second).reduceLanes(VectorOperators.ADD) + super.dot(a, aOffset + i, b, bOffset + i, length - i);
+	}
+
+	@Override
+	public void add(double[] a, double[] b, double[] target, int from, int to) {
+		int i = from;
+		for(; i + LANES <= to; i += LANES) DoubleVector.fromArray(DOUBLES, a, i).add(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(target, i);
+		super.add(a, b, target, i, to);
+	}
+
+	@Override
+	public void subtract(double[] a, double[] b, double[] target, int from, int to) {
+		int i = from;
+		for(; i + LANES <= to; i += LANES) DoubleVector.fromArray(DOUBLES, a, i).sub(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(target, i);
+		super.subtract(a, b, target, i, to);
+	}
+
+	@Override
+	public void multiply(double[] a, double[] b, double[] target, int from, int to) {
+		int i = from;
+		for(; i + LANES <= to; i += LANES) DoubleVector.fromArray(DOUBLES, a, i).mul(DoubleVector.fromArray(DOUBLES, b, i)).intoArray(target, i);
+		super.multiply(a, b, target, i, to);
+	}
+
+	@Override
+	public void scale(double[] a, double scalar, double[] target, int from, int to) {
+		int i = from;
+		for(; i + LANES <= to; i += LANES) DoubleVector.fromArray(DOUBLES, a, i).mul(scalar).intoArray(target, i);
+		super.scale(a, scalar, target, i, to);
+	}
+
+	/**
+	 * Adds the product of 4 rows of a and 2 vectors of columns of b to c, keeping the 8 vectors of c in registers.
+	 */
+	private static void multiplyTile(double[] a, int aOffset, int aStride, double[] b, int bOffset, int bStride, double[] c, int cOffset, int cStride, int depth) {
+		int c0 = cOffset, c1 = c0 + cStride, c2 = c1 + cStride, c3 = c2 + cStride;
+		DoubleVector c00 = DoubleVector.fromArray(DOUBLES, c, c0), c01 = DoubleVector.fromArray(DOUBLES, c, c0 + LANES);
+		DoubleVector c10 = DoubleVector.fromArray(DOUBLES, c, c1), c11 = DoubleVector.fromArray(DOUBLES, c, c1 + LANES);
+		DoubleVector c20 = DoubleVector.fromArray(DOUBLES, c, c2), c21 = DoubleVector.fromArray(DOUBLES, c, c2 + LANES);
+		DoubleVector c30 = DoubleVector.fromArray(DOUBLES, c, c3), c31 = DoubleVector.fromArray(DOUBLES, c, c3 + LANES);
+		int a0 = aOffset, a1 = a0 + aStride, a2 = a1 + aStride, a3 = a2 + aStride;
+		for(int p = 0; p < depth; p++) {
+			int bIndex = bOffset + p * bStride;
+			DoubleVector b0 = DoubleVector.fromArray(DOUBLES, b, bIndex);
+			DoubleVector b1 = DoubleVector.fromArray(DOUBLES, b, bIndex + LANES);
+			DoubleVector scale = DoubleVector.broadcast(DOUBLES, a[a0 + p]);
+			c00 = b0.fma(scale, c00);
+			c01 = b1.fma(scale, c01);
+			scale = DoubleVector.broadcast(DOUBLES, a[a1 + p]);
+			c10 = b0.fma(scale, c10);
+			c11 = b1.fma(scale, c11);
+			scale = DoubleVector.broadcast(DOUBLES, a[a2 + p]);
+			c20 = b0.fma(scale, c20);
+			c21 = b1.fma(scale, c21);
+			scale = DoubleVector.broadcast(DOUBLES, a[a3 + p]);
+			c30 = b0.fma(scale, c30);
+			c31 = b1.fma(scale, c31);
+		}
+		c00.intoArray(c, c0);
+		c01.intoArray(c, c0 + LANES);
+		c10.intoArray(c, c1);
+		c11.intoArray(c, c1 + LANES);
+		c20.intoArray(c, c2);
+		c21.intoArray(c, c2 + LANES);
+		c30.intoArray(c, c3);
+		c31.intoArray(c, c3 + LANES);
+	}
+
+	/**
+	 * Adds the product of one row of a and the columns from columnFrom to columnTo of b to the row of c, one vector of columns at a time.
+	 */
+	private void multiplyRow(double[] a, int aOffset, double[] b, int bOffset, int bStride, double[] c, int cOffset, int depth, int columnFrom, int columnTo) {
+		int column = columnFrom;
+		for(; column + LANES <= columnTo; column += LANES) {
+			DoubleVector sum = DoubleVector.fromArray(DOUBLES, c, cOffset + column);
+			for(int p = 0; p < depth; p++) sum = DoubleVector.fromArray(DOUBLES, b, bOffset + p * bStride + column).fma(DoubleVector.broadcast(DOUBLES, a[aOffset + p]), sum);
+			sum.intoArray(c, cOffset + column);
+		}
+		if(column < columnTo) super.multiplyAdd(a, aOffset, depth, b, bOffset + column, bStride, c, cOffset + column, 0, 1, depth, columnTo - column);
+	}
+}
@@ -0,0 +1,128 @@
+package garretreichenbach.taskprocessor.processor;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD {@link PixelKernels}, built on the incubating Vector API.
+ * <br/>The byte-swizzling kernels work on 128-bit vectors, whose shuffles stay within one register lane on every x86 and ARM CPU.
+ * The arithmetic kernels widen bytes to ints at the preferred vector size, or at 256 bits where the bytes of the preferred int lanes do not
+ * fill a vector shape. The leftover pixels of each call go through the scalar loops.
+ * <br/>Loading this class fails with a {@link LinkageError} when the jdk.incubator.vector module is not in the module graph.
+ */
+final class VectorPixelKernels extends ScalarPixelKernels {
+
+	private static final VectorSpecies<Byte> BYTES_128 = ByteVector.SPECIES_128;
+	private static final VectorSpecies<Integer> INTS_128 = IntVector.SPECIES_128;
+	private static final VectorSpecies<Integer> INTS = intSpecies();
+	private static final VectorSpecies<Byte> INT_LANE_BYTES = VectorSpecies.of(byte.class, VectorShape.forBitSize(INTS.length() * Byte.SIZE));
+
+	/**
+	 * Four RGB pixels (12 bytes) to four little-endian 0x00RRGGBB ints. The lanes cleared by {@link #NO_ALPHA} become the zero top byte.
+	 */
+	private static final VectorShuffle<Byte> RGB_TO_INT = VectorShuffle.fromValues(BYTES_128, 2, 1, 0, 0, 5, 4, 3, 0, 8, 7, 6, 0, 11, 10, 9, 0);
+	private static final VectorMask<Byte> NO_ALPHA = VectorMask.fromValues(BYTES_128, true, true, true, false, true, true, true, false, true, true, true, false, true, true, true, false);
+
+	/**
+	 * Four little-endian ints to four RGB pixels in the first 12 bytes. The last 4 bytes are overwritten by the next store.
+	 */
+	private static final VectorShuffle<Byte> INT_TO_RGB = VectorShuffle.fromValues(BYTES_128, 2, 1, 0, 6, 5, 4, 10, 9, 8, 14, 13, 12, 0, 0, 0, 0);
+
+	/**
+	 * Five RGB pixels (15 bytes) with red and blue swapped. The 16th byte, the first of the next pixel, is kept as it is.
+	 */
+	private static final VectorShuffle<Byte> SWAP_RED_BLUE = VectorShuffle.fromValues(BYTES_128, 2, 1, 0, 5, 4, 3, 8, 7, 6, 11, 10, 9, 14, 13, 12, 15);
+
+	/**
+	 * Returns whether the CPU has vectors wide enough for these kernels to beat the scalar loops.
+	 */
+	static boolean isSupported() {
+		return INTS == IntVector.SPECIES_PREFERRED && INTS.vectorBitSize() >= 256;
+	}
+
+	/**
+	 * Returns the species bytes are widened to: the preferred one, unless as many bytes as it has lanes are no vector shape, as with
+	 * 128-bit vectors, whose 4 lanes only take 32 bits of bytes. The 8 lanes of 256-bit ints, whose bytes fill a 64-bit vector, are used
+	 * then; they are emulated on such CPUs, which {@link #isSupported} rejects anyway.
+	 */
+	private static VectorSpecies<Integer> intSpecies() {
+		int laneBytes = IntVector.SPECIES_PREFERRED.length() * Byte.SIZE;
+		for(VectorShape shape : VectorShape.values()) if(shape.vectorBitSize() == laneBytes) return IntVector.SPECIES_PREFERRED;
+		return IntVector.SPECIES_256;
+	}
+
+	@Override
+	public String getName() {
+		return "vector";
+	}
+
+	@Override
+	public void rgbToInt(byte[] source, int sourceOffset, int[] target, int targetOffset, int pixels) {
+		int i = 0;
+		for(; i + 4 <= pixels && sourceOffset + i * 3 + 16 <= source.length; i += 4) {
+			ByteVector.fromArray(BYTES_128, source, sourceOffset + i * 3).rearrange(RGB_TO_INT, NO_ALPHA).reinterpretAsInts().intoArray(target, targetOffset + i);
+		}
+		super.rgbToInt(source, sourceOffset + i * 3, target, targetOffset + i, pixels - i);
+	}
+
+	@Override
+	public void intToRgb(int[] source, int sourceOffset, byte[] target, int targetOffset, int pixels) {
+		int i = 0;
+		for(; i * 3 + 16 <= pixels * 3; i += 4) {
+			IntVector.fromArray(INTS_128, source, sourceOffset + i).reinterpretAsBytes().rearrange(INT_TO_RGB).intoArray(target, targetOffset + i * 3);
+		}
+		super.intToRgb(source, sourceOffset + i, target, targetOffset + i * 3, pixels - i);
+	}
+
+	@Override
+	public void swapRedBlue(byte[] source, int sourceOffset, byte[] target, int targetOffset, int pixels) {
+		int i = 0;
+		for(; i * 3 + 16 <= pixels * 3; i += 5) {
+			ByteVector.fromArray(BYTES_128, source, sourceOffset + i * 3).rearrange(SWAP_RED_BLUE).intoArray(target, targetOffset + i * 3);
+		}
+		super.swapRedBlue(source, sourceOffset + i * 3, target, targetOffset + i * 3, pixels - i);
+	}
+
+	@Override
+	public void blend(byte[] first, int firstOffset, byte[] second, int secondOffset, int alpha, byte[] target, int targetOffset, int length) {
+		int i = 0;
+		for(int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+			IntVector a = widen(first, firstOffset + i);
+			IntVector b = widen(second, secondOffset + i);
+			IntVector blended = a.add(b.sub(a).mul(alpha).add(128).lanewise(VectorOperators.ASHR, 8));
+			blended.convertShape(VectorOperators.I2B, INT_LANE_BYTES, 0).reinterpretAsBytes().intoArray(target, targetOffset + i);
+		}
+		super.blend(first, firstOffset + i, second, secondOffset + i, alpha, target, targetOffset + i, length - i);
+	}
+
+	@Override
+	public void multiplyAdd(byte[] source, int sourceOffset, int weight, int[] accumulator, int accumulatorOffset, int length) {
+		int i = 0;
+		for(int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+			IntVector.fromArray(INTS, accumulator, accumulatorOffset + i).add(widen(source, sourceOffset + i).mul(weight)).intoArray(accumulator, accumulatorOffset + i);
+		}
+		super.multiplyAdd(source, sourceOffset + i, weight, accumulator, accumulatorOffset + i, length - i);
+	}
+
+	@Override
+	public void narrow(int[] accumulator, int accumulatorOffset, int shift, byte[] target, int targetOffset, int length) {
+		int i = 0;
+		for(int bound = INTS.loopBound(length); i < bound; i += INTS.length()) {
+			IntVector value = IntVector.fromArray(INTS, accumulator, accumulatorOffset + i).lanewise(VectorOperators.ASHR, shift).max(0).min(255);
+			value.convertShape(VectorOperators.I2B, INT_LANE_BYTES, 0).reinterpretAsBytes().intoArray(target, targetOffset + i);
+		}
+		super.narrow(accumulator, accumulatorOffset + i, shift, target, targetOffset + i, length - i);
+	}
+
+	/**
+	 * Loads as many unsigned bytes as there are int lanes and zero-extends them to ints.
+	 */
+	private static IntVector widen(byte[] source, int offset) {
+		return ((IntVector) ByteVector.fromArray(INT_LANE_BYTES, source, offset).convertShape(VectorOperators.B2I, INTS, 0)).and(0xFF);
+	}
+}
@@ -0,0 +1,207 @@
+package garretreichenbach.taskprocessor.processor.sketch;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Estimates how often keys occur with a count-min sketch, and tracks the most frequent ones.
+ * <br/>Each key increments one counter in each of depth rows of width counters, picked by double hashing; its count is estimated as the
+ * smallest of those counters, which never underestimates and overestimates by at most e / width of the total with probability
+ * 1 - e^-depth. The defaults of 2048 x 5 counters bound the error to 0.13% of the total with 99.3% confidence.
+ * <br/>Heavy hitters are tracked as a fixed number of candidate keys: a key joins the candidates when its estimate exceeds the smallest
+ * candidate's. Merging adds the counters and re-ranks the union of both candidate sets by the merged estimates.
+ */
+public final class CountMinSketch implements Sketch {
+
+	static final byte KIND = 'C';
+
+	/**
+	 * The number of counters per row used when none is given.
+	 */
+	public static final int DEFAULT_WIDTH = 2048;
+
+	/**
+	 * The number of rows used when none is given.
+	 */
+	public static final int DEFAULT_DEPTH = 5;
+
+	/**
+	 * The number of heavy hitter candidates tracked when none is given.
+	 */
+	public static final int DEFAULT_CANDIDATES = 64;
+
+	private final int width;
+	private final int depth;
+	private final long[] counters;
+	private final long[] candidates;
+	private final long[] candidateCounts;
+	private int candidateCount;
+	private int smallest;
+	private long total;
+
+	/**
+	 * Creates an empty sketch with the default dimensions.
+	 */
+	public CountMinSketch() {
+		this(DEFAULT_WIDTH, DEFAULT_DEPTH, DEFAULT_CANDIDATES);
+	}
+
+	/**
+	 * Creates an empty sketch.
+	 * @param width the number of counters per row, a power of two
+	 * @param depth the number of rows
+	 * @param candidates the number of heavy hitter candidates to track
+	 */
+	public CountMinSketch(int width, int depth, int candidates) {
+		if(width <= 0 || Integer.bitCount(width) != 1 || depth <= 0 || (long) width * depth > 1 << 24) throw new IllegalArgumentException("Invalid count-min dimensions " + width + "x" + depth);
+		if(candidates < 0 || candidates > 1 << 16) throw new IllegalArgumentException("Invalid heavy hitter count: " + candidates);
+		this.width = width;
+		this.depth = depth;
+		counters = new long[width * depth];
+		this.candidates = new long[candidates];
+		candidateCounts = new long[candidates];
+	}
+
+	/**
+	 * Counts one occurrence of a key.
+	 */
+	public void add(long key) {
+		add(key, 1);
+	}
+
+	/**
+	 * Counts occurrences of a key.
+	 * @param key the key
+	 * @param occurrences the number of occurrences, not negative
+	 */
+	public void add(long key, long occurrences) {
+		long hash = Sketch.hash(key);
+		int first = (int) hash, second = (int) (hash >>> 32);
+		long estimate = Long.MAX_VALUE;
+		for(int row = 0; row < depth; row++) {
+			int index = row * width + ((first + row * second) & (width - 1));
+			counters[index] += occurrences;
+			estimate = Math.min(estimate, counters[index]);
+		}
+		total += occurrences;
+		offer(key, estimate);
+	}
+
+	/**
+	 * Counts the keys from to end of a column.
+	 * @param keys the keys
+	 * @param from the first row
+	 * @param end the row after the last
+	 */
+	public void addAll(long[] keys, int from, int end) {
+		for(int row = from; row < end; row++) add(keys[row], 1);
+	}
+
+	/**
+	 * Returns the estimated number of occurrences of a key, which is never less than the true number.
+	 */
+	public long estimate(long key) {
+		long hash = Sketch.hash(key);
+		int first = (int) hash, second = (int) (hash >>> 32);
+		long estimate = Long.MAX_VALUE;
+		for(int row = 0; row < depth; row++) estimate = Math.min(estimate, counters[row * width + ((first + row * second) & (width - 1))]);
+		return estimate;
+	}
+
+	/**
+	 * Returns the total number of occurrences counted.
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the most frequent keys, most frequent first.
+	 * @param limit the maximum number of keys, at most the number of candidates tracked
+	 * @return the keys
+	 */
+	public long[] topKeys(int limit) {
+		long[][] ranked = ranked();
+		return Arrays.copyOf(ranked[0], Math.min(limit, ranked[0].length));
+	}
+
+	@Override
+	public CountMinSketch merge(Sketch other) {
+		if(!(other instanceof CountMinSketch sketch) || sketch.width != width || sketch.depth != depth || sketch.candidates.length != candidates.length) throw new IllegalArgumentException("Can only merge a count-min sketch of " + width + "x" + depth + " with " + candidates.length + " candidates");
+		for(int i = 0; i < counters.length; i++) counters[i] += sketch.counters[i];
+		total += sketch.total;
+		long[] union = Arrays.copyOf(candidates, candidateCount + sketch.candidateCount);
+		System.arraycopy(sketch.candidates, 0, union, candidateCount, sketch.candidateCount);
+		candidateCount = 0;
+		for(long key : union) offer(key, estimate(key));
+		return this;
+	}
+
+	@Override
+	public byte[] toBytes() {
+		ByteBuffer buffer = ByteBuffer.allocate(2 + 4 * 4 + 8 + candidateCount * 8 + counters.length * 8).order(ByteOrder.LITTLE_ENDIAN).put(KIND).put(VERSION);
+		buffer.putInt(width).putInt(depth).putInt(candidates.length).putInt(candidateCount).putLong(total);
+		for(int i = 0; i < candidateCount; i++) buffer.putLong(candidates[i]);
+		for(long counter : counters) buffer.putLong(counter);
+		return buffer.array();
+	}
+
+	static CountMinSketch read(ByteBuffer buffer) {
+		int width = buffer.getInt(), depth = buffer.getInt(), candidates = buffer.getInt(), candidateCount = buffer.getInt();
+		// Checked before the counters are allocated, so a forged header cannot allocate more than the data it came with
+		if(width <= 0 || depth <= 0 || candidateCount < 0 || 8 + 8L * candidateCount + 8L * width * depth > buffer.remaining()) throw new IllegalArgumentException("Truncated sketch");
+		CountMinSketch sketch = new CountMinSketch(width, depth, candidates);
+		if(candidateCount > sketch.candidates.length) throw new IllegalArgumentException("Invalid heavy hitter count: " + candidateCount);
+		sketch.total = buffer.getLong();
+		long[] keys = new long[candidateCount];
+		for(int i = 0; i < candidateCount; i++) keys[i] = buffer.getLong();
+		buffer.asLongBuffer().get(sketch.counters);
+		for(long key : keys) sketch.offer(key, sketch.estimate(key));
+		return sketch;
+	}
+
+	/**
+	 * Returns the candidates and their current estimates, most frequent first.
+	 */
+	long[][] ranked() {
+		long[][] pairs = new long[candidateCount][];
+		for(int i = 0; i < candidateCount; i++) pairs[i] = new long[] {candidates[i], estimate(candidates[i])};
+		Arrays.sort(pairs, (a, b) -> a[1] != b[1] ? Long.compare(b[1], a[1]) : Long.compare(a[0], b[0]));
+		long[][] ranked = new long[2][candidateCount];
+		for(int i = 0; i < candidateCount; i++) {
+			ranked[0][i] = pairs[i][0];
+			ranked[1][i] = pairs[i][1];
+		}
+		return ranked;
+	}
+
+	/**
+	 * Considers a key for the heavy hitters. Once the candidates are full, a key whose estimate does not exceed the smallest candidate's is
+	 * rejected without a search: if it is a candidate already, it is the smallest one and its recorded count only decides eviction.
+	 */
+	private void offer(long key, long estimate) {
+		if(candidates.length == 0) return;
+		if(candidateCount == candidates.length && estimate <= candidateCounts[smallest]) return;
+		for(int i = 0; i < candidateCount; i++) {
+			if(candidates[i] == key) {
+				candidateCounts[i] = estimate;
+				if(i == smallest) findSmallest();
+				return;
+			}
+		}
+		if(candidateCount < candidates.length) {
+			candidates[candidateCount] = key;
+			candidateCounts[candidateCount++] = estimate;
+		} else {
+			candidates[smallest] = key;
+			candidateCounts[smallest] = estimate;
+		}
+		findSmallest();
+	}
+
+	private void findSmallest() {
+		smallest = 0;
+		for(int i = 1; i < candidateCount; i++) if(candidateCounts[i] < candidateCounts[smallest]) smallest = i;
+	}
+}
@@ -0,0 +1,72 @@
+package garretreichenbach.taskprocessor.processor.sketch;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fixed-size summary of a column that answers one kind of question approximately and can be merged with summaries of other rows.
+ * <br/>Sketches serialize to a compact little-endian binary form whose first byte identifies the kind of sketch and second byte the
+ * format version, so a task result can carry a sketch as a byte[] and a later task can merge sketches built by different tasks or nodes
+ * without rescanning the data.
+ */
+public sealed interface Sketch permits HyperLogLog, KllSketch, CountMinSketch {
+
+	/**
+	 * The version of the serialized form written by {@link #toBytes()}.
+	 */
+	byte VERSION = 1;
+
+	/**
+	 * Merges the rows summarized by another sketch of the same kind and configuration into this one.
+	 * @param other the sketch to merge, which is not modified
+	 * @return this sketch
+	 * @throws IllegalArgumentException if the other sketch is of a different kind or configuration
+	 */
+	Sketch merge(Sketch other);
+
+	/**
+	 * Serializes this sketch.
+	 */
+	byte[] toBytes();
+
+	/**
+	 * Reads a sketch written by {@link #toBytes()}.
+	 * @param data the serialized sketch
+	 * @return the sketch
+	 * @throws IllegalArgumentException if the data is not a sketch in a known format
+	 */
+	static Sketch fromBytes(byte[] data) {
+		ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			byte kind = buffer.get();
+			if(buffer.get() != VERSION) throw new IllegalArgumentException("Unsupported sketch version " + data[1]);
+			return switch(kind) {
+				case HyperLogLog.KIND -> HyperLogLog.read(buffer);
+				case KllSketch.KIND -> KllSketch.read(buffer);
+				case CountMinSketch.KIND -> CountMinSketch.read(buffer);
+				default -> throw new IllegalArgumentException("Unknown sketch kind " + kind);
+			};
+		} catch(BufferUnderflowException exception) {
+			throw new IllegalArgumentException("Truncated sketch", exception);
+		}
+	}
+
+	/**
+	 * Hashes a key to 64 well-mixed bits with the SplitMix64 finalizer. Every sketch hashes keys this way, so sketches built by different
+	 * processes agree.
+	 */
+	static long hash(long key) {
+		long z = key + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Returns the key a double value is counted under: its bit pattern, with -0.0 folded into 0.0 and every NaN into one.
+	 */
+	static long key(double value) {
+		return Double.doubleToLongBits(value == 0.0 ? 0.0 : value);
+	}
+}
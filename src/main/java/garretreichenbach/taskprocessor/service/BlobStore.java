@@ -0,0 +1,265 @@
+package garretreichenbach.taskprocessor.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * A content-addressed store for task payloads.
+ * <br/>Blobs are written once to disk under the SHA-256 of their content, so uploading the same image twice stores it once.
+ * Recently used blobs are kept in memory in an LRU cache bounded by total size, and are handed out as read-only {@link ByteBuffer}
+ * views that share the cached bytes, so any number of tasks can read the same image without copying it. Blobs of at least the mapping
+ * threshold, such as large CSV files, bypass the cache and are memory-mapped instead, so they are paged in from the OS cache as tasks
+ * read them rather than copied onto the heap.
+ * <br/>Task parameters reference a blob with a {@code {"blob": "sha256:<hex>"}} object in place of the inline data.
+ */
+public class BlobStore {
+
+	/**
+	 * The prefix of a blob reference.
+	 */
+	public static final String REFERENCE_PREFIX = "sha256:";
+
+	/**
+	 * The key of the parameter object that references a blob.
+	 */
+	public static final String REFERENCE_KEY = "blob";
+
+	/**
+	 * The default total size of the blobs kept in memory.
+	 */
+	public static final long DEFAULT_CACHE_BYTES = 256L * 1024 * 1024;
+
+	/**
+	 * The default size from which blobs are memory-mapped rather than cached.
+	 */
+	public static final long DEFAULT_MAPPED_BYTES = 64L * 1024 * 1024;
+
+	private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+	private final Path directory;
+	private final Cache<String, ByteBuffer> cache;
+	private final long mappedBytes;
+
+	/**
+	 * Creates a blob store that maps blobs of {@link #DEFAULT_MAPPED_BYTES} or more.
+	 * @param directory the directory blobs are written to, created if it does not exist
+	 * @param cacheBytes the total size of the blobs kept in memory
+	 */
+	public BlobStore(Path directory, long cacheBytes) {
+		this(directory, cacheBytes, DEFAULT_MAPPED_BYTES);
+	}
+
+	/**
+	 * Creates a blob store.
+	 * @param directory the directory blobs are written to, created if it does not exist
+	 * @param cacheBytes the total size of the blobs kept in memory
+	 * @param mappedBytes the size from which blobs are memory-mapped rather than cached
+	 */
+	public BlobStore(Path directory, long cacheBytes, long mappedBytes) {
+		this.directory = directory;
+		this.mappedBytes = mappedBytes;
+		cache = CacheBuilder.newBuilder()
+				.maximumWeight(cacheBytes)
+				.weigher((String hash, ByteBuffer buffer) -> buffer.capacity())
+				.recordStats()
+				.build();
+		try {
+			Files.createDirectories(directory);
+		} catch(IOException exception) {
+			throw new UncheckedIOException("Failed to create blob directory " + directory, exception);
+		}
+	}
+
+	/**
+	 * Stores a blob read from a stream.
+	 * @param inputStream the content of the blob
+	 * @param maxBytes the maximum size of the blob
+	 * @return the reference of the blob ("sha256:<hex>")
+	 * @throws IOException if the blob cannot be read or written
+	 * @throws IllegalArgumentException if the blob is larger than maxBytes
+	 */
+	public String put(InputStream inputStream, long maxBytes) throws IOException {
+		MessageDigest digest = sha256();
+		Path temporary = Files.createTempFile(directory, "upload", ".tmp");
+		try {
+			long size = 0;
+			try(OutputStream outputStream = Files.newOutputStream(temporary)) {
+				byte[] buffer = new byte[COPY_BUFFER_SIZE];
+				for(int read; (read = inputStream.read(buffer)) != -1; ) {
+					size += read;
+					if(size > maxBytes) throw new IllegalArgumentException("Blob exceeds the limit of " + maxBytes + " bytes");
+					digest.update(buffer, 0, read);
+					outputStream.write(buffer, 0, read);
+				}
+			}
+			String hash = HexFormat.of().formatHex(digest.digest());
+			Path target = pathOf(hash);
+			if(!Files.exists(target)) {
+				Files.createDirectories(target.getParent());
+				try {
+					Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+				} catch(FileAlreadyExistsException | AtomicMoveNotSupportedException exception) {
+					if(!Files.exists(target)) Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			return REFERENCE_PREFIX + hash;
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Stores a blob.
+	 * @param data the content of the blob
+	 * @return the reference of the blob ("sha256:<hex>")
+	 */
+	public String put(byte[] data) {
+		try {
+			return put(new ByteArrayInputStream(data), data.length);
+		} catch(IOException exception) {
+			throw new UncheckedIOException("Failed to store blob", exception);
+		}
+	}
+
+	/**
+	 * Checks whether a blob is stored, without loading it.
+	 * @param reference the reference of the blob
+	 * @return true if the blob is stored
+	 * @throws IllegalArgumentException if the reference is malformed
+	 */
+	public boolean contains(String reference) {
+		String hash = parseReference(reference);
+		return cache.getIfPresent(hash) != null || Files.exists(pathOf(hash));
+	}
+
+	/**
+	 * Returns the size of a stored blob.
+	 * @param reference the reference of the blob
+	 * @return the size in bytes, or -1 if the blob is not stored
+	 * @throws IllegalArgumentException if the reference is malformed
+	 */
+	public long size(String reference) {
+		String hash = parseReference(reference);
+		ByteBuffer cached = cache.getIfPresent(hash);
+		if(cached != null) return cached.capacity();
+		try {
+			return Files.size(pathOf(hash));
+		} catch(IOException exception) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns a read-only view of a stored blob, loading it into the memory cache if needed, or mapping it if it is at least the mapping
+	 * threshold. Each call returns an independent view (its own position and limit) over the same shared bytes.
+	 * @param reference the reference of the blob
+	 * @return the view, or null if the blob is not stored
+	 * @throws IllegalArgumentException if the reference is malformed, or the blob is mapped and larger than 2 GiB
+	 */
+	public ByteBuffer get(String reference) {
+		String hash = parseReference(reference);
+		ByteBuffer cached = cache.getIfPresent(hash);
+		if(cached != null) return cached.duplicate();
+		Path path = pathOf(hash);
+		try {
+			long size = Files.size(path);
+			if(size >= mappedBytes) {
+				if(size > Integer.MAX_VALUE) throw new IllegalArgumentException("Blob " + hash + " is too large to map: " + size + " bytes");
+				try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+					return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+				}
+			}
+		} catch(NoSuchFileException exception) {
+			return null;
+		} catch(IOException exception) {
+			throw new UncheckedIOException("Failed to load blob " + hash, exception);
+		}
+		try {
+			return cache.get(hash, () -> ByteBuffer.wrap(Files.readAllBytes(pathOf(hash))).asReadOnlyBuffer()).duplicate();
+		} catch(ExecutionException exception) {
+			if(exception.getCause() instanceof NoSuchFileException) return null;
+			throw new UncheckedIOException("Failed to load blob " + hash, new IOException(exception.getCause()));
+		}
+	}
+
+	/**
+	 * Replaces every blob reference among the parameters of a task with a read-only view of the blob.
+	 * @param parameters the parameters of a task
+	 * @throws IllegalArgumentException if a referenced blob is malformed or not stored
+	 */
+	public void resolveReferences(Map<String, Object> parameters) {
+		if(parameters == null) return;
+		for(Map.Entry<String, Object> entry : parameters.entrySet()) {
+			String reference = referenceOf(entry.getValue());
+			if(reference == null) continue;
+			ByteBuffer blob = get(reference);
+			if(blob == null) throw new IllegalArgumentException("Unknown blob for parameter " + entry.getKey() + ": " + reference);
+			entry.setValue(blob);
+		}
+	}
+
+	/**
+	 * Returns the statistics of the memory cache.
+	 */
+	public CacheStats getCacheStats() {
+		return cache.stats();
+	}
+
+	/**
+	 * Returns the blob reference held by a parameter value, if any.
+	 * @param value a parameter value
+	 * @return the reference if the value is a {@code {"blob": "sha256:<hex>"}} object, otherwise null
+	 */
+	public static String referenceOf(Object value) {
+		if(value instanceof Map<?, ?> map && map.size() == 1 && map.get(REFERENCE_KEY) instanceof String reference) return reference;
+		return null;
+	}
+
+	/**
+	 * Extracts the hash from a blob reference. The bare hex hash is accepted as well.
+	 * @param reference the reference
+	 * @return the lower-case hex hash
+	 * @throws IllegalArgumentException if the reference is malformed
+	 */
+	public static String parseReference(String reference) {
+		String hash = reference.startsWith(REFERENCE_PREFIX) ? reference.substring(REFERENCE_PREFIX.length()) : reference;
+		hash = hash.toLowerCase();
+		if(!HASH_PATTERN.matcher(hash).matches()) throw new IllegalArgumentException("Invalid blob reference: " + reference);
+		return hash;
+	}
+
+	private Path pathOf(String hash) {
+		return directory.resolve(hash.substring(0, 2)).resolve(hash);
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException exception) {
+			throw new IllegalStateException("SHA-256 is not available", exception);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package garretreichenbach.taskprocessor.service;
+
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.TaskResultStore;
+import garretreichenbach.taskprocessor.processor.SplittableTaskProcessor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fans tasks of {@link SplittableTaskProcessor}s out into subtasks and reduces their results.
+ * <br/>Every subtask that is scheduled is tracked until its result comes back. Subtasks are tracked as the Task objects the coordinator
+ * scheduled, not by id, as clients choose the ids of the tasks they submit and could otherwise pass a task off as a subtask. A failed or timed out subtask is scheduled again on its
+ * own until it has been attempted the maximum number of times, after which the task fails with its error. When every subtask has
+ * succeeded, the results are reduced on the worker that completed the last one and stored under the id of the task, so clients only ever
+ * see the task they submitted.
+ * <br/>Subtasks still queued or running when their task fails stay tracked until they come back, so they are skipped or their results
+ * dropped instead of being mistaken for tasks of their own.
+ */
+@Slf4j
+public class SplitTaskCoordinator {
+
+	/**
+	 * The default number of times a subtask is attempted before the task fails.
+	 */
+	public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+	private final TaskQueueService queue;
+	private final TaskResultStore resultStore;
+	private final int maxAttempts;
+	// Task does not override equals, so its objects are compared by identity
+	private final Map<Task, Split> subtasks = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a coordinator.
+	 * @param queue the queue subtasks are scheduled on
+	 * @param resultStore the store results of split tasks are stored in
+	 * @param maxAttempts the number of times a subtask is attempted before the task fails
+	 */
+	public SplitTaskCoordinator(TaskQueueService queue, TaskResultStore resultStore, int maxAttempts) {
+		if(maxAttempts < 1) throw new IllegalArgumentException("Invalid number of attempts: " + maxAttempts);
+		this.queue = queue;
+		this.resultStore = resultStore;
+		this.maxAttempts = maxAttempts;
+	}
+
+	/**
+	 * Splits a task and schedules its subtasks.
+	 * @param task the task
+	 * @param processor the processor of the task
+	 * @return true if the task was split, false if it should be processed whole
+	 */
+	public boolean fanOut(Task task, SplittableTaskProcessor processor) {
+		List<Task> parts = processor.split(task);
+		if(parts.isEmpty()) return false;
+		Split split = new Split(task, processor, parts);
+		for(Task part : parts) {
+			if(subtasks.putIfAbsent(part, split) != null) throw new IllegalStateException("Subtask " + part.getId() + " is already scheduled");
+		}
+		log.info("Task {} split into {} subtasks.", task.getId(), parts.size());
+		processor.schedule(parts, queue);
+		return true;
+	}
+
+	/**
+	 * Checks whether a task is a subtask scheduled by this coordinator, which is processed whole.
+	 * @param task the task
+	 * @return true if it is a subtask
+	 */
+	public boolean isSubtask(Task task) {
+		return subtasks.containsKey(task);
+	}
+
+	/**
+	 * Checks whether a subtask is no longer needed, as the task it belongs to has already failed, and if so stops tracking it.
+	 * @param task the task
+	 * @return true if it is a subtask that should be dropped without being processed
+	 */
+	public boolean skip(Task task) {
+		Split split = subtasks.get(task);
+		return split != null && split.skip(task);
+	}
+
+	/**
+	 * Records the result of a subtask. The subtask is scheduled again if it failed and has attempts left; the task it belongs to is reduced
+	 * and its result stored once every subtask has succeeded, or fails once a subtask has no attempts left. Results of subtasks that come
+	 * back after their task failed are dropped.
+	 * @param task the task the result is for
+	 * @param result the result
+	 * @return true if the task is a subtask and its result was taken or dropped, false if the result should be stored as is
+	 */
+	public boolean complete(Task task, TaskResult result) {
+		Split split = subtasks.get(task);
+		if(split == null) return false;
+		split.complete(task, result);
+		return true;
+	}
+
+	/**
+	 * Returns the number of subtasks scheduled whose results have not come back.
+	 */
+	public int getPendingSubtasks() {
+		return subtasks.size();
+	}
+
+	/**
+	 * The subtasks of one task and their results so far.
+	 */
+	private final class Split {
+
+		private final Task task;
+		private final SplittableTaskProcessor processor;
+		private final List<Task> parts;
+		private final TaskResult[] results;
+		private final int[] attempts;
+		private int remaining;
+		private boolean done;
+
+		Split(Task task, SplittableTaskProcessor processor, List<Task> parts) {
+			this.task = task;
+			this.processor = processor;
+			this.parts = List.copyOf(parts);
+			results = new TaskResult[parts.size()];
+			attempts = new int[parts.size()];
+			remaining = parts.size();
+		}
+
+		synchronized boolean skip(Task part) {
+			if(!done) return false;
+			subtasks.remove(part);
+			return true;
+		}
+
+		void complete(Task part, TaskResult result) {
+			int index = indexOf(part);
+			TaskResult reduced;
+			synchronized(this) {
+				if(done) {
+					subtasks.remove(part);
+					return;
+				}
+				if(results[index] != null) return;
+				if(result.getStatus() != TaskResult.ResultStatus.SUCCESS && ++attempts[index] < maxAttempts) {
+					log.warn("Subtask {} of task {} failed, attempt {} of {}.", part.getId(), task.getId(), attempts[index], maxAttempts);
+					processor.schedule(List.of(part), queue);
+					return;
+				}
+				if(result.getStatus() != TaskResult.ResultStatus.SUCCESS) {
+					done = true;
+					reduced = TaskResult.error(task.getId(), new Exception("Subtask " + part.getId() + " failed after " + maxAttempts + " attempts", result.getOutput().get("error") instanceof Throwable cause ? cause : null));
+				} else {
+					results[index] = result;
+					if(--remaining > 0) return;
+					done = true;
+					reduced = null;
+				}
+				// Subtasks still queued or running stay tracked until they come back
+				for(int i = 0; i < parts.size(); i++) if(i == index || results[i] != null) subtasks.remove(parts.get(i));
+			}
+			if(reduced == null) reduced = reduce();
+			reduced.setProcessorId(result.getProcessorId());
+			reduced.setQueueType(task.getQueueType());
+			reduced.setTaskType(task.getType());
+			reduced.setCompletedAt(System.currentTimeMillis());
+			resultStore.storeResult(reduced);
+			log.info("Task {} completed from {} subtasks with status {}.", task.getId(), parts.size(), reduced.getStatus());
+		}
+
+		private int indexOf(Task part) {
+			for(int index = 0; index < parts.size(); index++) if(parts.get(index) == part) return index;
+			throw new IllegalArgumentException("Not a subtask of task " + task.getId() + ": " + part.getId());
+		}
+
+		private TaskResult reduce() {
+			try {
+				return processor.reduce(task, Arrays.asList(results));
+			} catch(Exception exception) {
+				log.error(exception.getMessage(), exception);
+				return TaskResult.error(task.getId(), exception);
+			}
+		}
+	}
+}
@@ -79,18 +79,23 @@ public class TaskQueueService {
 	/**
 	 * Submits a task to the appropriate queue based on its priority.
 	 * @param task the task to be submitted
+	 * @return the queue the task was added to, which is also recorded on the task
 	 */
 	public QueueType submitTask(Task task) {
+		return enqueue(task);
+	}
+
+	private QueueType enqueue(Task task) {
 		int priority = task.getPriority();
 		if(priority >= HIGH_PRIORITY_THRESHOLD) {
-			if(!highPriorityQueue.offer(task)) {
+			if(!offer(highPriorityQueue, QueueType.HIGH, task)) {
 				if(canLevelDown(task)) {
 					log.warn("Task {} moved to normal priority queue as the high priority queue is full.", task.getId());
-					normalPriorityQueue.offer(task);
+					offer(normalPriorityQueue, QueueType.NORMAL, task);
 					return QueueType.NORMAL;
 				} else {
 					log.warn("Task {} could not be added to either the high or normal priority queue and must be backlogged.", task.getId());
-					backlogQueue.offer(task);
+					offer(backlogQueue, QueueType.BACKLOG, task);
 					return QueueType.BACKLOG;
 				}
 			} else {
@@ -98,14 +103,14 @@ public class TaskQueueService {
 				return QueueType.HIGH;
 			}
 		} else if(priority >= NORMAL_PRIORITY_THRESHOLD) {
-			if(!normalPriorityQueue.offer(task)) {
+			if(!offer(normalPriorityQueue, QueueType.NORMAL, task)) {
 				if(canLevelDown(task)) {
 					log.warn("Task {} moved to low priority queue as the normal priority queue is full.", task.getId());
-					lowPriorityQueue.offer(task);
+					offer(lowPriorityQueue, QueueType.LOW, task);
 					return QueueType.LOW;
 				} else {
 					log.warn("Task {} could not be added to either the normal or low priority queue and must be backlogged.", task.getId());
-					backlogQueue.offer(task);
+					offer(backlogQueue, QueueType.BACKLOG, task);
 					return QueueType.BACKLOG;
 				}
 			} else {
@@ -113,9 +118,9 @@ public class TaskQueueService {
 				return QueueType.NORMAL;
 			}
 		} else if(priority >= LOW_PRIORITY_THRESHOLD) {
-			if(!lowPriorityQueue.offer(task)) {
+			if(!offer(lowPriorityQueue, QueueType.LOW, task)) {
 				log.warn("Task {} moved to backlog as the low priority queue is full.", task.getId());
-				backlogQueue.add(task);
+				offer(backlogQueue, QueueType.BACKLOG, task);
 				return QueueType.BACKLOG;
 			} else {
 				log.info("Task {} added to low priority queue.", task.getId());
@@ -123,11 +128,20 @@ public class TaskQueueService {
 			}
 		} else {
 			log.warn("Task {} has a negative priority and has been backlogged.", task.getId());
-			backlogQueue.offer(task);
+			offer(backlogQueue, QueueType.BACKLOG, task);
 			return QueueType.BACKLOG;
 		}
 	}
 
+	/**
+	 * Records the queue on a task and offers it to the queue. The queue is recorded first, as a worker may take the task as soon as it is
+	 * offered; if the offer fails the task was never visible and the next queue tried overwrites it.
+	 */
+	private static boolean offer(BlockingQueue<Task> queue, QueueType queueType, Task task) {
+		task.setQueueType(queueType);
+		return queue.offer(task);
+	}
+
 	/**
 	 * Takes the highest priority task available from the queues.
 	 */
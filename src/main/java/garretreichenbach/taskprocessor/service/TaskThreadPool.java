@@ -3,26 +3,51 @@ package garretreichenbach.taskprocessor.service;
 import garretreichenbach.taskprocessor.model.Task;
 import garretreichenbach.taskprocessor.model.TaskResult;
 import garretreichenbach.taskprocessor.model.TaskResultStore;
+import garretreichenbach.taskprocessor.processor.SplittableTaskProcessor;
 import garretreichenbach.taskprocessor.processor.TaskProcessor;
+import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Runs worker threads that take tasks from a {@link TaskQueueService} and store their results.
+ * <br/>A task is processed by the processor of its type. Tasks of a {@link SplittableTaskProcessor} are first offered to the
+ * {@link SplitTaskCoordinator}, which may fan them out into subtasks on the same queue, so every worker helps with a large task; the results
+ * of subtasks go to the coordinator instead of the store.
+ */
+@Slf4j
 public class TaskThreadPool {
 
+	/**
+	 * How long a worker waits before polling an empty queue again.
+	 */
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
 	private final TaskQueueService workQueue;
 	private final List<Thread> workerThreads;
 	private final AtomicBoolean isRunning;
 	private final String workerId;
 	private final TaskResultStore resultStore;
 	private final int numThreads;
+	private final SplitTaskCoordinator coordinator;
 
 	public TaskThreadPool(String workerId, TaskQueueService workQueue, TaskResultStore resultStore, int numThreads) {
+		this(workerId, workQueue, resultStore, numThreads, new SplitTaskCoordinator(workQueue, resultStore, SplitTaskCoordinator.DEFAULT_MAX_ATTEMPTS));
+	}
+
+	/**
+	 * Creates a pool whose split tasks are coordinated by the given coordinator, which may be shared with other pools on the same queue.
+	 */
+	public TaskThreadPool(String workerId, TaskQueueService workQueue, TaskResultStore resultStore, int numThreads, SplitTaskCoordinator coordinator) {
 		this.workerId = workerId;
 		this.workQueue = workQueue;
 		this.resultStore = resultStore;
 		this.numThreads = numThreads;
+		this.coordinator = coordinator;
 		workerThreads = new ArrayList<>(numThreads);
 		isRunning = new AtomicBoolean(false);
 	}
@@ -51,18 +76,42 @@ public class TaskThreadPool {
 		return () -> {
 			while(isRunning.get()) {
 				Task task = workQueue.takeTask();
-				if(task instanceof TaskProcessor processor) {
-					TaskResult result = processor.process(task);
-					result.setProcessorId(workerId);
-					result.setCompletedAt(System.currentTimeMillis());
-					resultStore.storeResult(result);
-				}
+				if(task == null) LockSupport.parkNanos(IDLE_NANOS);
+				else execute(task);
 			}
 		};
 	}
 
-	// Implement methods:
-	// 1. start() - Start the worker threads
-	// 2. stop() - Gracefully stop the worker threads
-	// 3. createWorkerRunnable() - Create a Runnable that processes tasks
-}
\ No newline at end of file
+	/**
+	 * Processes a task, or fans it out if its processor splits it, and hands the result to the coordinator or the store.
+	 */
+	private void execute(Task task) {
+		if(coordinator.skip(task)) {
+			log.debug("Subtask {} is no longer needed and was dropped.", task.getId());
+			return;
+		}
+		TaskResult result;
+		try {
+			TaskProcessor processor = processorOf(task);
+			if(processor == null) {
+				log.warn("Task {} has no type and was dropped.", task.getId());
+				return;
+			}
+			if(processor instanceof SplittableTaskProcessor splittable && !coordinator.isSubtask(task) && coordinator.fanOut(task, splittable)) return;
+			result = processor.process(task);
+		} catch(Exception exception) {
+			log.error(exception.getMessage(), exception);
+			result = TaskResult.error(task.getId(), exception);
+		}
+		result.setProcessorId(workerId);
+		result.setQueueType(task.getQueueType());
+		result.setTaskType(task.getType());
+		result.setCompletedAt(System.currentTimeMillis());
+		if(!coordinator.complete(task, result)) resultStore.storeResult(result);
+	}
+
+	private static TaskProcessor processorOf(Task task) {
+		if(task instanceof TaskProcessor processor) return processor;
+		return task.getType() == null ? null : task.getType().createProcessor(task);
+	}
+}
@@ -1,23 +1,41 @@
 package garretreichenbach.taskprocessor.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import garretreichenbach.taskprocessor.model.ResultFilter;
+import garretreichenbach.taskprocessor.model.ResultPage;
 import garretreichenbach.taskprocessor.model.Task;
 import garretreichenbach.taskprocessor.model.TaskResult;
 import garretreichenbach.taskprocessor.model.TaskResultStore;
 import garretreichenbach.taskprocessor.model.TaskType;
+import garretreichenbach.taskprocessor.service.BlobStore;
 import garretreichenbach.taskprocessor.service.TaskQueueService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class TaskControllerTest {
 
@@ -29,7 +47,7 @@ class TaskControllerTest {
 	void setUp() {
 		mockQueueService = Mockito.mock(TaskQueueService.class);
 		mockResultStore = Mockito.mock(TaskResultStore.class);
-		taskController = new TaskController(mockQueueService, mockResultStore);
+		taskController = new TaskController(mockQueueService, mockResultStore, Mockito.mock(BlobStore.class));
 	}
 
 	@Test
@@ -38,7 +56,7 @@ class TaskControllerTest {
 		Task task = new Task(
 				UUID.randomUUID().toString(),
 				TaskType.IMAGE_SCALING,
-				new HashMap<>(),
+				scalingParameters(),
 				10
 		);
 
@@ -59,7 +77,7 @@ class TaskControllerTest {
 		Task task = new Task(
 				UUID.randomUUID().toString(),
 				TaskType.IMAGE_SCALING,
-				new HashMap<>(),
+				scalingParameters(),
 				10
 		);
 
@@ -139,4 +157,153 @@ class TaskControllerTest {
 		assertEquals(HttpStatus.OK, response.getStatusCode());
 		assertEquals(recentResults, response.getBody());
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testGetResultsPageWithProjection() {
+		// Given
+		String taskId = UUID.randomUUID().toString();
+		TaskResult taskResult = TaskResult.success(taskId, Map.of("scaled_image", new byte[1024]));
+
+		when(mockResultStore.getResultsPage(ResultFilter.ANY, null, 10)).thenReturn(new ResultPage<>(List.of(taskResult), null));
+
+		// When
+		ResponseEntity<?> response = taskController.getAllResults(null, null, null, null, 10, "taskId,status");
+
+		// Then
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		ResultPage<?> page = assertInstanceOf(ResultPage.class, response.getBody());
+		assertEquals(List.of(Map.of("taskId", taskId, "status", TaskResult.ResultStatus.SUCCESS)), page.results());
+		assertNull(page.nextCursor());
+	}
+
+	@Test
+	void testGetResultsPageWithUnknownField() {
+		// When
+		ResponseEntity<?> response = taskController.getAllResults(null, null, null, null, 10, "taskId,payload");
+
+		// Then
+		assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+	}
+
+	@Test
+	void testGetResultsByQueueName() {
+		// Given
+		String taskId = UUID.randomUUID().toString();
+		TaskResult taskResult = TaskResult.success(taskId, new HashMap<>());
+
+		when(mockResultStore.getResultsPage(ResultFilter.byQueue(TaskQueueService.QueueType.HIGH), null, 100)).thenReturn(new ResultPage<>(List.of(taskResult), null));
+
+		// When
+		ResponseEntity<?> response = taskController.getResultById("high", null, 100, "taskId");
+
+		// Then
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		ResultPage<?> page = assertInstanceOf(ResultPage.class, response.getBody());
+		assertEquals(List.of(Map.of("taskId", taskId)), page.results());
+	}
+
+	@Test
+	void testSubmitTaskAsCbor() throws Exception {
+		// Given
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(taskController).build();
+		byte[] data = {1, 2, 3, (byte) 255};
+		byte[] body = new CBORMapper().writeValueAsBytes(Map.of("type", "scale", "priority", 7, "parameters", Map.of("data", data, "width", 2, "height", 2, "scale", 0.5)));
+		when(mockQueueService.submitTask(any(Task.class))).thenReturn(TaskQueueService.QueueType.NORMAL);
+
+		// When
+		mockMvc.perform(post("/api/tasks").contentType("application/cbor").accept("application/cbor").content(body))
+				.andExpect(status().isAccepted())
+				.andExpect(header().string("Content-Type", "application/cbor"));
+
+		// Then
+		ArgumentCaptor<Task> captor = ArgumentCaptor.forClass(Task.class);
+		verify(mockQueueService).submitTask(captor.capture());
+		assertEquals(TaskType.IMAGE_SCALING, captor.getValue().getType());
+		assertEquals(7, captor.getValue().getPriority());
+		assertArrayEquals(data, (byte[]) captor.getValue().getParameters().get("data"));
+	}
+
+	@Test
+	void testGetTaskResultAsCbor() throws Exception {
+		// Given
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(taskController).build();
+		String taskId = UUID.randomUUID().toString();
+		byte[] image = {9, 8, 7};
+		when(mockResultStore.getResult(taskId)).thenReturn(TaskResult.success(taskId, Map.of("scaled_image", image)));
+
+		// When
+		MvcResult result = mockMvc.perform(get("/api/tasks/" + taskId + "/result").accept("application/cbor"))
+				.andExpect(status().isOk())
+				.andReturn();
+
+		// Then
+		ObjectMapper mapper = new CBORMapper();
+		byte[] scaled = mapper.readTree(result.getResponse().getContentAsByteArray()).get("output").get("scaled_image").binaryValue();
+		assertArrayEquals(image, scaled);
+	}
+
+	@Test
+	void testStreamingConverterRejectsOversizedTask() throws Exception {
+		// Given
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(taskController).setMessageConverters(new TaskHttpMessageConverter(1024), new MappingJackson2HttpMessageConverter()).build();
+		byte[] body = new CBORMapper().writeValueAsBytes(Map.of("type", "compress", "parameters", Map.of("data", new byte[4096], "width", 1, "height", 1)));
+
+		// When
+		mockMvc.perform(post("/api/tasks").contentType("application/cbor").content(body))
+				.andExpect(status().isPayloadTooLarge());
+
+		// Then
+		verify(mockQueueService, never()).submitTask(any(Task.class));
+	}
+
+	@Test
+	void testStreamingConverterReadsJsonTask() throws Exception {
+		// Given
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(taskController).setMessageConverters(new TaskHttpMessageConverter(1024), new MappingJackson2HttpMessageConverter()).build();
+		when(mockQueueService.submitTask(any(Task.class))).thenReturn(TaskQueueService.QueueType.LOW);
+
+		// When
+		mockMvc.perform(post("/api/tasks").contentType("application/json").content("{\"type\":\"decompress\",\"parameters\":{\"width\":1,\"height\":1,\"data\":\"AQID\"}}"))
+				.andExpect(status().isAccepted());
+
+		// Then
+		ArgumentCaptor<Task> captor = ArgumentCaptor.forClass(Task.class);
+		verify(mockQueueService).submitTask(captor.capture());
+		assertEquals(TaskType.IMAGE_DECOMPRESSION, captor.getValue().getType());
+		assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) captor.getValue().getParameters().get("data"));
+	}
+
+	@Test
+	void testStreamingConverterRejectsUnknownType() throws Exception {
+		// Given
+		MockMvc mockMvc = MockMvcBuilders.standaloneSetup(taskController).setMessageConverters(new TaskHttpMessageConverter(1024), new MappingJackson2HttpMessageConverter()).build();
+
+		// When / Then
+		mockMvc.perform(post("/api/tasks").contentType("application/json").content("{\"type\":\"bogus\",\"parameters\":{}}"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testSubmitInvalidTaskIsRejected() {
+		// Given
+		Map<String, Object> parameters = scalingParameters();
+		parameters.put("width", "wide");
+		Task task = new Task(UUID.randomUUID().toString(), TaskType.IMAGE_SCALING, parameters, 10);
+
+		// When
+		ResponseEntity<Task> response = taskController.submitTask(task);
+
+		// Then
+		assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+		verify(mockQueueService, never()).submitTask(any(Task.class));
+	}
+
+	private static Map<String, Object> scalingParameters() {
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("data", new byte[4 * 4 * 3]);
+		parameters.put("width", 4);
+		parameters.put("height", 4);
+		parameters.put("scale", 0.5);
+		return parameters;
+	}
+}
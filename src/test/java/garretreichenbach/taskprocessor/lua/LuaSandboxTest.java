@@ -0,0 +1,136 @@
+package garretreichenbach.taskprocessor.lua;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LuaSandboxTest {
+
+	private LuaSandbox sandbox;
+	private ScriptCache cache;
+
+	@BeforeEach
+	void setUp() {
+		sandbox = LuaSandbox.shared();
+		cache = new ScriptCache(8);
+	}
+
+	@Test
+	void testGlobalsDoNotLeakBetweenTasks() {
+		// Given
+		String writer = "print = nil string = 'shadowed' counter = 41 return counter + 1";
+		String reader = "return {counter = counter == nil, print = print ~= nil, upper = string.upper('ok')}";
+
+		// When
+		LuaValue written = run(writer);
+		LuaValue read = run(reader);
+
+		// Then
+		assertEquals(42, written.toint());
+		assertTrue(read.get("counter").toboolean());
+		assertTrue(read.get("print").toboolean());
+		assertEquals("OK", read.get("upper").tojstring());
+	}
+
+	@Test
+	void testLibrariesAreReadOnly() {
+		// Then
+		assertThrows(LuaError.class, () -> run("math.floor = nil"));
+		assertThrows(LuaError.class, () -> run("table.insert(math, 1)"));
+		assertThrows(LuaError.class, () -> run("package.loaded.string.upper = nil"));
+		assertEquals(3, run("return math.floor(3.5)").toint());
+		assertEquals("HI", run("return string.upper('hi')").tojstring());
+	}
+
+	@Test
+	void testUnsafeFunctionsAreUnreachable() {
+		// When
+		LuaValue reached = run("return {load = load == nil, dofile = dofile == nil, g = _G == nil, nested = (package.loaded._G or {}).dofile == nil}");
+
+		// Then
+		assertTrue(reached.get("load").toboolean());
+		assertTrue(reached.get("dofile").toboolean());
+		assertTrue(reached.get("g").toboolean());
+		assertTrue(reached.get("nested").toboolean());
+	}
+
+	@Test
+	void testPackageLoadersCannotLeakTheGlobals() {
+		// Given
+		String leak = "local _, g = package.searchers[#package.searchers]('org.luaj.vm2.lib.StringLib') g.leak = 'from task 1'";
+
+		// When
+		LuaValue reached = run("return {searchers = package.searchers == nil, loadlib = package.loadlib == nil, searchpath = package.searchpath == nil, "
+				+ "randomseed = math.randomseed == nil, loaded = package.loaded.string ~= nil}");
+
+		// Then
+		assertThrows(LuaError.class, () -> run(leak));
+		assertTrue(run("return leak").isnil());
+		assertTrue(reached.get("searchers").toboolean());
+		assertTrue(reached.get("loadlib").toboolean());
+		assertTrue(reached.get("searchpath").toboolean());
+		assertTrue(reached.get("randomseed").toboolean());
+		assertTrue(reached.get("loaded").toboolean());
+	}
+
+	@Test
+	void testStringMetatableIsFrozenOnce() {
+		// Given
+		LuaValue metatable = LuaString.s_metatable;
+
+		// When
+		for(int i = 0; i < 3; i++) LuaEnvironment.create("return ('x'):rep(3)").call();
+
+		// Then
+		assertSame(metatable, LuaString.s_metatable);
+		assertInstanceOf(ReadOnlyLuaTable.class, metatable);
+		assertEquals("xxx", run("return ('x'):rep(3)").tojstring());
+	}
+
+	@Test
+	void testConcurrentTasksShareSandboxWithoutLeaking() throws Exception {
+		// Given
+		String script = "local seen = marker marker = ... return seen == nil";
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> results = new ArrayList<>();
+
+		// When
+		for(int i = 0; i < 400; i++) {
+			LuaValue task = LuaValue.valueOf(i);
+			results.add(executor.submit(() -> LuaEnvironment.create(script).call(task).toboolean()));
+		}
+		executor.shutdown();
+
+		// Then
+		for(Future<Boolean> result : results) assertTrue(result.get());
+	}
+
+	@Test
+	void testReadOnlyTablesCannotBeReordered() {
+		// Given
+		LuaValue frozen = new ReadOnlyLuaTable(LuaValue.listOf(new LuaValue[] {LuaValue.valueOf(3), LuaValue.valueOf(1), LuaValue.valueOf(2)}));
+
+		// Then
+		assertThrows(LuaError.class, () -> sandbox.load(cache.get("table.sort(...)")).call(frozen));
+		assertThrows(LuaError.class, () -> sandbox.load(cache.get("table.insert(..., 1, 0)")).call(frozen));
+		assertThrows(LuaError.class, () -> sandbox.load(cache.get("table.remove(..., 1)")).call(frozen));
+		assertEquals(3, frozen.length());
+		assertEquals(3, frozen.get(1).toint());
+		assertEquals(1, frozen.get(2).toint());
+		assertEquals(2, frozen.get(3).toint());
+	}
+
+	private LuaValue run(String script) {
+		return sandbox.load(cache.get(script)).call();
+	}
+}
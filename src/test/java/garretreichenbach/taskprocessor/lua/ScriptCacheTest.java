@@ -0,0 +1,68 @@
+package garretreichenbach.taskprocessor.lua;
+
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Prototype;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScriptCacheTest {
+
+	@Test
+	void testReusesCompiledScriptBySource() {
+		// Given
+		ScriptCache cache = new ScriptCache(8);
+
+		// When
+		Prototype first = cache.get("return 1 + 1");
+		Prototype second = cache.get("return 1 + " + 1);
+		Prototype other = cache.get("return 2");
+
+		// Then
+		assertSame(first, second);
+		assertNotSame(first, other);
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	void testStaysWithinMaximumSize() {
+		// Given
+		ScriptCache cache = new ScriptCache(4);
+
+		// When
+		for(int i = 0; i < 20; i++) cache.get("return " + i);
+
+		// Then
+		assertTrue(cache.size() <= 4);
+		assertEquals(20, cache.getMisses());
+	}
+
+	@Test
+	void testDoesNotCacheScriptsThatFailToCompile() {
+		// Given
+		ScriptCache cache = new ScriptCache(8);
+
+		// Then
+		assertThrows(LuaError.class, () -> cache.get("This is not valid Lua code"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void testCachedScriptRunsInFreshEnvironment() {
+		// Given
+		String script = "counter = (counter or 0) + 1 return counter";
+
+		// When
+		LuaValue first = LuaEnvironment.create(script).call();
+		LuaValue second = LuaEnvironment.create(script).call();
+
+		// Then
+		assertEquals(1, first.toint());
+		assertEquals(1, second.toint());
+		assertNotNull(LuaEnvironment.getScriptCache());
+		assertTrue(LuaEnvironment.getScriptCache().getHits() >= 1);
+	}
+}
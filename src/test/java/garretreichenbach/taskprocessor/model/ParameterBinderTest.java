@@ -0,0 +1,100 @@
+package garretreichenbach.taskprocessor.model;
+
+import garretreichenbach.taskprocessor.model.parameters.DataAnalysisParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImageCompressionParameters;
+import garretreichenbach.taskprocessor.model.parameters.ImageScalingParameters;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParameterBinderTest {
+
+	@Test
+	void testBindConvertsNumbersAndWrapsData() {
+		// Given
+		byte[] data = new byte[12];
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("data", data);
+		parameters.put("width", 2L);
+		parameters.put("height", 2.0);
+		parameters.put("scale", 1);
+
+		// When
+		ImageScalingParameters bound = ParameterBinder.of(ImageScalingParameters.class).bind(parameters);
+
+		// Then
+		assertEquals(2, bound.width());
+		assertEquals(2, bound.height());
+		assertEquals(1.0, bound.scale());
+		assertSame(data, bound.data().array());
+	}
+
+	@Test
+	void testOptionalParameterTakesDefault() {
+		// Given
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("data", ByteBuffer.allocate(3).asReadOnlyBuffer());
+		parameters.put("width", 1);
+		parameters.put("height", 1);
+
+		// When
+		ImageCompressionParameters bound = ParameterBinder.of(ImageCompressionParameters.class).bind(parameters);
+
+		// Then
+		assertEquals("gz", bound.algorithm());
+		assertTrue(bound.data().isReadOnly());
+	}
+
+	@Test
+	void testInvalidParametersFailFast() {
+		// Given
+		Map<String, Object> missing = new HashMap<>(Map.of("data", new byte[3], "width", 1, "height", 1));
+		Map<String, Object> wrongType = new HashMap<>(Map.of("data", new byte[3], "width", "one", "height", 1, "scale", 0.5));
+		Map<String, Object> fractional = new HashMap<>(Map.of("data", new byte[3], "width", 1.5, "height", 1, "scale", 0.5));
+		ParameterBinder<ImageScalingParameters> binder = ParameterBinder.of(ImageScalingParameters.class);
+
+		// Then
+		assertEquals("Missing parameter: scale", assertThrows(IllegalArgumentException.class, () -> binder.bind(missing)).getMessage());
+		assertTrue(assertThrows(IllegalArgumentException.class, () -> binder.bind(wrongType)).getMessage().startsWith("Invalid type for parameter: width"));
+		assertThrows(IllegalArgumentException.class, () -> binder.bind(fractional));
+	}
+
+	@Test
+	void testTaskReusesRecordBoundAtSubmission() {
+		// Given
+		Map<String, Object> parameters = new HashMap<>(Map.of("data", new byte[3], "width", 1, "height", 1, "scale", 0.5));
+		Task task = new Task("bound", TaskType.IMAGE_SCALING, parameters, 1);
+
+		// When
+		Record bound = task.bindParameters();
+
+		// Then
+		assertSame(bound, task.getParameters(ImageScalingParameters.class));
+		assertTrue(TaskType.IMAGE_SCALING.isBinaryParameter("data"));
+		assertEquals(int.class, TaskType.IMAGE_SCALING.getParameterType("width"));
+	}
+
+	@Test
+	void testNumericColumnsBindFromListsAndBinary() {
+		// Given
+		ByteBuffer binary = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putDouble(1.5).putDouble(-2.0).flip();
+		Map<String, Object> parameters = new HashMap<>(Map.of("values", binary, "keys", List.of(3, 4L)));
+		Map<String, Object> truncated = new HashMap<>(Map.of("values", new byte[12]));
+		ParameterBinder<DataAnalysisParameters> binder = ParameterBinder.of(DataAnalysisParameters.class);
+
+		// When
+		DataAnalysisParameters bound = binder.bind(parameters);
+
+		// Then
+		assertArrayEquals(new double[] {1.5, -2.0}, bound.values());
+		assertArrayEquals(new long[] {3, 4}, bound.keys());
+		assertTrue(TaskType.DATA_ANALYSIS.isBinaryParameter("values"));
+		assertThrows(IllegalArgumentException.class, () -> binder.bind(truncated));
+	}
+}
@@ -1,10 +1,18 @@
 package garretreichenbach.taskprocessor.model;
 
+import garretreichenbach.taskprocessor.processor.BufferPool;
+import garretreichenbach.taskprocessor.service.TaskQueueService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -71,4 +79,162 @@ class TaskResultStoreTest {
 		// Then
 		assertTrue(storedResults.size() <= MAX_RESULTS, "Store should respect max results limit");
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testPaginationVisitsEveryResultOnce() {
+		// Given
+		Set<String> stored = new HashSet<>();
+		for(int i = 0; i < MAX_RESULTS - 1; i++) {
+			String taskId = UUID.randomUUID().toString();
+			TaskResult result = TaskResult.success(taskId, new HashMap<>());
+			result.setCompletedAt(1000); // Identical timestamps must still produce a stable order
+			stored.add(taskId);
+			resultStore.storeResult(result);
+		}
+
+		// When
+		List<String> visited = new ArrayList<>();
+		String cursor = null;
+		do {
+			ResultPage<TaskResult> page = resultStore.getResultsPage(cursor, 2);
+			assertTrue(page.results().size() <= 2);
+			page.results().forEach(result -> visited.add(result.getTaskId()));
+			cursor = page.nextCursor();
+		} while(cursor != null);
+
+		// Then
+		assertEquals(stored.size(), visited.size());
+		assertEquals(stored, new HashSet<>(visited));
+	}
+
+	@Test
+	void testStoreReplacesResultWithSameTaskId() {
+		// Given
+		String taskId = UUID.randomUUID().toString();
+		TaskResult first = TaskResult.success(taskId, new HashMap<>());
+		first.setCompletedAt(1000);
+		TaskResult second = TaskResult.timeout(taskId);
+		second.setCompletedAt(2000);
+
+		// When
+		resultStore.storeResult(first);
+		resultStore.storeResult(second);
+
+		// Then
+		assertSame(second, resultStore.getResult(taskId));
+		assertEquals(1, resultStore.streamResults(null).count());
+	}
+
+	@Test
+	void testInvalidCursor() {
+		assertThrows(IllegalArgumentException.class, () -> resultStore.getResultsPage("not-a-cursor", 10));
+	}
+
+	@Test
+	void testFilteredQueriesUseSecondaryIndexes() {
+		// Given
+		TaskResult high = TaskResult.success("high-scale", new HashMap<>());
+		high.setQueueType(TaskQueueService.QueueType.HIGH);
+		high.setTaskType(TaskType.IMAGE_SCALING);
+		high.setCompletedAt(1000);
+		TaskResult low = TaskResult.timeout("low-custom");
+		low.setQueueType(TaskQueueService.QueueType.LOW);
+		low.setTaskType(TaskType.CUSTOM_TASK);
+		low.setCompletedAt(2000);
+		resultStore.storeResult(high);
+		resultStore.storeResult(low);
+
+		// When
+		ResultPage<TaskResult> highPage = resultStore.getResultsPage(ResultFilter.byQueue(TaskQueueService.QueueType.HIGH), null, 10);
+		ResultPage<TaskResult> timeoutPage = resultStore.getResultsPage(ResultFilter.parse(null, "custom", "timeout"), null, 10);
+		ConcurrentHashMap<String, TaskResult> recentLow = resultStore.getRecentResults(ResultFilter.byQueue(TaskQueueService.QueueType.LOW), 10);
+
+		// Then
+		assertEquals(List.of(high), highPage.results());
+		assertEquals(List.of(low), timeoutPage.results());
+		assertEquals(Set.of("low-custom"), recentLow.keySet());
+	}
+
+	@Test
+	void testIndexesAreEvictedWithResults() {
+		// Given
+		for(int i = 0; i < MAX_RESULTS * 2; i++) {
+			TaskResult result = TaskResult.success("task-" + i, new HashMap<>());
+			result.setQueueType(i == 0 ? TaskQueueService.QueueType.BACKLOG : TaskQueueService.QueueType.NORMAL);
+			result.setCompletedAt(i);
+			resultStore.storeResult(result);
+		}
+
+		// When
+		ResultPage<TaskResult> backlog = resultStore.getResultsPage(ResultFilter.byQueue(TaskQueueService.QueueType.BACKLOG), null, 10);
+		ResultPage<TaskResult> normal = resultStore.getResultsPage(ResultFilter.byQueue(TaskQueueService.QueueType.NORMAL), null, 10);
+
+		// Then
+		assertTrue(backlog.results().isEmpty());
+		assertTrue(normal.results().size() <= MAX_RESULTS);
+	}
+
+	@Test
+	void testLargePayloadsAreCompressedTransparently() {
+		// Given
+		byte[] image = new byte[256 * 1024];
+		for(int i = 0; i < image.length; i++) image[i] = (byte) (i / 3 % 64); // Smooth gradient, compresses well
+		TaskResult result = TaskResult.success("compressible", Map.of("scaled_image", image, "width", 256));
+
+		// When
+		resultStore.storeResult(result);
+		TaskResult retrieved = resultStore.getResult("compressible");
+
+		// Then
+		assertInstanceOf(CompressedPayload.class, retrieved.getOutput().raw().get("scaled_image"));
+		assertArrayEquals(image, (byte[]) retrieved.getOutput().get("scaled_image"));
+		assertEquals(256, retrieved.getOutput().get("width"));
+		TaskResultStore.CompressionStats stats = resultStore.getCompressionStats();
+		assertEquals(1, stats.payloadsCompressed());
+		assertTrue(stats.savedBytes() > image.length / 2);
+	}
+
+	@Test
+	void testIncompressiblePayloadsAreStoredAsIs() {
+		// Given
+		byte[] noise = new byte[256 * 1024];
+		new Random(42).nextBytes(noise);
+		byte[] small = new byte[1024];
+		TaskResult result = TaskResult.success("incompressible", Map.of("noise", noise, "small", small));
+
+		// When
+		resultStore.storeResult(result);
+
+		// Then
+		assertSame(noise, resultStore.getResult("incompressible").getOutput().get("noise"));
+		assertSame(small, resultStore.getResult("incompressible").getOutput().get("small"));
+		assertEquals(1, resultStore.getCompressionStats().payloadsSkipped());
+		assertEquals(0, resultStore.getCompressionStats().payloadsCompressed());
+	}
+
+	@Test
+	void testPooledPayloadsAreReturnedToThePool() {
+		// Given
+		BufferPool pool = new BufferPool(16 * 1024 * 1024, false);
+		BufferPool.Lease<byte[]> compressible = pool.leaseBytes(200_000);
+		BufferPool.Lease<byte[]> noise = pool.leaseBytes(200_000);
+		for(int i = 0; i < compressible.length(); i++) compressible.array()[i] = (byte) (i / 3 % 64);
+		new Random(42).nextBytes(noise.array());
+		byte[] expectedNoise = Arrays.copyOf(noise.array(), noise.length());
+		TaskResult result = TaskResult.success("pooled", Map.of("scaled_image", new PooledPayload(compressible), "noise", new PooledPayload(noise)));
+
+		// When
+		resultStore.storeResult(result);
+		TaskResult retrieved = resultStore.getResult("pooled");
+
+		// Then
+		assertInstanceOf(CompressedPayload.class, retrieved.getOutput().raw().get("scaled_image"));
+		assertEquals(200_000, ((byte[]) retrieved.getOutput().get("scaled_image")).length);
+		assertArrayEquals(expectedNoise, (byte[]) retrieved.getOutput().raw().get("noise"));
+		assertThrows(IllegalStateException.class, compressible::array);
+		assertThrows(IllegalStateException.class, noise::array);
+		pool.leaseBytes(200_000);
+		pool.leaseBytes(200_000);
+		assertEquals(2, pool.getStats().hits());
+	}
+}
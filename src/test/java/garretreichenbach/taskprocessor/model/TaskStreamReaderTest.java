@@ -0,0 +1,128 @@
+package garretreichenbach.taskprocessor.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskStreamReaderTest {
+
+	@Test
+	void testReadJsonTaskWithBase64Data() throws IOException {
+		// Given
+		byte[] data = {10, 20, 30, 40, 50, 60};
+		String json = "{\"type\":\"scale\",\"priority\":7,\"parameters\":{\"width\":1,\"height\":2,\"scale\":0.5,\"data\":\"" + Base64.getEncoder().encodeToString(data) + "\"}}";
+		TaskStreamReader reader = new TaskStreamReader(new ObjectMapper(), 1024);
+
+		// When
+		Task task = reader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+		// Then
+		assertEquals(TaskType.IMAGE_SCALING, task.getType());
+		assertEquals(7, task.getPriority());
+		assertEquals(0.5, task.getParameters().get("scale"));
+		assertArrayEquals(data, (byte[]) task.getParameters().get("data"));
+	}
+
+	@Test
+	void testReadCborTaskWithParametersBeforeType() throws IOException {
+		// Given
+		byte[] data = new byte[4096];
+		for(int i = 0; i < data.length; i++) data[i] = (byte) (i * 7);
+		Map<String, Object> body = new LinkedHashMap<>();
+		body.put("parameters", Map.of("data", data, "width", 32, "height", 32));
+		body.put("id", "cbor-task");
+		body.put("type", "IMAGE_COMPRESSION");
+		TaskStreamReader reader = new TaskStreamReader(new CBORMapper(), data.length);
+
+		// When
+		Task task = reader.read(new ByteArrayInputStream(new CBORMapper().writeValueAsBytes(body)));
+
+		// Then
+		assertEquals("cbor-task", task.getId());
+		assertEquals(TaskType.IMAGE_COMPRESSION, task.getType());
+		assertArrayEquals(data, (byte[]) task.getParameters().get("data"));
+	}
+
+	@Test
+	void testOversizedPayloadIsRejectedBeforeTheBodyIsRead() {
+		// Given
+		byte[] data = new byte[2 * 1024 * 1024];
+		String json = "{\"type\":\"compress\",\"parameters\":{\"data\":\"" + Base64.getEncoder().encodeToString(data) + "\"}}";
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		long[] consumed = {0};
+		InputStream counting = new FilterInputStream(new ByteArrayInputStream(body)) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int read = super.read(b, off, len);
+				if(read > 0) consumed[0] += read;
+				return read;
+			}
+		};
+		TaskStreamReader reader = new TaskStreamReader(new ObjectMapper(), 1024 * 1024);
+
+		// When / Then
+		assertThrows(TaskStreamReader.PayloadTooLargeException.class, () -> reader.read(counting));
+		assertTrue(consumed[0] < body.length * 3L / 4, "Read " + consumed[0] + " of " + body.length + " bytes");
+	}
+
+	@Test
+	void testUnknownTypeIsRejectedBeforeParameters() {
+		// Given
+		String json = "{\"type\":\"not-a-type\",\"parameters\":{\"data\":\"AAAA\"}}";
+		TaskStreamReader reader = new TaskStreamReader(new ObjectMapper(), 1024);
+
+		// When / Then
+		assertThrows(IllegalArgumentException.class, () -> reader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+	}
+
+	@Test
+	void testOversizedStructuredParameterIsRejectedBeforeTheBodyIsRead() {
+		// Given
+		StringBuilder json = new StringBuilder("{\"type\":\"analyze\",\"parameters\":{\"values\":[");
+		for(int i = 0; i < 200_000; i++) json.append(i == 0 ? "" : ",").append("[").append(i).append(".5,{\"n\":").append(i).append("}]");
+		json.append("]}}");
+		byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+		long[] consumed = {0};
+		InputStream counting = new FilterInputStream(new ByteArrayInputStream(body)) {
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int read = super.read(b, off, len);
+				if(read > 0) consumed[0] += read;
+				return read;
+			}
+		};
+		TaskStreamReader reader = new TaskStreamReader(new ObjectMapper(), 64 * 1024);
+
+		// When / Then
+		assertThrows(TaskStreamReader.PayloadTooLargeException.class, () -> reader.read(counting));
+		assertTrue(consumed[0] < body.length / 4, "Read " + consumed[0] + " of " + body.length + " bytes");
+	}
+
+	@Test
+	void testStructuredParametersWithinLimitAreRead() throws IOException {
+		// Given
+		String json = "{\"type\":\"analyze\",\"parameters\":{\"values\":[1.5,2,3],\"ranks\":[0.5],\"nested\":{\"a\":[true,null,\"x\"]}}}";
+		TaskStreamReader reader = new TaskStreamReader(new ObjectMapper(), 1024);
+
+		// When
+		Task task = reader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+		// Then
+		assertEquals(List.of(1.5, 2, 3), task.getParameters().get("values"));
+		assertEquals(Map.of("a", Arrays.asList(true, null, "x")), task.getParameters().get("nested"));
+		assertThrows(TaskStreamReader.PayloadTooLargeException.class, () -> new TaskStreamReader(new ObjectMapper(), 16).read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+	}
+}
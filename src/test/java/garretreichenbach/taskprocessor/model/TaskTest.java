@@ -1,5 +1,6 @@
 package garretreichenbach.taskprocessor.model;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 
@@ -87,4 +88,51 @@ class TaskTest {
 		assertEquals(parameters, task.getParameters());
 		assertEquals(1, task.getPriority());
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testJsonCarriesBinaryParametersAsBase64() {
+		// Given
+		byte[] data = {0, 1, 2, (byte) 200};
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("data", data);
+		parameters.put("width", 2);
+		parameters.put("height", 2);
+		Task task = new Task(UUID.randomUUID().toString(), TaskType.IMAGE_COMPRESSION, parameters, 5);
+
+		// When
+		JSONObject json = task.toJSON();
+		Task copy = new Task(UUID.randomUUID().toString(), TaskType.IMAGE_COMPRESSION, new HashMap<>(), 1);
+		copy.fromJSON(new JSONObject(json.toString()));
+
+		// Then
+		assertEquals("AAECyA==", json.getJSONObject("parameters").getString("data"));
+		assertArrayEquals(data, (byte[]) copy.getParameters().get("data"));
+		assertEquals(task.getId(), copy.getId());
+		assertEquals(5, copy.getPriority());
+	}
+
+	@Test
+	void testJacksonRoundTrip() throws Exception {
+		// Given
+		byte[] data = new byte[300];
+		for(int i = 0; i < data.length; i++) data[i] = (byte) i;
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("data", data);
+		parameters.put("width", 10);
+		parameters.put("height", 10);
+		parameters.put("scale", 0.25);
+		Task task = new Task(UUID.randomUUID().toString(), TaskType.IMAGE_SCALING, parameters, 3);
+		ObjectMapper mapper = new ObjectMapper();
+
+		// When
+		Task copy = mapper.readValue(mapper.writeValueAsBytes(task), Task.class);
+
+		// Then
+		assertEquals(task.getId(), copy.getId());
+		assertEquals(TaskType.IMAGE_SCALING, copy.getType());
+		assertEquals(3, copy.getPriority());
+		assertEquals(task.getCreatedAt(), copy.getCreatedAt());
+		assertArrayEquals(data, (byte[]) copy.getParameters().get("data"));
+		assertEquals(0.25, copy.getParameters().get("scale"));
+	}
+}
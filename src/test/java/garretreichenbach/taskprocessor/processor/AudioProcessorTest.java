@@ -0,0 +1,127 @@
+package garretreichenbach.taskprocessor.processor;
+
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.TaskType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioProcessorTest {
+
+	private AudioProcessor audioProcessor;
+	private Map<String, Object> parameters;
+	private String taskId;
+
+	@BeforeEach
+	void setUp() {
+		audioProcessor = new AudioProcessor();
+		parameters = new HashMap<>();
+		taskId = UUID.randomUUID().toString();
+	}
+
+	/**
+	 * Returns interleaved stereo float samples with a tone of the given frequency on the left and silence on the right.
+	 */
+	private static byte[] stereoTone(int frames, double frequency, int rate) {
+		ByteBuffer samples = ByteBuffer.allocate(frames * 2 * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		for(int i = 0; i < frames; i++) samples.putFloat((float) Math.sin(2 * Math.PI * frequency * i / rate)).putFloat(0.0f);
+		return samples.array();
+	}
+
+	private static double rms(byte[] samples, int channel) {
+		ByteBuffer buffer = ByteBuffer.wrap(samples).order(ByteOrder.LITTLE_ENDIAN);
+		int frames = samples.length / 8;
+		double sum = 0;
+		for(int i = 0; i < frames; i++) sum += Math.pow(buffer.getFloat((i * 2 + channel) * Float.BYTES), 2);
+		return Math.sqrt(sum / frames);
+	}
+
+	@Test
+	void testLowPassAndIirAttenuateHighTone() {
+		// Given
+		parameters.put("samples", stereoTone(40_000, 8000, 44_100));
+		parameters.put("sample_rate", 44_100);
+		parameters.put("channels", 2);
+		parameters.put("cutoff", 1000.0);
+		Map<String, Object> lowPass = new HashMap<>(parameters);
+		lowPass.put("operation", "low_pass");
+		Map<String, Object> iir = new HashMap<>(parameters);
+		iir.put("operation", "iir");
+
+		// When
+		TaskResult lowPassResult = audioProcessor.process(new Task(taskId, TaskType.AUDIO_MANIPULATION, lowPass, 10));
+		TaskResult iirResult = audioProcessor.process(new Task(taskId, TaskType.AUDIO_MANIPULATION, iir, 10));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, lowPassResult.getStatus());
+		byte[] filtered = (byte[]) lowPassResult.getOutput().get("samples");
+		assertEquals(40_000 * 8, filtered.length);
+		assertEquals(40_000, lowPassResult.getOutput().get("frames"));
+		assertTrue(rms(filtered, 0) < 1e-3, "low-pass rms " + rms(filtered, 0));
+		assertEquals(0.0, rms(filtered, 1));
+		// A second-order Butterworth section falls off by 12 dB per octave: 3 octaves above the cutoff leave about 1/64 of the amplitude
+		double iirRms = rms((byte[]) iirResult.getOutput().get("samples"), 0);
+		assertTrue(iirRms < 0.02 && iirRms > 0.005, "iir rms " + iirRms);
+	}
+
+	@Test
+	void testResampleAndSpectrum() {
+		// Given
+		parameters.put("samples", stereoTone(22_050, 1000, 22_050));
+		parameters.put("sample_rate", 22_050);
+		parameters.put("channels", 2);
+		Map<String, Object> resample = new HashMap<>(parameters);
+		resample.put("operation", "resample");
+		resample.put("target_rate", 44_100);
+		Map<String, Object> spectrum = new HashMap<>(parameters);
+		spectrum.put("operation", "spectrum");
+		spectrum.put("fft_size", 1024);
+
+		// When
+		TaskResult resampleResult = audioProcessor.process(new Task(taskId, TaskType.AUDIO_MANIPULATION, resample, 10));
+		TaskResult spectrumResult = audioProcessor.process(new Task(taskId, TaskType.AUDIO_MANIPULATION, spectrum, 10));
+
+		// Then
+		assertEquals(44_100, resampleResult.getOutput().get("sample_rate"));
+		assertEquals(44_100, resampleResult.getOutput().get("frames"));
+		assertEquals(Math.sqrt(0.5), rms((byte[]) resampleResult.getOutput().get("samples"), 0), 1e-2);
+		double[] power = (double[]) spectrumResult.getOutput().get("power");
+		double[] frequencies = (double[]) spectrumResult.getOutput().get("frequencies");
+		assertEquals(513, power.length);
+		int peak = 0;
+		double total = 0;
+		for(int k = 0; k < power.length; k++) {
+			if(power[k] > power[peak]) peak = k;
+			total += power[k];
+		}
+		assertEquals(1000, frequencies[peak], 22_050.0 / 1024);
+		// The left channel's tone has a mean square of 1/2 and the silent right channel halves the average
+		assertEquals(0.25, total, 0.01);
+		assertEquals(42L, spectrumResult.getOutput().get("frames"));
+	}
+
+	@Test
+	void testRejectsPartialFrames() {
+		// Given
+		parameters.put("samples", new byte[12]);
+		parameters.put("sample_rate", 8000);
+		parameters.put("channels", 2);
+		parameters.put("operation", "fir");
+		parameters.put("coefficients", new double[] {1});
+
+		// When
+		TaskResult result = audioProcessor.process(new Task(taskId, TaskType.AUDIO_MANIPULATION, parameters, 10));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.FAILURE, result.getStatus());
+		assertInstanceOf(IllegalArgumentException.class, result.getOutput().get("error"));
+	}
+}
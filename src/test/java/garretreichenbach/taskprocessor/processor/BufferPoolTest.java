@@ -0,0 +1,102 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+
+	@Test
+	void testSizeClassesWasteAtMostAQuarter() {
+		for(long length = BufferPool.MIN_POOLED_BYTES; length <= BufferPool.MAX_POOLED_BYTES; length = length * 9 / 8 + 1) {
+			// When
+			int index = BufferPool.classIndex(length);
+			long capacity = BufferPool.classCapacity(index);
+
+			// Then
+			assertTrue(capacity >= length, "length " + length);
+			assertTrue(capacity <= length * 5 / 4 + 1, "length " + length);
+			assertEquals(index, BufferPool.classIndex(capacity), "length " + length);
+		}
+	}
+
+	@Test
+	void testReleasedArraysAreReused() {
+		// Given
+		BufferPool pool = new BufferPool(16 * 1024 * 1024, false);
+		BufferPool.Lease<byte[]> first = pool.leaseBytes(1_000_000);
+		byte[] array = first.array();
+
+		// When
+		first.release();
+		first.release();
+		BufferPool.Lease<byte[]> second = pool.leaseBytes(950_000);
+		BufferPool.Lease<byte[]> third = pool.leaseBytes(950_000);
+
+		// Then
+		assertTrue(array == second.array());
+		assertTrue(array != third.array());
+		assertEquals(950_000, second.length());
+		assertThrows(IllegalStateException.class, first::array);
+		BufferPool.Stats stats = pool.getStats();
+		assertEquals(3, stats.leases());
+		assertEquals(1, stats.hits());
+		assertEquals(2, stats.misses());
+		assertEquals(array.length, stats.bytesRecycled());
+		assertEquals(0, stats.retainedBytes());
+		assertEquals(1.0 / 3, stats.hitRate(), 1e-9);
+	}
+
+	@Test
+	void testIntArraysAndSmallArrays() {
+		// Given
+		BufferPool pool = new BufferPool(16 * 1024 * 1024, false);
+
+		// When
+		BufferPool.Lease<int[]> ints = pool.leaseInts(100_000);
+		BufferPool.Lease<byte[]> small = pool.leaseBytes(100);
+		int[] array = ints.array();
+		ints.release();
+		small.release();
+
+		// Then
+		assertTrue(array.length >= 100_000 && array.length <= 125_000);
+		assertEquals(100, small.length());
+		assertTrue(array == pool.leaseInts(110_000).array());
+		assertEquals(1, pool.getStats().unpooled());
+	}
+
+	@Test
+	void testRetainedBytesAreBounded() {
+		// Given
+		BufferPool pool = new BufferPool(1024 * 1024, false);
+		BufferPool.Lease<byte[]> first = pool.leaseBytes(768 * 1024);
+		BufferPool.Lease<byte[]> second = pool.leaseBytes(768 * 1024);
+
+		// When
+		first.release();
+		second.release();
+
+		// Then
+		BufferPool.Stats stats = pool.getStats();
+		assertEquals(1, stats.dropped());
+		assertEquals(768 * 1024, stats.retainedBytes());
+	}
+
+	@Test
+	void testUnreleasedLeasesAreReportedInDebugMode() throws InterruptedException {
+		// Given
+		BufferPool pool = new BufferPool(16 * 1024 * 1024, true);
+		pool.leaseBytes(100_000).release();
+
+		// When
+		pool.leaseBytes(100_000);
+		for(int i = 0; i < 50 && pool.getStats().leaks() == 0; i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+
+		// Then
+		assertEquals(1, pool.getStats().leaks());
+	}
+}
@@ -0,0 +1,105 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionCodecTest {
+
+	private static byte[] image(int size) {
+		byte[] data = new byte[size];
+		Random random = new Random(7);
+		for(int i = 0; i < data.length; i++) data[i] = (byte) ((i / 3 % 256) + random.nextInt(3));
+		return data;
+	}
+
+	@ParameterizedTest
+	@EnumSource(CompressionCodec.class)
+	void testRoundTrip(CompressionCodec codec) throws IOException {
+		// Given
+		byte[] data = image(300_000);
+
+		// When
+		byte[] compressed = codec.compress(data, 0, data.length, -1);
+		byte[] decompressed = codec.decompress(compressed, data.length);
+		byte[] target = new byte[data.length + 100];
+		codec.decompress(compressed, target, data.length);
+
+		// Then
+		assertTrue(compressed.length < data.length, codec + " did not compress");
+		assertArrayEquals(data, decompressed);
+		assertArrayEquals(data, codec.decompress(compressed, -1));
+		assertArrayEquals(data, Arrays.copyOf(target, data.length));
+		assertEquals(codec, CompressionCodec.detect(compressed));
+	}
+
+	@ParameterizedTest
+	@EnumSource(CompressionCodec.class)
+	void testDecompressorStreamReadsCompressedData(CompressionCodec codec) throws IOException {
+		// Given
+		byte[] data = image(100_000);
+		byte[] compressed = codec.compress(data, 0, data.length, -1, false);
+
+		// When
+		byte[] decompressed;
+		try(var decompressor = codec.decompressor(new ByteArrayInputStream(compressed))) {
+			decompressed = decompressor.readAllBytes();
+		}
+
+		// Then
+		assertArrayEquals(data, decompressed);
+	}
+
+	@Test
+	void testGzipIsInteroperable() throws IOException {
+		// Given
+		byte[] data = image(100_000);
+		ByteArrayOutputStream external = new ByteArrayOutputStream();
+		try(GZIPOutputStream outputStream = new GZIPOutputStream(external)) {
+			outputStream.write(data);
+		}
+
+		// When
+		byte[] compressed = CompressionCodec.GZIP.compress(data, 0, data.length, 9);
+
+		// Then
+		try(GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			assertArrayEquals(data, inputStream.readAllBytes());
+		}
+		assertArrayEquals(data, CompressionCodec.GZIP.decompress(external.toByteArray(), data.length));
+	}
+
+	@Test
+	void testLevelsAndNames() {
+		// Given
+		byte[] data = image(50_000);
+
+		// Then
+		assertTrue(CompressionCodec.DEFLATE.compress(data, 0, data.length, 9).length <= CompressionCodec.DEFLATE.compress(data, 0, data.length, 1).length);
+		assertThrows(IllegalArgumentException.class, () -> CompressionCodec.GZIP.compress(data, 0, data.length, 10));
+		assertEquals(CompressionCodec.LZ4, CompressionCodec.fromString("lz4-framed"));
+		assertEquals(CompressionCodec.GZIP, CompressionCodec.fromString("gz"));
+		assertThrows(IllegalArgumentException.class, () -> CompressionCodec.fromString("zip"));
+	}
+
+	@Test
+	void testWrongExpectedLengthIsRejected() {
+		// Given
+		byte[] data = image(10_000);
+		byte[] compressed = CompressionCodec.DEFLATE.compress(data, 0, data.length, -1);
+
+		// Then
+		assertThrows(IOException.class, () -> CompressionCodec.DEFLATE.decompress(compressed, data.length + 1));
+		assertThrows(IOException.class, () -> CompressionCodec.DEFLATE.decompress(compressed, data.length - 1));
+	}
+}
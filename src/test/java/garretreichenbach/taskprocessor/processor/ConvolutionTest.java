@@ -0,0 +1,189 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConvolutionTest {
+
+	private static byte[] randomImage(int width, int height, long seed) {
+		byte[] data = new byte[width * height * 3];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * Convolves with a separable kernel in double precision, one output pixel at a time.
+	 */
+	private static int[] reference(byte[] image, int width, int height, double[] kernel, EdgeMode edge) {
+		int radius = kernel.length / 2;
+		int[] result = new int[image.length];
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				for(int c = 0; c < 3; c++) {
+					double sum = 0.0;
+					for(int j = -radius; j <= radius; j++) {
+						for(int i = -radius; i <= radius; i++) {
+							int pixel = (edge.map(y + j, height) * width + edge.map(x + i, width)) * 3 + c;
+							sum += (image[pixel] & 0xFF) * kernel[i + radius] * kernel[j + radius];
+						}
+					}
+					result[(y * width + x) * 3 + c] = (int) Math.round(sum);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static double[] box(int radius) {
+		double[] kernel = new double[2 * radius + 1];
+		java.util.Arrays.fill(kernel, 1.0 / kernel.length);
+		return kernel;
+	}
+
+	@ParameterizedTest
+	@EnumSource(EdgeMode.class)
+	void testBoxBlurMatchesReference(EdgeMode edge) {
+		for(int radius : new int[] {0, 1, 3, 9}) {
+			// Given
+			int width = 7, height = 5;
+			byte[] image = randomImage(width, height, radius);
+			byte[] target = new byte[image.length];
+
+			// When
+			Convolution.boxBlur(ByteBuffer.wrap(image), width, height, target, radius, edge);
+
+			// Then
+			int[] expected = reference(image, width, height, box(radius), edge);
+			for(int i = 0; i < expected.length; i++) assertEquals(expected[i], target[i] & 0xFF, 2, edge + " radius " + radius + " byte " + i);
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(EdgeMode.class)
+	void testGaussianBlurMatchesReference(EdgeMode edge) {
+		// Given
+		int width = 40, height = 23;
+		byte[] image = randomImage(width, height, 5);
+		int[] fixedPoint = Convolution.gaussianKernel(1.5);
+		double[] kernel = new double[fixedPoint.length];
+		for(int i = 0; i < kernel.length; i++) kernel[i] = fixedPoint[i] / 16384.0;
+		byte[] target = new byte[image.length];
+
+		// When
+		Convolution.gaussianBlur(ByteBuffer.wrap(image), width, height, target, 1.5, edge);
+
+		// Then
+		int[] expected = reference(image, width, height, kernel, edge);
+		for(int i = 0; i < expected.length; i++) assertEquals(expected[i], target[i] & 0xFF, 1, edge + " byte " + i);
+	}
+
+	@Test
+	void testWideGaussianBlurIsApproximatedByBoxes() {
+		// Given
+		int width = 80, height = 60;
+		double sigma = 6.0;
+		byte[] image = randomImage(width, height, 9);
+		double[] kernel = new double[2 * (int) Math.ceil(3 * sigma) + 1];
+		double total = 0.0;
+		for(int i = 0; i < kernel.length; i++) total += kernel[i] = Math.exp(-Math.pow(i - kernel.length / 2, 2) / (2 * sigma * sigma));
+		for(int i = 0; i < kernel.length; i++) kernel[i] /= total;
+		byte[] target = new byte[image.length];
+
+		// When
+		Convolution.gaussianBlur(ByteBuffer.wrap(image), width, height, target, sigma, EdgeMode.MIRROR);
+
+		// Then
+		assertTrue(kernel.length / 2 > Convolution.MAX_KERNEL_RADIUS);
+		int[] expected = reference(image, width, height, kernel, EdgeMode.MIRROR);
+		double error = 0.0;
+		for(int i = 0; i < expected.length; i++) error += Math.abs(expected[i] - (target[i] & 0xFF));
+		assertTrue(error / expected.length < 1.5, "mean error " + error / expected.length);
+	}
+
+	@Test
+	void testUniformImageIsUnchanged() {
+		// Given
+		int width = 33, height = 17;
+		byte[] image = new byte[width * height * 3];
+		java.util.Arrays.fill(image, (byte) 173);
+		byte[] blurred = new byte[image.length];
+		byte[] boxed = new byte[image.length];
+		byte[] sharpened = new byte[image.length];
+		byte[] edges = new byte[image.length];
+
+		// When
+		Convolution.gaussianBlur(ByteBuffer.wrap(image), width, height, blurred, 8.0, EdgeMode.WRAP);
+		Convolution.boxBlur(ByteBuffer.wrap(image), width, height, boxed, 20, EdgeMode.CLAMP);
+		Convolution.sharpen(ByteBuffer.wrap(image), width, height, sharpened, 2.0, 1.5, EdgeMode.MIRROR);
+		Convolution.sobel(ByteBuffer.wrap(image), width, height, edges, EdgeMode.CLAMP);
+
+		// Then
+		assertArrayEquals(image, blurred);
+		assertArrayEquals(image, boxed);
+		assertArrayEquals(image, sharpened);
+		assertArrayEquals(new byte[image.length], edges);
+	}
+
+	@Test
+	void testRadiusBeyondImageIsRejected() {
+		// Given
+		int width = 8, height = 6;
+		byte[] image = new byte[width * height * 3];
+		byte[] target = new byte[image.length];
+
+		// Then
+		assertThrows(IllegalArgumentException.class, () -> Convolution.gaussianBlur(ByteBuffer.wrap(image), width, height, target, 1e9, EdgeMode.CLAMP));
+		assertThrows(IllegalArgumentException.class, () -> Convolution.gaussianBlur(ByteBuffer.wrap(image), width, height, target, Double.NaN, EdgeMode.CLAMP));
+		assertThrows(IllegalArgumentException.class, () -> Convolution.boxBlur(ByteBuffer.wrap(image), width, height, target, Integer.MAX_VALUE, EdgeMode.CLAMP));
+		assertThrows(IllegalArgumentException.class, () -> Convolution.sharpen(ByteBuffer.wrap(image), width, height, target, 17.0, 1.0, EdgeMode.CLAMP));
+		assertDoesNotThrow(() -> Convolution.gaussianBlur(ByteBuffer.wrap(image), width, height, target, 16.0, EdgeMode.CLAMP));
+		assertDoesNotThrow(() -> Convolution.boxBlur(ByteBuffer.wrap(image), width, height, target, 16, EdgeMode.CLAMP));
+	}
+
+	@Test
+	void testSobelFindsVerticalEdge() {
+		// Given
+		int width = 16, height = 8;
+		byte[] image = new byte[width * height * 3];
+		for(int y = 0; y < height; y++) for(int x = width / 2; x < width; x++) for(int c = 0; c < 3; c++) image[(y * width + x) * 3 + c] = (byte) 200;
+		byte[] edges = new byte[image.length];
+
+		// When
+		Convolution.sobel(ByteBuffer.wrap(image), width, height, edges, EdgeMode.CLAMP);
+
+		// Then
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				int value = edges[(y * width + x) * 3] & 0xFF;
+				if(x == width / 2 - 1 || x == width / 2) assertEquals(200, value, 2, "x " + x);
+				else assertEquals(0, value, "x " + x);
+			}
+		}
+	}
+
+	@Test
+	void testSharpenIncreasesContrast() {
+		// Given
+		int width = 16, height = 4;
+		byte[] image = new byte[width * height * 3];
+		for(int i = 0; i < image.length; i++) image[i] = (byte) (i / 3 % width < width / 2 ? 100 : 150);
+		byte[] sharpened = new byte[image.length];
+		byte[] unchanged = new byte[image.length];
+
+		// When
+		Convolution.sharpen(ByteBuffer.wrap(image), width, height, sharpened, 1.0, 1.0, EdgeMode.CLAMP);
+		Convolution.sharpen(ByteBuffer.wrap(image), width, height, unchanged, 1.0, 0.0, EdgeMode.CLAMP);
+
+		// Then
+		assertTrue((sharpened[(width / 2 - 1) * 3] & 0xFF) < 100);
+		assertTrue((sharpened[width / 2 * 3] & 0xFF) > 150);
+		assertEquals(100, sharpened[0] & 0xFF);
+		assertArrayEquals(image, unchanged);
+	}
+}
@@ -0,0 +1,175 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvParserTest {
+
+	private static final CsvKernels SCALAR = new ScalarCsvKernels();
+	private static final CsvKernels VECTOR = new VectorCsvKernels();
+
+	private static ByteBuffer utf8(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void testKernelsFindTheSamePositions() {
+		for(int length : new int[] {0, 1, 31, 64, 65, 1000}) {
+			// Given
+			Random random = new Random(length);
+			byte[] text = new byte[length + 3];
+			byte[] alphabet = ",;\n\"ab 1".getBytes(StandardCharsets.US_ASCII);
+			for(int i = 0; i < text.length; i++) text[i] = alphabet[random.nextInt(alphabet.length)];
+			int[] expected = new int[length];
+			int[] actual = new int[length];
+
+			// When
+			int expectedCount = SCALAR.scan(text, 3, text.length, (byte) ';', expected);
+			int actualCount = VECTOR.scan(text, 3, text.length, (byte) ';', actual);
+
+			// Then
+			assertEquals(expectedCount, actualCount);
+			for(int i = 0; i < expectedCount; i++) {
+				assertEquals(expected[i], actual[i]);
+				assertTrue(text[expected[i]] == ';' || text[expected[i]] == '\n' || text[expected[i]] == '"');
+			}
+		}
+	}
+
+	@Test
+	void testParseNumberMatchesParseDouble() {
+		// Given
+		Random random = new Random(3);
+		String[] numbers = new String[2000];
+		String[] fixed = {"0", "-0", "+7", "007", "1.", ".5", "3.14159", "-2.5e-3", "1E10", "123456789012345", "1234567890123456789012", "0.000000000000000000001", "4.9e-324", "1e400", "9007199254740993"};
+		System.arraycopy(fixed, 0, numbers, 0, fixed.length);
+		for(int i = fixed.length; i < numbers.length; i++) {
+			numbers[i] = switch(i % 3) {
+				case 0 -> Long.toString(random.nextLong() >> random.nextInt(64));
+				case 1 -> Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20));
+				default -> String.format("%.4f", random.nextGaussian() * 1000);
+			};
+		}
+
+		for(String number : numbers) {
+			// When
+			byte[] bytes = number.getBytes(StandardCharsets.US_ASCII);
+			double parsed = CsvParser.parseNumber(bytes, 0, bytes.length);
+
+			// Then
+			assertEquals(Double.parseDouble(number), parsed, number);
+		}
+		for(String text : new String[] {"", "-", ".", "e5", "1e", "1e+", "1.2.3", "12a", "NaN", "Infinity", "0x10", " 1"}) {
+			byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+			assertTrue(Double.isNaN(CsvParser.parseNumber(bytes, 0, bytes.length)), text);
+		}
+	}
+
+	@Test
+	void testQuotingTrimmingAndLineEndings() {
+		// Given
+		String text = "﻿id; name ;\"note\"\r\n"
+				+ " 1 ;\"Smith; John\";\"said \"\"hi\"\"\"\r\n"
+				+ "2;Zoë;\"two\nlines\"\r\n"
+				+ "\r\n"
+				+ "3;short\n"
+				+ "4;;x";
+
+		// When
+		CsvTable table = new CsvParser(';', true, false).parse(utf8(text));
+		Map<String, Object> columns = table.toColumns(Normalization.NONE);
+
+		// Then
+		assertArrayEquals(new String[] {"id", "name", "note"}, table.getNames());
+		assertEquals(3, table.getRows());
+		assertEquals(1, table.getMalformed());
+		assertTrue(table.isNumeric(0));
+		assertArrayEquals(new double[] {1, 2, 4}, (double[]) columns.get("id"));
+		assertArrayEquals(new String[] {"Smith; John", "Zoë", null}, (String[]) columns.get("name"));
+		assertArrayEquals(new String[] {"said \"hi\"", "two\nlines", "x"}, (String[]) columns.get("note"));
+	}
+
+	@Test
+	void testChunksAndLongRowsKeepRowOrder() {
+		// Given
+		int rows = 400_000;
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < rows; i++) {
+			text.append(i).append('\t').append(i * 0.5).append('\t');
+			text.append(i == 1000 ? "x".repeat(3 * CsvParser.WINDOW_BYTES) : "value " + i).append('\n');
+		}
+		assertTrue(text.length() > 2 * CsvParser.MIN_CHUNK_BYTES);
+
+		for(CsvKernels kernels : new CsvKernels[] {SCALAR, VECTOR}) {
+			// When
+			CsvTable table = new CsvParser('\t', false, true, kernels).parse(utf8(text.toString()));
+			Map<String, Object> columns = table.toColumns(Normalization.NONE);
+
+			// Then
+			assertEquals(rows, table.getRows());
+			assertArrayEquals(new String[] {"column_1", "column_2", "column_3"}, table.getNames());
+			double[] ids = (double[]) columns.get("column_1");
+			double[] halves = (double[]) columns.get("column_2");
+			String[] values = (String[]) columns.get("column_3");
+			for(int i = 0; i < rows; i++) {
+				assertEquals(i, ids[i]);
+				assertEquals(i * 0.5, halves[i]);
+			}
+			assertEquals(3 * CsvParser.WINDOW_BYTES, values[1000].length());
+			assertEquals("value " + (rows - 1), values[rows - 1]);
+		}
+	}
+
+	@Test
+	void testChunksDoNotStartInsideQuotedLineBreaks() {
+		// Given
+		String note = "\"said \"\"hi\"\"" + "\nline of a long quoted note".repeat(40) + "\"";
+		StringBuilder text = new StringBuilder("id,note\n");
+		int rows = 0;
+		while(text.length() <= 2 * CsvParser.MIN_CHUNK_BYTES) text.append(rows++).append(',').append(note).append('\n');
+
+		for(CsvKernels kernels : new CsvKernels[] {SCALAR, VECTOR}) {
+			// When
+			CsvTable table = new CsvParser(',', true, false, kernels).parse(utf8(text.toString()));
+			Map<String, Object> columns = table.toColumns(Normalization.NONE);
+
+			// Then
+			assertEquals(rows, table.getRows());
+			assertEquals(0, table.getMalformed());
+			double[] ids = (double[]) columns.get("id");
+			for(int i = 0; i < rows; i++) assertEquals(i, ids[i]);
+			assertEquals(note.substring(1, note.length() - 1).replace("\"\"", "\""), ((String[]) columns.get("note"))[rows - 1]);
+		}
+	}
+
+	@Test
+	void testDeduplicateComparesNumbersByValue() {
+		// Given
+		String text = "a,b\n1.5,x\n1.50,x\n1.5,X\n2,x\n1.5,x\n";
+		CsvTable table = new CsvParser(',', true, true).parse(utf8(text));
+
+		// When
+		long removed = table.deduplicate();
+
+		// Then
+		assertEquals(2, removed);
+		assertEquals(3, table.getRows());
+		assertEquals(0, table.deduplicate());
+		Map<String, Object> columns = table.toColumns(Normalization.NONE);
+		assertArrayEquals(new double[] {1.5, 1.5, 2}, (double[]) columns.get("a"));
+		assertArrayEquals(new String[] {"x", "X", "x"}, (String[]) columns.get("b"));
+	}
+
+	@Test
+	void testRejectsInvalidInput() {
+		// Then
+		assertThrows(IllegalArgumentException.class, () -> new CsvParser('"', true, true));
+		assertThrows(IllegalArgumentException.class, () -> new CsvParser(',', true, true).parse(ByteBuffer.allocate(0)));
+	}
+}
@@ -0,0 +1,203 @@
+package garretreichenbach.taskprocessor.processor;
+
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.TaskType;
+import garretreichenbach.taskprocessor.processor.sketch.HyperLogLog;
+import garretreichenbach.taskprocessor.processor.sketch.KllSketch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataAnalysisProcessorTest {
+
+	private DataAnalysisProcessor dataAnalysisProcessor;
+	private Map<String, Object> parameters;
+	private String taskId;
+
+	@BeforeEach
+	void setUp() {
+		dataAnalysisProcessor = new DataAnalysisProcessor();
+		parameters = new HashMap<>();
+		taskId = UUID.randomUUID().toString();
+	}
+
+	@Test
+	void testGroupedAggregatesMatchTwoPassReference() {
+		// Given
+		int rows = 1_000_003;
+		int groups = 37;
+		Random random = new Random(11);
+		double[] values = new double[rows];
+		long[] keys = new long[rows];
+		for(int i = 0; i < rows; i++) {
+			keys[i] = random.nextInt(groups) * 1_000_000_007L - 5;
+			values[i] = 1e6 + random.nextGaussian() * (keys[i] % 7 + 1);
+		}
+		Map<Long, double[]> reference = new HashMap<>();
+		for(int i = 0; i < rows; i++) {
+			double[] group = reference.computeIfAbsent(keys[i], key -> new double[] {0, 0, Double.MAX_VALUE, -Double.MAX_VALUE, 0});
+			group[0]++;
+			group[1] += values[i];
+			group[2] = Math.min(group[2], values[i]);
+			group[3] = Math.max(group[3], values[i]);
+		}
+		for(int i = 0; i < rows; i++) {
+			double[] group = reference.get(keys[i]);
+			double deviation = values[i] - group[1] / group[0];
+			group[4] += deviation * deviation;
+		}
+
+		// When
+		Map<String, Object> output = dataAnalysisProcessor.aggregate(values, keys);
+
+		// Then
+		assertEquals(groups, output.get("groups"));
+		long[] resultKeys = (long[]) output.get("keys");
+		for(int i = 1; i < resultKeys.length; i++) assertTrue(resultKeys[i - 1] < resultKeys[i]);
+		for(int i = 0; i < resultKeys.length; i++) {
+			double[] expected = reference.get(resultKeys[i]);
+			assertEquals((long) expected[0], ((long[]) output.get("count"))[i]);
+			assertEquals(expected[1], ((double[]) output.get("sum"))[i], 1e-6 * expected[1]);
+			assertEquals(expected[1] / expected[0], ((double[]) output.get("mean"))[i], 1e-9 * expected[1] / expected[0]);
+			assertEquals(expected[2], ((double[]) output.get("min"))[i]);
+			assertEquals(expected[3], ((double[]) output.get("max"))[i]);
+			assertEquals(expected[4] / expected[0], ((double[]) output.get("variance"))[i], 1e-6 * expected[4] / expected[0]);
+		}
+	}
+
+	@Test
+	void testUngroupedColumnFromBinaryTask() {
+		// Given
+		double[] values = {4, 8, 15, 16, 23, 42};
+		ByteBuffer binary = ByteBuffer.allocate(values.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		for(double value : values) binary.putDouble(value);
+		parameters.put("values", binary.array());
+		Task task = new Task(taskId, TaskType.DATA_ANALYSIS, parameters, 10);
+
+		// When
+		TaskResult result = dataAnalysisProcessor.process(task);
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		Map<String, Object> output = result.getOutput();
+		assertEquals(1, output.get("groups"));
+		assertArrayEquals(new long[] {6}, (long[]) output.get("count"));
+		assertArrayEquals(new double[] {108}, (double[]) output.get("sum"));
+		assertArrayEquals(new double[] {18}, (double[]) output.get("mean"));
+		assertArrayEquals(new double[] {4}, (double[]) output.get("min"));
+		assertArrayEquals(new double[] {42}, (double[]) output.get("max"));
+		assertEquals(910.0 / 6, ((double[]) output.get("variance"))[0], 1e-9);
+	}
+
+	@Test
+	void testListColumnsAndMismatchedLengths() {
+		// Given
+		parameters.put("values", List.of(1, 2.5, 3));
+		parameters.put("keys", List.of(7, 7, 9));
+		Map<String, Object> mismatched = new HashMap<>(Map.of("values", List.of(1.0, 2.0), "keys", List.of(1)));
+
+		// When
+		TaskResult result = dataAnalysisProcessor.process(new Task(taskId, TaskType.DATA_ANALYSIS, parameters, 10));
+		TaskResult failure = dataAnalysisProcessor.process(new Task(taskId, TaskType.DATA_ANALYSIS, mismatched, 10));
+
+		// Then
+		assertArrayEquals(new long[] {7, 9}, (long[]) result.getOutput().get("keys"));
+		assertArrayEquals(new double[] {3.5, 3}, (double[]) result.getOutput().get("sum"));
+		assertEquals(TaskResult.ResultStatus.FAILURE, failure.getStatus());
+		assertInstanceOf(IllegalArgumentException.class, failure.getOutput().get("error"));
+	}
+
+	@Test
+	void testSketchesFromSeparateTasksMerge() {
+		// Given
+		int rows = 300_000;
+		double[] first = new double[rows], second = new double[rows];
+		for(int i = 0; i < rows; i++) {
+			first[i] = i;
+			second[i] = rows + i;
+		}
+		Map<String, Object> firstParameters = new HashMap<>(Map.of("values", first, "operation", "quantiles"));
+		Map<String, Object> secondParameters = new HashMap<>(Map.of("values", second, "operation", "quantiles", "ranks", List.of(0.5)));
+
+		// When
+		TaskResult firstResult = dataAnalysisProcessor.process(new Task(taskId, TaskType.DATA_ANALYSIS, firstParameters, 10));
+		TaskResult secondResult = dataAnalysisProcessor.process(new Task(taskId, TaskType.DATA_ANALYSIS, secondParameters, 10));
+		byte[] secondSketch = (byte[]) secondResult.getOutput().get("sketch");
+		parameters.put("operation", "merge");
+		parameters.put("sketches", List.of(firstResult.getOutput().get("sketch"), Base64.getEncoder().encodeToString(secondSketch)));
+		TaskResult merged = dataAnalysisProcessor.process(new Task(taskId, TaskType.DATA_ANALYSIS, parameters, 10));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, merged.getStatus());
+		assertArrayEquals(new double[] {0.5, 0.9, 0.99}, (double[]) firstResult.getOutput().get("ranks"));
+		assertEquals(rows / 2.0, ((double[]) firstResult.getOutput().get("quantiles"))[0], rows * 0.01);
+		assertEquals(rows * 1.5, ((double[]) secondResult.getOutput().get("quantiles"))[0], rows * 0.01);
+		assertEquals(2L * rows, merged.getOutput().get("count"));
+		assertEquals(rows, ((double[]) merged.getOutput().get("quantiles"))[0], rows * 0.02);
+		assertEquals(rows * 1.8, ((double[]) merged.getOutput().get("quantiles"))[1], rows * 0.02);
+	}
+
+	@Test
+	void testDistinctAndHeavyHitters() {
+		// Given
+		long[] keys = new long[200_000];
+		double[] values = new double[keys.length];
+		for(int i = 0; i < keys.length; i++) {
+			keys[i] = i % 4 == 0 ? 99 : i % 5000;
+			values[i] = i % 1000 * 0.5;
+		}
+		Map<String, Object> distinctValues = new HashMap<>(Map.of("values", values, "operation", "distinct"));
+		Map<String, Object> heavyHitters = new HashMap<>(Map.of("keys", keys, "operation", "heavy_hitters", "top", 1));
+		Map<String, Object> mixed = new HashMap<>(Map.of("operation", "merge", "sketches", List.of(new HyperLogLog().toBytes(), new KllSketch().toBytes())));
+
+		// When
+		TaskResult distinctResult = dataAnalysisProcessor.process(new Task(taskId, TaskType.DATA_ANALYSIS, distinctValues, 10));
+		TaskResult heavyResult = dataAnalysisProcessor.process(new Task(taskId, TaskType.DATA_ANALYSIS, heavyHitters, 10));
+		TaskResult mixedResult = dataAnalysisProcessor.process(new Task(taskId, TaskType.DATA_ANALYSIS, mixed, 10));
+
+		// Then
+		assertEquals(1000L, (long) distinctResult.getOutput().get("distinct"), 10);
+		assertArrayEquals(new long[] {99}, (long[]) heavyResult.getOutput().get("keys"));
+		assertTrue(((long[]) heavyResult.getOutput().get("counts"))[0] >= 50_000);
+		assertEquals((long) keys.length, heavyResult.getOutput().get("total"));
+		assertEquals(TaskResult.ResultStatus.FAILURE, mixedResult.getStatus());
+		assertInstanceOf(IllegalArgumentException.class, mixedResult.getOutput().get("error"));
+	}
+
+	@Test
+	void testSplitRangesReduceToWholeColumnResult() {
+		// Given
+		long[] keys = new long[100_000];
+		for(int i = 0; i < keys.length; i++) keys[i] = i % 3 == 0 ? 7 : i % 2000;
+		parameters.put("keys", keys);
+		parameters.put("operation", "heavy_hitters");
+		parameters.put("top", 1);
+		parameters.put("split_rows", 30_000);
+		Task task = new Task(taskId, TaskType.DATA_ANALYSIS, parameters, 10);
+		Task small = new Task(taskId, TaskType.DATA_ANALYSIS, new HashMap<>(Map.of("keys", keys, "operation", "heavy_hitters")), 10);
+
+		// When
+		List<Task> subtasks = dataAnalysisProcessor.split(task);
+		TaskResult result = dataAnalysisProcessor.reduce(task, subtasks.stream().map(dataAnalysisProcessor::process).toList());
+
+		// Then
+		assertEquals(4, subtasks.size());
+		assertEquals(25_000, ((long[]) subtasks.get(3).getParameters().get("keys")).length);
+		assertNull(subtasks.get(0).getParameters().get("values"));
+		assertTrue(dataAnalysisProcessor.split(small).isEmpty());
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		assertArrayEquals(new long[] {7}, (long[]) result.getOutput().get("keys"));
+		assertEquals((long) keys.length, result.getOutput().get("total"));
+	}
+}
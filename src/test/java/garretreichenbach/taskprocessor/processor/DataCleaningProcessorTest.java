@@ -0,0 +1,100 @@
+package garretreichenbach.taskprocessor.processor;
+
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.TaskType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataCleaningProcessorTest {
+
+	@TempDir
+	Path directory;
+
+	private DataCleaningProcessor dataCleaningProcessor;
+	private Map<String, Object> parameters;
+	private String taskId;
+
+	@BeforeEach
+	void setUp() {
+		dataCleaningProcessor = new DataCleaningProcessor();
+		parameters = new HashMap<>();
+		taskId = UUID.randomUUID().toString();
+	}
+
+	@AfterEach
+	void tearDown() {
+		System.clearProperty(DataCleaningProcessor.DATA_DIRECTORY_PROPERTY);
+	}
+
+	@Test
+	void testCleansInlineText() {
+		// Given
+		parameters.put("text", "city,temperature\nOslo,10\nRome,30\nOslo,10\nParis,\nbroken\nLima,20\n");
+		parameters.put("normalize", "min_max");
+
+		// When
+		TaskResult result = dataCleaningProcessor.process(new Task(taskId, TaskType.DATA_CLEANING, parameters, 10));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		Map<?, ?> columns = (Map<?, ?>) result.getOutput().get("columns");
+		assertArrayEquals(new String[] {"Oslo", "Rome", "Lima"}, (String[]) columns.get("city"));
+		assertArrayEquals(new double[] {0.0, 1.0, 0.5}, (double[]) columns.get("temperature"));
+		assertArrayEquals(new String[] {"city", "temperature"}, (String[]) result.getOutput().get("names"));
+		assertEquals(3, result.getOutput().get("rows"));
+		assertEquals(1L, result.getOutput().get("malformed"));
+		assertEquals(1L, result.getOutput().get("incomplete"));
+		assertEquals(1L, result.getOutput().get("duplicates"));
+	}
+
+	@Test
+	void testReadsMappedFileUnderDataDirectory() throws IOException {
+		// Given
+		Files.writeString(directory.resolve("prices.tsv"), "sku\tprice\na\t1.25\nb\t\nc\t4\n");
+		System.setProperty(DataCleaningProcessor.DATA_DIRECTORY_PROPERTY, directory.toString());
+		parameters.put("path", "prices.tsv");
+		parameters.put("delimiter", "tab");
+		parameters.put("drop_incomplete", false);
+		parameters.put("dedupe", false);
+
+		// When
+		TaskResult result = dataCleaningProcessor.process(new Task(taskId, TaskType.DATA_CLEANING, parameters, 10));
+
+		// Then
+		Map<?, ?> columns = (Map<?, ?>) result.getOutput().get("columns");
+		assertArrayEquals(new String[] {"a", "b", "c"}, (String[]) columns.get("sku"));
+		assertArrayEquals(new double[] {1.25, Double.NaN, 4}, (double[]) columns.get("price"));
+	}
+
+	@Test
+	void testRejectsPathsOutsideDataDirectory() throws IOException {
+		// Given
+		Path data = Files.createDirectory(directory.resolve("data"));
+		Files.writeString(directory.resolve("secret.csv"), "a\n1\n");
+		Map<String, Object> escaping = new HashMap<>(Map.of("path", "../secret.csv"));
+
+		// When
+		TaskResult disabled = dataCleaningProcessor.process(new Task(taskId, TaskType.DATA_CLEANING, escaping, 10));
+		System.setProperty(DataCleaningProcessor.DATA_DIRECTORY_PROPERTY, data.toString());
+		TaskResult outside = dataCleaningProcessor.process(new Task(taskId, TaskType.DATA_CLEANING, escaping, 10));
+		TaskResult missing = dataCleaningProcessor.process(new Task(taskId, TaskType.DATA_CLEANING, parameters, 10));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.FAILURE, disabled.getStatus());
+		assertEquals(TaskResult.ResultStatus.FAILURE, outside.getStatus());
+		assertInstanceOf(IllegalArgumentException.class, outside.getOutput().get("error"));
+		assertEquals(TaskResult.ResultStatus.FAILURE, missing.getStatus());
+	}
+}
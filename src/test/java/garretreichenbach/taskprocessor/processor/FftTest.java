@@ -0,0 +1,71 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FftTest {
+
+	@Test
+	void testForwardMatchesDiscreteFourierTransform() {
+		for(int size : new int[] {1, 2, 4, 8, 64, 512}) {
+			// Given
+			Random random = new Random(size);
+			float[] real = new float[size], imaginary = new float[size];
+			for(int i = 0; i < size; i++) {
+				real[i] = random.nextFloat() * 2 - 1;
+				imaginary[i] = random.nextFloat() * 2 - 1;
+			}
+			double[] expectedReal = new double[size], expectedImaginary = new double[size];
+			for(int k = 0; k < size; k++) {
+				for(int n = 0; n < size; n++) {
+					double angle = -2 * Math.PI * k * n / size;
+					expectedReal[k] += real[n] * Math.cos(angle) - imaginary[n] * Math.sin(angle);
+					expectedImaginary[k] += real[n] * Math.sin(angle) + imaginary[n] * Math.cos(angle);
+				}
+			}
+
+			// When
+			Fft.forSize(size).forward(real, imaginary);
+
+			// Then
+			for(int k = 0; k < size; k++) {
+				assertEquals(expectedReal[k], real[k], 1e-4 * Math.sqrt(size), "size " + size + " bin " + k);
+				assertEquals(expectedImaginary[k], imaginary[k], 1e-4 * Math.sqrt(size), "size " + size + " bin " + k);
+			}
+		}
+	}
+
+	@Test
+	void testInverseRestoresSignal() {
+		// Given
+		int size = 1 << 16;
+		Random random = new Random(7);
+		float[] real = new float[size], imaginary = new float[size];
+		for(int i = 0; i < size; i++) real[i] = random.nextFloat() * 2 - 1;
+		float[] original = real.clone();
+		Fft fft = Fft.forSize(size);
+
+		// When
+		fft.forward(real, imaginary);
+		fft.inverse(real, imaginary);
+
+		// Then
+		for(int i = 0; i < size; i++) {
+			assertEquals(original[i], real[i], 1e-5);
+			assertEquals(0.0f, imaginary[i], 1e-5);
+		}
+	}
+
+	@Test
+	void testInstancesAreCachedPerSize() {
+		// Then
+		assertSame(Fft.forSize(256), Fft.forSize(256));
+		assertEquals(256, Fft.forSize(256).getSize());
+		assertThrows(IllegalArgumentException.class, () -> Fft.forSize(12));
+		assertThrows(IllegalArgumentException.class, () -> Fft.forSize(0));
+		assertThrows(IllegalArgumentException.class, () -> Fft.forSize(8).forward(new float[4], new float[8]));
+	}
+}
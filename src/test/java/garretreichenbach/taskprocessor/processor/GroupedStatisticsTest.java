@@ -0,0 +1,72 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupedStatisticsTest {
+
+	@Test
+	void testMergeEqualsSinglePass() {
+		// Given
+		int rows = 10_000;
+		double[] values = new double[rows];
+		long[] keys = new long[rows];
+		for(int i = 0; i < rows; i++) {
+			values[i] = Math.sin(i) * 100 + i % 13;
+			keys[i] = i % 1000;
+		}
+		GroupedStatistics single = new GroupedStatistics();
+		GroupedStatistics left = new GroupedStatistics();
+		GroupedStatistics middle = new GroupedStatistics();
+		GroupedStatistics right = new GroupedStatistics();
+
+		// When
+		single.addAll(keys, values, 0, rows);
+		left.addAll(keys, values, 0, 1234);
+		middle.addAll(keys, values, 1234, 1300);
+		right.addAll(keys, values, 1300, rows);
+		Map<String, Object> merged = left.merge(middle).merge(right).toColumns();
+		Map<String, Object> expected = single.toColumns();
+
+		// Then
+		assertArrayEquals((long[]) expected.get("keys"), (long[]) merged.get("keys"));
+		assertArrayEquals((long[]) expected.get("count"), (long[]) merged.get("count"));
+		for(String column : new String[] {"sum", "mean", "min", "max", "variance"}) {
+			assertArrayEquals((double[]) expected.get(column), (double[]) merged.get(column), 1e-9, column);
+		}
+	}
+
+	@Test
+	void testVarianceIsStableForLargeOffsets() {
+		// Given
+		GroupedStatistics grouped = new GroupedStatistics();
+		GroupedStatistics ungrouped = new GroupedStatistics();
+		double[] values = {1e12 + 4, 1e12 + 7, 1e12 + 13, 1e12 + 16};
+
+		// When
+		for(double value : values) grouped.add(Long.MIN_VALUE, value);
+		ungrouped.addAll(null, values, 0, values.length);
+
+		// Then
+		assertEquals(22.5, ((double[]) grouped.toColumns().get("variance"))[0], 1e-9);
+		assertEquals(22.5, ((double[]) ungrouped.toColumns().get("variance"))[0], 1e-9);
+		assertArrayEquals(new long[] {Long.MIN_VALUE}, (long[]) grouped.toColumns().get("keys"));
+		assertArrayEquals(new long[] {0}, (long[]) ungrouped.toColumns().get("keys"));
+	}
+
+	@Test
+	void testEmptyStatistics() {
+		// Given
+		GroupedStatistics statistics = new GroupedStatistics();
+
+		// When
+		statistics.addAll(null, new double[0], 0, 0);
+
+		// Then
+		assertEquals(0, statistics.size());
+		assertEquals(0, ((long[]) statistics.toColumns().get("keys")).length);
+	}
+}
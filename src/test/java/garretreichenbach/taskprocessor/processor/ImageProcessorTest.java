@@ -6,6 +6,10 @@ import garretreichenbach.taskprocessor.model.TaskType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -33,7 +37,6 @@ class ImageProcessorTest {
 		double scale = 0.5;
 		byte[] data = new byte[width * height * 3];
 
-		parameters.put("task_type", "scale");
 		parameters.put("width", width);
 		parameters.put("height", height);
 		parameters.put("scale", scale);
@@ -57,12 +60,11 @@ class ImageProcessorTest {
 	@Test
 	void testUnknownTaskType() {
 		// Given
-		parameters.put("task_type", "unknown");
 		parameters.put("width", 100);
 		parameters.put("height", 100);
 		parameters.put("data", new byte[100 * 100 * 3]);
 
-		Task task = new Task(taskId, TaskType.IMAGE_SCALING, parameters, 10);
+		Task task = new Task(taskId, TaskType.TEXT_ANALYSIS, parameters, 10);
 
 		// When
 		TaskResult result = imageProcessor.process(task);
@@ -72,4 +74,202 @@ class ImageProcessorTest {
 		assertInstanceOf(Exception.class, result.getOutput().get("error"));
 		assertTrue(((Exception)result.getOutput().get("error")).getMessage().contains("Unknown task type"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testScaleImageFromReadOnlyBuffer() {
+		// Given
+		int width = 4;
+		int height = 4;
+		byte[] data = new byte[width * height * 3];
+		for(int i = 0; i < data.length; i++) data[i] = (byte) 200;
+
+		parameters.put("width", width);
+		parameters.put("height", height);
+		parameters.put("scale", 0.5);
+		parameters.put("data", ByteBuffer.wrap(data).asReadOnlyBuffer());
+
+		Task task = new Task(taskId, TaskType.IMAGE_SCALING, parameters, 10);
+
+		// When
+		TaskResult result = imageProcessor.process(task);
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		byte[] scaled = (byte[]) result.getOutput().get("scaled_image");
+		assertEquals(2 * 2 * 3, scaled.length);
+		assertEquals((byte) 200, scaled[0]);
+	}
+
+	@Test
+	void testCompressThenDecompressImage() {
+		// Given
+		int width = 64;
+		int height = 32;
+		byte[] data = new byte[width * height * 3];
+		for(int i = 0; i < data.length; i++) data[i] = (byte) (i % 97);
+
+		parameters.put("width", width);
+		parameters.put("height", height);
+		parameters.put("data", data);
+		parameters.put("algorithm", "xz");
+		parameters.put("level", 3);
+		Task compressTask = new Task(taskId, TaskType.IMAGE_COMPRESSION, parameters, 10);
+
+		// When
+		TaskResult compressed = imageProcessor.process(compressTask);
+		Map<String, Object> decompressParameters = new HashMap<>();
+		decompressParameters.put("width", width);
+		decompressParameters.put("height", height);
+		decompressParameters.put("data", compressed.getOutput().get("compressed_image"));
+		TaskResult decompressed = imageProcessor.process(new Task(taskId, TaskType.IMAGE_DECOMPRESSION, decompressParameters, 10));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, compressed.getStatus());
+		assertEquals("xz", compressed.getOutput().get("algorithm"));
+		assertEquals(((byte[]) compressed.getOutput().get("compressed_image")).length, compressed.getOutput().get("compressed_size"));
+		assertEquals(TaskResult.ResultStatus.SUCCESS, decompressed.getStatus());
+		assertArrayEquals(data, (byte[]) decompressed.getOutput().get("decompressed_image"));
+	}
+
+	@Test
+	void testMipmapPyramid() {
+		// Given
+		byte[] data = new byte[10 * 6 * 3];
+		for(int i = 0; i < data.length; i++) data[i] = (byte) 90;
+		parameters.put("width", 10);
+		parameters.put("height", 6);
+		parameters.put("data", data);
+		Task task = new Task(taskId, TaskType.IMAGE_PYRAMID, parameters, 10);
+
+		// When
+		TaskResult result = imageProcessor.process(task);
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		Map<String, Object> output = result.getOutput();
+		assertEquals(3, output.get("count"));
+		int[][] expectedSizes = {{5, 3}, {2, 1}, {1, 1}};
+		for(int i = 0; i < expectedSizes.length; i++) {
+			assertEquals(expectedSizes[i][0], output.get("width_" + i));
+			assertEquals(expectedSizes[i][1], output.get("height_" + i));
+			byte[] level = (byte[]) output.get("image_" + i);
+			assertEquals(expectedSizes[i][0] * expectedSizes[i][1] * 3, level.length);
+			for(byte value : level) assertEquals((byte) 90, value);
+		}
+	}
+
+	@Test
+	void testPyramidWithSizesMatchesDirectScaling() {
+		// Given
+		int width = 64;
+		int height = 64;
+		byte[] data = new byte[width * height * 3];
+		for(int i = 0; i < data.length; i++) data[i] = (byte) ((i / 3 % width) * 3 + (i / 3 / width) * 2);
+		parameters.put("width", width);
+		parameters.put("height", height);
+		parameters.put("data", data);
+		parameters.put("sizes", "8x8, 32x32");
+		Task task = new Task(taskId, TaskType.IMAGE_PYRAMID, parameters, 10);
+
+		// When
+		TaskResult result = imageProcessor.process(task);
+		byte[] direct = Resampler.resample(ByteBuffer.wrap(data), width, height, 8, 8, ResamplingFilter.AREA);
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		assertEquals(2, result.getOutput().get("count"));
+		assertEquals(8, result.getOutput().get("width_0"));
+		assertEquals(32, result.getOutput().get("height_1"));
+		byte[] small = (byte[]) result.getOutput().get("image_0");
+		assertEquals(32 * 32 * 3, ((byte[]) result.getOutput().get("image_1")).length);
+		for(int i = 0; i < direct.length; i++) assertEquals(direct[i] & 0xFF, small[i] & 0xFF, 1, "byte " + i);
+	}
+
+	@Test
+	void testPyramidRejectsMalformedSizes() {
+		// Given
+		parameters.put("width", 4);
+		parameters.put("height", 4);
+		parameters.put("data", new byte[4 * 4 * 3]);
+		parameters.put("sizes", "2by2");
+		Task task = new Task(taskId, TaskType.IMAGE_PYRAMID, parameters, 10);
+
+		// When
+		TaskResult result = imageProcessor.process(task);
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.FAILURE, result.getStatus());
+		assertInstanceOf(IllegalArgumentException.class, result.getOutput().get("error"));
+	}
+
+	@Test
+	void testManipulateImageRejectsHugeRadius() {
+		// Given
+		parameters.put("width", 4);
+		parameters.put("height", 4);
+		parameters.put("data", new byte[4 * 4 * 3]);
+		parameters.put("operation", "blur");
+		parameters.put("radius", 1e9);
+		Task task = new Task(taskId, TaskType.IMAGE_MANIPULATION, parameters, 10);
+
+		// When
+		TaskResult result = imageProcessor.process(task);
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.FAILURE, result.getStatus());
+		assertInstanceOf(IllegalArgumentException.class, result.getOutput().get("error"));
+	}
+
+	@Test
+	void testManipulateImage() {
+		// Given
+		int width = 12;
+		int height = 9;
+		byte[] data = new byte[width * height * 3];
+		for(int i = 0; i < data.length; i++) data[i] = (byte) (i / 3 % width < width / 2 ? 40 : 220);
+		parameters.put("width", width);
+		parameters.put("height", height);
+		parameters.put("data", data);
+		parameters.put("operation", "box_blur");
+		parameters.put("radius", 1);
+		parameters.put("edge", "mirror");
+		Task task = new Task(taskId, TaskType.IMAGE_MANIPULATION, parameters, 10);
+
+		// When
+		TaskResult result = imageProcessor.process(task);
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		assertEquals(width, result.getOutput().get("width"));
+		assertEquals(height, result.getOutput().get("height"));
+		byte[] blurred = (byte[]) result.getOutput().get("manipulated_image");
+		assertEquals(data.length, blurred.length);
+		assertEquals(40, blurred[0] & 0xFF);
+		assertEquals(100, blurred[(width / 2 - 1) * 3] & 0xFF);
+		assertEquals(160, blurred[width / 2 * 3] & 0xFF);
+	}
+
+	@Test
+	void testConvertImageToPng() throws Exception {
+		// Given
+		int width = 20;
+		int height = 10;
+		byte[] data = new byte[width * height * 3];
+		for(int i = 0; i < data.length; i++) data[i] = (byte) (i * 7);
+		parameters.put("width", width);
+		parameters.put("height", height);
+		parameters.put("data", data);
+		parameters.put("format", "png");
+		Task task = new Task(taskId, TaskType.IMAGE_CONVERSION, parameters, 10);
+
+		// When
+		TaskResult result = imageProcessor.process(task);
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		assertEquals("png", result.getOutput().get("format"));
+		BufferedImage decoded = ImageIO.read(new ByteArrayInputStream((byte[]) result.getOutput().get("converted_image")));
+		assertEquals(width, decoded.getWidth());
+		assertEquals((data[3] & 0xFF) << 16 | (data[4] & 0xFF) << 8 | data[5] & 0xFF, decoded.getRGB(1, 0) & 0xFFFFFF);
+	}
+}
@@ -0,0 +1,78 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JpegEncoderTest {
+
+	private static byte[] gradient(int width, int height) {
+		byte[] image = new byte[width * height * 3];
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				int pixel = (y * width + x) * 3;
+				image[pixel] = (byte) (x * 255 / width);
+				image[pixel + 1] = (byte) (y * 255 / height);
+				image[pixel + 2] = (byte) 64;
+			}
+		}
+		return image;
+	}
+
+	private static double meanError(byte[] image, int offset, int width, int height, byte[] jpeg) throws IOException {
+		BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(jpeg));
+		assertEquals(width, decoded.getWidth());
+		assertEquals(height, decoded.getHeight());
+		double error = 0.0;
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				int rgb = decoded.getRGB(x, y);
+				int pixel = offset + (y * width + x) * 3;
+				for(int c = 0; c < 3; c++) error += Math.abs((image[pixel + c] & 0xFF) - (rgb >>> (16 - c * 8) & 0xFF));
+			}
+		}
+		return error / (width * height * 3);
+	}
+
+	@Test
+	void testEncodesRgbInOrder() throws IOException {
+		// Given
+		int width = 120, height = 80;
+		byte[] image = gradient(width, height);
+
+		// When
+		byte[] jpeg = JpegEncoder.encode(ByteBuffer.wrap(image), width, height, -1);
+
+		// Then
+		assertEquals((byte) 0xFF, jpeg[0]);
+		assertEquals((byte) 0xD8, jpeg[1]);
+		assertTrue(meanError(image, 0, width, height, jpeg) < 3.0);
+	}
+
+	@Test
+	void testReadsFromBufferPosition() throws IOException {
+		// Given
+		int width = 64, height = 48;
+		byte[] image = gradient(width, height);
+		ByteBuffer direct = ByteBuffer.allocateDirect(image.length).put(image).flip();
+		byte[] padded = new byte[image.length + 5];
+		System.arraycopy(image, 0, padded, 5, image.length);
+
+		// When
+		byte[] fromDirect = JpegEncoder.encode(direct, width, height, 95);
+		byte[] fromOffset = JpegEncoder.encode(ByteBuffer.wrap(padded).position(5), width, height, 95);
+		byte[] lowQuality = JpegEncoder.encode(direct, width, height, 10);
+
+		// Then
+		assertArrayEquals(fromDirect, fromOffset);
+		assertTrue(meanError(image, 0, width, height, fromDirect) < 3.0);
+		assertTrue(meanError(padded, 5, width, height, fromOffset) < 3.0);
+		assertTrue(lowQuality.length < fromDirect.length);
+	}
+}
@@ -0,0 +1,133 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinearAlgebraTest {
+
+	private static final LinearAlgebra SCALAR = new LinearAlgebra(new ScalarMatrixKernels(), ForkJoinPool.commonPool());
+	private static final LinearAlgebra VECTOR = new LinearAlgebra(new VectorMatrixKernels(), ForkJoinPool.commonPool());
+
+	private static double[] randomMatrix(int length, long seed) {
+		Random random = new Random(seed);
+		double[] matrix = new double[length];
+		for(int i = 0; i < length; i++) matrix[i] = random.nextDouble() * 2 - 1;
+		return matrix;
+	}
+
+	private static double[] naiveMultiply(double[] a, double[] b, int rows, int depth, int columns) {
+		double[] c = new double[rows * columns];
+		for(int i = 0; i < rows; i++) {
+			for(int j = 0; j < columns; j++) {
+				double sum = 0.0;
+				for(int p = 0; p < depth; p++) sum += a[i * depth + p] * b[p * columns + j];
+				c[i * columns + j] = sum;
+			}
+		}
+		return c;
+	}
+
+	@Test
+	void testMultiplyMatchesNaiveProductAcrossBlockEdges() {
+		// Sizes around the tile, vector and block widths, and large enough to run in parallel
+		int[][] shapes = {{1, 1, 1}, {3, 5, 7}, {4, 16, 16}, {17, 33, 31}, {65, 257, 259}, {130, 300, 513}};
+		for(int[] shape : shapes) {
+			// Given
+			int rows = shape[0], depth = shape[1], columns = shape[2];
+			double[] a = randomMatrix(rows * depth, rows);
+			double[] b = randomMatrix(depth * columns, columns);
+			double[] expected = naiveMultiply(a, b, rows, depth, columns);
+
+			// When
+			double[] scalar = SCALAR.multiply(a, b, rows, depth, columns);
+			double[] vector = VECTOR.multiply(a, b, rows, depth, columns);
+
+			// Then
+			String message = rows + "x" + depth + "x" + columns;
+			assertArrayEquals(expected, scalar, 1e-12 * depth, message);
+			assertArrayEquals(expected, vector, 1e-12 * depth, message);
+		}
+	}
+
+	@Test
+	void testSmallProductsRunOnCallerAndLargeOnesOnThePool() throws InterruptedException {
+		// Given
+		Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		MatrixKernels recording = new ScalarMatrixKernels() {
+			@Override
+			public void multiplyAdd(double[] a, int aOffset, int aStride, double[] b, int bOffset, int bStride, double[] c, int cOffset, int cStride, int rows, int depth, int columns) {
+				threads.add(Thread.currentThread());
+				super.multiplyAdd(a, aOffset, aStride, b, bOffset, bStride, c, cOffset, cStride, rows, depth, columns);
+			}
+		};
+		ForkJoinPool pool = new ForkJoinPool(2);
+		LinearAlgebra algebra = new LinearAlgebra(recording, pool);
+		int rows = 130, depth = 4, columns = 600;
+		double[] a = randomMatrix(rows * depth, 1);
+		double[] b = randomMatrix(depth * columns, 2);
+
+		try {
+			// When
+			double[] small = algebra.multiply(a, b, rows, depth, columns);
+			// Forked subtasks are often run back by the caller, so give idle common pool workers many chances to steal one
+			for(int i = 0; i < 200; i++) algebra.multiply(a, b, rows, depth, columns);
+			Set<Thread> smallThreads = Set.copyOf(threads);
+			threads.clear();
+			algebra.multiply(randomMatrix(256 * 64, 3), randomMatrix(64 * 512, 4), 256, 64, 512);
+
+			// Then
+			assertArrayEquals(naiveMultiply(a, b, rows, depth, columns), small, 1e-12);
+			assertEquals(Set.of(Thread.currentThread()), smallThreads);
+			for(Thread thread : threads) assertTrue(thread instanceof ForkJoinWorkerThread worker && worker.getPool() == pool, thread.getName());
+		} finally {
+			pool.shutdown();
+			pool.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	void testMultiplyVectorAndElementwise() {
+		// Given
+		int rows = 37, columns = 101;
+		double[] a = randomMatrix(rows * columns, 1);
+		double[] b = randomMatrix(rows * columns, 2);
+		double[] x = randomMatrix(columns, 3);
+
+		// When
+		double[] product = VECTOR.multiplyVector(a, x, rows, columns);
+		double[] sum = VECTOR.add(a, b);
+		double[] difference = VECTOR.subtract(a, b);
+		double[] hadamard = VECTOR.multiplyElementwise(a, b);
+		double[] scaled = VECTOR.scale(a, -2.5);
+
+		// Then
+		assertArrayEquals(naiveMultiply(a, x, rows, columns, 1), product, 1e-12 * columns);
+		assertArrayEquals(SCALAR.multiplyVector(a, x, rows, columns), product, 1e-12 * columns);
+		for(int i = 0; i < a.length; i++) {
+			assertEquals(a[i] + b[i], sum[i]);
+			assertEquals(a[i] - b[i], difference[i]);
+			assertEquals(a[i] * b[i], hadamard[i]);
+			assertEquals(a[i] * -2.5, scaled[i]);
+		}
+	}
+
+	@Test
+	void testRejectsShortOperands() {
+		// Given
+		double[] a = new double[6];
+
+		// When / Then
+		assertThrows(IllegalArgumentException.class, () -> VECTOR.multiply(a, new double[5], 2, 3, 2));
+		assertThrows(IllegalArgumentException.class, () -> VECTOR.multiply(a, new double[6], 0, 3, 2));
+		assertThrows(IllegalArgumentException.class, () -> VECTOR.multiplyVector(a, new double[2], 2, 3));
+		assertThrows(IllegalArgumentException.class, () -> VECTOR.add(a, new double[5]));
+	}
+}
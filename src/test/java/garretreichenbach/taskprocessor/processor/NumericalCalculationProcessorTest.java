@@ -0,0 +1,92 @@
+package garretreichenbach.taskprocessor.processor;
+
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.TaskType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumericalCalculationProcessorTest {
+
+	private NumericalCalculationProcessor numericalCalculationProcessor;
+	private Map<String, Object> parameters;
+	private String taskId;
+
+	@BeforeEach
+	void setUp() {
+		numericalCalculationProcessor = new NumericalCalculationProcessor();
+		parameters = new HashMap<>();
+		taskId = UUID.randomUUID().toString();
+	}
+
+	@Test
+	void testMultiplyTask() {
+		// Given
+		parameters.put("operation", "multiply");
+		parameters.put("a", List.of(1, 2, 3, 4, 5, 6));
+		parameters.put("rows", 2);
+		parameters.put("columns", 3);
+		parameters.put("b", new double[] {7, 8, 9, 10, 11, 12});
+		Task task = new Task(taskId, TaskType.MATHEMATICAL_COMPUTATION, parameters, 10);
+
+		// When
+		TaskResult result = numericalCalculationProcessor.process(task);
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		assertArrayEquals(new double[] {58, 64, 139, 154}, (double[]) result.getOutput().get("result"));
+		assertEquals(2, result.getOutput().get("rows"));
+		assertEquals(2, result.getOutput().get("columns"));
+	}
+
+	@Test
+	void testMatrixVectorAndScaleTasks() {
+		// Given
+		parameters.put("a", new double[] {1, 2, 3, 4, 5, 6});
+		parameters.put("rows", 3);
+		parameters.put("columns", 2);
+		Map<String, Object> vector = new HashMap<>(parameters);
+		vector.put("operation", "multiply_vector");
+		vector.put("b", new double[] {1, -1});
+		Map<String, Object> scale = new HashMap<>(parameters);
+		scale.put("operation", "scale");
+		scale.put("scalar", 0.5);
+
+		// When
+		TaskResult vectorResult = numericalCalculationProcessor.process(new Task(taskId, TaskType.MATHEMATICAL_COMPUTATION, vector, 10));
+		TaskResult scaleResult = numericalCalculationProcessor.process(new Task(taskId, TaskType.MATHEMATICAL_COMPUTATION, scale, 10));
+
+		// Then
+		assertArrayEquals(new double[] {-1, -1, -1}, (double[]) vectorResult.getOutput().get("result"));
+		assertEquals(1, vectorResult.getOutput().get("columns"));
+		assertArrayEquals(new double[] {0.5, 1, 1.5, 2, 2.5, 3}, (double[]) scaleResult.getOutput().get("result"));
+	}
+
+	@Test
+	void testShapeMismatchFails() {
+		// Given
+		parameters.put("operation", "add");
+		parameters.put("a", new double[] {1, 2, 3, 4});
+		parameters.put("rows", 2);
+		parameters.put("columns", 2);
+		parameters.put("b", new double[] {1, 2, 3});
+		Map<String, Object> missing = new HashMap<>(parameters);
+		missing.remove("b");
+
+		// When
+		TaskResult result = numericalCalculationProcessor.process(new Task(taskId, TaskType.MATHEMATICAL_COMPUTATION, parameters, 10));
+		TaskResult missingResult = numericalCalculationProcessor.process(new Task(taskId, TaskType.MATHEMATICAL_COMPUTATION, missing, 10));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.FAILURE, result.getStatus());
+		assertInstanceOf(IllegalArgumentException.class, result.getOutput().get("error"));
+		assertEquals(TaskResult.ResultStatus.FAILURE, missingResult.getStatus());
+	}
+}
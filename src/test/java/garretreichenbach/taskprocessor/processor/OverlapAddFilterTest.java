@@ -0,0 +1,92 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OverlapAddFilterTest {
+
+	private static float[] convolve(float[] signal, float[] taps) {
+		float[] result = new float[signal.length];
+		for(int n = 0; n < signal.length; n++) {
+			double sum = 0.0;
+			for(int k = 0; k < taps.length && k <= n; k++) sum += taps[k] * signal[n - k];
+			result[n] = (float) sum;
+		}
+		return result;
+	}
+
+	@Test
+	void testChunkedFilteringMatchesDirectConvolution() {
+		// Given
+		Random random = new Random(1);
+		float[] taps = new float[37];
+		for(int i = 0; i < taps.length; i++) taps[i] = random.nextFloat() - 0.5f;
+		float[] signal = new float[10_007];
+		for(int i = 0; i < signal.length; i++) signal[i] = random.nextFloat() * 2 - 1;
+		float[] expected = convolve(signal, taps);
+		OverlapAddFilter filter = new OverlapAddFilter(taps, false);
+		float[] filtered = signal.clone();
+
+		// When
+		for(int from = 0; from < filtered.length; ) {
+			int to = Math.min(filtered.length, from + 1 + random.nextInt(500));
+			filter.filter(filtered, from, to);
+			from = to;
+		}
+
+		// Then
+		for(int i = 0; i < signal.length; i++) assertEquals(expected[i], filtered[i], 1e-5, "sample " + i);
+	}
+
+	@Test
+	void testDelayCompensatedLowPassKeepsLengthAndAlignment() {
+		// Given
+		int rate = 8000;
+		float[] taps = OverlapAddFilter.windowedSinc(101, rate, 1000, false);
+		float[] signal = new float[4000];
+		for(int i = 0; i < signal.length; i++) signal[i] = (float) (Math.sin(2 * Math.PI * 200 * i / rate) + Math.sin(2 * Math.PI * 3000 * i / rate));
+		OverlapAddFilter filter = new OverlapAddFilter(taps, true);
+		float[] output = new float[filter.maxOutput(1000)];
+		float[] result = new float[signal.length];
+		int written = 0;
+
+		// When
+		for(int from = 0; from < signal.length; from += 1000) {
+			int count = filter.process(Arrays.copyOfRange(signal, from, from + 1000), 1000, output);
+			System.arraycopy(output, 0, result, written, count);
+			written += count;
+		}
+		int flushed = filter.flush(output);
+		System.arraycopy(output, 0, result, written, flushed);
+
+		// Then
+		assertEquals(signal.length, written + flushed);
+		// Away from the edges only the 200 Hz tone remains, in phase with the input
+		for(int i = 100; i < signal.length - 100; i++) assertEquals(Math.sin(2 * Math.PI * 200 * i / rate), result[i], 2e-3, "sample " + i);
+	}
+
+	@Test
+	void testHighPassIsSpectralInversion() {
+		// Given
+		float[] lowPass = OverlapAddFilter.windowedSinc(31, 44_100, 5000, false);
+
+		// When
+		float[] highPass = OverlapAddFilter.windowedSinc(31, 44_100, 5000, true);
+
+		// Then
+		double lowSum = 0, highSum = 0;
+		for(int i = 0; i < 31; i++) {
+			lowSum += lowPass[i];
+			highSum += highPass[i];
+			assertEquals(i == 15 ? 1.0f : 0.0f, lowPass[i] + highPass[i], 1e-6);
+		}
+		assertEquals(1.0, lowSum, 1e-6);
+		assertEquals(0.0, highSum, 1e-6);
+		assertThrows(IllegalArgumentException.class, () -> OverlapAddFilter.windowedSinc(30, 44_100, 5000, false));
+		assertThrows(IllegalArgumentException.class, () -> OverlapAddFilter.windowedSinc(31, 44_100, 30_000, false));
+	}
+}
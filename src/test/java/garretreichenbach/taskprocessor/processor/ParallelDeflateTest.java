@@ -0,0 +1,151 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelDeflateTest {
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(4);
+	private static final ParallelDeflate DEFLATE = new ParallelDeflate(POOL, 32 * 1024, 128 * 1024);
+
+	@AfterAll
+	static void shutdown() {
+		POOL.shutdown();
+	}
+
+	private static byte[] image(int size) {
+		byte[] data = new byte[size];
+		Random random = new Random(11);
+		for(int i = 0; i < data.length; i++) data[i] = (byte) ((i / 3 % 256) + random.nextInt(3));
+		return data;
+	}
+
+	@Test
+	void testGzipIsReadableByStandardDecoder() throws IOException {
+		// Given
+		byte[] data = image(1_000_003);
+
+		// When
+		byte[] compressed = DEFLATE.gzip(data, 0, data.length, 6);
+
+		// Then
+		try(GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			assertArrayEquals(data, inputStream.readAllBytes());
+		}
+	}
+
+	@Test
+	void testGzipIsDecodedInParallel() throws IOException {
+		// Given
+		byte[] data = image(700_000);
+		byte[] compressed = DEFLATE.gzip(data, 0, data.length, 6);
+
+		// When
+		byte[] decompressed = DEFLATE.gunzip(compressed, data.length);
+
+		// Then
+		assertArrayEquals(data, decompressed);
+		assertArrayEquals(data, DEFLATE.gunzip(compressed, -1));
+		assertThrows(IOException.class, () -> DEFLATE.gunzip(compressed, data.length - 1));
+	}
+
+	@Test
+	void testGzipWithoutIndexIsLeftToSequentialDecoding() throws IOException {
+		// Given
+		byte[] data = image(200_000);
+		byte[] compressed = CompressionCodec.GZIP.compress(data, 0, data.length, 6, false);
+
+		// When
+		byte[] decompressed = DEFLATE.gunzip(compressed, data.length);
+
+		// Then
+		assertNull(decompressed);
+	}
+
+	@Test
+	void testCorruptSegmentIsRejected() {
+		// Given
+		byte[] data = image(500_000);
+		byte[] compressed = DEFLATE.gzip(data, 0, data.length, 6);
+
+		// When
+		compressed[compressed.length - 8] ^= 1;
+
+		// Then
+		assertThrows(IOException.class, () -> DEFLATE.gunzip(compressed, data.length));
+	}
+
+	@Test
+	void testZlibIsReadableByStandardDecoder() throws IOException {
+		// Given
+		byte[] data = image(400_000);
+
+		// When
+		byte[] compressed = DEFLATE.zlib(data, 0, data.length, 9);
+
+		// Then
+		try(InflaterInputStream inputStream = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+			assertArrayEquals(data, inputStream.readAllBytes());
+		}
+		assertEquals(CompressionCodec.DEFLATE, CompressionCodec.detect(compressed));
+	}
+
+	@Test
+	void testDictionaryPrimingKeepsRatioCloseToSingleStream() {
+		// Given
+		byte[] data = image(3_000_000);
+
+		// When
+		int parallel = ParallelDeflate.DEFAULT.gzip(data, 0, data.length, 6).length;
+		int sequential = CompressionCodec.GZIP.compress(data, 0, data.length, 6, false).length;
+
+		// Then
+		assertTrue(parallel < sequential * 1.02, "parallel " + parallel + " vs sequential " + sequential);
+	}
+
+	@Test
+	void testCodecUsesParallelModeForLargeInputs() throws IOException {
+		// Given
+		byte[] data = image(ParallelDeflate.DEFAULT.getSegmentSize() * 2 + 5);
+
+		// When
+		byte[] compressed = CompressionCodec.GZIP.compress(data, 0, data.length, -1);
+
+		// Then
+		assertNotNull(ParallelDeflate.DEFAULT.gunzip(compressed, data.length));
+		assertArrayEquals(data, CompressionCodec.GZIP.decompress(compressed, data.length));
+	}
+
+	@Test
+	void testChecksumsCombine() {
+		// Given
+		byte[] data = image(100_000);
+		int split = 37_123;
+
+		// When
+		CRC32 crc1 = new CRC32(), crc2 = new CRC32(), crc = new CRC32();
+		crc1.update(data, 0, split);
+		crc2.update(data, split, data.length - split);
+		crc.update(data);
+		Adler32 adler1 = new Adler32(), adler2 = new Adler32(), adler = new Adler32();
+		adler1.update(data, 0, split);
+		adler2.update(data, split, data.length - split);
+		adler.update(data);
+
+		// Then
+		assertEquals(crc.getValue(), ParallelDeflate.crc32Combine(crc1.getValue(), crc2.getValue(), data.length - split));
+		assertEquals(adler.getValue(), ParallelDeflate.adler32Combine(adler1.getValue(), adler2.getValue(), data.length - split));
+		assertEquals(crc1.getValue(), ParallelDeflate.crc32Combine(crc1.getValue(), 0, 0));
+	}
+}
@@ -0,0 +1,123 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PixelKernelsTest {
+
+	private static final PixelKernels SCALAR = new ScalarPixelKernels();
+	private static final int[] LENGTHS = {0, 1, 4, 5, 17, 63, 1001};
+
+	private PixelKernels vector;
+
+	private static byte[] randomBytes(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	@BeforeEach
+	void setUp() {
+		assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(), "The Vector API is not available");
+		vector = new VectorPixelKernels();
+	}
+
+	@Test
+	void testSelectedImplementation() {
+		// Then
+		assertTrue(PixelKernels.get().getName().equals("scalar") || PixelKernels.get().getName().equals("vector"));
+		assertEquals("vector", vector.getName());
+	}
+
+	@Test
+	void testRgbToIntAndBack() {
+		for(int pixels : LENGTHS) {
+			// Given
+			byte[] rgb = randomBytes(pixels * 3 + 2, pixels);
+			int[] expected = new int[pixels + 1];
+			int[] actual = new int[pixels + 1];
+			byte[] roundTrip = new byte[pixels * 3 + 2];
+
+			// When
+			SCALAR.rgbToInt(rgb, 2, expected, 1, pixels);
+			vector.rgbToInt(rgb, 2, actual, 1, pixels);
+			vector.intToRgb(actual, 1, roundTrip, 2, pixels);
+
+			// Then
+			assertArrayEquals(expected, actual, "pixels " + pixels);
+			if(pixels > 0) assertEquals((rgb[2] & 0xFF) << 16 | (rgb[3] & 0xFF) << 8 | rgb[4] & 0xFF, actual[1]);
+			assertArrayEquals(Arrays.copyOfRange(rgb, 2, rgb.length), Arrays.copyOfRange(roundTrip, 2, roundTrip.length), "pixels " + pixels);
+			assertEquals(0, roundTrip[0]);
+		}
+	}
+
+	@Test
+	void testSwapRedBlueInPlace() {
+		for(int pixels : LENGTHS) {
+			// Given
+			byte[] rgb = randomBytes(pixels * 3, pixels);
+			byte[] expected = rgb.clone();
+			byte[] actual = rgb.clone();
+
+			// When
+			SCALAR.swapRedBlue(expected, 0, expected, 0, pixels);
+			vector.swapRedBlue(actual, 0, actual, 0, pixels);
+
+			// Then
+			assertArrayEquals(expected, actual, "pixels " + pixels);
+			if(pixels > 0) assertEquals(rgb[2], actual[0]);
+		}
+	}
+
+	@Test
+	void testBlend() {
+		for(int length : LENGTHS) {
+			for(int alpha : new int[] {0, 1, 128, 255, 256}) {
+				// Given
+				byte[] first = randomBytes(length, 1);
+				byte[] second = randomBytes(length, 2);
+				byte[] expected = new byte[length];
+				byte[] actual = new byte[length];
+
+				// When
+				SCALAR.blend(first, 0, second, 0, alpha, expected, 0, length);
+				vector.blend(first, 0, second, 0, alpha, actual, 0, length);
+
+				// Then
+				assertArrayEquals(expected, actual, "length " + length + ", alpha " + alpha);
+				if(alpha == 0) assertArrayEquals(first, actual);
+				if(alpha == 256) assertArrayEquals(second, actual);
+			}
+		}
+	}
+
+	@Test
+	void testMultiplyAddAndNarrow() {
+		for(int length : LENGTHS) {
+			// Given
+			byte[] source = randomBytes(length + 3, length);
+			int[] expected = new int[length + 1];
+			int[] actual = new int[length + 1];
+			byte[] expectedBytes = new byte[length];
+			byte[] actualBytes = new byte[length];
+
+			// When
+			SCALAR.multiplyAdd(source, 3, 3_000_000, expected, 1, length);
+			SCALAR.multiplyAdd(source, 0, -1_500_000, expected, 1, length);
+			vector.multiplyAdd(source, 3, 3_000_000, actual, 1, length);
+			vector.multiplyAdd(source, 0, -1_500_000, actual, 1, length);
+			SCALAR.narrow(expected, 1, 22, expectedBytes, 0, length);
+			vector.narrow(actual, 1, 22, actualBytes, 0, length);
+
+			// Then
+			assertArrayEquals(expected, actual, "length " + length);
+			assertArrayEquals(expectedBytes, actualBytes, "length " + length);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PngEncoderTest {
+
+	private static byte[] encode(byte[] image, int width, int height, int level) {
+		try(BufferPool.Lease<byte[]> png = PngEncoder.encode(ByteBuffer.wrap(image), width, height, level)) {
+			return Arrays.copyOf(png.array(), png.length());
+		}
+	}
+
+	private static byte[] gradient(int width, int height) {
+		byte[] image = new byte[width * height * 3];
+		Random noise = new Random(3);
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				int pixel = (y * width + x) * 3;
+				image[pixel] = (byte) (x * 255 / width);
+				image[pixel + 1] = (byte) (y * 255 / height);
+				image[pixel + 2] = (byte) ((x + y) / 4 + noise.nextInt(4));
+			}
+		}
+		return image;
+	}
+
+	private static void assertDecodesTo(byte[] image, int width, int height, byte[] png) throws IOException {
+		BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+		assertEquals(width, decoded.getWidth());
+		assertEquals(height, decoded.getHeight());
+		for(int y = 0; y < height; y++) {
+			for(int x = 0; x < width; x++) {
+				int pixel = (y * width + x) * 3;
+				int expected = (image[pixel] & 0xFF) << 16 | (image[pixel + 1] & 0xFF) << 8 | image[pixel + 2] & 0xFF;
+				assertEquals(expected, decoded.getRGB(x, y) & 0xFFFFFF, "pixel " + x + "," + y);
+			}
+		}
+	}
+
+	@Test
+	void testRoundTripAcrossStrips() throws IOException {
+		for(int level : new int[] {0, 1, 6, 9}) {
+			// Given
+			int width = 301, height = 517;
+			byte[] image = gradient(width, height);
+
+			// When
+			byte[] png = encode(image, width, height, level);
+
+			// Then
+			assertDecodesTo(image, width, height, png);
+		}
+	}
+
+	@Test
+	void testRoundTripOfNarrowAndWideImages() throws IOException {
+		for(int[] size : new int[][] {{1, 1}, {1, 300}, {50000, 2}, {17, 3}}) {
+			// Given
+			byte[] image = new byte[size[0] * size[1] * 3];
+			new Random(size[0]).nextBytes(image);
+
+			// When
+			byte[] png = encode(image, size[0], size[1], -1);
+
+			// Then
+			assertDecodesTo(image, size[0], size[1], png);
+		}
+	}
+
+	@Test
+	void testChunksAndStreamAreValid() throws DataFormatException {
+		// Given
+		int width = 640, height = 480;
+		byte[] image = gradient(width, height);
+
+		// When
+		byte[] png = encode(image, width, height, 6);
+
+		// Then
+		ByteBuffer buffer = ByteBuffer.wrap(png, 8, png.length - 8);
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		int idatChunks = 0;
+		String type = null;
+		while(buffer.hasRemaining()) {
+			int length = buffer.getInt();
+			type = new String(png, buffer.position(), 4, StandardCharsets.US_ASCII);
+			CRC32 crc = new CRC32();
+			crc.update(png, buffer.position(), length + 4);
+			if(type.equals("IDAT")) {
+				stream.write(png, buffer.position() + 4, length);
+				idatChunks++;
+			}
+			buffer.position(buffer.position() + 4 + length);
+			assertEquals((int) crc.getValue(), buffer.getInt(), type + " CRC");
+		}
+		assertEquals("IEND", type);
+		assertTrue(idatChunks > 1);
+		Inflater inflater = new Inflater();
+		inflater.setInput(stream.toByteArray());
+		byte[] filtered = new byte[height * (width * 3 + 1)];
+		assertEquals(filtered.length, inflater.inflate(filtered));
+		assertTrue(inflater.finished());
+	}
+
+	@Test
+	void testFilteringShrinksGradients() {
+		// Given
+		int width = 512, height = 512;
+		byte[] image = gradient(width, height);
+
+		// When
+		byte[] png = encode(image, width, height, 6);
+		byte[] unfiltered = ParallelDeflate.DEFAULT.zlib(image, 0, image.length, 6);
+
+		// Then
+		assertTrue(png.length < unfiltered.length, png.length + " >= " + unfiltered.length);
+	}
+
+	@Test
+	void testRejectsInvalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> PngEncoder.encode(ByteBuffer.allocate(12), 2, 2, 10));
+		assertThrows(IllegalArgumentException.class, () -> PngEncoder.encode(ByteBuffer.allocate(11), 2, 2, 6));
+		assertThrows(IllegalArgumentException.class, () -> PngEncoder.encode(ByteBuffer.allocate(12), 0, 2, 6));
+	}
+}
@@ -0,0 +1,119 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResamplerTest {
+
+	private static byte[] randomImage(int width, int height) {
+		byte[] data = new byte[width * height * 3];
+		new Random(3).nextBytes(data);
+		return data;
+	}
+
+	@ParameterizedTest
+	@EnumSource(ResamplingFilter.class)
+	void testSolidColourIsPreserved(ResamplingFilter filter) {
+		// Given
+		byte[] data = new byte[97 * 61 * 3];
+		for(int i = 0; i < data.length; i += 3) {
+			data[i] = (byte) 10;
+			data[i + 1] = (byte) 128;
+			data[i + 2] = (byte) 250;
+		}
+
+		// When
+		byte[] smaller = Resampler.resample(ByteBuffer.wrap(data), 97, 61, 31, 17, filter);
+		byte[] larger = Resampler.resample(ByteBuffer.wrap(data), 97, 61, 250, 139, filter);
+
+		// Then
+		for(byte[] image : new byte[][] {smaller, larger}) {
+			for(int i = 0; i < image.length; i += 3) {
+				assertEquals(10, image[i] & 0xFF);
+				assertEquals(128, image[i + 1] & 0xFF);
+				assertEquals(250, image[i + 2] & 0xFF);
+			}
+		}
+	}
+
+	@Test
+	void testAreaAveragesCoveredPixels() {
+		// Given
+		int width = 120, height = 90;
+		byte[] data = randomImage(width, height);
+
+		// When
+		byte[] scaled = Resampler.resample(ByteBuffer.wrap(data), width, height, width / 3, height / 3, ResamplingFilter.AREA);
+
+		// Then
+		for(int y = 0; y < height / 3; y++) {
+			for(int x = 0; x < width / 3; x++) {
+				for(int c = 0; c < 3; c++) {
+					int sum = 0;
+					for(int dy = 0; dy < 3; dy++) for(int dx = 0; dx < 3; dx++) sum += data[((y * 3 + dy) * width + x * 3 + dx) * 3 + c] & 0xFF;
+					assertEquals(Math.round(sum / 9.0), scaled[(y * (width / 3) + x) * 3 + c] & 0xFF, 1);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testNearestCopiesSourcePixels() {
+		// Given
+		int width = 64, height = 48;
+		byte[] data = randomImage(width, height);
+
+		// When
+		byte[] scaled = Resampler.resample(ByteBuffer.wrap(data), width, height, width / 2, height / 2, ResamplingFilter.NEAREST);
+
+		// Then
+		for(int y = 0; y < height / 2; y++) {
+			for(int x = 0; x < width / 2; x++) {
+				for(int c = 0; c < 3; c++) assertEquals(data[((y * 2 + 1) * width + x * 2 + 1) * 3 + c], scaled[(y * (width / 2) + x) * 3 + c]);
+			}
+		}
+	}
+
+	@Test
+	void testSameSizeIsIdentity() {
+		// Given
+		int width = 200, height = 150;
+		byte[] data = randomImage(width, height);
+
+		// Then
+		for(ResamplingFilter filter : ResamplingFilter.values()) assertArrayEquals(data, Resampler.resample(ByteBuffer.wrap(data), width, height, width, height, filter), filter.name());
+	}
+
+	@Test
+	void testReadsFromBufferPositionIntoExistingArray() {
+		// Given
+		byte[] data = new byte[5 + 8 * 8 * 3];
+		for(int i = 5; i < data.length; i++) data[i] = (byte) 77;
+		ByteBuffer buffer = ByteBuffer.wrap(data).position(5).asReadOnlyBuffer();
+		byte[] target = new byte[4 * 4 * 3 + 10];
+
+		// When
+		Resampler.resample(buffer, 8, 8, target, 4, 4, ResamplingFilter.LANCZOS);
+
+		// Then
+		for(int i = 0; i < 4 * 4 * 3; i++) assertEquals(77, target[i]);
+		assertEquals(0, target[target.length - 1]);
+		assertEquals(5, buffer.position());
+	}
+
+	@Test
+	void testInvalidSizesAreRejected() {
+		// Given
+		ByteBuffer data = ByteBuffer.wrap(new byte[10 * 10 * 3]);
+
+		// Then
+		assertThrows(IllegalArgumentException.class, () -> Resampler.resample(data, 10, 11, 5, 5, ResamplingFilter.BILINEAR));
+		assertThrows(IllegalArgumentException.class, () -> Resampler.resample(data, 10, 10, 0, 5, ResamplingFilter.BILINEAR));
+	}
+}
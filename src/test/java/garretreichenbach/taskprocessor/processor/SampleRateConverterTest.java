@@ -0,0 +1,63 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampleRateConverterTest {
+
+	private static float[] convert(SampleRateConverter converter, float[] signal, int chunk) {
+		float[] result = new float[(int) converter.outputLength(signal.length)];
+		float[] output = new float[converter.maxOutput(chunk)];
+		int written = 0;
+		for(int from = 0; from < signal.length; from += chunk) {
+			int count = Math.min(chunk, signal.length - from);
+			int produced = converter.process(Arrays.copyOfRange(signal, from, from + count), count, output);
+			System.arraycopy(output, 0, result, written, produced);
+			written += produced;
+		}
+		int flushed = converter.flush(output);
+		System.arraycopy(output, 0, result, written, flushed);
+		assertEquals(result.length, written + flushed);
+		return result;
+	}
+
+	@Test
+	void testUpsampledToneMatchesAnalyticSignal() {
+		// Given
+		float[] signal = new float[44_100];
+		for(int i = 0; i < signal.length; i++) signal[i] = (float) Math.sin(2 * Math.PI * 1000 * i / 44_100.0);
+
+		// When
+		float[] converted = convert(new SampleRateConverter(44_100, 48_000), signal, 4096);
+
+		// Then
+		assertEquals(48_000, converted.length);
+		for(int i = 100; i < converted.length - 100; i++) assertEquals(Math.sin(2 * Math.PI * 1000 * i / 48_000.0), converted[i], 2e-3, "sample " + i);
+	}
+
+	@Test
+	void testDownsamplingRemovesAliasesAndIgnoresChunking() {
+		// Given
+		float[] signal = new float[48_000];
+		for(int i = 0; i < signal.length; i++) signal[i] = (float) (Math.sin(2 * Math.PI * 500 * i / 48_000.0) + Math.sin(2 * Math.PI * 10_000 * i / 48_000.0));
+
+		// When
+		float[] whole = convert(new SampleRateConverter(48_000, 16_000), signal, signal.length);
+		float[] chunked = convert(new SampleRateConverter(48_000, 16_000), signal, 777);
+
+		// Then
+		assertArrayEquals(whole, chunked);
+		// 10 kHz is above the 8 kHz Nyquist frequency of the output and must not fold back to 6 kHz
+		for(int i = 100; i < whole.length - 100; i++) assertEquals(Math.sin(2 * Math.PI * 500 * i / 16_000.0), whole[i], 1e-2, "sample " + i);
+	}
+
+	@Test
+	void testRejectsExtremeRatios() {
+		// Then
+		assertThrows(IllegalArgumentException.class, () -> new SampleRateConverter(96_000, 4000));
+		assertThrows(IllegalArgumentException.class, () -> new SampleRateConverter(0, 4000));
+	}
+}
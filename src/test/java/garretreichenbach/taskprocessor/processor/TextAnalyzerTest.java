@@ -0,0 +1,114 @@
+package garretreichenbach.taskprocessor.processor;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextAnalyzerTest {
+
+	@Test
+	void testTokenizesLettersDigitsAndApostrophes() {
+		// Given
+		String text = "Don't STOP, the Café's café!\t42 rock-and-roll 'quoted' ÉTÉ—été";
+
+		// When
+		TextStatistics statistics = new TextAnalyzer(1, true).analyze(utf8(text));
+
+		// Then
+		assertEquals(12, statistics.getTokens());
+		assertEquals(1, statistics.count(statistics.find("don't")));
+		assertEquals(1, statistics.count(statistics.find("café's")));
+		assertEquals(1, statistics.count(statistics.find("café")));
+		assertEquals(1, statistics.count(statistics.find("42")));
+		assertEquals(1, statistics.count(statistics.find("quoted")));
+		assertEquals(2, statistics.count(statistics.find("été")));
+		assertEquals(-1, statistics.find("STOP"));
+		assertTrue(statistics.isNumber(statistics.find("42")));
+		assertEquals(3, statistics.characters(statistics.find("été")));
+	}
+
+	@Test
+	void testNgramsStopAtClauseBreaks() {
+		// Given
+		String text = "new york is big. New York, new york is old";
+
+		// When
+		TextStatistics statistics = new TextAnalyzer(2, true).analyze(utf8(text));
+		int[] top = statistics.topNgrams(10, id -> true);
+
+		// Then
+		assertEquals(7, statistics.getNgrams());
+		assertEquals("new york", statistics.ngram(top[0]));
+		assertEquals(3, statistics.ngramCount(top[0]));
+		assertEquals("york is", statistics.ngram(top[1]));
+		assertEquals(2, statistics.ngramCount(top[1]));
+		assertEquals(4, top.length);
+		assertEquals(statistics.find("new"), statistics.firstTerm(top[0]));
+		assertEquals(statistics.find("york"), statistics.lastTerm(top[0]));
+	}
+
+	@Test
+	void testChunkedCountsMatchSequentialCounts() {
+		// Given
+		SplittableRandom random = new SplittableRandom(7);
+		StringBuilder text = new StringBuilder();
+		while(text.length() < 3 * TextAnalyzer.MIN_CHUNK_BYTES) {
+			text.append(random.nextInt(10) == 0 ? "Word" : "w").append((int) (Math.pow(random.nextDouble(), 4) * 2000));
+			int separator = random.nextInt(20);
+			text.append(separator == 0 ? ". " : separator == 1 ? "\n" : " ");
+		}
+		text.append("x".repeat(2 * TextAnalyzer.WINDOW_BYTES)).append(" end");
+		Map<String, Integer> terms = new HashMap<>();
+		Map<String, Integer> trigrams = new HashMap<>();
+		for(String clause : text.toString().toLowerCase().split("\\.")) {
+			String[] tokens = clause.trim().split("\\s+");
+			for(int i = 0; i < tokens.length; i++) {
+				if(tokens[i].isEmpty()) continue;
+				terms.merge(tokens[i], 1, Integer::sum);
+				if(i >= 2) trigrams.merge(tokens[i - 2] + " " + tokens[i - 1] + " " + tokens[i], 1, Integer::sum);
+			}
+		}
+
+		// When
+		TextStatistics statistics = new TextAnalyzer(3, true).analyze(utf8(text.toString()));
+
+		// Then
+		assertEquals(terms.values().stream().mapToLong(Integer::longValue).sum(), statistics.getTokens());
+		assertEquals(terms.size(), statistics.getDistinct());
+		assertEquals(trigrams.size(), statistics.getDistinctNgrams());
+		for(int id = 0; id < statistics.getDistinct(); id++) assertEquals(terms.get(statistics.term(id)), (int) statistics.count(id));
+		for(int id : statistics.topNgrams(1000, id -> true)) assertEquals(trigrams.get(statistics.ngram(id)), (int) statistics.ngramCount(id));
+		assertEquals(1, statistics.count(statistics.find("x".repeat(2 * TextAnalyzer.WINDOW_BYTES))));
+	}
+
+	@Test
+	void testTopBreaksTiesByFirstOccurrence() {
+		// Given
+		TextStatistics statistics = new TextAnalyzer(1, false).analyze(utf8("b a c a b d c e"));
+
+		// When
+		int[] top = statistics.topTerms(4, id -> !statistics.term(id).equals("c"));
+
+		// Then
+		assertArrayEquals(new String[] {"b", "a", "d", "e"}, new String[] {statistics.term(top[0]), statistics.term(top[1]), statistics.term(top[2]), statistics.term(top[3])});
+		assertEquals(0, statistics.topTerms(0, id -> true).length);
+		assertEquals(0, new TextAnalyzer(2, true).analyze(ByteBuffer.allocate(0)).getTokens());
+	}
+
+	@Test
+	void testRejectsInvalidNgramLength() {
+		// Then
+		assertThrows(IllegalArgumentException.class, () -> new TextAnalyzer(0, true));
+		assertThrows(IllegalArgumentException.class, () -> new TextAnalyzer(TextAnalyzer.MAX_NGRAM + 1, true));
+	}
+
+	private static ByteBuffer utf8(String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,99 @@
+package garretreichenbach.taskprocessor.processor;
+
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.TaskType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextProcessorTest {
+
+	private TextProcessor textProcessor;
+	private Map<String, Object> parameters;
+	private String taskId;
+
+	@BeforeEach
+	void setUp() {
+		textProcessor = new TextProcessor();
+		parameters = new HashMap<>();
+		taskId = UUID.randomUUID().toString();
+	}
+
+	@Test
+	void testAnalyzesTermAndNgramFrequencies() {
+		// Given
+		parameters.put("data", "The cat sat. The cat ran; the dog sat.".getBytes(StandardCharsets.UTF_8));
+		parameters.put("top", 2);
+
+		// When
+		TaskResult result = textProcessor.process(new Task(taskId, TaskType.TEXT_ANALYSIS, parameters, 10));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		Map<String, Object> output = result.getOutput();
+		assertEquals(9L, output.get("tokens"));
+		assertEquals(5, output.get("distinct"));
+		assertArrayEquals(new String[] {"the", "cat"}, (String[]) output.get("terms"));
+		assertArrayEquals(new long[] {3, 2}, (long[]) output.get("counts"));
+		assertArrayEquals(new double[] {3 / 9.0, 2 / 9.0}, (double[]) output.get("frequencies"));
+		assertArrayEquals(new String[] {"the cat", "cat sat"}, (String[]) output.get("ngrams"));
+		assertArrayEquals(new long[] {2, 1}, (long[]) output.get("ngram_counts"));
+		assertEquals(5, output.get("distinct_ngrams"));
+	}
+
+	@Test
+	void testExtractsKeywordsWithoutStopWords() {
+		// Given
+		parameters.put("text", "The state of the art in search is the inverted index. An inverted index maps terms to documents; "
+				+ "the inverted index of 2024 is the state of the art. It is fast, it is small.");
+		parameters.put("ngram", 4);
+		parameters.put("top", 3);
+
+		// When
+		TaskResult result = textProcessor.process(new Task(taskId, TaskType.TEXT_EXTRACTION, parameters, 10));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		Map<String, Object> output = result.getOutput();
+		assertArrayEquals(new String[] {"inverted", "index", "state"}, (String[]) output.get("keywords"));
+		assertEquals(3 / 35.0, ((double[]) output.get("scores"))[0], 1e-12);
+		assertArrayEquals(new String[] {"state of the art", "search is the inverted", "inverted index maps terms"}, (String[]) output.get("keyphrases"));
+	}
+
+	@Test
+	void testRejectsMissingTextAndInvalidNgram() {
+		// Given
+		Map<String, Object> invalid = new HashMap<>(Map.of("text", "some text", "ngram", 9));
+
+		// When
+		TaskResult missing = textProcessor.process(new Task(taskId, TaskType.TEXT_ANALYSIS, parameters, 10));
+		TaskResult tooLong = textProcessor.process(new Task(taskId, TaskType.TEXT_EXTRACTION, invalid, 10));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.FAILURE, missing.getStatus());
+		assertEquals(TaskResult.ResultStatus.FAILURE, tooLong.getStatus());
+		assertInstanceOf(IllegalArgumentException.class, tooLong.getOutput().get("error"));
+	}
+
+	@Test
+	void testDispatchesOnTaskTypeOnly() {
+		// Given
+		parameters.put("text", "state of the art");
+		parameters.put("task_type", "keywords");
+
+		// When
+		TaskResult result = textProcessor.process(new Task(taskId, TaskType.TEXT_ANALYSIS, parameters, 10));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		assertEquals(4L, result.getOutput().get("tokens"));
+		assertNull(result.getOutput().get("keywords"));
+	}
+}
@@ -0,0 +1,82 @@
+package garretreichenbach.taskprocessor.processor.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountMinSketchTest {
+
+	@Test
+	void testFindsPlantedHeavyHittersAcrossMergedPartitions() {
+		// Given
+		Random random = new Random(3);
+		CountMinSketch left = new CountMinSketch();
+		CountMinSketch right = new CountMinSketch();
+		long[] heavy = {-7, 42, 1_000_000_007L};
+		for(int i = 0; i < 500_000; i++) {
+			CountMinSketch partition = i % 2 == 0 ? left : right;
+			// Key 42 only shows up in one partition, the others in both
+			int row = i / 2;
+			if(row % 10 == 0) partition.add(heavy[0]);
+			else if(row % 10 == 1 && partition == right) partition.add(heavy[1], 3);
+			else if(row % 20 == 2) partition.add(heavy[2]);
+			else partition.add(random.nextInt(100_000));
+		}
+
+		// When
+		CountMinSketch merged = (CountMinSketch) Sketch.fromBytes(left.merge(right).toBytes());
+		long[] top = merged.topKeys(3);
+
+		// Then
+		assertEquals(500_000 + 25_000 * 2, merged.getTotal());
+		assertArrayEquals(new long[] {42, -7, 1_000_000_007L}, top);
+		assertTrue(merged.estimate(42) >= 75_000);
+		assertTrue(merged.estimate(42) <= 75_000 + merged.getTotal() * Math.E / CountMinSketch.DEFAULT_WIDTH);
+	}
+
+	@Test
+	void testEstimatesNeverUndercount() {
+		// Given
+		CountMinSketch sketch = new CountMinSketch(256, 4, 8);
+		long[] keys = new long[50_000];
+		for(int i = 0; i < keys.length; i++) keys[i] = i % 5000;
+
+		// When
+		sketch.addAll(keys, 0, keys.length);
+
+		// Then
+		for(long key = 0; key < 5000; key++) assertTrue(sketch.estimate(key) >= 10);
+		assertEquals(8, sketch.topKeys(100).length);
+	}
+
+	@Test
+	void testRejectsMalformedData() {
+		// Given
+		byte[] valid = new CountMinSketch(64, 2, 4).toBytes();
+
+		// When / Then
+		assertThrows(IllegalArgumentException.class, () -> Sketch.fromBytes(Arrays.copyOf(valid, valid.length - 1)));
+		assertThrows(IllegalArgumentException.class, () -> Sketch.fromBytes(new byte[] {'X', Sketch.VERSION}));
+		assertThrows(IllegalArgumentException.class, () -> Sketch.fromBytes(new byte[] {'C', 9}));
+		assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(100, 2, 4));
+		assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(64, 2, 4).merge(new CountMinSketch(128, 2, 4)));
+	}
+
+	@Test
+	void testRejectsForgedDimensionsBeforeAllocating() {
+		// Given
+		ByteBuffer forged = ByteBuffer.allocate(2 + 4 * 4 + 8).order(ByteOrder.LITTLE_ENDIAN).put(CountMinSketch.KIND).put(Sketch.VERSION);
+		forged.putInt(1 << 12).putInt(1 << 12).putInt(4).putInt(0).putLong(0);
+
+		// When
+		IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> Sketch.fromBytes(forged.array()));
+
+		// Then
+		assertNull(exception.getCause(), "rejected by the header check rather than by running out of data");
+	}
+}
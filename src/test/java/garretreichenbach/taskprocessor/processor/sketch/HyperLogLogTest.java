@@ -0,0 +1,59 @@
+package garretreichenbach.taskprocessor.processor.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+	@Test
+	void testEstimateWithinErrorBound() {
+		// Given
+		HyperLogLog small = new HyperLogLog();
+		HyperLogLog large = new HyperLogLog();
+
+		// When
+		for(long key = 0; key < 1000; key++) small.add(key * 31);
+		for(long key = 0; key < 1_000_000; key++) {
+			large.add(key);
+			large.add(key);
+		}
+
+		// Then
+		assertEquals(1000, small.estimate(), 10);
+		// Four standard errors at the default precision
+		assertEquals(1_000_000, large.estimate(), 32_000);
+	}
+
+	@Test
+	void testMergedPartitionsEqualSinglePassAndSurviveSerialization() {
+		// Given
+		HyperLogLog single = new HyperLogLog();
+		HyperLogLog left = new HyperLogLog();
+		HyperLogLog right = new HyperLogLog();
+		for(long key = 0; key < 200_000; key++) {
+			single.add(key);
+			(key % 3 == 0 ? left : right).add(key);
+		}
+
+		// When
+		byte[] bytes = left.merge(Sketch.fromBytes(right.toBytes())).toBytes();
+		HyperLogLog merged = (HyperLogLog) Sketch.fromBytes(bytes);
+
+		// Then
+		assertEquals(3 + (1 << HyperLogLog.DEFAULT_PRECISION) * 3 / 4, bytes.length);
+		assertEquals(single.estimate(), merged.estimate());
+		assertArrayEquals(single.toBytes(), bytes);
+	}
+
+	@Test
+	void testRejectsMismatchedPrecision() {
+		// Given
+		HyperLogLog sketch = new HyperLogLog(12);
+
+		// When / Then
+		assertThrows(IllegalArgumentException.class, () -> sketch.merge(new HyperLogLog(14)));
+		assertThrows(IllegalArgumentException.class, () -> sketch.merge(new KllSketch()));
+		assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+	}
+}
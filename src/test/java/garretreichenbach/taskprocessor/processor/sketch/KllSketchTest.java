@@ -0,0 +1,75 @@
+package garretreichenbach.taskprocessor.processor.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KllSketchTest {
+
+	@Test
+	void testQuantilesWithinRankError() {
+		// Given
+		int count = 1_000_000;
+		Random random = new Random(5);
+		double[] values = new double[count];
+		for(int i = 0; i < count; i++) values[i] = random.nextGaussian() * 50 + 10;
+		KllSketch sketch = new KllSketch();
+		double[] ranks = {0.01, 0.25, 0.5, 0.9, 0.99};
+
+		// When
+		sketch.addAll(values, 0, count);
+		double[] quantiles = sketch.quantiles(ranks);
+
+		// Then
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		assertEquals(count, sketch.getCount());
+		for(int i = 0; i < ranks.length; i++) {
+			double rank = (double) Math.abs(Arrays.binarySearch(sorted, quantiles[i])) / count;
+			assertEquals(ranks[i], rank, 0.01, "rank " + ranks[i]);
+		}
+		assertEquals(sorted[0], sketch.quantile(0));
+		assertEquals(sorted[count - 1], sketch.quantile(1));
+		assertTrue(sketch.toBytes().length < 64 * 1024);
+	}
+
+	@Test
+	void testMergedPartitionsKeepRankErrorAndSurviveSerialization() {
+		// Given
+		KllSketch[] partitions = new KllSketch[8];
+		for(int p = 0; p < partitions.length; p++) {
+			partitions[p] = new KllSketch();
+			// Each partition holds a disjoint range, so the merge must order values across partitions
+			for(int i = 0; i < 100_000; i++) partitions[p].add(p * 100_000 + i);
+		}
+
+		// When
+		KllSketch merged = new KllSketch();
+		for(KllSketch partition : partitions) merged.merge(Sketch.fromBytes(partition.toBytes()));
+		KllSketch copy = (KllSketch) Sketch.fromBytes(merged.toBytes());
+
+		// Then
+		assertEquals(800_000, copy.getCount());
+		assertEquals(400_000, copy.quantile(0.5), 8_000);
+		assertEquals(720_000, copy.quantile(0.9), 8_000);
+		assertArrayEquals(merged.quantiles(new double[] {0.1, 0.5, 0.9}), copy.quantiles(new double[] {0.1, 0.5, 0.9}));
+	}
+
+	@Test
+	void testEmptySketchAndInvalidRanks() {
+		// Given
+		KllSketch sketch = new KllSketch();
+
+		// When
+		sketch.add(Double.NaN);
+
+		// Then
+		assertEquals(0, sketch.getCount());
+		assertTrue(Double.isNaN(sketch.quantile(0.5)));
+		assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+		assertThrows(IllegalArgumentException.class, () -> sketch.merge(new KllSketch(100)));
+	}
+}
@@ -0,0 +1,114 @@
+package garretreichenbach.taskprocessor.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTest {
+
+	@TempDir
+	Path directory;
+
+	private BlobStore blobStore;
+
+	@BeforeEach
+	void setUp() {
+		blobStore = new BlobStore(directory, 1024 * 1024);
+	}
+
+	@Test
+	void testDuplicateBlobsAreStoredOnce() throws IOException {
+		// Given
+		byte[] image = {1, 2, 3, 4, 5};
+
+		// When
+		String first = blobStore.put(image);
+		String second = blobStore.put(image.clone());
+
+		// Then
+		assertEquals(first, second);
+		assertEquals("sha256:74f81fe167d99b4cb41d6d0ccda82278caee9f3e2f25d5e5a3936ff3dcec60d0", first);
+		try(var files = Files.walk(directory)) {
+			assertEquals(1, files.filter(Files::isRegularFile).count());
+		}
+	}
+
+	@Test
+	void testViewsShareCachedBytesAndAreReadOnly() {
+		// Given
+		String reference = blobStore.put(new byte[] {9, 8, 7});
+
+		// When
+		ByteBuffer first = blobStore.get(reference);
+		first.get();
+		ByteBuffer second = blobStore.get(reference);
+
+		// Then
+		assertTrue(first.isReadOnly());
+		assertEquals(0, second.position());
+		assertEquals(3, second.remaining());
+		assertThrows(ReadOnlyBufferException.class, () -> second.put(0, (byte) 1));
+		assertEquals(1, blobStore.getCacheStats().hitCount());
+		assertEquals(3, blobStore.size(reference));
+	}
+
+	@Test
+	void testResolveReferences() {
+		// Given
+		String reference = blobStore.put(new byte[] {42, 43});
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("data", Map.of("blob", reference));
+		parameters.put("width", 1);
+
+		// When
+		blobStore.resolveReferences(parameters);
+
+		// Then
+		ByteBuffer data = assertInstanceOf(ByteBuffer.class, parameters.get("data"));
+		assertEquals(42, data.get(0));
+		assertEquals(1, parameters.get("width"));
+	}
+
+	@Test
+	void testUnknownAndMalformedReferences() {
+		// Given
+		Map<String, Object> parameters = new HashMap<>();
+		parameters.put("data", Map.of("blob", "sha256:" + "0".repeat(64)));
+
+		// Then
+		assertFalse(blobStore.contains("0".repeat(64)));
+		assertNull(blobStore.get("sha256:" + "0".repeat(64)));
+		assertThrows(IllegalArgumentException.class, () -> blobStore.resolveReferences(parameters));
+		assertThrows(IllegalArgumentException.class, () -> blobStore.get("sha256:../../etc/passwd"));
+	}
+
+	@Test
+	void testLargeBlobsAreMappedRatherThanCached() {
+		// Given
+		BlobStore mapping = new BlobStore(directory, 1024 * 1024, 4);
+		String small = mapping.put(new byte[] {1, 2, 3});
+		String large = mapping.put(new byte[] {1, 2, 3, 4, 5, 6});
+
+		// When
+		ByteBuffer smallView = mapping.get(small);
+		ByteBuffer largeView = mapping.get(large);
+
+		// Then
+		assertFalse(smallView.isDirect());
+		assertTrue(largeView.isDirect());
+		assertTrue(largeView.isReadOnly());
+		assertEquals(6, largeView.remaining());
+		assertEquals(6, largeView.get(5));
+		assertEquals(1, mapping.getCacheStats().loadCount());
+	}
+}
@@ -0,0 +1,227 @@
+package garretreichenbach.taskprocessor.service;
+
+import garretreichenbach.taskprocessor.model.Task;
+import garretreichenbach.taskprocessor.model.TaskResult;
+import garretreichenbach.taskprocessor.model.TaskResultStore;
+import garretreichenbach.taskprocessor.model.TaskType;
+import garretreichenbach.taskprocessor.processor.SplittableTaskProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SplitTaskCoordinatorTest {
+
+	private TaskQueueService queueService;
+	private TaskResultStore resultStore;
+	private SplitTaskCoordinator coordinator;
+	private final String taskId = UUID.randomUUID().toString();
+
+	@BeforeEach
+	void setUp() {
+		queueService = new TaskQueueService(100);
+		while(queueService.takeTask() != null) {
+			// Drain tasks left in the shared queues by other tests
+		}
+		resultStore = new TaskResultStore(100);
+		coordinator = new SplitTaskCoordinator(queueService, resultStore, 2);
+	}
+
+	@Test
+	void testSubtaskResultsAreReducedUnderTaskId() {
+		// Given
+		SummingProcessor processor = new SummingProcessor(3, 0);
+		Task task = new Task(taskId, TaskType.CUSTOM_TASK, new HashMap<>(), 7);
+
+		// When
+		boolean split = coordinator.fanOut(task, processor);
+		List<Task> scheduled = drain();
+		for(Task subtask : scheduled) {
+			assertTrue(coordinator.isSubtask(subtask));
+			assertTrue(coordinator.complete(subtask, processor.process(subtask)));
+		}
+
+		// Then
+		assertTrue(split);
+		assertEquals(3, scheduled.size());
+		assertEquals(0, coordinator.getPendingSubtasks());
+		TaskResult result = resultStore.getResult(taskId);
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		assertEquals(0 + 1 + 2, result.getOutput().get("sum"));
+		assertEquals(TaskType.CUSTOM_TASK, result.getTaskType());
+		for(Task subtask : scheduled) assertNull(resultStore.getResult(subtask.getId()));
+	}
+
+	@Test
+	void testFailedSubtaskIsRetriedAlone() {
+		// Given
+		SummingProcessor processor = new SummingProcessor(3, 1);
+		Task task = new Task(taskId, TaskType.CUSTOM_TASK, new HashMap<>(), 7);
+		coordinator.fanOut(task, processor);
+
+		// When
+		List<Task> first = drain();
+		for(Task subtask : first) coordinator.complete(subtask, processor.process(subtask));
+		List<Task> retried = drain();
+		for(Task subtask : retried) coordinator.complete(subtask, processor.process(subtask));
+
+		// Then
+		assertEquals(1, retried.size());
+		assertEquals(taskId + "#1", retried.get(0).getId());
+		assertEquals(4, processor.processed);
+		assertEquals(3, resultStore.getResult(taskId).getOutput().get("sum"));
+	}
+
+	@Test
+	void testTaskFailsWhenSubtaskRunsOutOfAttempts() {
+		// Given
+		SummingProcessor processor = new SummingProcessor(2, 5);
+		Task task = new Task(taskId, TaskType.CUSTOM_TASK, new HashMap<>(), 7);
+		coordinator.fanOut(task, processor);
+
+		// When
+		for(List<Task> scheduled = drain(); !scheduled.isEmpty(); scheduled = drain()) {
+			for(Task subtask : scheduled) coordinator.complete(subtask, processor.process(subtask));
+		}
+
+		// Then
+		TaskResult result = resultStore.getResult(taskId);
+		assertEquals(TaskResult.ResultStatus.FAILURE, result.getStatus());
+		assertTrue(((Exception) result.getOutput().get("error")).getMessage().contains(taskId + "#"));
+		assertEquals(0, coordinator.getPendingSubtasks());
+		assertFalse(coordinator.complete(task, TaskResult.success(taskId, Map.of())));
+	}
+
+	@Test
+	void testSiblingsInFlightWhenTaskFailsAreSkippedOrDropped() {
+		// Given
+		SummingProcessor processor = new SummingProcessor(3, 5);
+		Task task = new Task(taskId, TaskType.CUSTOM_TASK, new HashMap<>(), 7);
+		coordinator.fanOut(task, processor);
+		List<Task> scheduled = drain();
+		Task failing = scheduled.get(1);
+
+		// When
+		coordinator.complete(failing, processor.process(failing));
+		Task retried = drain().get(0);
+		coordinator.complete(retried, processor.process(retried));
+		boolean running = coordinator.isSubtask(scheduled.get(0));
+		boolean finished = coordinator.complete(scheduled.get(0), processor.process(scheduled.get(0)));
+		boolean skipped = coordinator.skip(scheduled.get(2));
+
+		// Then
+		assertEquals(TaskResult.ResultStatus.FAILURE, resultStore.getResult(taskId).getStatus());
+		assertTrue(running);
+		assertTrue(finished);
+		assertTrue(skipped);
+		assertNull(resultStore.getResult(scheduled.get(0).getId()));
+		assertNull(resultStore.getResult(scheduled.get(2).getId()));
+		assertEquals(0, coordinator.getPendingSubtasks());
+		assertFalse(coordinator.isSubtask(scheduled.get(2)));
+	}
+
+	@Test
+	void testTaskWithSubtaskIdIsNotASubtask() {
+		// Given
+		SummingProcessor processor = new SummingProcessor(2, 0);
+		coordinator.fanOut(new Task(taskId, TaskType.CUSTOM_TASK, new HashMap<>(), 7), processor);
+		List<Task> scheduled = drain();
+		Task forged = new Task(taskId + "#0", TaskType.CUSTOM_TASK, new HashMap<>(Map.of("index", 40)), 7);
+
+		// When
+		boolean subtask = coordinator.isSubtask(forged);
+		boolean taken = coordinator.complete(forged, processor.process(forged));
+		for(Task part : scheduled) coordinator.complete(part, processor.process(part));
+
+		// Then
+		assertFalse(subtask);
+		assertFalse(taken);
+		assertEquals(1, resultStore.getResult(taskId).getOutput().get("sum"));
+	}
+
+	@Test
+	void testThreadPoolRunsSplitAnalysisToOneResult() throws InterruptedException {
+		// Given
+		int rows = 200_003;
+		Random random = new Random(5);
+		double[] values = new double[rows];
+		long[] keys = new long[rows];
+		for(int i = 0; i < rows; i++) {
+			keys[i] = random.nextInt(13);
+			values[i] = random.nextGaussian() * 100;
+		}
+		Map<String, Object> parameters = new HashMap<>(Map.of("values", values, "keys", keys, "split_rows", 30_000));
+		Map<String, Object> wholeParameters = new HashMap<>(Map.of("values", values, "keys", keys));
+		Task task = new Task(taskId, TaskType.DATA_ANALYSIS, parameters, 7);
+		Task whole = new Task(taskId, TaskType.DATA_ANALYSIS, wholeParameters, 7);
+		TaskThreadPool pool = new TaskThreadPool(UUID.randomUUID().toString(), queueService, resultStore, 2, coordinator);
+
+		// When
+		queueService.submitTask(task);
+		pool.start();
+		for(int waited = 0; resultStore.getResult(taskId) == null && waited < 10_000; waited += 10) Thread.sleep(10);
+		pool.stop();
+		Map<String, Object> expected = TaskType.DATA_ANALYSIS.createProcessor(whole).process(whole).getOutput();
+
+		// Then
+		TaskResult result = resultStore.getResult(taskId);
+		assertNotNull(result);
+		assertEquals(TaskResult.ResultStatus.SUCCESS, result.getStatus());
+		assertEquals(13, result.getOutput().get("groups"));
+		assertArrayEquals((long[]) expected.get("count"), (long[]) result.getOutput().get("count"));
+		assertArrayEquals((double[]) expected.get("mean"), (double[]) result.getOutput().get("mean"), 1e-9);
+		assertArrayEquals((double[]) expected.get("variance"), (double[]) result.getOutput().get("variance"), 1e-6);
+		assertArrayEquals((double[]) expected.get("min"), (double[]) result.getOutput().get("min"));
+		assertEquals(0, coordinator.getPendingSubtasks());
+	}
+
+	private List<Task> drain() {
+		List<Task> tasks = new ArrayList<>();
+		for(Task task = queueService.takeTask(); task != null; task = queueService.takeTask()) tasks.add(task);
+		return tasks;
+	}
+
+	/**
+	 * Splits a task into a number of subtasks that each output their index, and sums them. Subtask 1 fails a number of times first.
+	 */
+	private static final class SummingProcessor implements SplittableTaskProcessor {
+
+		private final int parts;
+		private int failures;
+		private int processed;
+
+		SummingProcessor(int parts, int failures) {
+			this.parts = parts;
+			this.failures = failures;
+		}
+
+		@Override
+		public List<Task> split(Task task) {
+			List<Task> subtasks = new ArrayList<>();
+			for(int part = 0; part < parts; part++) subtasks.add(SplittableTaskProcessor.subtask(task, part, new HashMap<>(Map.of("index", part))));
+			return subtasks;
+		}
+
+		@Override
+		public TaskResult process(Task task) {
+			processed++;
+			int index = (int) task.getParameters().get("index");
+			if(index == 1 && failures-- > 0) return TaskResult.error(task.getId(), new Exception("Failed part " + index));
+			return TaskResult.success(task.getId(), Map.of("index", index));
+		}
+
+		@Override
+		public TaskResult reduce(Task task, List<TaskResult> results) {
+			int sum = 0;
+			for(TaskResult result : results) sum += (int) result.getOutput().get("index");
+			return TaskResult.success(task.getId(), Map.of("sum", sum));
+		}
+	}
+}
@@ -154,4 +154,32 @@ class TaskQueueServiceTest {
 		// The number of tasks taken should match the number of successful submissions
 		assertEquals(successfulSubmissions.get(), tasksTaken);
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testQueueTypeIsRecordedBeforeTaskIsVisible() throws InterruptedException {
+		// Given
+		while(queueService.takeTask() != null) {
+			// Drain tasks left in the shared queues by other tests
+		}
+		int tasks = 2000;
+		AtomicInteger taken = new AtomicInteger();
+		AtomicInteger missing = new AtomicInteger();
+		Thread taker = new Thread(() -> {
+			while(taken.get() < tasks) {
+				Task task = queueService.takeTask();
+				if(task == null) continue;
+				if(task.getQueueType() == null) missing.incrementAndGet();
+				taken.incrementAndGet();
+			}
+		});
+
+		// When
+		taker.start();
+		for(int i = 0; i < tasks; i++) queueService.submitTask(new Task(UUID.randomUUID().toString(), TaskType.IMAGE_SCALING, new HashMap<>(), i % 2 == 0 ? 15 : 1));
+		taker.join(10_000);
+
+		// Then
+		assertEquals(tasks, taken.get());
+		assertEquals(0, missing.get());
+	}
+}